@@ -0,0 +1,109 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+/**
+ * Receives the lifecycle of envelopes as they move through a Sensor and its clients.  Register with
+ * Sensor.addListener(), which also covers the Sensor's clients, or with CaliperClient.addListener().
+ *
+ * Timestamps are System.nanoTime() values, so stage durations are differences between them.  Callbacks
+ * run synchronously on sending, worker and transport threads and must return quickly; exceptions thrown
+ * by a listener are logged and ignored.  Envelopes the Sensor serializes once for several clients carry
+ * their source, so listeners see the same Envelope instance from every client.  The envelope is null
+ * only when the source is unknown, as for envelopes replayed from a spool.  Every method has an empty
+ * default, so listeners implement only the stages they need.
+ */
+public interface SendListener {
+
+    /**
+     * An envelope was accepted by the Sensor's send queue.
+     * @param sensorId
+     * @param envelope
+     * @param enqueuedNanos
+     */
+    default void onEnqueued(String sensorId, Envelope envelope, long enqueuedNanos) {
+    }
+
+    /**
+     * An envelope was serialized for a client.  Not reported for envelopes serialized while being
+     * streamed to the connection; onAcknowledged reports their size.
+     * @param clientId
+     * @param envelope
+     * @param startNanos
+     * @param serializedNanos
+     * @param bytes serialized size, before compression
+     */
+    default void onSerialized(String clientId, Envelope envelope, long startNanos, long serializedNanos,
+                              long bytes) {
+    }
+
+    /**
+     * An attempt to send an envelope was handed to the transport.
+     * @param clientId
+     * @param envelope
+     * @param sentNanos
+     * @param bytes size on the wire, or -1 if the body is serialized as it is written
+     */
+    default void onSent(String clientId, Envelope envelope, long sentNanos, long bytes) {
+    }
+
+    /**
+     * The endpoint accepted an envelope.
+     * @param clientId
+     * @param envelope
+     * @param sentNanos start of the successful attempt
+     * @param acknowledgedNanos
+     * @param statusCode
+     * @param bytes size on the wire
+     */
+    default void onAcknowledged(String clientId, Envelope envelope, long sentNanos, long acknowledgedNanos,
+                                int statusCode, long bytes) {
+    }
+
+    /**
+     * A failed attempt will be retried.
+     * @param clientId
+     * @param envelope
+     * @param retriedNanos
+     * @param statusCode status of the failed attempt, or 0 if there was no response
+     * @param retry number of the retry about to be made, starting at 1
+     */
+    default void onRetried(String clientId, Envelope envelope, long retriedNanos, int statusCode, int retry) {
+    }
+
+    /**
+     * An envelope was discarded without being sent, e.g. by a Sensor's overflow policy or a rate limit.
+     * @param sourceId identifier of the Sensor or client that discarded it
+     * @param envelope
+     * @param droppedNanos
+     */
+    default void onDropped(String sourceId, Envelope envelope, long droppedNanos) {
+    }
+
+    /**
+     * A client gave up on an envelope.
+     * @param clientId
+     * @param envelope
+     * @param failedNanos
+     * @param statusCode status of the last attempt, or 0 if there was no response
+     * @param cause failure, or null if the endpoint answered with an unsuccessful status
+     */
+    default void onFailed(String clientId, Envelope envelope, long failedNanos, int statusCode, Throwable cause) {
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Copy-on-write set of SendListeners that is itself a SendListener.  Dispatch reads a volatile array and
+ * loops over it, so with no listeners registered a callback costs one volatile read and allocates
+ * nothing; callers that would compute arguments only for listeners check isEmpty() first.  A listener
+ * that throws is logged and does not prevent the others from being called.
+ */
+public final class SendListeners implements SendListener {
+    private static final SendListener[] NONE = new SendListener[0];
+    private static final Logger log = LoggerFactory.getLogger(SendListeners.class);
+
+    private volatile SendListener[] listeners = NONE;
+
+    /**
+     * Register a listener.  A listener already registered is not added again.
+     * @param listener
+     */
+    public synchronized void add(SendListener listener) {
+        SendListener[] current = listeners;
+        for (SendListener registered : current) {
+            if (registered == listener) {
+                return;
+            }
+        }
+        SendListener[] updated = new SendListener[current.length + 1];
+        System.arraycopy(current, 0, updated, 0, current.length);
+        updated[current.length] = listener;
+        listeners = updated;
+    }
+
+    /**
+     * Unregister a listener.
+     * @param listener
+     */
+    public synchronized void remove(SendListener listener) {
+        SendListener[] current = listeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                SendListener[] updated = (current.length == 1) ? NONE : new SendListener[current.length - 1];
+                System.arraycopy(current, 0, updated, 0, i);
+                System.arraycopy(current, i + 1, updated, i, current.length - i - 1);
+                listeners = updated;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return true if no listener is registered
+     */
+    public boolean isEmpty() {
+        return listeners.length == 0;
+    }
+
+    @Override
+    public void onEnqueued(String sensorId, Envelope envelope, long enqueuedNanos) {
+        for (SendListener listener : listeners) {
+            try {
+                listener.onEnqueued(sensorId, envelope, enqueuedNanos);
+            } catch (RuntimeException ex) {
+                log.warn("SendListener failed", ex);
+            }
+        }
+    }
+
+    @Override
+    public void onSerialized(String clientId, Envelope envelope, long startNanos, long serializedNanos,
+                             long bytes) {
+        for (SendListener listener : listeners) {
+            try {
+                listener.onSerialized(clientId, envelope, startNanos, serializedNanos, bytes);
+            } catch (RuntimeException ex) {
+                log.warn("SendListener failed", ex);
+            }
+        }
+    }
+
+    @Override
+    public void onSent(String clientId, Envelope envelope, long sentNanos, long bytes) {
+        for (SendListener listener : listeners) {
+            try {
+                listener.onSent(clientId, envelope, sentNanos, bytes);
+            } catch (RuntimeException ex) {
+                log.warn("SendListener failed", ex);
+            }
+        }
+    }
+
+    @Override
+    public void onAcknowledged(String clientId, Envelope envelope, long sentNanos, long acknowledgedNanos,
+                               int statusCode, long bytes) {
+        for (SendListener listener : listeners) {
+            try {
+                listener.onAcknowledged(clientId, envelope, sentNanos, acknowledgedNanos, statusCode, bytes);
+            } catch (RuntimeException ex) {
+                log.warn("SendListener failed", ex);
+            }
+        }
+    }
+
+    @Override
+    public void onRetried(String clientId, Envelope envelope, long retriedNanos, int statusCode, int retry) {
+        for (SendListener listener : listeners) {
+            try {
+                listener.onRetried(clientId, envelope, retriedNanos, statusCode, retry);
+            } catch (RuntimeException ex) {
+                log.warn("SendListener failed", ex);
+            }
+        }
+    }
+
+    @Override
+    public void onDropped(String sourceId, Envelope envelope, long droppedNanos) {
+        for (SendListener listener : listeners) {
+            try {
+                listener.onDropped(sourceId, envelope, droppedNanos);
+            } catch (RuntimeException ex) {
+                log.warn("SendListener failed", ex);
+            }
+        }
+    }
+
+    @Override
+    public void onFailed(String clientId, Envelope envelope, long failedNanos, int statusCode, Throwable cause) {
+        for (SendListener listener : listeners) {
+            try {
+                listener.onFailed(clientId, envelope, failedNanos, statusCode, cause);
+            } catch (RuntimeException ex) {
+                log.warn("SendListener failed", ex);
+            }
+        }
+    }
+}
@@ -0,0 +1,295 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import org.imsglobal.caliper.clients.HttpClientOptions;
+import org.imsglobal.caliper.clients.SpoolClientOptions;
+import org.imsglobal.caliper.config.Config;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.spool.EnvelopeSpool;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded queue between a Sensor and its clients, drained by a pool of worker threads.  Queue depth,
+ * dropped and spilled envelopes are recorded in the supplied Statistics.
+ *
+ * Under the SPILL policy, envelopes that do not fit are serialized to an EnvelopeSpool and replayed by
+ * a worker whenever the queue is empty.  Spilled envelopes are delivered at most once to each client;
+ * envelopes still spilled when the Sensor is closed are replayed by the next Sensor using the directory.
+ */
+final class SendQueue implements Closeable {
+    private final SensorOptions options;
+    private final Dispatcher dispatcher;
+    private final Statistics statistics;
+    private final String id;
+    private final SendListeners listeners;
+    private final BlockingQueue<Queued> queue;
+    private final EnvelopeSpool spool;
+    private final ReentrantLock replayLock = new ReentrantLock();
+    private final ExecutorService workers;
+    private volatile boolean closed;
+
+    private static final long POLL_MS = 100;
+    private static final Logger log = LoggerFactory.getLogger(SendQueue.class);
+
+    /**
+     * Delivers dequeued envelopes to the Sensor's clients.
+     */
+    interface Dispatcher {
+        void dispatch(Envelope envelope);
+
+        void dispatch(SerializedEnvelope envelope);
+    }
+
+    /**
+     * Constructor
+     * @param id owning sensor identifier, used to name worker threads
+     * @param options
+     * @param dispatcher
+     * @param statistics
+     * @param listeners notified of envelopes enqueued and dropped
+     */
+    SendQueue(final String id, SensorOptions options, Dispatcher dispatcher, Statistics statistics,
+              SendListeners listeners) {
+        this.id = id;
+        this.options = options;
+        this.dispatcher = dispatcher;
+        this.statistics = statistics;
+        this.listeners = listeners;
+        this.queue = new ArrayBlockingQueue<>(options.getQueueCapacity());
+        this.spool = (options.getOverflowPolicy() == SensorOptions.OverflowPolicy.SPILL) ? openSpool(options) : null;
+
+        final AtomicInteger count = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(options.getWorkers(), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "caliper-sensor-" + id + "-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        for (int i = 0; i < options.getWorkers(); i++) {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    drain();
+                }
+            });
+        }
+    }
+
+    /**
+     * Open the overflow spool with the SpoolClient defaults.
+     * @param options
+     * @return spool
+     */
+    private static EnvelopeSpool openSpool(SensorOptions options) {
+        try {
+            return new EnvelopeSpool(options.getSpoolDirectory(), SpoolClientOptions.SEGMENT_BYTES,
+                SpoolClientOptions.MAX_BYTES, SpoolClientOptions.MAX_AGE_MS, false);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open spool " + options.getSpoolDirectory(), ioe);
+        }
+    }
+
+    /**
+     * Enqueue an envelope, applying the overflow policy if the queue is full.
+     * @param envelope
+     * @return false if the envelope was dropped
+     */
+    boolean offer(Envelope envelope) {
+        if (closed) {
+            throw new IllegalStateException("Sensor send queue is closed.");
+        }
+
+        Queued queued = new Queued(envelope);
+
+        boolean accepted;
+        switch (options.getOverflowPolicy()) {
+            case DROP_NEWEST:
+                accepted = queue.offer(queued);
+                break;
+            case DROP_OLDEST:
+                while (!queue.offer(queued)) {
+                    Queued evicted = queue.poll();
+                    if (evicted != null) {
+                        statistics.updateDropped(1);
+                        if (!listeners.isEmpty()) {
+                            listeners.onDropped(id, evicted.envelope, System.nanoTime());
+                        }
+                    }
+                }
+                accepted = true;
+                break;
+            case SPILL:
+                accepted = queue.offer(queued) || spill(envelope);
+                break;
+            default:
+                try {
+                    accepted = queue.offer(queued, options.getBlockTimeoutMs(), TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    accepted = false;
+                }
+        }
+
+        if (!accepted) {
+            statistics.updateDropped(1);
+            if (!listeners.isEmpty()) {
+                listeners.onDropped(id, envelope, System.nanoTime());
+            }
+        } else if (!listeners.isEmpty()) {
+            listeners.onEnqueued(id, envelope, queued.enqueuedAt);
+        }
+        statistics.updateQueueDepths(queue.size());
+        return accepted;
+    }
+
+    /**
+     * Serialize an envelope that did not fit in the queue to the spool.
+     * @param envelope
+     * @return false if it could not be spooled
+     */
+    private boolean spill(Envelope envelope) {
+        try {
+            if (spool.append(CaliperSerializer.getDefault().writeValueAsBytes(envelope))) {
+                statistics.updateSpilled(1);
+                return true;
+            }
+        } catch (IOException ioe) {
+            log.error("Unable to spill envelope", ioe);
+        }
+        return false;
+    }
+
+    /**
+     * Worker loop.  Runs until the queue is closed and empty.
+     */
+    private void drain() {
+        while (!closed || !queue.isEmpty()) {
+            Queued queued;
+            try {
+                queued = queue.poll(POLL_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException ie) {
+                return;
+            }
+
+            if (queued != null) {
+                statistics.recordQueueLatency(System.nanoTime() - queued.enqueuedAt);
+                try {
+                    dispatcher.dispatch(queued.envelope);
+                } catch (RuntimeException ex) {
+                    log.error("Error sending queued envelope", ex);
+                }
+            } else if (spool != null && !closed) {
+                replay();
+            }
+        }
+    }
+
+    /**
+     * Replay spilled envelopes while the queue stays empty.  Only one worker replays at a time so that
+     * each record is peeked and committed exactly once.
+     */
+    private void replay() {
+        if (!replayLock.tryLock()) {
+            return;
+        }
+        try {
+            byte[] payload;
+            while (queue.isEmpty() && !closed && (payload = spool.peek()) != null) {
+                try {
+                    dispatcher.dispatch(new SerializedEnvelope(payload, Config.DATA_FORMAT,
+                        HttpClientOptions.HTTP_CONTENT_TYPE));
+                } catch (RuntimeException ex) {
+                    log.error("Error sending spilled envelope", ex);
+                }
+                spool.commit();
+            }
+        } catch (IOException ioe) {
+            log.error("Error reading spill spool", ioe);
+        } finally {
+            replayLock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of queued envelopes.
+     * @return depth
+     */
+    int size() {
+        return queue.size();
+    }
+
+    /**
+     * Stop accepting envelopes and wait up to the drain timeout for queued envelopes to be sent.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(options.getDrainTimeoutMs(), TimeUnit.MILLISECONDS)) {
+                log.warn(queue.size() + " queued envelopes not sent before the drain timeout.");
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException ie) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+
+        if (spool != null) {
+            replayLock.lock();
+            try {
+                spool.close();
+            } catch (IOException ioe) {
+                log.warn("Error closing spill spool", ioe);
+            } finally {
+                replayLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Queued envelope stamped with its arrival time.
+     */
+    private static final class Queued {
+        private final Envelope envelope;
+        private final long enqueuedAt;
+
+        private Queued(Envelope envelope) {
+            this.envelope = envelope;
+            this.enqueuedAt = System.nanoTime();
+        }
+    }
+}
@@ -18,32 +18,105 @@
 
 package org.imsglobal.caliper;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
 import com.google.common.base.Function;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Maps;
 import org.imsglobal.caliper.clients.CaliperClient;
+import org.imsglobal.caliper.clients.HttpClientOptions;
+import org.imsglobal.caliper.config.DataFormat;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.management.CaliperMBeans;
 import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.statistics.StatisticsSnapshot;
 import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
-import java.util.HashMap;
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Concrete implementation of the Caliper Sensor interface.  Caliper Events and Entity describes
  * are sent via an Envelope.  Serialization and transmission of the Envelope is delegated to
  * one or more registered Clients which in turn delegate serialization and transmission to
  * an associated Requestor.  The delegation chain is thus Sensor to Client to Requestor.
+ *
+ * A Sensor created with SensorOptions buffers envelopes sent to all clients in a bounded queue drained by
+ * worker threads, so that send(Envelope) costs a single enqueue; see SensorOptions.OverflowPolicy.  It also
+ * sends each envelope to all registered clients in parallel, so that one slow endpoint does not delay
+ * the others; see SensorOptions.AwaitMode.  With SensorOptions.jmx(true) the Sensor and each registered
+ * Client are exposed as MXBeans; see CaliperMBeans.
  */
-public class Sensor {
+public class Sensor implements Closeable {
     private String id;
-    private Map<String, CaliperClient> clients = new HashMap<>();
+    private Map<String, CaliperClient> clients = new ConcurrentHashMap<>();
+    private final Statistics statistics = new Statistics();
+    private final SendListeners listeners = new SendListeners();
+    private final SensorOptions options;
+    private final Executor executor;
+    private final ExecutorService ownedExecutor;
+    private final SendQueue sendQueue;
+
+    private static final Logger log = LoggerFactory.getLogger(Sensor.class);
 
     /**
      * Constructor. Scope is private to force use of the static factory method for instantiating a Sensor.
      */
-    private Sensor(String id) {
+    private Sensor(final String id, SensorOptions options) {
         this.id = id;
+        this.options = options;
+
+        if (options != null && options.getExecutor() == null) {
+            final AtomicInteger count = new AtomicInteger();
+            this.ownedExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "caliper-fanout-" + id + "-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.executor = ownedExecutor;
+        } else {
+            this.ownedExecutor = null;
+            this.executor = (options != null) ? options.getExecutor() : null;
+        }
+
+        if (options != null && options.isQueued()) {
+            this.sendQueue = new SendQueue(id, options, new SendQueue.Dispatcher() {
+                @Override
+                public void dispatch(Envelope envelope) {
+                    fanOut(envelope);
+                }
+
+                @Override
+                public void dispatch(SerializedEnvelope envelope) {
+                    dispatchSpilled(envelope);
+                }
+            }, statistics, listeners);
+        } else {
+            this.sendQueue = null;
+        }
+
+        if (isJmx()) {
+            CaliperMBeans.registerSensor(this);
+        }
     }
 
     /**
@@ -60,6 +133,12 @@ public class Sensor {
      */
     public void registerClient(CaliperClient client) {
         clients.put(client.getId(), client);
+        if (!listeners.isEmpty()) {
+            client.addListener(listeners);
+        }
+        if (isJmx()) {
+            CaliperMBeans.registerClient(id, client);
+        }
     }
 
     /**
@@ -68,7 +147,38 @@ public class Sensor {
      * @return
      */
     public void unregisterClient(String key) {
-        clients.remove(key);
+        CaliperClient removed = clients.remove(key);
+        if (removed != null) {
+            removed.removeListener(listeners);
+        }
+        if (isJmx()) {
+            CaliperMBeans.unregisterClient(id, key);
+        }
+    }
+
+    /**
+     * Register a listener for envelopes enqueued and dropped by this Sensor and for the send stages of
+     * every registered Client, including Clients registered later.
+     * @param listener
+     */
+    public synchronized void addListener(SendListener listener) {
+        listeners.add(listener);
+        for (CaliperClient client : clients.values()) {
+            client.addListener(listeners);
+        }
+    }
+
+    /**
+     * Unregister a listener.
+     * @param listener
+     */
+    public synchronized void removeListener(SendListener listener) {
+        listeners.remove(listener);
+        if (listeners.isEmpty()) {
+            for (CaliperClient client : clients.values()) {
+                client.removeListener(listeners);
+            }
+        }
     }
 
     /**
@@ -106,29 +216,179 @@ public class Sensor {
      */
     public void send(CaliperClient client, Envelope envelope) {
         if (clients.containsKey(client.getId())) {
-            client.send(envelope);
+            deliver(client, envelope, Collections.<DataFormat, SerializedEnvelope>emptyMap());
         } else {
             throw new IllegalArgumentException(client.getId() + " is not a registered Client.");
         }
     }
 
     /**
-     * Delegate serialization and transmission of the Envelope to all registered Clients.
+     * Delegate serialization and transmission of the Envelope to all registered Clients.  If the Sensor
+     * has a send queue the Envelope is enqueued and sent by a worker thread; an Envelope dropped by the
+     * overflow policy is counted in getQueueStatistics().  If the Sensor was created with options the
+     * Clients are sent to in parallel and a failing Client does not affect the others.
      * @param envelope
      */
     public void send(Envelope envelope) {
         if (clients.size() > 0) {
-            for(CaliperClient client: clients.values()){
-                client.send(envelope);
+            if (sendQueue != null) {
+                sendQueue.offer(envelope);
+                return;
+            }
+            if (options != null) {
+                fanOut(envelope);
+                return;
+            }
+            Collection<CaliperClient> targets = clients.values();
+            Map<DataFormat, SerializedEnvelope> shared = serializeShared(envelope, targets);
+            for(CaliperClient client: targets){
+                deliver(client, envelope, shared);
             }
         } else {
             throw new IllegalStateException("No Clients have been registered.");
         }
     }
 
+    /**
+     * Send an Envelope to all registered Clients in parallel on the executor, then wait according to
+     * the await mode.  A lone Client is sent to on the calling thread unless the await mode is NONE.
+     * @param envelope
+     */
+    private void fanOut(final Envelope envelope) {
+        Collection<CaliperClient> targets = clients.values();
+        SensorOptions.AwaitMode mode = options.getAwaitMode();
+        final Map<DataFormat, SerializedEnvelope> shared = serializeShared(envelope, targets);
+
+        if (targets.size() == 1 && mode != SensorOptions.AwaitMode.NONE) {
+            for (CaliperClient client: targets) {
+                sendIsolated(client, envelope, shared);
+            }
+            return;
+        }
+
+        final boolean awaitAll = mode == SensorOptions.AwaitMode.ALL;
+        final AtomicInteger remaining = new AtomicInteger(targets.size());
+        final CountDownLatch done = new CountDownLatch(awaitAll ? targets.size() : 1);
+        for (final CaliperClient client: targets) {
+            Runnable task = new Runnable() {
+                @Override
+                public void run() {
+                    boolean successful = sendIsolated(client, envelope, shared);
+                    boolean last = remaining.decrementAndGet() == 0;
+                    if (awaitAll || successful || last) {
+                        done.countDown();
+                    }
+                }
+            };
+            try {
+                executor.execute(task);
+            } catch (RejectedExecutionException ree) {
+                log.error("Executor rejected send to client " + client.getId(), ree);
+                if (awaitAll || remaining.decrementAndGet() == 0) {
+                    done.countDown();
+                }
+            }
+        }
+
+        if (mode != SensorOptions.AwaitMode.NONE) {
+            try {
+                done.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Serialize the Envelope once for each DataFormat shared by two or more Clients.  Clients with a
+     * format of their own, or none, serialize the Envelope themselves.
+     * @param envelope
+     * @param targets
+     * @return serialized envelopes keyed by format
+     */
+    private Map<DataFormat, SerializedEnvelope> serializeShared(Envelope envelope,
+                                                                Collection<CaliperClient> targets) {
+        Map<DataFormat, SerializedEnvelope> shared = new EnumMap<>(DataFormat.class);
+        if (targets.size() < 2) {
+            return shared;
+        }
+
+        EnumSet<DataFormat> seen = EnumSet.noneOf(DataFormat.class);
+        for (CaliperClient client: targets) {
+            DataFormat format = client.getDataFormat();
+            if (format == null || seen.add(format) || shared.containsKey(format)) {
+                continue;
+            }
+            try {
+                long start = System.nanoTime();
+                byte[] payload = CaliperSerializer.getDefault().writeValueAsBytes(envelope);
+                statistics.recordSerializationLatency(System.nanoTime() - start);
+                shared.put(format, new SerializedEnvelope(payload, format, HttpClientOptions.HTTP_CONTENT_TYPE,
+                    envelope));
+            } catch (JsonProcessingException jpe) {
+                log.warn("Unable to pre-serialize envelope; clients will serialize it individually.", jpe);
+                return shared;
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Send an Envelope to one Client, using the shared serialized form if there is one for its format.
+     * The Client counts the Envelope's events as sent or failed once it knows the outcome.
+     * @param client
+     * @param envelope
+     * @param shared
+     */
+    private static void deliver(CaliperClient client, Envelope envelope, Map<DataFormat, SerializedEnvelope> shared) {
+        SerializedEnvelope serialized = shared.get(client.getDataFormat());
+        if (serialized != null) {
+            client.send(serialized);
+        } else {
+            client.send(envelope);
+        }
+    }
+
+    /**
+     * Send an Envelope to one Client, logging rather than propagating its failure.
+     * @param client
+     * @param envelope
+     * @param shared
+     * @return true if the Client did not throw
+     */
+    private boolean sendIsolated(CaliperClient client, Envelope envelope, Map<DataFormat, SerializedEnvelope> shared) {
+        try {
+            deliver(client, envelope, shared);
+            return true;
+        } catch (RuntimeException ex) {
+            log.error("Client " + client.getId() + " failed to send envelope", ex);
+            return false;
+        }
+    }
+
+    /**
+     * Send an Envelope replayed from the overflow spool.  Clients that do not accept pre-serialized
+     * envelopes of the spilled format miss spilled envelopes, which are counted as dropped.
+     * @param envelope
+     */
+    private void dispatchSpilled(SerializedEnvelope envelope) {
+        for (CaliperClient client: clients.values()) {
+            if (client.getDataFormat() != envelope.getFormat()) {
+                statistics.updateDropped(1);
+                continue;
+            }
+            try {
+                client.send(envelope);
+            } catch (RuntimeException ex) {
+                log.error("Client " + client.getId() + " failed to send spilled envelope", ex);
+            }
+        }
+    }
+
     /**
      * Returns a map where the keys are the identifying objects and the values are the corresponding statistics
-     * for that key's Client.
+     * for that key's Client.  The map is a live view; use getStatisticsSnapshot() for values that agree with
+     * each other.
      * @return a map
      */
     public Map<String, Statistics> getStatistics() {
@@ -142,10 +402,84 @@ public class Sensor {
     }
 
     /**
-     * Factory method for creating Sensors.
+     * Returns an immutable copy of every Client's statistics, keyed by Client identifier, all taken at the
+     * same point in time.  Exporters can diff successive snapshots with StatisticsSnapshot.minus().
+     * @return snapshots
+     */
+    public Map<String, StatisticsSnapshot> getStatisticsSnapshot() {
+        List<String> ids = new ArrayList<>();
+        List<Statistics> statistics = new ArrayList<>();
+        for (Map.Entry<String, CaliperClient> entry : clients.entrySet()) {
+            ids.add(entry.getKey());
+            statistics.add(entry.getValue().getStatistics());
+        }
+
+        List<StatisticsSnapshot> copies = Statistics.snapshot(statistics);
+        ImmutableMap.Builder<String, StatisticsSnapshot> snapshots = ImmutableMap.builder();
+        for (int i = 0; i < ids.size(); i++) {
+            snapshots.put(ids.get(i), copies.get(i));
+        }
+        return snapshots.build();
+    }
+
+    /**
+     * Returns the send queue statistics: queue depth sampled at each enqueue, time spent in the queue,
+     * dropped and spilled envelopes, and the time taken to serialize envelopes shared by several clients.
+     * Queue statistics are empty if the Sensor sends on the calling thread.
+     * @return statistics
+     */
+    public Statistics getQueueStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the number of envelopes waiting in the send queue.
+     * @return depth, 0 if the Sensor has no send queue
+     */
+    public int getQueueDepth() {
+        return (sendQueue != null) ? sendQueue.size() : 0;
+    }
+
+    private boolean isJmx() {
+        return options != null && options.isJmx();
+    }
+
+    /**
+     * Stop accepting envelopes and wait up to the drain timeout for queued envelopes to be sent.
+     * Registered Clients are not closed, but their MXBeans are unregistered.
+     */
+    @Override
+    public void close() {
+        if (sendQueue != null) {
+            sendQueue.close();
+        }
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+        if (isJmx()) {
+            for (String key : clients.keySet()) {
+                CaliperMBeans.unregisterClient(id, key);
+            }
+            CaliperMBeans.unregisterSensor(id);
+        }
+    }
+
+    /**
+     * Factory method for creating Sensors that send on the calling thread.
      * @return Sensors
      */
     public static Sensor create(String id) {
-        return new Sensor(id);
+        return new Sensor(id, null);
+    }
+
+    /**
+     * Factory method for creating Sensors that fan out to their Clients in parallel, by default behind a
+     * bounded send queue.
+     * @param id
+     * @param options
+     * @return Sensors
+     */
+    public static Sensor create(String id, SensorOptions options) {
+        return new Sensor(id, options);
     }
 }
\ No newline at end of file
@@ -0,0 +1,326 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import java.nio.file.Path;
+import java.util.concurrent.Executor;
+
+/**
+ * Sensor options.  When a Sensor is created with options, Sensor.send(Envelope) enqueues the envelope
+ * on a bounded in-memory queue and returns; a pool of worker threads drains the queue to the registered
+ * clients.  The overflow policy decides what happens when the queue is full.  Each envelope is sent to
+ * all registered clients in parallel; the await mode decides how long the sending thread waits.
+ */
+public class SensorOptions {
+    private final AwaitMode awaitMode;
+    private final int blockTimeoutMs;
+    private final int drainTimeoutMs;
+    private final Executor executor;
+    private final boolean jmx;
+    private final OverflowPolicy overflowPolicy;
+    private final boolean queued;
+    private final int queueCapacity;
+    private final Path spoolDirectory;
+    private final int workers;
+
+    /**
+     * Default queue sizing and timeouts.
+     */
+    public static final int BLOCK_TIMEOUT_MS = 1000;
+    public static final int DRAIN_TIMEOUT_MS = 5000;
+    public static final int QUEUE_CAPACITY = 1024;
+    public static final int WORKERS = 1;
+
+    /**
+     * How long the sending thread waits when an envelope is fanned out to the registered clients.
+     */
+    public enum AwaitMode {
+        /**
+         * Wait until every client has finished.
+         */
+        ALL,
+
+        /**
+         * Wait until one client has sent successfully, or all have failed.
+         */
+        ANY,
+
+        /**
+         * Do not wait.
+         */
+        NONE
+    }
+
+    /**
+     * What Sensor.send(Envelope) does when the queue is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Wait up to blockTimeoutMs for space, then drop the envelope.
+         */
+        BLOCK,
+
+        /**
+         * Drop the envelope being sent.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Drop the oldest queued envelope to make room.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Append the serialized envelope to a disk spool; workers replay it once the queue drains.
+         */
+        SPILL
+    }
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private SensorOptions(OptionsBuilder builder) {
+        this.awaitMode = (builder.awaitMode != null) ? builder.awaitMode : AwaitMode.ALL;
+        this.executor = builder.executor;
+        this.jmx = builder.jmx;
+        this.queued = builder.queued;
+        this.overflowPolicy = (builder.overflowPolicy != null) ? builder.overflowPolicy : OverflowPolicy.BLOCK;
+        if (queued && overflowPolicy == OverflowPolicy.SPILL) {
+            SensorValidator.chkSpoolDirectory(builder.spoolDirectory);
+        }
+
+        this.blockTimeoutMs = SensorValidator.chkPositiveIntValue(builder.blockTimeoutMs, BLOCK_TIMEOUT_MS);
+        this.drainTimeoutMs = SensorValidator.chkPositiveIntValue(builder.drainTimeoutMs, DRAIN_TIMEOUT_MS);
+        this.queueCapacity = SensorValidator.chkPositiveIntValue(builder.queueCapacity, QUEUE_CAPACITY);
+        this.spoolDirectory = builder.spoolDirectory;
+        this.workers = SensorValidator.chkPositiveIntValue(builder.workers, WORKERS);
+    }
+
+    /**
+     * Get how long the sending thread waits for the registered clients.
+     * @return await mode
+     */
+    public AwaitMode getAwaitMode() {
+        return awaitMode;
+    }
+
+    /**
+     * Get the time in milliseconds a BLOCK send waits for queue space.
+     * @return block timeout
+     */
+    public int getBlockTimeoutMs() {
+        return blockTimeoutMs;
+    }
+
+    /**
+     * Get the time in milliseconds Sensor.close() waits for queued envelopes to be sent.
+     * @return drain timeout
+     */
+    public int getDrainTimeoutMs() {
+        return drainTimeoutMs;
+    }
+
+    /**
+     * Get the executor that runs the per-client sends.
+     * @return executor, or null if the Sensor creates its own
+     */
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    /**
+     * Does the Sensor register MXBeans for itself and its clients with the platform MBeanServer?
+     * @return jmx
+     */
+    public boolean isJmx() {
+        return jmx;
+    }
+
+    /**
+     * Get the overflow policy.
+     * @return overflow policy
+     */
+    public OverflowPolicy getOverflowPolicy() {
+        return overflowPolicy;
+    }
+
+    /**
+     * Does Sensor.send(Envelope) enqueue envelopes rather than send them on the calling thread?
+     * @return queued
+     */
+    public boolean isQueued() {
+        return queued;
+    }
+
+    /**
+     * Get the maximum number of queued envelopes.
+     * @return queue capacity
+     */
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    /**
+     * Get the directory used to spill envelopes under the SPILL policy.
+     * @return spool directory
+     */
+    public Path getSpoolDirectory() {
+        return spoolDirectory;
+    }
+
+    /**
+     * Get the number of worker threads draining the queue.
+     * @return workers
+     */
+    public int getWorkers() {
+        return workers;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private AwaitMode awaitMode;
+        private int blockTimeoutMs = 0;
+        private int drainTimeoutMs = 0;
+        private Executor executor;
+        private boolean jmx = false;
+        private OverflowPolicy overflowPolicy;
+        private boolean queued = true;
+        private int queueCapacity = 0;
+        private Path spoolDirectory;
+        private int workers = 0;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param awaitMode
+         * @return builder
+         */
+        public OptionsBuilder awaitMode(final AwaitMode awaitMode) {
+            this.awaitMode = awaitMode;
+            return this;
+        }
+
+        /**
+         * @param blockTimeoutMs
+         * @return builder
+         */
+        public OptionsBuilder blockTimeoutMs(final int blockTimeoutMs) {
+            this.blockTimeoutMs = blockTimeoutMs;
+            return this;
+        }
+
+        /**
+         * @param drainTimeoutMs
+         * @return builder
+         */
+        public OptionsBuilder drainTimeoutMs(final int drainTimeoutMs) {
+            this.drainTimeoutMs = drainTimeoutMs;
+            return this;
+        }
+
+        /**
+         * @param executor runs the per-client sends; not shut down by the Sensor
+         * @return builder
+         */
+        public OptionsBuilder executor(final Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * @param jmx true to expose the Sensor and its clients as MXBeans; see CaliperMBeans
+         * @return builder
+         */
+        public OptionsBuilder jmx(final boolean jmx) {
+            this.jmx = jmx;
+            return this;
+        }
+
+        /**
+         * @param overflowPolicy
+         * @return builder
+         */
+        public OptionsBuilder overflowPolicy(final OverflowPolicy overflowPolicy) {
+            this.overflowPolicy = overflowPolicy;
+            return this;
+        }
+
+        /**
+         * @param queued false to fan out on the calling thread without a send queue
+         * @return builder
+         */
+        public OptionsBuilder queued(final boolean queued) {
+            this.queued = queued;
+            return this;
+        }
+
+        /**
+         * @param queueCapacity
+         * @return builder
+         */
+        public OptionsBuilder queueCapacity(final int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        /**
+         * @param spoolDirectory
+         * @return builder
+         */
+        public OptionsBuilder spoolDirectory(final Path spoolDirectory) {
+            this.spoolDirectory = spoolDirectory;
+            return this;
+        }
+
+        /**
+         * @param workers
+         * @return builder
+         */
+        public OptionsBuilder workers(final int workers) {
+            this.workers = workers;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable options object.
+         * @return a new instance of SensorOptions.
+         */
+        public SensorOptions build() {
+            return new SensorOptions(this);
+        }
+    }
+
+    /**
+     * Static factory method.
+     * @return a new instance of OptionsBuilder.
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import org.imsglobal.caliper.config.DataFormat;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Immutable, already serialized form of an Envelope.  The payload is never exposed as a mutable array,
+ * so a single instance can be transmitted by any number of clients, spooled to disk or replayed.
+ */
+public class SerializedEnvelope {
+    private final byte[] payload;
+    private final DataFormat format;
+    private final String contentType;
+    private final int dataCount;
+    private final Envelope source;
+
+    /**
+     * Constructor.  The payload array is owned by the new instance and must not be modified afterwards.
+     * @param payload
+     * @param format
+     * @param contentType
+     */
+    public SerializedEnvelope(@Nonnull byte[] payload, @Nonnull DataFormat format, @Nonnull String contentType) {
+        this(payload, format, contentType, -1);
+    }
+
+    /**
+     * Constructor.  The payload array is owned by the new instance and must not be modified afterwards.
+     * @param payload
+     * @param format
+     * @param contentType
+     * @param dataCount number of events and entities in the envelope, or -1 if unknown
+     */
+    public SerializedEnvelope(@Nonnull byte[] payload, @Nonnull DataFormat format, @Nonnull String contentType,
+                              int dataCount) {
+        this.payload = payload;
+        this.format = format;
+        this.contentType = contentType;
+        this.dataCount = dataCount;
+        this.source = null;
+    }
+
+    /**
+     * Constructor for the serialized form of an Envelope that is still at hand, so that clients which
+     * cannot transmit the payload, such as a circuit breaker's fallback, can be given the Envelope itself.
+     * The payload array is owned by the new instance and must not be modified afterwards.
+     * @param payload
+     * @param format
+     * @param contentType
+     * @param source the Envelope the payload was serialized from
+     */
+    public SerializedEnvelope(@Nonnull byte[] payload, @Nonnull DataFormat format, @Nonnull String contentType,
+                              @Nonnull Envelope source) {
+        this.payload = payload;
+        this.format = format;
+        this.contentType = contentType;
+        this.dataCount = (source.getData() != null) ? source.getData().size() : -1;
+        this.source = source;
+    }
+
+    /**
+     * Get a read-only view of the payload.
+     * @return payload
+     */
+    @Nonnull
+    public ByteBuffer getPayload() {
+        return ByteBuffer.wrap(payload).asReadOnlyBuffer();
+    }
+
+    /**
+     * Get the data format of the payload.
+     * @return data format
+     */
+    @Nonnull
+    public DataFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Get the media type of the payload.
+     * @return content type
+     */
+    @Nonnull
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Get the number of events and entities the envelope was serialized from.
+     * @return count, or -1 if unknown, e.g. for envelopes replayed from a spool
+     */
+    public int getDataCount() {
+        return dataCount;
+    }
+
+    /**
+     * Get the Envelope the payload was serialized from.
+     * @return envelope, or null if unknown, e.g. for envelopes replayed from a spool
+     */
+    @Nullable
+    public Envelope getSource() {
+        return source;
+    }
+
+    /**
+     * Get the payload size in bytes.
+     * @return size
+     */
+    public int size() {
+        return payload.length;
+    }
+
+    /**
+     * Write the payload to a stream without copying it.  The stream is not closed.
+     * @param out
+     * @throws IOException
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(payload);
+    }
+
+    /**
+     * Open a stream over the payload.
+     * @return input stream
+     */
+    public InputStream newInputStream() {
+        return new ByteArrayInputStream(payload);
+    }
+
+    @Override
+    public String toString() {
+        return new String(payload, StandardCharsets.UTF_8);
+    }
+}
@@ -18,14 +18,11 @@
 
 package org.imsglobal.caliper.clients;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
-import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
-import com.fasterxml.jackson.datatype.joda.JodaModule;
 import org.imsglobal.caliper.Envelope;
-import org.imsglobal.caliper.databind.JxnCoercibleSimpleModule;
+import org.imsglobal.caliper.SendListener;
+import org.imsglobal.caliper.SendListeners;
+import org.imsglobal.caliper.databind.CaliperSerializer;
 import org.imsglobal.caliper.statistics.Statistics;
 import org.imsglobal.caliper.validators.SensorValidator;
 
@@ -39,6 +36,7 @@ public abstract class AbstractClient implements CaliperClient {
     private String id;
     private HttpClientOptions options;
     private Statistics statistics;
+    private final SendListeners listeners = new SendListeners();
 
     /**
      * Constructor
@@ -79,6 +77,24 @@ public abstract class AbstractClient implements CaliperClient {
         return this.statistics;
     }
 
+    @Override
+    public void addListener(SendListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeListener(SendListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Get the registered listeners, which subclasses notify of each send stage.
+     * @return listeners
+     */
+    protected SendListeners getListeners() {
+        return listeners;
+    }
+
     /**
      * Serialize Caliper envelope.
      * @param envelope
@@ -86,17 +102,15 @@ public abstract class AbstractClient implements CaliperClient {
      * @throws JsonProcessingException
      */
     protected String serializeEnvelope(Envelope envelope) throws JsonProcessingException {
-        // Create mapper and serialize the envelope
-        SimpleFilterProvider provider = new SimpleFilterProvider()
-            .setFailOnUnknownId(true);
-
-        ObjectMapper mapper = new ObjectMapper()
-            .setDateFormat(new ISO8601DateFormat())
-            .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
-            .setFilterProvider(provider)
-            .registerModules(new JodaModule(), new JxnCoercibleSimpleModule());
+        return getSerializer().writeValueAsString(envelope);
+    }
 
-        return mapper.writeValueAsString(envelope);
+    /**
+     * Get the serialization engine used by this client.
+     * @return serializer
+     */
+    protected CaliperSerializer getSerializer() {
+        return CaliperSerializer.getDefault();
     }
 
     /**
@@ -105,16 +119,28 @@ public abstract class AbstractClient implements CaliperClient {
      */
     public abstract void send(Envelope envelope);
 
+    /**
+     * Release resources held by the client.  Subclasses that own connections or threads override.
+     */
+    @Override
+    public void close() {
+
+    }
+
     /**
      * Update statistics
      * @param status
      */
     protected void updateStatistics(boolean status) {
-        this.statistics.updateMeasures(1);
-        if (status) {
-            statistics.updateSuccessful(1);
-        } else {
-            statistics.updateFailed(1);
-        }
+        updateStatistics(null, status);
+    }
+
+    /**
+     * Update statistics with the final outcome of an Envelope, counting its events by type and action.
+     * @param envelope envelope, or null if only its serialized form is known
+     * @param status
+     */
+    protected void updateStatistics(Envelope envelope, boolean status) {
+        statistics.recordOutcome(envelope, status);
     }
 }
\ No newline at end of file
@@ -0,0 +1,446 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingOutputStream;
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.SendListener;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
+import org.joda.time.DateTime;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Decorates a CaliperClient, coalescing individual Caliper events and entities into a single Envelope
+ * that is flushed when the batch reaches its event count or serialized byte limit, or when its linger
+ * time expires.  Envelopes are transmitted in order by a background flusher thread.
+ *
+ * The byte limit is applied to an estimate: one item in every SAMPLE_INTERVAL is serialized to measure
+ * it and the others are assumed to be the smoothed mean of those samples, so that items are not
+ * serialized twice on their way to the endpoint.
+ *
+ * The event count that seals a batch adapts to the observed endpoint latency: it tracks the number of
+ * events that arrive while the previous batch was in flight, bounded by the configured minimum and
+ * maximum, so that a single flusher keeps pace with the arrival rate.
+ */
+public class BatchingClient implements CaliperClient {
+    private final String id;
+    private final CaliperClient delegate;
+    private final BatchingClientOptions options;
+    private final String sensorId;
+    private final CaliperSerializer serializer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final ArrayDeque<Batch> ready = new ArrayDeque<>();
+    private Batch current;
+    private long added;
+    private double arrivalsPerFlush;
+    private double meanItemBytes;
+    private final AtomicLong sampled = new AtomicLong();
+    private volatile int targetEvents;
+    private boolean closed;
+
+    private final Thread flusher;
+
+    private static final double SMOOTHING = 0.2;
+    private static final int SAMPLE_INTERVAL = 16;
+
+    private static final Logger log = LoggerFactory.getLogger(BatchingClient.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method for instantiating
+     * a BatchingClient.
+     * @param id
+     * @param delegate
+     * @param options
+     */
+    private BatchingClient(String id, CaliperClient delegate, BatchingClientOptions options) {
+        SensorValidator.chkId(id, this.getClass().getSimpleName());
+
+        this.id = id;
+        this.delegate = delegate;
+        this.options = options;
+        this.sensorId = (options.getSensorId() != null) ? options.getSensorId() : id;
+        this.serializer = CaliperSerializer.getDefault();
+        this.targetEvents = options.getMaxEvents();
+        this.arrivalsPerFlush = options.getMaxEvents();
+
+        this.flusher = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runFlusher();
+            }
+        }, "caliper-batch-flusher-" + id);
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Get identifier.
+     * @return id
+     */
+    @Nonnull
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieve options
+     * @return options
+     */
+    @Override
+    public BatchingClientOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get the decorated client's statistics; one measure is recorded per flushed batch.
+     * @return statistics
+     */
+    @Override
+    public Statistics getStatistics() {
+        return delegate.getStatistics();
+    }
+
+    /**
+     * Get the current adaptive batch size.
+     * @return target events per batch
+     */
+    public int getTargetEvents() {
+        return targetEvents;
+    }
+
+    /**
+     * Add a single event or entity to the open batch.
+     * @param item
+     * @return future completed with the outcome of the batch that carries the item
+     */
+    public CompletableFuture<SendResult> add(CaliperSendable item) {
+        long measured = (sampled.getAndIncrement() % SAMPLE_INTERVAL == 0) ? measureSize(item) : -1;
+
+        lock.lock();
+        try {
+            long size = estimateSize(measured);
+            while (ready.size() >= options.getMaxPendingBatches() && !closed) {
+                notFull.await();
+            }
+            if (closed) {
+                throw new IllegalStateException("BatchingClient " + id + " is closed.");
+            }
+
+            if (current != null && !current.isEmpty() && current.bytes + size > options.getMaxBytes()) {
+                seal();
+                while (ready.size() >= options.getMaxPendingBatches() && !closed) {
+                    notFull.await();
+                }
+            }
+            if (current == null) {
+                current = new Batch(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(options.getLingerMs()));
+                notEmpty.signal();
+            }
+
+            Batch batch = current;
+            batch.add(item, size);
+            added++;
+
+            if (batch.items.size() >= targetEvents || batch.bytes >= options.getMaxBytes()) {
+                seal();
+            }
+            return batch.future;
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for batch capacity.", ie);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Add the data of an Envelope to the open batch.  The Envelope's own sensor and sendTime are
+     * superseded by those of the flushed batch.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        for (CaliperSendable item: envelope.getData()) {
+            add(item);
+        }
+    }
+
+    /**
+     * Add the data of an Envelope to the open batch.
+     * @param envelope
+     * @return future completed once every batch carrying the Envelope's data has been flushed
+     */
+    @Override
+    public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+        List<CompletableFuture<SendResult>> futures = new ArrayList<>();
+        for (CaliperSendable item: envelope.getData()) {
+            CompletableFuture<SendResult> future = add(item);
+            if (futures.isEmpty() || futures.get(futures.size() - 1) != future) {
+                futures.add(future);
+            }
+        }
+
+        if (futures.isEmpty()) {
+            return CompletableFuture.completedFuture(new SendResult(SendResult.UNKNOWN_STATUS, true));
+        } else if (futures.size() == 1) {
+            return futures.get(0);
+        }
+
+        final CompletableFuture<SendResult> last = futures.get(futures.size() - 1);
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+            .thenApply(new Function<Void, SendResult>() {
+                @Override
+                public SendResult apply(Void ignored) {
+                    return last.join();
+                }
+            });
+    }
+
+    /**
+     * Seal the open batch so that it is flushed without waiting for its linger time to expire.
+     */
+    public void flush() {
+        lock.lock();
+        try {
+            if (current != null && !current.isEmpty()) {
+                seal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Register a listener with the decorated client.
+     * @param listener
+     */
+    @Override
+    public void addListener(SendListener listener) {
+        delegate.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(SendListener listener) {
+        delegate.removeListener(listener);
+    }
+
+    /**
+     * Flush any pending events, wait for the flusher to drain and close the decorated client.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notEmpty.signalAll();
+            notFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.close();
+    }
+
+    /**
+     * Move the open batch to the ready queue.  Caller must hold the lock.
+     */
+    private void seal() {
+        ready.add(current);
+        current = null;
+        notEmpty.signal();
+    }
+
+    /**
+     * Flusher loop: wait for a sealed batch or an expired linger deadline, then transmit.
+     */
+    private void runFlusher() {
+        while (true) {
+            Batch batch;
+            long addedBefore;
+
+            lock.lock();
+            try {
+                batch = null;
+                while (batch == null) {
+                    if (!ready.isEmpty()) {
+                        batch = ready.poll();
+                        notFull.signal();
+                    } else if (current != null && !current.isEmpty()) {
+                        long wait = current.deadline - System.nanoTime();
+                        if (wait <= 0 || closed) {
+                            batch = current;
+                            current = null;
+                        } else {
+                            notEmpty.awaitNanos(wait);
+                        }
+                    } else if (closed) {
+                        return;
+                    } else {
+                        notEmpty.await();
+                    }
+                }
+                addedBefore = added;
+            } catch (InterruptedException ie) {
+                return;
+            } finally {
+                lock.unlock();
+            }
+
+            transmit(batch);
+
+            lock.lock();
+            try {
+                adapt(added - addedBefore);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Send a batch via the decorated client and wait for the outcome so that batches stay ordered.
+     * @param batch
+     */
+    private void transmit(Batch batch) {
+        Envelope envelope = new Envelope(sensorId, DateTime.now(), options.getDataVersion(), batch.items);
+        getStatistics().updateBatchSizes(batch.items.size());
+
+        try {
+            SendResult result = delegate.sendAsync(envelope).get();
+            batch.future.complete(result);
+        } catch (ExecutionException ee) {
+            log.warn("Batch of " + batch.items.size() + " events failed: " + ee.getCause());
+            batch.future.completeExceptionally(ee.getCause());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            batch.future.completeExceptionally(ie);
+        } catch (RuntimeException re) {
+            log.warn("Batch of " + batch.items.size() + " events failed: " + re);
+            batch.future.completeExceptionally(re);
+        }
+    }
+
+    /**
+     * Size the next batch to the number of events that arrived while the last one was in flight.
+     * Caller must hold the lock.
+     * @param arrivals
+     */
+    private void adapt(long arrivals) {
+        arrivalsPerFlush += SMOOTHING * (arrivals - arrivalsPerFlush);
+        int target = (int) Math.ceil(arrivalsPerFlush);
+        targetEvents = Math.max(options.getMinEvents(), Math.min(options.getMaxEvents(), target));
+    }
+
+    /**
+     * Estimate the serialized size of an item from the smoothed mean of sampled sizes, folding in the
+     * item's own size if it was sampled.  Caller must hold the lock.
+     * @param measured serialized size of the item, or -1 if it was not sampled
+     * @return size in bytes
+     */
+    private long estimateSize(long measured) {
+        if (measured < 0) {
+            return (long) Math.ceil(meanItemBytes);
+        }
+        meanItemBytes = (meanItemBytes == 0) ? measured : meanItemBytes + SMOOTHING * (measured - meanItemBytes);
+        return measured;
+    }
+
+    /**
+     * Measure the serialized size of an item without buffering its JSON.
+     * @param item
+     * @return size in bytes
+     */
+    private long measureSize(CaliperSendable item) {
+        CountingOutputStream counter = new CountingOutputStream(ByteStreams.nullOutputStream());
+        try {
+            serializer.writeValue(counter, item);
+        } catch (JsonProcessingException jpe) {
+            throw new IllegalArgumentException("Unable to serialize " + item.getClass().getSimpleName(), jpe);
+        } catch (IOException ioe) {
+            throw new IllegalStateException(ioe);
+        }
+        return counter.getCount();
+    }
+
+    /**
+     * Factory method for instantiating a BatchingClient.
+     * @param id
+     * @param delegate
+     * @param options
+     * @return BatchingClient
+     */
+    public static BatchingClient create(String id, CaliperClient delegate, BatchingClientOptions options) {
+        return new BatchingClient(id, delegate, options);
+    }
+
+    /**
+     * Events accumulated for a single Envelope.
+     */
+    private static class Batch {
+        private final List<CaliperSendable> items = new ArrayList<>();
+        private final CompletableFuture<SendResult> future = new CompletableFuture<>();
+        private final long deadline;
+        private long bytes;
+
+        private Batch(long deadline) {
+            this.deadline = deadline;
+        }
+
+        private void add(CaliperSendable item, long size) {
+            items.add(item);
+            bytes += size;
+        }
+
+        private boolean isEmpty() {
+            return items.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.config.Config;
+import org.imsglobal.caliper.validators.SensorValidator;
+
+/**
+ * Batching client options.  Review default constants and adjust to suit the target endpoint.
+ */
+public class BatchingClientOptions implements CaliperClientOptions {
+    private final String dataVersion;
+    private final int lingerMs;
+    private final long maxBytes;
+    private final int maxEvents;
+    private final int maxPendingBatches;
+    private final int minEvents;
+    private final String sensorId;
+
+    /**
+     * Default batch limits.
+     */
+    public static final int LINGER_MS = 500;
+    public static final long MAX_BYTES = 1024 * 1024;
+    public static final int MAX_EVENTS = 100;
+    public static final int MAX_PENDING_BATCHES = 16;
+    public static final int MIN_EVENTS = 1;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private BatchingClientOptions(OptionsBuilder builder) {
+        this.dataVersion = SensorValidator.chkStrValue(builder.dataVersion, Config.DATA_VERSION);
+        this.lingerMs = SensorValidator.chkPositiveIntValue(builder.lingerMs, LINGER_MS);
+        this.maxBytes = (builder.maxBytes > 0) ? builder.maxBytes : MAX_BYTES;
+        this.maxEvents = SensorValidator.chkPositiveIntValue(builder.maxEvents, MAX_EVENTS);
+        this.maxPendingBatches = SensorValidator.chkPositiveIntValue(builder.maxPendingBatches, MAX_PENDING_BATCHES);
+        this.minEvents = Math.min(SensorValidator.chkPositiveIntValue(builder.minEvents, MIN_EVENTS), maxEvents);
+        this.sensorId = builder.sensorId;
+    }
+
+    /**
+     * Get the dataVersion stamped on each flushed Envelope.
+     * @return data version
+     */
+    public String getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * Get the maximum time in milliseconds an event waits in an open batch before it is flushed.
+     * @return linger time
+     */
+    public int getLingerMs() {
+        return lingerMs;
+    }
+
+    /**
+     * Get the maximum serialized size in bytes of the events in a single batch.  Sizes are estimated by
+     * sampling, so a batch of items of uneven size may somewhat exceed the limit.
+     * @return max bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get the upper bound on the number of events in a single batch.
+     * @return max events
+     */
+    public int getMaxEvents() {
+        return maxEvents;
+    }
+
+    /**
+     * Get the number of sealed batches that may wait for the flusher before callers are blocked.
+     * @return max pending batches
+     */
+    public int getMaxPendingBatches() {
+        return maxPendingBatches;
+    }
+
+    /**
+     * Get the lower bound on the adaptive batch size.
+     * @return min events
+     */
+    public int getMinEvents() {
+        return minEvents;
+    }
+
+    /**
+     * Get the sensor identifier stamped on each flushed Envelope; may be null.
+     * @return sensor identifier
+     */
+    public String getSensorId() {
+        return sensorId;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private String dataVersion;
+        private int lingerMs = 0;
+        private long maxBytes = 0;
+        private int maxEvents = 0;
+        private int maxPendingBatches = 0;
+        private int minEvents = 0;
+        private String sensorId;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param dataVersion
+         * @return builder
+         */
+        public OptionsBuilder dataVersion(final String dataVersion) {
+            this.dataVersion = dataVersion;
+            return this;
+        }
+
+        /**
+         * @param lingerMs
+         * @return builder
+         */
+        public OptionsBuilder lingerMs(final int lingerMs) {
+            this.lingerMs = lingerMs;
+            return this;
+        }
+
+        /**
+         * @param maxBytes
+         * @return builder
+         */
+        public OptionsBuilder maxBytes(final long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * @param maxEvents
+         * @return builder
+         */
+        public OptionsBuilder maxEvents(final int maxEvents) {
+            this.maxEvents = maxEvents;
+            return this;
+        }
+
+        /**
+         * @param maxPendingBatches
+         * @return builder
+         */
+        public OptionsBuilder maxPendingBatches(final int maxPendingBatches) {
+            this.maxPendingBatches = maxPendingBatches;
+            return this;
+        }
+
+        /**
+         * @param minEvents
+         * @return builder
+         */
+        public OptionsBuilder minEvents(final int minEvents) {
+            this.minEvents = minEvents;
+            return this;
+        }
+
+        /**
+         * @param sensorId
+         * @return builder
+         */
+        public OptionsBuilder sensorId(final String sensorId) {
+            this.sensorId = sensorId;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of Options.
+         */
+        public BatchingClientOptions build() {
+            return new BatchingClientOptions(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
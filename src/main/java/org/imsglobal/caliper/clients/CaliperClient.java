@@ -19,9 +19,16 @@
 package org.imsglobal.caliper.clients;
 
 import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.SendListener;
+import org.imsglobal.caliper.SerializedEnvelope;
+import org.imsglobal.caliper.config.DataFormat;
 import org.imsglobal.caliper.statistics.Statistics;
 
-public interface CaliperClient {
+import java.io.Closeable;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+public interface CaliperClient extends Closeable {
 
     /**
      * Retrieve the client identifier
@@ -46,4 +53,63 @@ public interface CaliperClient {
      * @param envelope
      */
     void send(Envelope envelope);
+
+    /**
+     * Get the format of the pre-serialized envelopes this client transmits.  A Sensor sending to several
+     * clients serializes each Envelope once per format and hands the result to send(SerializedEnvelope).
+     * @return data format, or null if the client only accepts Envelope objects
+     */
+    default DataFormat getDataFormat() {
+        return null;
+    }
+
+    /**
+     * Send an already serialized envelope to target endpoint(s).  Only called if getDataFormat() returns
+     * the envelope's format.
+     * @param envelope
+     */
+    default void send(SerializedEnvelope envelope) {
+        throw new UnsupportedOperationException(getId() + " does not accept serialized envelopes.");
+    }
+
+    /**
+     * Send an envelope to target endpoint(s) without blocking the calling thread.  The default runs
+     * send(Envelope) on the common pool.  It never sees a response, so the future fails with whatever
+     * send(Envelope) throws and otherwise completes with status UNKNOWN_STATUS; successful then only
+     * means that send(Envelope) returned, and says nothing of failures the client logs rather than
+     * throws.  Clients with a non-blocking path of their own override.
+     * @param envelope
+     * @return future completed with the outcome once the endpoint responds, or once send(Envelope) returns
+     */
+    default CompletableFuture<SendResult> sendAsync(final Envelope envelope) {
+        return CompletableFuture.supplyAsync(new Supplier<SendResult>() {
+            @Override
+            public SendResult get() {
+                send(envelope);
+                return new SendResult(SendResult.UNKNOWN_STATUS, true);
+            }
+        });
+    }
+
+    /**
+     * Register a listener for the send stages of this client.  Clients that wrap other clients pass
+     * listeners on to them; clients that do not report send stages ignore listeners.
+     * @param listener
+     */
+    default void addListener(SendListener listener) {
+    }
+
+    /**
+     * Unregister a listener.
+     * @param listener
+     */
+    default void removeListener(SendListener listener) {
+    }
+
+    /**
+     * Release any resources (connections, threads) held by the client.  The default does nothing.
+     */
+    @Override
+    default void close() {
+    }
 }
@@ -0,0 +1,193 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Per-client limit on concurrent in-flight requests.  A fixed limit behaves like a semaphore.  An adaptive
+ * limit follows AIMD: each response whose smoothed latency stays within TOLERANCE of the minimum observed
+ * latency raises the limit by one, provided at least half of the current limit is in use.  A failed
+ * request, or a smoothed latency above the tolerance, cuts the limit by BACKOFF_RATIO, at most once per
+ * smoothed round trip.  The minimum latency is re-learned every MIN_RTT_WINDOW_MS so that a lasting change
+ * in the endpoint's baseline is picked up.
+ */
+public class ConcurrencyLimit {
+    private final boolean adaptive;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    private int inFlight;
+    private double limit;
+    private long minRttNanos;
+    private double smoothedRttNanos;
+    private long minRttExpiresAt;
+    private long decreasedAt;
+
+    static final double BACKOFF_RATIO = 0.9;
+    static final double TOLERANCE = 2.0;
+    static final int INITIAL_LIMIT = 8;
+    static final long MIN_RTT_WINDOW_MS = 30000;
+
+    private static final double SMOOTHING = 0.2;
+
+    /**
+     * Constructor
+     * @param adaptive true to adapt the limit to observed latency and failures
+     * @param minLimit lower bound on an adaptive limit
+     * @param maxLimit fixed limit, or upper bound on an adaptive limit
+     */
+    public ConcurrencyLimit(boolean adaptive, int minLimit, int maxLimit) {
+        this.adaptive = adaptive;
+        this.maxLimit = maxLimit;
+        this.minLimit = Math.min(minLimit, maxLimit);
+        this.limit = adaptive ? Math.max(this.minLimit, Math.min(INITIAL_LIMIT, maxLimit)) : maxLimit;
+        this.decreasedAt = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(MIN_RTT_WINDOW_MS);
+    }
+
+    /**
+     * Is the limit adaptive?
+     * @return true if adaptive
+     */
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Take a slot if one is free.
+     * @return true if a slot was taken
+     */
+    public boolean tryAcquire() {
+        lock.lock();
+        try {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Wait for a free slot.
+     * @param timeout
+     * @param unit
+     * @return true if a slot was taken, false if the timeout elapsed first
+     * @throws InterruptedException
+     */
+    public boolean acquire(long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (inFlight >= (int) limit) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = available.awaitNanos(nanos);
+            }
+            inFlight++;
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Give back a slot.
+     */
+    public void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Record the outcome of one request attempt.  Ignored unless the limit is adaptive.
+     * @param rttNanos time from sending the request to receiving the response or failure
+     * @param dropped true if the request failed or the endpoint signalled overload
+     */
+    public void onSample(long rttNanos, boolean dropped) {
+        if (!adaptive) {
+            return;
+        }
+
+        lock.lock();
+        try {
+            long now = System.nanoTime();
+            if (!dropped) {
+                if (minRttNanos == 0 || now - minRttExpiresAt >= 0) {
+                    minRttNanos = rttNanos;
+                    minRttExpiresAt = now + TimeUnit.MILLISECONDS.toNanos(MIN_RTT_WINDOW_MS);
+                } else {
+                    minRttNanos = Math.min(minRttNanos, rttNanos);
+                }
+                smoothedRttNanos = (smoothedRttNanos == 0)
+                    ? rttNanos : smoothedRttNanos + SMOOTHING * (rttNanos - smoothedRttNanos);
+            }
+
+            if (dropped || smoothedRttNanos > minRttNanos * TOLERANCE) {
+                if (now - decreasedAt >= smoothedRttNanos) {
+                    limit = Math.max(minLimit, limit * BACKOFF_RATIO);
+                    decreasedAt = now;
+                }
+            } else if (inFlight * 2 >= limit && limit < maxLimit) {
+                limit = Math.min(maxLimit, limit + 1);
+                available.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the current limit.
+     * @return limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get the number of slots in use.
+     * @return in-flight requests
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
@@ -0,0 +1,505 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.SerializedEnvelope;
+import org.imsglobal.caliper.config.Config;
+import org.imsglobal.caliper.config.DataFormat;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes envelopes to rolling NDJSON files for a separate bulk loader to ship, taking the network
+ * off the send path.  Each line holds one event (or one envelope, see FileClientOptions.LineMode).
+ *
+ * Lines are appended to an in-memory buffer and written to the active file through a FileChannel when
+ * the buffer fills, and at least every fsyncIntervalMs.  The active file is named
+ * {prefix}-{millis}-{sequence}.ndjson.active; when it exceeds maxFileBytes or rollIntervalMs it is
+ * renamed to .ndjson, or compressed to .ndjson.gz in the background.  Loaders should only pick up
+ * .ndjson and .ndjson.gz files.  Files left active or uncompressed by a crash are completed when the
+ * next FileClient opens the directory.
+ */
+public class FileClient implements CaliperClient {
+    private final String id;
+    private final FileClientOptions options;
+    private final CaliperSerializer serializer;
+    private final Statistics statistics;
+    private final ByteBuffer buffer;
+    private final ScheduledExecutorService maintenance;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private FileChannel channel;
+    private Path activeFile;
+    private long fileBytes;
+    private long openedAt;
+    private long sequence;
+    private boolean dirty;
+    private volatile boolean closed;
+
+    static final String SUFFIX = ".ndjson";
+    static final String ACTIVE_SUFFIX = ".ndjson.active";
+    static final String CLOSED_SUFFIX = ".ndjson.closed";
+    static final String GZIP_SUFFIX = ".ndjson.gz";
+
+    private static final byte NEWLINE = '\n';
+    private static final Logger log = LoggerFactory.getLogger(FileClient.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method for instantiating
+     * a FileClient.
+     * @param id
+     * @param options
+     * @throws IOException
+     */
+    private FileClient(final String id, FileClientOptions options) throws IOException {
+        SensorValidator.chkId(id, this.getClass().getSimpleName());
+
+        this.id = id;
+        this.options = options;
+        this.serializer = CaliperSerializer.getDefault();
+        this.statistics = new Statistics();
+        this.buffer = ByteBuffer.allocate(options.getBufferBytes());
+
+        Files.createDirectories(options.getDirectory());
+
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "caliper-file-" + id);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        recover();
+        this.maintenance.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                tick();
+            }
+        }, options.getFsyncIntervalMs(), options.getFsyncIntervalMs(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get identifier.
+     * @return id
+     */
+    @Nonnull
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieve options
+     * @return options
+     */
+    @Override
+    public FileClientOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get statistics.
+     * @return statistics
+     */
+    @Override
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the format of pre-serialized envelopes this client writes.
+     * @return data format in ENVELOPE line mode, otherwise null
+     */
+    @Override
+    public DataFormat getDataFormat() {
+        return (options.getLineMode() == FileClientOptions.LineMode.ENVELOPE) ? Config.DATA_FORMAT : null;
+    }
+
+    /**
+     * Append the Envelope, or each of its events, as NDJSON lines.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        try {
+            write(envelope);
+        } catch (IOException ioe) {
+            log.error("Unable to write envelope to " + options.getDirectory(), ioe);
+        }
+    }
+
+    /**
+     * Append an already serialized Envelope as one NDJSON line.
+     * @param envelope
+     */
+    @Override
+    public void send(SerializedEnvelope envelope) {
+        try {
+            append(envelope.getSource(), envelope.getPayload());
+        } catch (IOException ioe) {
+            log.error("Unable to write envelope to " + options.getDirectory(), ioe);
+        }
+    }
+
+    /**
+     * Append the Envelope on the calling thread; writes complete at memory or disk speed, so there is
+     * nothing to wait for.
+     * @param envelope
+     * @return completed future
+     */
+    @Override
+    public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+        CompletableFuture<SendResult> future = new CompletableFuture<>();
+        try {
+            write(envelope);
+            future.complete(new SendResult(200, true));
+        } catch (IOException | RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+        return future;
+    }
+
+    /**
+     * Serialize the Envelope according to the line mode and append it.
+     * @param envelope
+     * @throws IOException
+     */
+    private void write(Envelope envelope) throws IOException {
+        if (options.getLineMode() == FileClientOptions.LineMode.ENVELOPE) {
+            append(envelope, ByteBuffer.wrap(serializer.writeValueAsBytes(envelope)));
+            return;
+        }
+
+        List<ByteBuffer> lines = new ArrayList<>(envelope.getData().size());
+        for (CaliperSendable item : envelope.getData()) {
+            lines.add(ByteBuffer.wrap(serializer.writeValueAsBytes(item)));
+        }
+        append(envelope, lines.toArray(new ByteBuffer[0]));
+    }
+
+    /**
+     * Append lines to the active file, rotating first if it is full or too old.  The lines of one send
+     * always land in the same file.  The Envelope's events are counted as written or failed.
+     * @param envelope envelope the lines hold, or null if only its serialized form is known
+     * @param lines
+     * @throws IOException
+     */
+    private void append(Envelope envelope, ByteBuffer... lines) throws IOException {
+        long bytes = 0;
+        for (ByteBuffer line : lines) {
+            bytes += line.remaining() + 1;
+        }
+
+        lock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("FileClient " + id + " is closed.");
+            }
+
+            if (channel != null && fileBytes > 0
+                    && (fileBytes + bytes > options.getMaxFileBytes() || isExpired())) {
+                rotate();
+            }
+            if (channel == null) {
+                openFile();
+            }
+
+            for (ByteBuffer line : lines) {
+                if (line.remaining() + 1 > buffer.remaining()) {
+                    flushBuffer();
+                }
+                if (line.remaining() + 1 > buffer.capacity()) {
+                    writeFully(line.duplicate());
+                    buffer.put(NEWLINE);
+                } else {
+                    buffer.put(line.duplicate()).put(NEWLINE);
+                }
+            }
+            fileBytes += bytes;
+            dirty = true;
+
+            if (options.getFsyncPolicy() == FileClientOptions.FsyncPolicy.ALWAYS) {
+                flushBuffer();
+                channel.force(false);
+                dirty = false;
+            }
+            updateStatistics(envelope, true);
+        } catch (IOException | RuntimeException ex) {
+            updateStatistics(envelope, false);
+            throw ex;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Has the active file reached its roll interval?
+     * @return true if expired
+     */
+    private boolean isExpired() {
+        return System.currentTimeMillis() - openedAt >= options.getRollIntervalMs();
+    }
+
+    /**
+     * Open a new active file.
+     * @throws IOException
+     */
+    private void openFile() throws IOException {
+        openedAt = System.currentTimeMillis();
+        Path file;
+        do {
+            file = options.getDirectory().resolve(String.format("%s-%d-%06d%s", options.getPrefix(), openedAt,
+                sequence++, ACTIVE_SUFFIX));
+        } while (Files.exists(file));
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeFile = file;
+        fileBytes = 0;
+    }
+
+    /**
+     * Write the buffered lines to the active file.
+     * @throws IOException
+     */
+    private void flushBuffer() throws IOException {
+        if (buffer.position() == 0) {
+            return;
+        }
+        buffer.flip();
+        writeFully(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Write all remaining bytes of a buffer to the active file.
+     * @param src
+     * @throws IOException
+     */
+    private void writeFully(ByteBuffer src) throws IOException {
+        while (src.hasRemaining()) {
+            channel.write(src);
+        }
+    }
+
+    /**
+     * Complete the active file: flush, force if the policy asks for it, and rename or compress it.
+     * @throws IOException
+     */
+    private void rotate() throws IOException {
+        flushBuffer();
+        if (options.getFsyncPolicy() != FileClientOptions.FsyncPolicy.NEVER) {
+            channel.force(false);
+        }
+        channel.close();
+        channel = null;
+        dirty = false;
+
+        final Path completed = complete(activeFile);
+        activeFile = null;
+        if (completed != null) {
+            maintenance.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compress(completed);
+                }
+            });
+        }
+    }
+
+    /**
+     * Rename a finished active file.
+     * @param file
+     * @return the file awaiting compression, or null if gzip is disabled
+     * @throws IOException
+     */
+    private Path complete(Path file) throws IOException {
+        String name = file.getFileName().toString();
+        String base = name.substring(0, name.length() - ACTIVE_SUFFIX.length());
+        if (options.isGzip()) {
+            Path closedFile = file.resolveSibling(base + CLOSED_SUFFIX);
+            Files.move(file, closedFile, StandardCopyOption.ATOMIC_MOVE);
+            return closedFile;
+        }
+        Files.move(file, file.resolveSibling(base + SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+        return null;
+    }
+
+    /**
+     * Gzip a closed file to .ndjson.gz and delete it.  The compressed file is written under a temporary
+     * name and renamed once complete.
+     * @param file
+     */
+    private void compress(Path file) {
+        String name = file.getFileName().toString();
+        String base = name.substring(0, name.length() - CLOSED_SUFFIX.length());
+        Path tmp = file.resolveSibling(base + GZIP_SUFFIX + ".tmp");
+        try {
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), options.getBufferBytes())) {
+                Files.copy(file, out);
+            }
+            if (options.getFsyncPolicy() != FileClientOptions.FsyncPolicy.NEVER) {
+                try (FileChannel gz = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    gz.force(true);
+                }
+            }
+            Files.move(tmp, file.resolveSibling(base + GZIP_SUFFIX), StandardCopyOption.ATOMIC_MOVE);
+            Files.delete(file);
+        } catch (IOException ioe) {
+            log.error("Unable to compress " + file, ioe);
+        }
+    }
+
+    /**
+     * Complete files left behind by a previous process.
+     * @throws IOException
+     */
+    private void recover() throws IOException {
+        List<Path> pending = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(options.getDirectory(),
+                options.getPrefix() + "-*")) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(ACTIVE_SUFFIX)) {
+                    Path closedFile = complete(file);
+                    if (closedFile != null) {
+                        pending.add(closedFile);
+                    }
+                } else if (name.endsWith(CLOSED_SUFFIX)) {
+                    pending.add(file);
+                }
+            }
+        }
+
+        for (final Path file : pending) {
+            maintenance.execute(new Runnable() {
+                @Override
+                public void run() {
+                    compress(file);
+                }
+            });
+        }
+    }
+
+    /**
+     * Periodic maintenance: write buffered lines, force them under the INTERVAL policy and rotate an
+     * expired file even if nothing more is sent.
+     */
+    private void tick() {
+        lock.lock();
+        try {
+            if (channel == null || closed) {
+                return;
+            }
+            if (fileBytes > 0 && isExpired()) {
+                rotate();
+                return;
+            }
+            flushBuffer();
+            if (dirty && options.getFsyncPolicy() == FileClientOptions.FsyncPolicy.INTERVAL) {
+                channel.force(false);
+                dirty = false;
+            }
+        } catch (IOException ioe) {
+            log.error("Unable to flush " + activeFile, ioe);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Update statistics
+     * @param envelope envelope, or null if only its serialized form is known
+     * @param status
+     */
+    private void updateStatistics(Envelope envelope, boolean status) {
+        statistics.recordOutcome(envelope, status);
+    }
+
+    /**
+     * Complete the active file and wait for pending compressions.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (channel != null) {
+                rotate();
+            }
+        } catch (IOException ioe) {
+            log.error("Unable to close " + activeFile, ioe);
+        } finally {
+            lock.unlock();
+        }
+
+        maintenance.shutdown();
+        try {
+            if (!maintenance.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.warn("FileClient " + id + " closed before compression finished; it resumes on next open.");
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Factory method for instantiating a FileClient.
+     * @param id
+     * @param options
+     * @return FileClient
+     * @throws UncheckedIOException if the directory cannot be created or read
+     */
+    public static FileClient create(String id, FileClientOptions options) {
+        try {
+            return new FileClient(id, options);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open directory " + options.getDirectory(), ioe);
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import java.nio.file.Path;
+
+/**
+ * File client options.  Review default constants and adjust rotation to the bulk loader's schedule.
+ */
+public class FileClientOptions implements CaliperClientOptions {
+    private final int bufferBytes;
+    private final Path directory;
+    private final FsyncPolicy fsyncPolicy;
+    private final int fsyncIntervalMs;
+    private final boolean gzip;
+    private final LineMode lineMode;
+    private final long maxFileBytes;
+    private final String prefix;
+    private final long rollIntervalMs;
+
+    /**
+     * Default buffering, rotation and fsync settings.
+     */
+    public static final int BUFFER_BYTES = 64 * 1024;
+    public static final int FSYNC_INTERVAL_MS = 1000;
+    public static final long MAX_FILE_BYTES = 64L * 1024 * 1024;
+    public static final String PREFIX = "caliper";
+    public static final long ROLL_INTERVAL_MS = 60L * 60 * 1000;
+
+    /**
+     * What each NDJSON line holds.
+     */
+    public enum LineMode {
+        /**
+         * One event or entity describe per line.
+         */
+        EVENT,
+
+        /**
+         * One envelope per line.
+         */
+        ENVELOPE
+    }
+
+    /**
+     * When written data is forced to the storage device.
+     */
+    public enum FsyncPolicy {
+        /**
+         * Leave it to the operating system.
+         */
+        NEVER,
+
+        /**
+         * Before a file is rotated or the client closed.
+         */
+        ON_ROTATE,
+
+        /**
+         * Every fsyncIntervalMs, and on rotation.
+         */
+        INTERVAL,
+
+        /**
+         * After every send.
+         */
+        ALWAYS
+    }
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private FileClientOptions(OptionsBuilder builder) {
+        SensorValidator.chkFileDirectory(builder.directory);
+
+        this.bufferBytes = SensorValidator.chkPositiveIntValue(builder.bufferBytes, BUFFER_BYTES);
+        this.directory = builder.directory;
+        this.fsyncPolicy = (builder.fsyncPolicy != null) ? builder.fsyncPolicy : FsyncPolicy.ON_ROTATE;
+        this.fsyncIntervalMs = SensorValidator.chkPositiveIntValue(builder.fsyncIntervalMs, FSYNC_INTERVAL_MS);
+        this.gzip = builder.gzip;
+        this.lineMode = (builder.lineMode != null) ? builder.lineMode : LineMode.EVENT;
+        this.maxFileBytes = (builder.maxFileBytes > 0) ? builder.maxFileBytes : MAX_FILE_BYTES;
+        this.prefix = SensorValidator.chkStrValue(builder.prefix, PREFIX);
+        this.rollIntervalMs = (builder.rollIntervalMs > 0) ? builder.rollIntervalMs : ROLL_INTERVAL_MS;
+    }
+
+    /**
+     * Get the size of the in-memory write buffer.
+     * @return buffer bytes
+     */
+    public int getBufferBytes() {
+        return bufferBytes;
+    }
+
+    /**
+     * Get the directory the NDJSON files are written to.
+     * @return directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Get the fsync policy.
+     * @return fsync policy
+     */
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    /**
+     * Get the time in milliseconds between forced writes under the INTERVAL policy.  Buffered lines are
+     * also written to the file at this interval under every policy.
+     * @return fsync interval
+     */
+    public int getFsyncIntervalMs() {
+        return fsyncIntervalMs;
+    }
+
+    /**
+     * Are rotated files gzip-compressed?
+     * @return gzip
+     */
+    public boolean isGzip() {
+        return gzip;
+    }
+
+    /**
+     * Get what each line holds.
+     * @return line mode
+     */
+    public LineMode getLineMode() {
+        return lineMode;
+    }
+
+    /**
+     * Get the size at which the active file is rotated.
+     * @return max file bytes
+     */
+    public long getMaxFileBytes() {
+        return maxFileBytes;
+    }
+
+    /**
+     * Get the file name prefix.
+     * @return prefix
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+
+    /**
+     * Get the age in milliseconds at which a non-empty active file is rotated.
+     * @return roll interval
+     */
+    public long getRollIntervalMs() {
+        return rollIntervalMs;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private int bufferBytes = 0;
+        private Path directory;
+        private FsyncPolicy fsyncPolicy;
+        private int fsyncIntervalMs = 0;
+        private boolean gzip;
+        private LineMode lineMode;
+        private long maxFileBytes = 0;
+        private String prefix;
+        private long rollIntervalMs = 0;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param bufferBytes
+         * @return builder
+         */
+        public OptionsBuilder bufferBytes(final int bufferBytes) {
+            this.bufferBytes = bufferBytes;
+            return this;
+        }
+
+        /**
+         * @param directory
+         * @return builder
+         */
+        public OptionsBuilder directory(final Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * @param fsyncPolicy
+         * @return builder
+         */
+        public OptionsBuilder fsyncPolicy(final FsyncPolicy fsyncPolicy) {
+            this.fsyncPolicy = fsyncPolicy;
+            return this;
+        }
+
+        /**
+         * @param fsyncIntervalMs
+         * @return builder
+         */
+        public OptionsBuilder fsyncIntervalMs(final int fsyncIntervalMs) {
+            this.fsyncIntervalMs = fsyncIntervalMs;
+            return this;
+        }
+
+        /**
+         * @param gzip
+         * @return builder
+         */
+        public OptionsBuilder gzip(final boolean gzip) {
+            this.gzip = gzip;
+            return this;
+        }
+
+        /**
+         * @param lineMode
+         * @return builder
+         */
+        public OptionsBuilder lineMode(final LineMode lineMode) {
+            this.lineMode = lineMode;
+            return this;
+        }
+
+        /**
+         * @param maxFileBytes
+         * @return builder
+         */
+        public OptionsBuilder maxFileBytes(final long maxFileBytes) {
+            this.maxFileBytes = maxFileBytes;
+            return this;
+        }
+
+        /**
+         * @param prefix
+         * @return builder
+         */
+        public OptionsBuilder prefix(final String prefix) {
+            this.prefix = prefix;
+            return this;
+        }
+
+        /**
+         * @param rollIntervalMs
+         * @return builder
+         */
+        public OptionsBuilder rollIntervalMs(final long rollIntervalMs) {
+            this.rollIntervalMs = rollIntervalMs;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of Options.
+         */
+        public FileClientOptions build() {
+            return new FileClientOptions(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
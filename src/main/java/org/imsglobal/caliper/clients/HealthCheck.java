@@ -0,0 +1,65 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+
+/**
+ * Active health check run periodically by a LoadBalancingClient against each of its members.
+ */
+public interface HealthCheck {
+
+    /**
+     * Probe a member.  Throwing is treated the same as returning false.
+     * @param member
+     * @return true if the member can accept envelopes
+     * @throws Exception
+     */
+    boolean isHealthy(CaliperClient member) throws Exception;
+
+    /**
+     * Health check that opens, then closes, a TCP connection to an HttpClient member's host.  Members
+     * that are not HttpClients are always reported healthy.
+     * @param timeoutMs connect timeout
+     * @return health check
+     */
+    static HealthCheck connect(final int timeoutMs) {
+        return new HealthCheck() {
+            @Override
+            public boolean isHealthy(CaliperClient member) throws IOException {
+                if (!(member instanceof HttpClient)) {
+                    return true;
+                }
+
+                URI uri = URI.create(((HttpClient) member).getOptions().getHost());
+                int port = uri.getPort();
+                if (port < 0) {
+                    port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+                }
+                try (Socket socket = new Socket()) {
+                    socket.connect(new InetSocketAddress(uri.getHost(), port), timeoutMs);
+                    return true;
+                }
+            }
+        };
+    }
+}
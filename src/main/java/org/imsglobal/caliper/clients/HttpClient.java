@@ -18,26 +18,54 @@
 
 package org.imsglobal.caliper.clients;
 
-import org.apache.http.client.ClientProtocolException;
-import org.apache.http.client.methods.CloseableHttpResponse;
-import org.apache.http.client.methods.HttpPost;
-import org.apache.http.entity.ContentType;
-import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
-import org.apache.http.util.EntityUtils;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.apache.http.HttpHeaders;
+import org.apache.http.client.utils.DateUtils;
+import org.imsglobal.caliper.CaliperSendable;
 import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.SerializedEnvelope;
+import org.imsglobal.caliper.compression.CompressionCodec;
+import org.imsglobal.caliper.compression.ThresholdCompressingOutputStream;
+import org.imsglobal.caliper.config.DataFormat;
+import org.imsglobal.caliper.transport.CaliperTransport;
+import org.imsglobal.caliper.transport.RequestBody;
+import org.imsglobal.caliper.transport.TransportOptions;
+import org.imsglobal.caliper.transport.TransportRequest;
+import org.imsglobal.caliper.transport.TransportResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URI;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 /**
  * Provisions the Sensor with an HttpClient that binds to one or more Requestors.
  */
 public class HttpClient extends AbstractClient {
-    private static CloseableHttpClient httpClient;
-    private static CloseableHttpResponse response = null;
+    private final CaliperTransport transport;
+    private final URI endpoint;
+
+    private volatile ScheduledExecutorService retryScheduler;
+    private final Set<PendingRetry> pendingRetries = Collections.newSetFromMap(
+        new ConcurrentHashMap<PendingRetry, Boolean>());
+    private final CircuitBreaker circuitBreaker;
+    private final ConcurrencyLimit inFlight;
+    private volatile boolean closed;
 
     private static final Logger log = LoggerFactory.getLogger(HttpClient.class);
 
@@ -48,83 +76,895 @@ public class HttpClient extends AbstractClient {
      */
     private HttpClient(String id, HttpClientOptions options) {
         super(id, options);
-        initialize();
+        this.inFlight = new ConcurrencyLimit(options.isAdaptiveConcurrency(), options.getMinInFlight(),
+            options.getMaxInFlight());
+        this.circuitBreaker = (options.getCircuitBreakerThreshold() > 0)
+            ? new CircuitBreaker(options.getCircuitBreakerThreshold(), options.getCircuitBreakerOpenMs()) : null;
+        this.endpoint = URI.create(options.getHost());
+        this.transport = options.getTransport().create(TransportOptions.builder()
+            .connectTimeout(options.getConnTimeout())
+            .connectionRequestTimeout(options.getConnectionRequestTimeout())
+            .socketTimeout(options.getSocketTimeout())
+            .idleTimeout(options.getIdleTimeout())
+            .keepAlive(options.getKeepAlive())
+            .maxConnections(options.getMaxConnections())
+            .maxConnectionsPerRoute(options.getMaxConnectionsPerRoute())
+            .maxInFlight(options.getMaxInFlight())
+            .build());
     }
 
     /**
-     * Init method
+     * Check the client has not been closed.
      */
-    public static synchronized void initialize() {
-        if (httpClient == null) {
-            httpClient = HttpClients.createDefault();
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("HttpClient " + getId() + " is closed.");
         }
     }
 
     /**
-     * Check initialized instance.
+     * Post envelope.  Request and response state are local to the call, so a single client may be
+     * shared by any number of application threads; concurrency is bounded by the connection pool and,
+     * if adaptiveConcurrency is enabled, by the adaptive in-flight limit.
+     * Retryable failures are retried according to the configured RetryPolicy.  While the circuit
+     * breaker is open the envelope is diverted to the fallback client, if any, without touching the
+     * network.
+     * @param envelope
+     * @throws IllegalArgumentException if the envelope cannot be serialized
      */
-    private static void checkInitialized() {
-        if (httpClient == null) {
-            throw new IllegalStateException("HttpClient is not initialized.");
+    @Override
+    public void send(Envelope envelope) {
+        try {
+            if (log.isDebugEnabled()) {
+                log.debug("Entering send()...");
+            }
+
+            // Check if HttpClient is still open.
+            checkOpen();
+
+            // Fail fast while the endpoint is unhealthy
+            if (!allowRequest()) {
+                divert(envelope).send(envelope);
+                return;
+            }
+
+            // Prep the request; the envelope is serialized as the request body is written
+            recordDataCount(envelope.getData());
+            long start = System.nanoTime();
+            TransportRequest request = createRequest(createBody(envelope));
+
+            // Execute POST
+            SendResult result = executeLimited(envelope, request, start);
+            if (!result.isSuccessful()) {
+                throw new RuntimeException("WARN: HTTP POST failed; status code=" + result.getStatusCode());
+            }
+
+            if (log.isDebugEnabled()) {
+                log.debug("Exiting send()...");
+            }
+        } catch (IOException ioe) {
+            log.error("HTTP POST failed", ioe);
         }
     }
 
     /**
-     * Post envelope.
+     * Post an already serialized envelope.  Failures are reported the same way as send(Envelope),
+     * including diversion to the fallback client while the circuit breaker is open.
      * @param envelope
-     * @return status
      */
     @Override
-    public void send(Envelope envelope) {
-        boolean status = Boolean.FALSE;
+    public void send(SerializedEnvelope envelope) {
+        try {
+            checkOpen();
+            if (!allowRequest()) {
+                divert(envelope);
+                return;
+            }
+
+            SendResult result = postAllowed(envelope);
+            if (!result.isSuccessful()) {
+                throw new RuntimeException("WARN: HTTP POST failed; status code=" + result.getStatusCode());
+            }
+        } catch (IOException ioe) {
+            log.error("HTTP POST failed", ioe);
+        }
+    }
 
+    /**
+     * Post an already serialized envelope and report the endpoint's response.  Unlike send(), an
+     * unsuccessful status is returned rather than thrown, and transport failures are propagated,
+     * so that callers such as SpoolClient can decide whether to retain the payload.
+     * @param envelope
+     * @return outcome
+     * @throws IOException if the request could not be executed
+     * @throws CircuitBreakerOpenException if the circuit breaker is open
+     */
+    public SendResult post(SerializedEnvelope envelope) throws IOException {
+        checkOpen();
+        if (!allowRequest()) {
+            updateStatistics(envelope.getSource(), Boolean.FALSE);
+            CircuitBreakerOpenException ex = new CircuitBreakerOpenException("HttpClient " + getId()
+                + " circuit breaker is open.");
+            notifyFailed(envelope.getSource(), 0, ex);
+            throw ex;
+        }
+        return postAllowed(envelope);
+    }
+
+    /**
+     * Post an already serialized envelope once the circuit breaker has let it through.
+     * @param envelope
+     * @return outcome
+     * @throws IOException if the request could not be executed
+     */
+    private SendResult postAllowed(SerializedEnvelope envelope) throws IOException {
+        if (envelope.getDataCount() >= 0) {
+            getStatistics().updateEventsPerEnvelope(envelope.getDataCount());
+        }
+        long start = System.nanoTime();
+        return executeLimited(envelope.getSource(), createRequest(createBody(envelope)), start);
+    }
+
+    /**
+     * Get the format of pre-serialized envelopes this client transmits.
+     * @return data format
+     */
+    @Override
+    public DataFormat getDataFormat() {
+        return getOptions().getDataFormat();
+    }
+
+    /**
+     * Prep a POST to the configured host.
+     * @param body
+     * @return request
+     */
+    private TransportRequest createRequest(RequestBody body) {
+        return TransportRequest.builder()
+            .uri(endpoint)
+            .header("Authorization", this.getOptions().getApiKey())
+            .body(body)
+            .build();
+    }
+
+    /**
+     * Execute a POST once a slot under the adaptive in-flight limit is free.  The time spent waiting
+     * is recorded as queueing delay.  Without adaptiveConcurrency, synchronous sends are not limited.
+     * The total latency and payload sizes are recorded once the final attempt completes.
+     * @param envelope envelope being sent, for listeners and event counts, or null if only its serialized
+     * form is known
+     * @param request
+     * @param start time the envelope was accepted, from System.nanoTime(), for the total latency
+     * @return outcome
+     * @throws IOException if no slot frees up within the connection request timeout
+     */
+    private SendResult executeLimited(Envelope envelope, TransportRequest request, long start) throws IOException {
+        SendResult result = null;
         try {
-            if (log.isDebugEnabled()) {
-                log.debug("Entering send()...");
+            result = executeGated(envelope, request);
+            return result;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            getStatistics().recordTotalLatency(elapsed);
+            recordPayload(request.getBody(), elapsed, result != null && result.isSuccessful());
+        }
+    }
+
+    /**
+     * Execute a POST, first waiting for a slot under the adaptive in-flight limit if adaptive.
+     * @param envelope
+     * @param request
+     * @return outcome
+     * @throws IOException if no slot frees up within the connection request timeout
+     */
+    private SendResult executeGated(Envelope envelope, TransportRequest request) throws IOException {
+        if (!inFlight.isAdaptive()) {
+            return executeWithRetry(envelope, request);
+        }
+
+        long waitStart = System.nanoTime();
+        int timeout = getOptions().getConnectionRequestTimeout();
+        try {
+            if (!inFlight.acquire(timeout > 0 ? timeout : Long.MAX_VALUE, TimeUnit.MILLISECONDS)) {
+                abandon(envelope);
+                IOException ioe = new IOException("HttpClient " + getId() + " timed out waiting for one of "
+                    + inFlight.getLimit() + " in-flight slots.");
+                notifyFailed(envelope, 0, ioe);
+                throw ioe;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            abandon(envelope);
+            throw new InterruptedIOException("Interrupted while waiting for an in-flight slot");
+        }
+        getStatistics().updateQueueingDelays((System.nanoTime() - waitStart) / 1000000.0);
+
+        try {
+            return executeWithRetry(envelope, request);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Record the size of a request body once it has been written, and for a successful send the total
+     * latency per kilobyte on the wire.  Sizes come from the body itself, which knows them from buffering
+     * or from counting the stream it was serialized to.
+     * @param body
+     * @param elapsed total latency in nanoseconds
+     * @param successful
+     */
+    private void recordPayload(RequestBody body, long elapsed, boolean successful) {
+        long serialized = body.getSerializedLength();
+        if (serialized < 0) {
+            return;
+        }
+        long wire = (body.getContentLength() >= 0) ? body.getContentLength() : serialized;
+        getStatistics().updateSerializedBytes(serialized);
+        getStatistics().updateWireBytes(wire);
+        if (successful && wire > 0) {
+            getStatistics().updateLatencyPerKilobyte((elapsed / 1000000.0) / (wire / 1024.0));
+        }
+    }
+
+    /**
+     * Record the number of events and entities in an envelope.
+     * @param data
+     */
+    private void recordDataCount(List<CaliperSendable> data) {
+        if (data != null) {
+            getStatistics().updateEventsPerEnvelope(data.size());
+        }
+    }
+
+    /**
+     * Execute a POST on the transport, retrying retryable failures, and update statistics and the
+     * circuit breaker with the final outcome.  Request bodies are repeatable, so the same request is
+     * resent on each attempt.
+     * @param envelope
+     * @param request
+     * @return outcome
+     * @throws IOException
+     */
+    private SendResult executeWithRetry(Envelope envelope, TransportRequest request) throws IOException {
+        RetryPolicy policy = getOptions().getRetryPolicy();
+        int retry = 0;
+
+        while (true) {
+            SendResult result;
+            try {
+                result = execute(envelope, request);
+            } catch (IOException ioe) {
+                if (retry < policy.getMaxRetries() && policy.isRetryOnNetworkError() && !closed) {
+                    retry++;
+                    getStatistics().updateRetries(1);
+                    notifyRetried(envelope, 0, retry);
+                    log.warn("HTTP POST failed, retry " + retry + " of " + policy.getMaxRetries(), ioe);
+                    pauseBeforeRetry(envelope, policy.backoff(retry));
+                    continue;
+                }
+                complete(envelope, Boolean.FALSE, true);
+                notifyFailed(envelope, 0, ioe);
+                throw ioe;
             }
 
-            // Check if HttpClient is initialized.
-            checkInitialized();
+            if (!result.isSuccessful() && retry < policy.getMaxRetries()
+                    && policy.isRetryable(result.getStatusCode()) && !closed) {
+                long delay = policy.backoff(retry + 1, result.getRetryAfterMs());
+                if (delay >= 0) {
+                    retry++;
+                    getStatistics().updateRetries(1);
+                    notifyRetried(envelope, result.getStatusCode(), retry);
+                    log.warn("HTTP POST failed; status code=" + result.getStatusCode() + ", retry " + retry
+                        + " of " + policy.getMaxRetries() + " in " + delay + "ms");
+                    pauseBeforeRetry(envelope, delay);
+                    continue;
+                }
+            }
 
-            // Serialize the envelope
-            String json = this.serializeEnvelope(envelope);
+            complete(envelope, result.isSuccessful(), isServerFailure(result));
+            if (!result.isSuccessful()) {
+                notifyFailed(envelope, result.getStatusCode(), null);
+            }
+            return result;
+        }
+    }
 
-            // Prep the post
-            HttpPost post = new HttpPost(super.getOptions().getHost());
-            post.setHeader("Authorization", this.getOptions().getApiKey());
-            post.setHeader("Content-Type", this.getOptions().getContentType());
-            post.setEntity(new StringEntity(json, ContentType.APPLICATION_JSON));
+    /**
+     * Execute a single POST on the transport.  A streamed body is serialized as it is written, so a
+     * serialization failure surfaces here; it is a local failure, abandoned rather than retried.
+     * @param envelope
+     * @param request
+     * @return outcome
+     * @throws IOException
+     * @throws IllegalArgumentException if the envelope cannot be serialized
+     */
+    private SendResult execute(Envelope envelope, TransportRequest request) throws IOException {
+        long start = System.nanoTime();
+        if (!getListeners().isEmpty()) {
+            getListeners().onSent(getId(), envelope, start, request.getBody().getContentLength());
+        }
+        try {
+            SendResult result = toResult(transport.send(request));
+            recordAttempt(envelope, request, start, result);
+            return result;
+        } catch (IOException ioe) {
+            JsonProcessingException jpe = serializationFailure(ioe);
+            if (jpe != null) {
+                abandon(envelope);
+                IllegalArgumentException ex = new IllegalArgumentException("Unable to serialize envelope", jpe);
+                notifyFailed(envelope, 0, ex);
+                throw ex;
+            }
+            recordAttempt(envelope, request, start, null);
+            throw ioe;
+        }
+    }
 
-            // Execute POST
-            response = httpClient.execute(post);
+    /**
+     * Find the serialization failure, if any, behind a failed attempt.  Transports may wrap the
+     * exception thrown while writing the body.
+     * @param ioe
+     * @return serialization failure, or null if the attempt failed on the network
+     */
+    private static JsonProcessingException serializationFailure(IOException ioe) {
+        for (Throwable cause = ioe; cause != null; cause = cause.getCause()) {
+            if (cause instanceof JsonProcessingException) {
+                return (JsonProcessingException) cause;
+            }
+        }
+        return null;
+    }
 
-            // HTTP Response code
-            int statusCode = response.getStatusLine().getStatusCode();
-            if (statusCode < 200 || statusCode > 202) {
-                response.close();
+    /**
+     * Record the round trip time and status of one attempt and feed them, with the outcome, to the
+     * adaptive in-flight limit.  Listeners are told of a successful response.
+     * @param envelope
+     * @param request
+     * @param start attempt start, from System.nanoTime()
+     * @param result response, or null if the attempt failed
+     */
+    private void recordAttempt(Envelope envelope, TransportRequest request, long start, SendResult result) {
+        long end = System.nanoTime();
+        long elapsed = end - start;
+        getStatistics().recordExecuteLatency(elapsed);
+        getStatistics().recordStatus(result != null ? result.getStatusCode() : 0);
+        if (inFlight.isAdaptive()) {
+            inFlight.onSample(elapsed, result == null || isOverloaded(result));
+            getStatistics().updateConcurrencyLimits(inFlight.getLimit());
+        }
+        if (result != null && result.isSuccessful() && !getListeners().isEmpty()) {
+            RequestBody body = request.getBody();
+            long bytes = (body.getContentLength() >= 0) ? body.getContentLength() : body.getSerializedLength();
+            getListeners().onAcknowledged(getId(), envelope, start, end, result.getStatusCode(), bytes);
+        }
+    }
+
+    /**
+     * Tell listeners that an envelope is about to be retried.
+     * @param envelope
+     * @param statusCode status of the failed attempt, or 0
+     * @param retry
+     */
+    private void notifyRetried(Envelope envelope, int statusCode, int retry) {
+        if (!getListeners().isEmpty()) {
+            getListeners().onRetried(getId(), envelope, System.nanoTime(), statusCode, retry);
+        }
+    }
 
-                // Update statistics
-                updateStatistics(Boolean.FALSE);
+    /**
+     * Tell listeners that the client gave up on an envelope.
+     * @param envelope
+     * @param statusCode status of the last attempt, or 0
+     * @param cause
+     */
+    private void notifyFailed(Envelope envelope, int statusCode, Throwable cause) {
+        if (!getListeners().isEmpty()) {
+            getListeners().onFailed(getId(), envelope, System.nanoTime(), statusCode, cause);
+        }
+    }
+
+    /**
+     * Whether a response indicates the endpoint is shedding load.
+     * @param result
+     * @return true for 429 and 5xx responses
+     */
+    private static boolean isOverloaded(SendResult result) {
+        return result.getStatusCode() == 429 || isServerFailure(result);
+    }
 
-                throw new RuntimeException("WARN: HTTP POST failed; status code=" + statusCode);
+    /**
+     * Map a transport response to an outcome.
+     * @param response
+     * @return outcome
+     */
+    private static SendResult toResult(TransportResponse response) {
+        int statusCode = response.getStatusCode();
+        boolean successful = statusCode >= 200 && statusCode <= 202;
+        return new SendResult(statusCode, successful, parseRetryAfter(response.getHeader(HttpHeaders.RETRY_AFTER)));
+    }
+
+    /**
+     * Sleep between attempts.  An interrupted request is abandoned.
+     * @param envelope
+     * @param delay milliseconds
+     * @throws InterruptedIOException if the calling thread is interrupted
+     */
+    private void pauseBeforeRetry(Envelope envelope, long delay) throws InterruptedIOException {
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            abandon(envelope);
+            throw new InterruptedIOException("Interrupted while waiting to retry HTTP POST");
+        }
+    }
+
+    /**
+     * Parse the Retry-After header, given either in delta-seconds or as an HTTP-date.
+     * @param header header value, or null if absent
+     * @return delay in milliseconds, or -1 if absent or unparseable
+     */
+    static long parseRetryAfter(String header) {
+        if (header == null) {
+            return -1;
+        }
+
+        String value = header.trim();
+        try {
+            return Math.max(0, TimeUnit.SECONDS.toMillis(Long.parseLong(value)));
+        } catch (NumberFormatException nfe) {
+            Date date = DateUtils.parseDate(value);
+            return (date != null) ? Math.max(0, date.getTime() - System.currentTimeMillis()) : -1;
+        }
+    }
+
+    /**
+     * Whether a final response indicates the endpoint itself is unhealthy.  Client errors, including
+     * 429, mean the endpoint is reachable and do not count against the circuit breaker.
+     * @param result
+     * @return true for 5xx responses
+     */
+    private static boolean isServerFailure(SendResult result) {
+        return result.getStatusCode() >= 500;
+    }
+
+    /**
+     * Ask the circuit breaker, if configured, whether a request may be attempted.
+     * @return true if the request may proceed
+     */
+    private boolean allowRequest() {
+        return circuitBreaker == null || circuitBreaker.allowRequest();
+    }
+
+    /**
+     * Record the final outcome of a request that reached the endpoint, or failed trying to, after any
+     * retries.  Any response other than a server error shows the endpoint is healthy.  The envelope's
+     * events are counted as sent or failed accordingly.
+     * @param envelope envelope, or null if only its serialized form is known
+     * @param successful
+     * @param unhealthy true if the failure should count against the circuit breaker
+     */
+    private void complete(Envelope envelope, boolean successful, boolean unhealthy) {
+        if (circuitBreaker != null) {
+            if (unhealthy) {
+                circuitBreaker.recordFailure();
             } else {
-                if (log.isDebugEnabled()) {
-                    log.debug(response.getStatusLine().toString());
-                    log.debug(EntityUtils.toString(response.getEntity()));
+                circuitBreaker.recordSuccess();
+            }
+        }
+        updateStatistics(envelope, successful);
+    }
+
+    /**
+     * Record a request that failed locally without being sent, for example because no in-flight slot
+     * was free.  It counts as failed but tells the circuit breaker nothing about the endpoint.
+     * @param envelope envelope, or null if only its serialized form is known
+     */
+    private void abandon(Envelope envelope) {
+        if (circuitBreaker != null) {
+            circuitBreaker.recordAbandoned();
+        }
+        updateStatistics(envelope, Boolean.FALSE);
+    }
+
+    /**
+     * Resolve the client that receives envelopes while the circuit breaker is open.
+     * @param envelope
+     * @return fallback client
+     * @throws CircuitBreakerOpenException if no fallback is configured
+     */
+    private CaliperClient divert(Envelope envelope) {
+        CaliperClient fallback = getOptions().getFallback();
+        if (fallback == null) {
+            updateStatistics(envelope, Boolean.FALSE);
+            CircuitBreakerOpenException ex = new CircuitBreakerOpenException("HttpClient " + getId()
+                + " circuit breaker is open.");
+            notifyFailed(envelope, 0, ex);
+            throw ex;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("HttpClient " + getId() + " circuit breaker is open; diverting to " + fallback.getId());
+        }
+        return fallback;
+    }
+
+    /**
+     * Hand an already serialized envelope to the fallback client while the circuit breaker is open.  The
+     * fallback is given the source Envelope if there is one, or else the serialized envelope if it
+     * accepts the envelope's format.
+     * @param envelope
+     * @throws CircuitBreakerOpenException if no fallback is configured or it cannot take the envelope
+     */
+    private void divert(SerializedEnvelope envelope) {
+        Envelope source = envelope.getSource();
+        CaliperClient fallback = divert(source);
+        if (source != null) {
+            fallback.send(source);
+        } else if (fallback.getDataFormat() == envelope.getFormat()) {
+            fallback.send(envelope);
+        } else {
+            updateStatistics(Boolean.FALSE);
+            CircuitBreakerOpenException ex = new CircuitBreakerOpenException("HttpClient " + getId()
+                + " circuit breaker is open and " + fallback.getId() + " does not accept serialized envelopes.");
+            notifyFailed(null, 0, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Post envelope without blocking the calling thread.  The returned future completes with the
+     * endpoint's response or exceptionally if the request could not be executed.  If the client
+     * already has as many requests in flight as its current limit allows the future fails immediately with a
+     * RejectedExecutionException rather than queueing the caller.  Retries are scheduled rather
+     * than slept on and keep their in-flight permit until the final attempt completes.
+     * @param envelope
+     * @return future outcome
+     */
+    @Override
+    public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+        final CompletableFuture<SendResult> future = new CompletableFuture<>();
+
+        if (!allowRequest()) {
+            try {
+                return divert(envelope).sendAsync(envelope);
+            } catch (CircuitBreakerOpenException ex) {
+                future.completeExceptionally(ex);
+                return future;
+            }
+        }
+
+        if (!inFlight.tryAcquire()) {
+            abandon(envelope);
+            RejectedExecutionException ex = new RejectedExecutionException("HttpClient " + getId()
+                + " has reached its limit of " + inFlight.getLimit() + " in-flight requests.");
+            notifyFailed(envelope, 0, ex);
+            future.completeExceptionally(ex);
+            return future;
+        }
+
+        final long start = System.nanoTime();
+        try {
+            // Check if HttpClient is still open.
+            checkOpen();
+
+            // Prep the request; non-blocking engines need a buffered body
+            recordDataCount(envelope.getData());
+            final RequestBody body = createBufferedBody(envelope);
+            future.whenComplete(new BiConsumer<SendResult, Throwable>() {
+                @Override
+                public void accept(SendResult result, Throwable failure) {
+                    long elapsed = System.nanoTime() - start;
+                    getStatistics().recordTotalLatency(elapsed);
+                    recordPayload(body, elapsed, result != null && result.isSuccessful());
                 }
-                response.close();
+            });
+            executeAsync(envelope, createRequest(body), 0, future);
+        } catch (IOException | RuntimeException ex) {
+            inFlight.release();
+            abandon(envelope);
+            notifyFailed(envelope, 0, ex);
+            future.completeExceptionally(ex);
+        }
 
-                // Update statistics
-                updateStatistics(Boolean.TRUE);
+        return future;
+    }
 
-                if (log.isDebugEnabled()) {
-                    log.debug("Exiting send()...");
+    /**
+     * Execute one attempt of a POST without blocking.  The completion runs on a transport thread, so
+     * a retry is handed to the retry scheduler rather than started inline.
+     * @param envelope
+     * @param request
+     * @param retry number of retries already made
+     * @param future
+     */
+    private void executeAsync(final Envelope envelope, final TransportRequest request, final int retry,
+                              final CompletableFuture<SendResult> future) {
+        final RetryPolicy policy = getOptions().getRetryPolicy();
+        final long start = System.nanoTime();
+        if (!getListeners().isEmpty()) {
+            getListeners().onSent(getId(), envelope, start, request.getBody().getContentLength());
+        }
+
+        transport.sendAsync(request).whenComplete(new BiConsumer<TransportResponse, Throwable>() {
+            @Override
+            public void accept(TransportResponse response, Throwable failure) {
+                if (failure != null) {
+                    Throwable cause = (failure instanceof CompletionException && failure.getCause() != null)
+                        ? failure.getCause() : failure;
+                    if (!(cause instanceof CancellationException)) {
+                        recordAttempt(envelope, request, start, null);
+                    }
+                    if (!(cause instanceof CancellationException) && retry < policy.getMaxRetries()
+                            && policy.isRetryOnNetworkError()
+                            && scheduleRetry(envelope, request, retry + 1, policy.backoff(retry + 1), 0, future)) {
+                        return;
+                    }
+                    finish(envelope, future, null, cause);
+                    return;
                 }
+
+                SendResult result = toResult(response);
+                recordAttempt(envelope, request, start, result);
+                if (!result.isSuccessful() && retry < policy.getMaxRetries()
+                        && policy.isRetryable(result.getStatusCode())) {
+                    long delay = policy.backoff(retry + 1, result.getRetryAfterMs());
+                    if (delay >= 0
+                            && scheduleRetry(envelope, request, retry + 1, delay, result.getStatusCode(), future)) {
+                        return;
+                    }
+                }
+
+                finish(envelope, future, result, null);
             }
-        } catch (ClientProtocolException cpe) {
-            cpe.printStackTrace();
-        } catch (IOException ioe) {
-            ioe.printStackTrace();
+        });
+    }
+
+    /**
+     * Schedule another attempt of an asynchronous POST.
+     * @param envelope
+     * @param request
+     * @param retry
+     * @param delay milliseconds
+     * @param statusCode status of the failed attempt, or 0 if there was no response
+     * @param future
+     * @return false if the client is closing and no retry was scheduled
+     */
+    private boolean scheduleRetry(final Envelope envelope, final TransportRequest request, final int retry,
+                                  long delay, int statusCode, final CompletableFuture<SendResult> future) {
+        if (closed) {
+            return false;
+        }
+
+        final PendingRetry pending = new PendingRetry(envelope, future);
+        pendingRetries.add(pending);
+        try {
+            getRetryScheduler().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    // close() may already have failed the retry
+                    if (!pendingRetries.remove(pending)) {
+                        return;
+                    }
+                    try {
+                        checkOpen();
+                        executeAsync(envelope, request, retry, future);
+                    } catch (RuntimeException ex) {
+                        finish(envelope, future, null, ex);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException ree) {
+            return !pendingRetries.remove(pending);
+        }
+
+        getStatistics().updateRetries(1);
+        notifyRetried(envelope, statusCode, retry);
+        return true;
+    }
+
+    /**
+     * Complete an asynchronous POST with its final outcome and release its in-flight permit.
+     * @param envelope
+     * @param future
+     * @param result response, or null if the request failed
+     * @param ex failure, or null if a response was received
+     */
+    private void finish(Envelope envelope, CompletableFuture<SendResult> future, SendResult result, Throwable ex) {
+        inFlight.release();
+        if (result != null) {
+            complete(envelope, result.isSuccessful(), isServerFailure(result));
+            if (!result.isSuccessful()) {
+                notifyFailed(envelope, result.getStatusCode(), null);
+            }
+            future.complete(result);
+        } else {
+            if (ex instanceof CancellationException || ex instanceof IllegalStateException) {
+                // Cancelled, or failed by close(); neither says anything about the endpoint
+                abandon(envelope);
+            } else {
+                complete(envelope, Boolean.FALSE, true);
+            }
+            notifyFailed(envelope, 0, ex);
+            future.completeExceptionally(ex);
+        }
+    }
+
+    /**
+     * Create the request body for a blocking send.  Uncompressed envelopes are streamed to the
+     * connection; compressed envelopes are buffered so that Content-Encoding can be decided up front.
+     * @param envelope
+     * @return body
+     * @throws IOException
+     */
+    private RequestBody createBody(Envelope envelope) throws IOException {
+        CompressionCodec codec = getOptions().getCompression();
+        if (codec == null) {
+            return RequestBody.of(envelope, getSerializer(), getOptions().getContentType());
+        }
+        return createCompressedBody(envelope, codec);
+    }
+
+    /**
+     * Create the request body for an already serialized envelope, compressed if a codec is configured
+     * and the payload exceeds the threshold.
+     * @param envelope
+     * @return body
+     * @throws IOException
+     */
+    private RequestBody createBody(SerializedEnvelope envelope) throws IOException {
+        CompressionCodec codec = getOptions().getCompression();
+        if (codec == null || envelope.size() < getOptions().getCompressionThreshold()) {
+            return RequestBody.of(envelope, getOptions().getContentType());
+        }
+
+        ThresholdCompressingOutputStream out = new ThresholdCompressingOutputStream(codec,
+            getOptions().getCompressionThreshold());
+        envelope.writeTo(out);
+        out.close();
+        return createBody(out);
+    }
+
+    /**
+     * Create a fully buffered request body, compressed if a codec is configured.
+     * @param envelope
+     * @return body
+     * @throws IOException
+     */
+    private RequestBody createBufferedBody(Envelope envelope) throws IOException {
+        CompressionCodec codec = getOptions().getCompression();
+        if (codec == null) {
+            long start = System.nanoTime();
+            byte[] payload = getSerializer().writeValueAsBytes(envelope);
+            long serialized = System.nanoTime();
+            getStatistics().recordSerializationLatency(serialized - start);
+            if (!getListeners().isEmpty()) {
+                getListeners().onSerialized(getId(), envelope, start, serialized, payload.length);
+            }
+            return RequestBody.of(payload, getOptions().getContentType(), null);
+        }
+        return createCompressedBody(envelope, codec);
+    }
+
+    /**
+     * Serialize the envelope, compressing it only if it exceeds the configured threshold, and record
+     * the compression ratio.
+     * @param envelope
+     * @param codec
+     * @return body
+     * @throws IOException
+     */
+    private RequestBody createCompressedBody(Envelope envelope, CompressionCodec codec) throws IOException {
+        long start = System.nanoTime();
+        ThresholdCompressingOutputStream out = new ThresholdCompressingOutputStream(codec,
+            getOptions().getCompressionThreshold());
+        getSerializer().writeValue(out, envelope);
+        out.close();
+        long serialized = System.nanoTime();
+        getStatistics().recordSerializationLatency(serialized - start);
+        if (!getListeners().isEmpty()) {
+            getListeners().onSerialized(getId(), envelope, start, serialized, out.getUncompressedSize());
+        }
+        return createBody(out);
+    }
+
+    /**
+     * Wrap a closed compressing stream's output, recording the compression ratio.
+     * @param out
+     * @return body
+     */
+    private RequestBody createBody(ThresholdCompressingOutputStream out) {
+        byte[] payload = out.toByteArray();
+        if (!out.isCompressed()) {
+            return RequestBody.of(payload, getOptions().getContentType(), null);
+        }
+        getStatistics().updateCompressionRatios((double) out.getUncompressedSize() / payload.length);
+        return RequestBody.of(payload, out.getUncompressedSize(), getOptions().getContentType(), out.getEncoding());
+    }
+
+    /**
+     * Lazily start the daemon thread that schedules asynchronous retries.
+     * @return scheduler
+     * @throws RejectedExecutionException if the client is closed
+     */
+    private ScheduledExecutorService getRetryScheduler() {
+        ScheduledExecutorService scheduler = retryScheduler;
+        if (scheduler == null) {
+            synchronized (this) {
+                scheduler = retryScheduler;
+                if (closed) {
+                    throw new RejectedExecutionException("HttpClient " + getId() + " is closed.");
+                }
+                if (scheduler == null) {
+                    scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "caliper-http-retry-" + getId());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                    retryScheduler = scheduler;
+                }
+            }
+        }
+        return scheduler;
+    }
+
+    /**
+     * Get the number of requests currently in flight.
+     * @return in-flight requests
+     */
+    public int getInFlightRequests() {
+        return inFlight.getInFlight();
+    }
+
+    /**
+     * Get the current in-flight limit, which moves between minInFlight and maxInFlight if adaptive.
+     * @return in-flight limit
+     */
+    public int getInFlightLimit() {
+        return inFlight.getLimit();
+    }
+
+    /**
+     * Get the state of the circuit breaker.
+     * @return state, or null if the circuit breaker is disabled
+     */
+    public CircuitBreaker.State getCircuitBreakerState() {
+        return (circuitBreaker != null) ? circuitBreaker.getState() : null;
+    }
+
+    /**
+     * Shut down the transport.  Pending retries fail with an IllegalStateException and release their
+     * in-flight permits.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (retryScheduler != null) {
+            retryScheduler.shutdownNow();
+            retryScheduler = null;
+        }
+        for (PendingRetry pending : pendingRetries) {
+            if (pendingRetries.remove(pending)) {
+                finish(pending.envelope, pending.future, null,
+                    new IllegalStateException("HttpClient " + getId() + " is closed."));
+            }
+        }
+        transport.close();
+    }
+
+    /**
+     * An asynchronous POST waiting on the retry scheduler, kept so that close() can fail it.
+     */
+    private static final class PendingRetry {
+        private final Envelope envelope;
+        private final CompletableFuture<SendResult> future;
+
+        private PendingRetry(Envelope envelope, CompletableFuture<SendResult> future) {
+            this.envelope = envelope;
+            this.future = future;
         }
     }
 
@@ -18,25 +18,76 @@
 
 package org.imsglobal.caliper.clients;
 
+import org.imsglobal.caliper.compression.CompressionCodec;
+import org.imsglobal.caliper.compression.CompressionCodecs;
+import org.imsglobal.caliper.config.Config;
+import org.imsglobal.caliper.config.DataFormat;
 import org.imsglobal.caliper.config.Timeout;
+import org.imsglobal.caliper.transport.TransportFactory;
+import org.imsglobal.caliper.transport.Transports;
 import org.imsglobal.caliper.validators.SensorValidator;
 
 /**
  * Caliper client options.  Review default constants and update placeholder entries (e.g., HTTP_HOST).
  */
 public class HttpClientOptions implements CaliperClientOptions {
+    private final boolean adaptiveConcurrency;
     private final String apiKey;
+    private final int circuitBreakerOpenMs;
+    private final int circuitBreakerThreshold;
+    private final CompressionCodec compression;
+    private final int compressionThreshold;
+    private final int connectionRequestTimeout;
     private final int connectionTimeout;
     private final String contentType;
+    private final DataFormat dataFormat;
+    private final CaliperClient fallback;
     private final String host;
+    private final int idleTimeout;
+    private final int keepAlive;
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final int maxInFlight;
+    private final int minInFlight;
+    private final RetryPolicy retryPolicy;
     private final int socketTimeout;
+    private final TransportFactory transport;
 
     /**
      * Default timeout settings.
      */
+    public static final int CONNECTION_REQUEST_TIMEOUT = Timeout.CONNECTION_REQUESTOR_TIMEOUT.value();
     public static final int CONNECTION_TIMEOUT = Timeout.CONNECTION_TIMEOUT.value();
     public static final int SOCKET_TIMEOUT = Timeout.SOCKET_TIMEOUT.value();
 
+    /**
+     * Default time in milliseconds an open circuit breaker fails fast before a trial request.
+     */
+    public static final int CIRCUIT_BREAKER_OPEN_MS = 30000;
+
+    /**
+     * Default minimum payload size in bytes that is compressed when a compression codec is set.
+     */
+    public static final int COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * Default connection pool settings.  Durations are in milliseconds.
+     */
+    public static final int IDLE_TIMEOUT = 60000;
+    public static final int KEEP_ALIVE = 30000;
+    public static final int MAX_CONNECTIONS = 50;
+    public static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+
+    /**
+     * Default maximum number of asynchronous requests a client may have outstanding at once.
+     */
+    public static final int MAX_IN_FLIGHT = 64;
+
+    /**
+     * Default lower bound on an adaptive in-flight limit.
+     */
+    public static final int MIN_IN_FLIGHT = 1;
+
     /**
      * HTTP Request Header field values.  Update faux Host value.
      */
@@ -51,11 +102,37 @@ public class HttpClientOptions implements CaliperClientOptions {
 
         SensorValidator.chkApiKey(builder.apiKey);
 
+        this.adaptiveConcurrency = builder.adaptiveConcurrency;
         this.apiKey = builder.apiKey;
+        this.circuitBreakerOpenMs = SensorValidator.chkPositiveIntValue(builder.circuitBreakerOpenMs, CIRCUIT_BREAKER_OPEN_MS);
+        this.circuitBreakerThreshold = Math.max(0, builder.circuitBreakerThreshold);
+        this.compression = builder.compression;
+        this.compressionThreshold = SensorValidator.chkPositiveIntValue(builder.compressionThreshold, COMPRESSION_THRESHOLD);
+        this.connectionRequestTimeout = SensorValidator.chkIntValue(builder.connectionRequestTimeout, CONNECTION_REQUEST_TIMEOUT);
         this.connectionTimeout = SensorValidator.chkIntValue(builder.connectionTimeout, CONNECTION_TIMEOUT);
         this.contentType = SensorValidator.chkStrValue(builder.contentType, HTTP_CONTENT_TYPE);
+        this.dataFormat = (builder.dataFormat != null) ? builder.dataFormat : Config.DATA_FORMAT;
+        this.fallback = builder.fallback;
         this.host = SensorValidator.chkStrValue(builder.host, HTTP_HOST);
+        this.idleTimeout = SensorValidator.chkPositiveIntValue(builder.idleTimeout, IDLE_TIMEOUT);
+        this.keepAlive = SensorValidator.chkPositiveIntValue(builder.keepAlive, KEEP_ALIVE);
+        this.maxConnections = SensorValidator.chkPositiveIntValue(builder.maxConnections, MAX_CONNECTIONS);
+        this.maxConnectionsPerRoute = Math.min(
+            SensorValidator.chkPositiveIntValue(builder.maxConnectionsPerRoute, MAX_CONNECTIONS_PER_ROUTE), maxConnections);
+        this.maxInFlight = SensorValidator.chkPositiveIntValue(builder.maxInFlight, MAX_IN_FLIGHT);
+        this.minInFlight = Math.min(SensorValidator.chkPositiveIntValue(builder.minInFlight, MIN_IN_FLIGHT), maxInFlight);
+        this.retryPolicy = (builder.retryPolicy != null) ? builder.retryPolicy : RetryPolicy.NONE;
         this.socketTimeout = SensorValidator.chkIntValue(builder.socketTimeout, SOCKET_TIMEOUT);
+        this.transport = (builder.transport != null) ? builder.transport : Transports.apache();
+    }
+
+    /**
+     * Is the in-flight limit adapted to the endpoint's latency and failures?  If so it varies between
+     * minInFlight and maxInFlight and applies to synchronous as well as asynchronous sends.
+     * @return true if adaptive
+     */
+    public boolean isAdaptiveConcurrency() {
+        return adaptiveConcurrency;
     }
 
     /**
@@ -66,6 +143,46 @@ public class HttpClientOptions implements CaliperClientOptions {
         return apiKey;
     }
 
+    /**
+     * Get the time in milliseconds an open circuit breaker fails fast before letting a trial request through.
+     * @return open duration
+     */
+    public int getCircuitBreakerOpenMs() {
+        return circuitBreakerOpenMs;
+    }
+
+    /**
+     * Get the number of consecutive failures that open the circuit breaker.
+     * @return failure threshold, or 0 if the circuit breaker is disabled
+     */
+    public int getCircuitBreakerThreshold() {
+        return circuitBreakerThreshold;
+    }
+
+    /**
+     * Get the codec used to compress request bodies.
+     * @return compression codec or null if requests are sent uncompressed
+     */
+    public CompressionCodec getCompression() {
+        return compression;
+    }
+
+    /**
+     * Get the minimum payload size in bytes that is compressed.
+     * @return compression threshold
+     */
+    public int getCompressionThreshold() {
+        return compressionThreshold;
+    }
+
+    /**
+     * Get the timeout for leasing a connection from the pool.
+     * @return connection request timeout
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
     /**
      * Get the Connection timeout.
      * @return connection timeout
@@ -82,6 +199,22 @@ public class HttpClientOptions implements CaliperClientOptions {
         return contentType;
     }
 
+    /**
+     * Get the format of pre-serialized envelopes the client transmits.
+     * @return data format
+     */
+    public DataFormat getDataFormat() {
+        return dataFormat;
+    }
+
+    /**
+     * Get the client that receives envelopes while the circuit breaker is open.
+     * @return fallback client or null to fail fast
+     */
+    public CaliperClient getFallback() {
+        return fallback;
+    }
+
     /**
      *The REST API endpoint.
      * @return host
@@ -90,6 +223,63 @@ public class HttpClientOptions implements CaliperClientOptions {
         return host;
     }
 
+    /**
+     * Get the time in milliseconds after which idle pooled connections are evicted.
+     * @return idle timeout
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Get the time in milliseconds a connection is kept alive when the server does not specify one.
+     * @return keep-alive duration
+     */
+    public int getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Get the maximum number of pooled connections across all routes.
+     * @return max connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Get the maximum number of pooled connections per route.
+     * @return max connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Get the maximum number of asynchronous requests that may be outstanding at once, or the upper
+     * bound on an adaptive limit.
+     * @return max in-flight requests
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Get the lower bound on an adaptive in-flight limit.
+     * @return min in-flight requests
+     */
+    public int getMinInFlight() {
+        return minInFlight;
+    }
+
+    /**
+     * Get the retry policy.
+     * @return retry policy
+     */
+    public RetryPolicy getRetryPolicy() {
+        return retryPolicy;
+    }
+
     /**
      * Get the Socket timeout.
      * @return the Socket timeout
@@ -98,15 +288,39 @@ public class HttpClientOptions implements CaliperClientOptions {
         return socketTimeout;
     }
 
+    /**
+     * Get the factory for the HTTP engine the client sends with.
+     * @return transport factory
+     */
+    public TransportFactory getTransport() {
+        return transport;
+    }
+
     /**
      * Builder class provides a fluid interface for setting options properties.
      */
     public static class OptionsBuilder {
+        private boolean adaptiveConcurrency = false;
         private String apiKey;
+        private int circuitBreakerOpenMs = 0;
+        private int circuitBreakerThreshold = 0;
+        private CompressionCodec compression;
+        private int compressionThreshold = 0;
+        private int connectionRequestTimeout = 0;
         private int connectionTimeout = 0;
         private String contentType;
+        private DataFormat dataFormat;
+        private CaliperClient fallback;
         private String host;
+        private int idleTimeout = 0;
+        private int keepAlive = 0;
+        private int maxConnections = 0;
+        private int maxConnectionsPerRoute = 0;
+        private int maxInFlight = 0;
+        private int minInFlight = 0;
+        private RetryPolicy retryPolicy;
         private int socketTimeout = 0;
+        private TransportFactory transport;
 
         /**
          * Constructor
@@ -115,6 +329,15 @@ public class HttpClientOptions implements CaliperClientOptions {
 
         }
 
+        /**
+         * @param adaptiveConcurrency
+         * @return builder
+         */
+        public OptionsBuilder adaptiveConcurrency(final boolean adaptiveConcurrency) {
+            this.adaptiveConcurrency = adaptiveConcurrency;
+            return this;
+        }
+
         /**
          * @param apiKey
          * @return builder
@@ -124,6 +347,64 @@ public class HttpClientOptions implements CaliperClientOptions {
             return this;
         }
 
+        /**
+         * @param circuitBreakerOpenMs
+         * @return builder
+         */
+        public OptionsBuilder circuitBreakerOpenMs(final int circuitBreakerOpenMs) {
+            this.circuitBreakerOpenMs = circuitBreakerOpenMs;
+            return this;
+        }
+
+        /**
+         * @param circuitBreakerThreshold consecutive failures that open the circuit; 0 disables it
+         * @return builder
+         */
+        public OptionsBuilder circuitBreakerThreshold(final int circuitBreakerThreshold) {
+            this.circuitBreakerThreshold = circuitBreakerThreshold;
+            return this;
+        }
+
+        /**
+         * @param compression
+         * @return builder
+         */
+        public OptionsBuilder compression(final CompressionCodec compression) {
+            this.compression = compression;
+            return this;
+        }
+
+        /**
+         * @param encoding Content-Encoding token of a registered codec, e.g. "gzip" or "zstd"
+         * @return builder
+         */
+        public OptionsBuilder compression(final String encoding) {
+            CompressionCodec codec = CompressionCodecs.forEncoding(encoding);
+            if (codec == null) {
+                throw new IllegalArgumentException("No compression codec registered for " + encoding);
+            }
+            this.compression = codec;
+            return this;
+        }
+
+        /**
+         * @param compressionThreshold
+         * @return builder
+         */
+        public OptionsBuilder compressionThreshold(final int compressionThreshold) {
+            this.compressionThreshold = compressionThreshold;
+            return this;
+        }
+
+        /**
+         * @param connectionRequestTimeout
+         * @return builder
+         */
+        public OptionsBuilder connectionRequestTimeout(final int connectionRequestTimeout) {
+            this.connectionRequestTimeout = connectionRequestTimeout;
+            return this;
+        }
+
         /**
          * @param connectionTimeout
          * @return builder
@@ -142,6 +423,24 @@ public class HttpClientOptions implements CaliperClientOptions {
             return this;
         }
 
+        /**
+         * @param dataFormat
+         * @return builder
+         */
+        public OptionsBuilder dataFormat(final DataFormat dataFormat) {
+            this.dataFormat = dataFormat;
+            return this;
+        }
+
+        /**
+         * @param fallback
+         * @return builder
+         */
+        public OptionsBuilder fallback(final CaliperClient fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
         /**
          * @param host
          * @return builder
@@ -151,6 +450,69 @@ public class HttpClientOptions implements CaliperClientOptions {
             return this;
         }
 
+        /**
+         * @param idleTimeout
+         * @return builder
+         */
+        public OptionsBuilder idleTimeout(final int idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * @param keepAlive
+         * @return builder
+         */
+        public OptionsBuilder keepAlive(final int keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * @param maxConnections
+         * @return builder
+         */
+        public OptionsBuilder maxConnections(final int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * @param maxConnectionsPerRoute
+         * @return builder
+         */
+        public OptionsBuilder maxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * @param maxInFlight
+         * @return builder
+         */
+        public OptionsBuilder maxInFlight(final int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * @param minInFlight
+         * @return builder
+         */
+        public OptionsBuilder minInFlight(final int minInFlight) {
+            this.minInFlight = minInFlight;
+            return this;
+        }
+
+        /**
+         * @param retryPolicy
+         * @return builder
+         */
+        public OptionsBuilder retryPolicy(final RetryPolicy retryPolicy) {
+            this.retryPolicy = retryPolicy;
+            return this;
+        }
+
         /**
          * @param socketTimeout
          * @return builder
@@ -160,6 +522,15 @@ public class HttpClientOptions implements CaliperClientOptions {
             return this;
         }
 
+        /**
+         * @param transport e.g. Transports.jdk() for HTTP/2 on Java 11 or later
+         * @return builder
+         */
+        public OptionsBuilder transport(final TransportFactory transport) {
+            this.transport = transport;
+            return this;
+        }
+
         /**
          * Client invokes build method in order to create an immutable object.
          * @return a new instance of Options.
@@ -167,6 +538,36 @@ public class HttpClientOptions implements CaliperClientOptions {
         public HttpClientOptions build() {
             return new HttpClientOptions(this);
         }
+
+        /**
+         * Copy this builder so that the copy can be changed without affecting the original.
+         * @return a new builder holding the same settings
+         */
+        public OptionsBuilder copy() {
+            OptionsBuilder copy = new OptionsBuilder();
+            copy.adaptiveConcurrency = adaptiveConcurrency;
+            copy.apiKey = apiKey;
+            copy.circuitBreakerOpenMs = circuitBreakerOpenMs;
+            copy.circuitBreakerThreshold = circuitBreakerThreshold;
+            copy.compression = compression;
+            copy.compressionThreshold = compressionThreshold;
+            copy.connectionRequestTimeout = connectionRequestTimeout;
+            copy.connectionTimeout = connectionTimeout;
+            copy.contentType = contentType;
+            copy.dataFormat = dataFormat;
+            copy.fallback = fallback;
+            copy.host = host;
+            copy.idleTimeout = idleTimeout;
+            copy.keepAlive = keepAlive;
+            copy.maxConnections = maxConnections;
+            copy.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            copy.maxInFlight = maxInFlight;
+            copy.minInFlight = minInFlight;
+            copy.retryPolicy = retryPolicy;
+            copy.socketTimeout = socketTimeout;
+            copy.transport = transport;
+            return copy;
+        }
     }
 
     /**
@@ -0,0 +1,453 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.SendListener;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Spreads envelopes over a set of equivalent member clients, typically one HttpClient per collector host.
+ * Each Envelope goes to a single member chosen by the configured LoadBalancingClientOptions.Strategy.
+ *
+ * Members are ejected passively after failureThreshold consecutive failed sends and re-admitted once
+ * ejectionMs has elapsed.  If a HealthCheck is configured, every member is also probed each
+ * healthCheckIntervalMs: unhealthyThreshold consecutive failed probes eject a member until
+ * healthyThreshold consecutive probes pass.  If every member is ejected, envelopes are spread over all of
+ * them rather than dropped.
+ */
+public class LoadBalancingClient implements CaliperClient {
+    private final String id;
+    private final LoadBalancingClientOptions options;
+    private final Member[] members;
+    private final Statistics statistics;
+    private final AtomicInteger next = new AtomicInteger();
+    private final ScheduledExecutorService checker;
+
+    private static final double SMOOTHING = 0.2;
+
+    // Ejected by the active health check until it passes again, rather than for a fixed time
+    private static final long EJECTED_BY_HEALTH_CHECK = Long.MAX_VALUE;
+    private static final Logger log = LoggerFactory.getLogger(LoadBalancingClient.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method for instantiating
+     * a LoadBalancingClient.
+     * @param id
+     * @param members
+     * @param options
+     */
+    private LoadBalancingClient(final String id, List<? extends CaliperClient> members,
+                                LoadBalancingClientOptions options) {
+        SensorValidator.chkId(id, this.getClass().getSimpleName());
+        SensorValidator.chkOptions(options);
+        if (members == null || members.isEmpty()) {
+            throw new IllegalArgumentException("At least one member client must be specified.");
+        }
+
+        this.id = id;
+        this.options = options;
+        this.statistics = new Statistics();
+        this.members = new Member[members.size()];
+        for (int i = 0; i < this.members.length; i++) {
+            this.members[i] = new Member(members.get(i));
+        }
+
+        if (options.getHealthCheck() != null) {
+            this.checker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "caliper-health-" + id);
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            this.checker.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    checkHealth();
+                }
+            }, 0, options.getHealthCheckIntervalMs(), TimeUnit.MILLISECONDS);
+        } else {
+            this.checker = null;
+        }
+    }
+
+    /**
+     * Get identifier.
+     * @return id
+     */
+    @Nonnull
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieve options
+     * @return options
+     */
+    @Override
+    public LoadBalancingClientOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get statistics.  Each member keeps its own statistics as well.
+     * @return statistics
+     */
+    @Override
+    public Statistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the identifiers of the members currently eligible to receive envelopes.
+     * @return member identifiers
+     */
+    public List<String> getAvailableMembers() {
+        long now = System.currentTimeMillis();
+        List<String> available = new ArrayList<>();
+        for (Member member : members) {
+            if (member.isAvailable(now)) {
+                available.add(member.client.getId());
+            }
+        }
+        return available;
+    }
+
+    /**
+     * Send the Envelope to one member and wait for the outcome.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        try {
+            SendResult result = sendAsync(envelope).get();
+            if (!result.isSuccessful()) {
+                log.warn("Send failed; status code=" + result.getStatusCode());
+            }
+        } catch (ExecutionException ee) {
+            log.error("Send failed", ee.getCause());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Send the Envelope to one member without blocking.
+     * @param envelope
+     * @return future completed with the member's outcome
+     */
+    @Override
+    public CompletableFuture<SendResult> sendAsync(final Envelope envelope) {
+        final Member member = select();
+        final long start = System.nanoTime();
+        member.outstanding.incrementAndGet();
+
+        CompletableFuture<SendResult> future;
+        try {
+            future = member.client.sendAsync(envelope);
+        } catch (RuntimeException re) {
+            future = new CompletableFuture<>();
+            future.completeExceptionally(re);
+        }
+
+        return future.whenComplete(new BiConsumer<SendResult, Throwable>() {
+            @Override
+            public void accept(SendResult result, Throwable failure) {
+                member.outstanding.decrementAndGet();
+                boolean successful = (failure == null && result.isSuccessful());
+                record(member, successful, System.nanoTime() - start);
+                updateStatistics(envelope, successful);
+            }
+        });
+    }
+
+    /**
+     * Choose a member according to the configured strategy, ignoring ejected members unless every
+     * member is ejected.
+     * @return member
+     */
+    private Member select() {
+        if (members.length == 1) {
+            return members[0];
+        }
+
+        long now = System.currentTimeMillis();
+        boolean any = false;
+        for (Member member : members) {
+            if (member.isAvailable(now)) {
+                any = true;
+                break;
+            }
+        }
+
+        // Panic mode: with no member available, spread load over all of them
+        long cutoff = any ? now : Long.MAX_VALUE;
+
+        switch (options.getStrategy()) {
+            case LEAST_OUTSTANDING:
+                return leastOutstanding(cutoff);
+            case LATENCY_WEIGHTED:
+                return latencyWeighted(cutoff);
+            default:
+                return roundRobin(cutoff);
+        }
+    }
+
+    /**
+     * Take the next available member in turn.
+     * @param now
+     * @return member
+     */
+    private Member roundRobin(long now) {
+        int start = next.getAndIncrement();
+        for (int i = 0; i < members.length; i++) {
+            Member member = members[Math.floorMod(start + i, members.length)];
+            if (member.isAvailable(now)) {
+                return member;
+            }
+        }
+        return members[Math.floorMod(start, members.length)];
+    }
+
+    /**
+     * Take the available member with the fewest sends in flight; ties are broken in turn.
+     * @param now
+     * @return member
+     */
+    private Member leastOutstanding(long now) {
+        int start = next.getAndIncrement();
+        Member selected = null;
+        for (int i = 0; i < members.length; i++) {
+            Member member = members[Math.floorMod(start + i, members.length)];
+            if (member.isAvailable(now)
+                    && (selected == null || member.outstanding.get() < selected.outstanding.get())) {
+                selected = member;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Take an available member at random, weighted by 1 / (latency * (outstanding + 1)) so that slow or
+     * busy members receive proportionally fewer envelopes.  Members without latency samples are treated
+     * as the fastest so that they are tried.
+     * @param now
+     * @return member
+     */
+    private Member latencyWeighted(long now) {
+        double[] weights = new double[members.length];
+        double total = 0;
+        for (int i = 0; i < members.length; i++) {
+            Member member = members[i];
+            if (member.isAvailable(now)) {
+                weights[i] = 1.0 / (Math.max(member.latencyMs, 1.0) * (member.outstanding.get() + 1));
+                total += weights[i];
+            }
+        }
+
+        double target = ThreadLocalRandom.current().nextDouble() * total;
+        Member selected = null;
+        for (int i = 0; i < members.length; i++) {
+            if (weights[i] > 0) {
+                selected = members[i];
+                target -= weights[i];
+                if (target < 0) {
+                    break;
+                }
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * Passive health check: fold the send's latency into the member's average and eject it after
+     * failureThreshold consecutive failures.
+     * @param member
+     * @param successful
+     * @param elapsedNanos
+     */
+    private void record(Member member, boolean successful, long elapsedNanos) {
+        if (successful) {
+            member.failures.set(0);
+            member.updateLatency(elapsedNanos / 1000000.0);
+        } else if (member.failures.incrementAndGet() >= options.getFailureThreshold()) {
+            member.failures.set(0);
+            long until = System.currentTimeMillis() + options.getEjectionMs();
+            if (member.ejectedUntil < until) {
+                member.ejectedUntil = until;
+                log.warn("Ejected " + member.client.getId() + " for " + options.getEjectionMs() + "ms after "
+                    + options.getFailureThreshold() + " consecutive failures");
+            }
+        }
+    }
+
+    /**
+     * Active health check: probe every member and eject or re-admit it on consecutive results.  Only
+     * members the health check ejected are re-admitted by it; a passing probe does not show that a
+     * member ejected for failed sends can take traffic again, so those serve out their ejectionMs.
+     */
+    private void checkHealth() {
+        for (Member member : members) {
+            boolean healthy;
+            try {
+                healthy = options.getHealthCheck().isHealthy(member.client);
+            } catch (Exception ex) {
+                healthy = false;
+            }
+
+            if (healthy) {
+                member.checkFailures = 0;
+                if (++member.checkSuccesses >= options.getHealthyThreshold()
+                        && member.isEjectedByHealthCheck()) {
+                    member.ejectedUntil = 0;
+                    member.failures.set(0);
+                    log.info("Re-admitted " + member.client.getId() + " after passing health checks");
+                }
+            } else {
+                member.checkSuccesses = 0;
+                if (++member.checkFailures >= options.getUnhealthyThreshold()
+                        && !member.isEjectedByHealthCheck()) {
+                    member.ejectedUntil = EJECTED_BY_HEALTH_CHECK;
+                    log.warn("Ejected " + member.client.getId() + " after failing health checks");
+                }
+            }
+        }
+    }
+
+    /**
+     * Update statistics with a member's outcome, counting the envelope's events.
+     * @param envelope
+     * @param status
+     */
+    private void updateStatistics(Envelope envelope, boolean status) {
+        statistics.recordOutcome(envelope, status);
+    }
+
+    /**
+     * Register a listener with every member.
+     * @param listener
+     */
+    @Override
+    public void addListener(SendListener listener) {
+        for (Member member : members) {
+            member.client.addListener(listener);
+        }
+    }
+
+    @Override
+    public void removeListener(SendListener listener) {
+        for (Member member : members) {
+            member.client.removeListener(listener);
+        }
+    }
+
+    /**
+     * Stop health checks and close every member.
+     */
+    @Override
+    public void close() {
+        if (checker != null) {
+            checker.shutdownNow();
+        }
+        for (Member member : members) {
+            member.client.close();
+        }
+    }
+
+    /**
+     * Factory method for instantiating a LoadBalancingClient over the given members.
+     * @param id
+     * @param members
+     * @param options
+     * @return LoadBalancingClient
+     */
+    public static LoadBalancingClient create(String id, List<? extends CaliperClient> members,
+                                             LoadBalancingClientOptions options) {
+        return new LoadBalancingClient(id, members, options);
+    }
+
+    /**
+     * Factory method for instantiating a LoadBalancingClient with one HttpClient per host.  Each member is
+     * built from a copy of the template with its host replaced, so the template itself is left unchanged, and
+     * is identified as {id}-{index}.
+     * @param id
+     * @param hosts
+     * @param template
+     * @param options
+     * @return LoadBalancingClient
+     */
+    public static LoadBalancingClient create(String id, List<String> hosts, HttpClientOptions.OptionsBuilder template,
+                                             LoadBalancingClientOptions options) {
+        List<HttpClient> members = new ArrayList<>(hosts.size());
+        for (int i = 0; i < hosts.size(); i++) {
+            members.add(HttpClient.create(id + "-" + i, template.copy().host(hosts.get(i)).build()));
+        }
+        return new LoadBalancingClient(id, members, options);
+    }
+
+    /**
+     * Member client with its load and health state.
+     */
+    private static class Member {
+        private final CaliperClient client;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicInteger failures = new AtomicInteger();
+        private volatile double latencyMs;
+        private volatile long ejectedUntil;
+
+        // Only touched by the health check thread
+        private int checkFailures;
+        private int checkSuccesses;
+
+        private Member(CaliperClient client) {
+            this.client = client;
+        }
+
+        private boolean isAvailable(long now) {
+            return now >= ejectedUntil;
+        }
+
+        private boolean isEjectedByHealthCheck() {
+            return ejectedUntil == EJECTED_BY_HEALTH_CHECK;
+        }
+
+        private synchronized void updateLatency(double sampleMs) {
+            latencyMs = (latencyMs == 0) ? sampleMs : latencyMs + SMOOTHING * (sampleMs - latencyMs);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.validators.SensorValidator;
+
+/**
+ * Load balancing client options.  Review default constants and adjust to suit the collector tier.
+ */
+public class LoadBalancingClientOptions implements CaliperClientOptions {
+    private final int ejectionMs;
+    private final int failureThreshold;
+    private final HealthCheck healthCheck;
+    private final int healthCheckIntervalMs;
+    private final int healthyThreshold;
+    private final Strategy strategy;
+    private final int unhealthyThreshold;
+
+    /**
+     * Member selection strategies.
+     */
+    public enum Strategy {
+        /**
+         * Take available members in turn.
+         */
+        ROUND_ROBIN,
+
+        /**
+         * Pick the available member with the fewest sends in flight.
+         */
+        LEAST_OUTSTANDING,
+
+        /**
+         * Pick available members at random, weighted by the inverse of their smoothed latency multiplied
+         * by their sends in flight plus one.
+         */
+        LATENCY_WEIGHTED
+    }
+
+    /**
+     * Default health settings.
+     */
+    public static final int EJECTION_MS = 30000;
+    public static final int FAILURE_THRESHOLD = 3;
+    public static final int HEALTH_CHECK_INTERVAL_MS = 10000;
+    public static final int HEALTHY_THRESHOLD = 2;
+    public static final int UNHEALTHY_THRESHOLD = 3;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private LoadBalancingClientOptions(OptionsBuilder builder) {
+        this.ejectionMs = SensorValidator.chkPositiveIntValue(builder.ejectionMs, EJECTION_MS);
+        this.failureThreshold = SensorValidator.chkPositiveIntValue(builder.failureThreshold, FAILURE_THRESHOLD);
+        this.healthCheck = builder.healthCheck;
+        this.healthCheckIntervalMs = SensorValidator.chkPositiveIntValue(builder.healthCheckIntervalMs,
+            HEALTH_CHECK_INTERVAL_MS);
+        this.healthyThreshold = SensorValidator.chkPositiveIntValue(builder.healthyThreshold, HEALTHY_THRESHOLD);
+        this.strategy = (builder.strategy != null) ? builder.strategy : Strategy.ROUND_ROBIN;
+        this.unhealthyThreshold = SensorValidator.chkPositiveIntValue(builder.unhealthyThreshold,
+            UNHEALTHY_THRESHOLD);
+    }
+
+    /**
+     * Get the time in milliseconds a member is ejected for after failureThreshold consecutive failed sends.
+     * @return ejection time
+     */
+    public int getEjectionMs() {
+        return ejectionMs;
+    }
+
+    /**
+     * Get the number of consecutive failed sends that passively ejects a member.
+     * @return failure threshold
+     */
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    /**
+     * Get the active health check; null disables active checking.
+     * @return health check
+     */
+    public HealthCheck getHealthCheck() {
+        return healthCheck;
+    }
+
+    /**
+     * Get the interval in milliseconds between active health check rounds.
+     * @return health check interval
+     */
+    public int getHealthCheckIntervalMs() {
+        return healthCheckIntervalMs;
+    }
+
+    /**
+     * Get the number of consecutive passed health checks that re-admits an ejected member.
+     * @return healthy threshold
+     */
+    public int getHealthyThreshold() {
+        return healthyThreshold;
+    }
+
+    /**
+     * Get the member selection strategy.
+     * @return strategy
+     */
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * Get the number of consecutive failed health checks that ejects a member until it passes again.
+     * @return unhealthy threshold
+     */
+    public int getUnhealthyThreshold() {
+        return unhealthyThreshold;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private int ejectionMs = 0;
+        private int failureThreshold = 0;
+        private HealthCheck healthCheck;
+        private int healthCheckIntervalMs = 0;
+        private int healthyThreshold = 0;
+        private Strategy strategy;
+        private int unhealthyThreshold = 0;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param ejectionMs
+         * @return builder
+         */
+        public OptionsBuilder ejectionMs(final int ejectionMs) {
+            this.ejectionMs = ejectionMs;
+            return this;
+        }
+
+        /**
+         * @param failureThreshold
+         * @return builder
+         */
+        public OptionsBuilder failureThreshold(final int failureThreshold) {
+            this.failureThreshold = failureThreshold;
+            return this;
+        }
+
+        /**
+         * @param healthCheck
+         * @return builder
+         */
+        public OptionsBuilder healthCheck(final HealthCheck healthCheck) {
+            this.healthCheck = healthCheck;
+            return this;
+        }
+
+        /**
+         * @param healthCheckIntervalMs
+         * @return builder
+         */
+        public OptionsBuilder healthCheckIntervalMs(final int healthCheckIntervalMs) {
+            this.healthCheckIntervalMs = healthCheckIntervalMs;
+            return this;
+        }
+
+        /**
+         * @param healthyThreshold
+         * @return builder
+         */
+        public OptionsBuilder healthyThreshold(final int healthyThreshold) {
+            this.healthyThreshold = healthyThreshold;
+            return this;
+        }
+
+        /**
+         * @param strategy
+         * @return builder
+         */
+        public OptionsBuilder strategy(final Strategy strategy) {
+            this.strategy = strategy;
+            return this;
+        }
+
+        /**
+         * @param unhealthyThreshold
+         * @return builder
+         */
+        public OptionsBuilder unhealthyThreshold(final int unhealthyThreshold) {
+            this.unhealthyThreshold = unhealthyThreshold;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of Options.
+         */
+        public LoadBalancingClientOptions build() {
+            return new LoadBalancingClientOptions(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
@@ -0,0 +1,348 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.util.concurrent.Uninterruptibles;
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.SendListener;
+import org.imsglobal.caliper.SendListeners;
+import org.imsglobal.caliper.events.CaliperEvent;
+import org.imsglobal.caliper.events.EventType;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decorates a client with token buckets capping envelopes per second, events per second and events per
+ * second of individual EventTypes.  Limiting only the noisy types (e.g. MEDIA and NAVIGATION) lets a burst
+ * of them be shed while GRADE events keep flowing.
+ *
+ * Each event needs a permit from its type's bucket and from the overall event bucket; the Envelope
+ * carrying the admitted events needs an envelope permit.  Every bucket is checked before any permit is
+ * taken, so events that are refused, or whose Envelope is refused, do not use up quota.  Events that are
+ * not admitted are handled by the ExcessPolicy: delayed, dropped or sent to the fallback client.  Under
+ * DELAY the calling thread waits, including from sendAsync.
+ */
+public class RateLimitedClient implements CaliperClient {
+    private final String id;
+    private final CaliperClient delegate;
+    private final RateLimitedClientOptions options;
+    private final TokenBucket envelopes;
+    private final TokenBucket events;
+    private final Map<EventType, TokenBucket> eventTypes;
+    private final SendListeners listeners = new SendListeners();
+
+    /**
+     * Status reported by sendAsync when every event in the Envelope was dropped.
+     */
+    public static final int STATUS_THROTTLED = 429;
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method for instantiating
+     * a RateLimitedClient.
+     * @param id
+     * @param delegate
+     * @param options
+     */
+    private RateLimitedClient(String id, CaliperClient delegate, RateLimitedClientOptions options) {
+        SensorValidator.chkId(id, this.getClass().getSimpleName());
+        SensorValidator.chkOptions(options);
+
+        this.id = id;
+        this.delegate = delegate;
+        this.options = options;
+        this.envelopes = createBucket(options.getEnvelopesPerSecond());
+        this.events = createBucket(options.getEventsPerSecond());
+        this.eventTypes = new EnumMap<>(EventType.class);
+        for (Map.Entry<EventType, Double> entry : options.getEventTypeRates().entrySet()) {
+            this.eventTypes.put(entry.getKey(), new TokenBucket(entry.getValue()));
+        }
+    }
+
+    /**
+     * Get identifier.
+     * @return id
+     */
+    @Nonnull
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieve options
+     * @return options
+     */
+    @Override
+    public RateLimitedClientOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get the decorated client's statistics, to which throttled and dropped event counts are added.
+     * @return statistics
+     */
+    @Override
+    public Statistics getStatistics() {
+        return delegate.getStatistics();
+    }
+
+    /**
+     * Send the admitted events via the decorated client and handle the rest per the ExcessPolicy.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        Admission admission = admit(envelope);
+        if (admission.excess != null && options.getExcessPolicy() == RateLimitedClientOptions.ExcessPolicy.FALLBACK) {
+            options.getFallback().send(admission.excess);
+        }
+        if (admission.admitted != null) {
+            delegate.send(admission.admitted);
+        }
+    }
+
+    /**
+     * Send the admitted events via the decorated client and handle the rest per the ExcessPolicy.
+     * @param envelope
+     * @return future completed with the decorated client's outcome, or with the fallback's if no event was
+     * admitted; if every event was dropped it is completed with status 429
+     */
+    @Override
+    public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+        Admission admission = admit(envelope);
+        CompletableFuture<SendResult> excess = null;
+        if (admission.excess != null && options.getExcessPolicy() == RateLimitedClientOptions.ExcessPolicy.FALLBACK) {
+            excess = options.getFallback().sendAsync(admission.excess);
+        }
+
+        if (admission.admitted != null) {
+            return delegate.sendAsync(admission.admitted);
+        } else if (excess != null) {
+            return excess;
+        }
+        return CompletableFuture.completedFuture(new SendResult(STATUS_THROTTLED, false));
+    }
+
+    /**
+     * Split an Envelope into the events that obtained permits and those that did not.
+     * @param envelope
+     * @return admission
+     */
+    private Admission admit(Envelope envelope) {
+        List<CaliperSendable> data = envelope.getData();
+        List<CaliperSendable> admitted = new ArrayList<>(data.size());
+        List<CaliperSendable> excess = null;
+        long wait;
+
+        synchronized (this) {
+            long now = System.nanoTime();
+            for (CaliperSendable item : data) {
+                TokenBucket type = bucketFor(item);
+                if (canReserve(type, now) && canReserve(events, now)) {
+                    reserve(type);
+                    reserve(events);
+                    admitted.add(item);
+                } else {
+                    if (excess == null) {
+                        excess = new ArrayList<>();
+                    }
+                    excess.add(item);
+                }
+            }
+
+            if (!admitted.isEmpty() && canReserve(envelopes, now)) {
+                reserve(envelopes);
+                wait = settle(true);
+            } else {
+                if (excess == null) {
+                    excess = admitted.isEmpty() ? null : admitted;
+                } else {
+                    excess.addAll(admitted);
+                }
+                admitted = new ArrayList<>();
+                wait = settle(false);
+            }
+        }
+
+        if (wait > 0) {
+            Uninterruptibles.sleepUninterruptibly(wait, TimeUnit.NANOSECONDS);
+        }
+
+        if (excess == null) {
+            return new Admission(envelope, null);
+        }
+
+        Envelope excessEnvelope = copy(envelope, excess);
+        Statistics statistics = getStatistics();
+        statistics.updateThrottled(excess.size());
+        if (options.getExcessPolicy() != RateLimitedClientOptions.ExcessPolicy.FALLBACK) {
+            statistics.updateDropped(excess.size());
+            statistics.recordEvents(excessEnvelope, false);
+            if (!listeners.isEmpty()) {
+                listeners.onDropped(id, excessEnvelope, System.nanoTime());
+            }
+        }
+        return new Admission(admitted.isEmpty() ? null : copy(envelope, admitted), excessEnvelope);
+    }
+
+    /**
+     * Could a permit be reserved, allowing for a wait of up to maxDelayMs under the DELAY policy?
+     * Caller must hold the lock.
+     * @param bucket
+     * @param now
+     * @return true if the bucket can grant a permit or is unlimited
+     */
+    private boolean canReserve(TokenBucket bucket, long now) {
+        if (bucket == null) {
+            return true;
+        }
+        long maxDelay = (options.getExcessPolicy() == RateLimitedClientOptions.ExcessPolicy.DELAY)
+            ? TimeUnit.MILLISECONDS.toNanos(options.getMaxDelayMs()) : 0;
+        return bucket.canReserve(now, 1, maxDelay);
+    }
+
+    /**
+     * Tentatively take a permit.  Caller must hold the lock.
+     * @param bucket
+     */
+    private static void reserve(TokenBucket bucket) {
+        if (bucket != null) {
+            bucket.reserve(1);
+        }
+    }
+
+    /**
+     * Take or release the permits reserved in every bucket.  Caller must hold the lock.
+     * @param take
+     * @return nanoseconds to wait before sending under the DELAY policy, or 0
+     */
+    private long settle(boolean take) {
+        long wait = 0;
+        for (TokenBucket bucket : eventTypes.values()) {
+            wait = Math.max(wait, settle(bucket, take));
+        }
+        wait = Math.max(wait, settle(events, take));
+        return Math.max(wait, settle(envelopes, take));
+    }
+
+    /**
+     * Take or release the permits reserved in a bucket.
+     * @param bucket
+     * @param take
+     * @return nanoseconds to wait for the bucket, or 0
+     */
+    private static long settle(TokenBucket bucket, boolean take) {
+        if (bucket == null) {
+            return 0;
+        } else if (take) {
+            return bucket.commit();
+        }
+        bucket.cancel();
+        return 0;
+    }
+
+    /**
+     * Find the bucket for an item's EventType.
+     * @param item
+     * @return bucket, or null if the item is not a limited event type
+     */
+    private TokenBucket bucketFor(CaliperSendable item) {
+        if (eventTypes.isEmpty() || !(item instanceof CaliperEvent)) {
+            return null;
+        }
+        Object type = ((CaliperEvent) item).getType();
+        return (type instanceof EventType) ? eventTypes.get(type) : null;
+    }
+
+    /**
+     * Register a listener for events dropped by this client and for the decorated client's send stages.
+     * @param listener
+     */
+    @Override
+    public void addListener(SendListener listener) {
+        listeners.add(listener);
+        delegate.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(SendListener listener) {
+        listeners.remove(listener);
+        delegate.removeListener(listener);
+    }
+
+    /**
+     * Close the decorated client.  The fallback client is left open for its owner to close.
+     */
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    /**
+     * Factory method for instantiating a RateLimitedClient.
+     * @param id
+     * @param delegate
+     * @param options
+     * @return RateLimitedClient
+     */
+    public static RateLimitedClient create(String id, CaliperClient delegate, RateLimitedClientOptions options) {
+        return new RateLimitedClient(id, delegate, options);
+    }
+
+    /**
+     * Create a token bucket.
+     * @param permitsPerSecond
+     * @return bucket, or null if unlimited
+     */
+    private static TokenBucket createBucket(double permitsPerSecond) {
+        return (permitsPerSecond > 0) ? new TokenBucket(permitsPerSecond) : null;
+    }
+
+    /**
+     * Copy an Envelope's header onto a subset of its data.
+     * @param envelope
+     * @param data
+     * @return envelope
+     */
+    private static Envelope copy(Envelope envelope, List<CaliperSendable> data) {
+        return new Envelope(envelope.getSensorId(), envelope.getSendTime(), envelope.getDataVersion(), data);
+    }
+
+    /**
+     * Envelopes holding the admitted and excess events; either may be null.
+     */
+    private static class Admission {
+        private final Envelope admitted;
+        private final Envelope excess;
+
+        private Admission(Envelope admitted, Envelope excess) {
+            this.admitted = admitted;
+            this.excess = excess;
+        }
+    }
+}
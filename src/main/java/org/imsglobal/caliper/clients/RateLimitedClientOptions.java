@@ -0,0 +1,223 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.events.EventType;
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Rate limited client options.  Rates are in permits per second; zero leaves the corresponding bucket
+ * unlimited.  Review default constants and adjust to suit the collector's ingest quotas.
+ */
+public class RateLimitedClientOptions implements CaliperClientOptions {
+    private final double envelopesPerSecond;
+    private final Map<EventType, Double> eventTypeRates;
+    private final double eventsPerSecond;
+    private final ExcessPolicy excessPolicy;
+    private final CaliperClient fallback;
+    private final int maxDelayMs;
+
+    /**
+     * What to do with events that exceed a rate.
+     */
+    public enum ExcessPolicy {
+        /**
+         * Wait up to maxDelayMs for a permit, then drop the event.
+         */
+        DELAY,
+
+        /**
+         * Drop the event immediately.
+         */
+        DROP,
+
+        /**
+         * Send the event to the fallback client, e.g. a SpoolClient or FileClient.
+         */
+        FALLBACK
+    }
+
+    /**
+     * Default maximum wait for a permit under the DELAY policy.
+     */
+    public static final int MAX_DELAY_MS = 1000;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private RateLimitedClientOptions(OptionsBuilder builder) {
+        this.envelopesPerSecond = Math.max(builder.envelopesPerSecond, 0);
+        this.eventTypeRates = Collections.unmodifiableMap(new EnumMap<>(builder.eventTypeRates));
+        this.eventsPerSecond = Math.max(builder.eventsPerSecond, 0);
+        this.excessPolicy = (builder.excessPolicy != null) ? builder.excessPolicy : ExcessPolicy.DROP;
+        this.fallback = builder.fallback;
+        this.maxDelayMs = SensorValidator.chkPositiveIntValue(builder.maxDelayMs, MAX_DELAY_MS);
+
+        if (excessPolicy == ExcessPolicy.FALLBACK && fallback == null) {
+            throw new IllegalArgumentException("Fallback client must be specified for the FALLBACK policy.");
+        }
+    }
+
+    /**
+     * Get the maximum number of envelopes sent per second.
+     * @return envelope rate
+     */
+    public double getEnvelopesPerSecond() {
+        return envelopesPerSecond;
+    }
+
+    /**
+     * Get the per event type rates, applied before the overall event rate.
+     * @return event type rates
+     */
+    public Map<EventType, Double> getEventTypeRates() {
+        return eventTypeRates;
+    }
+
+    /**
+     * Get the maximum number of events, across all types, sent per second.
+     * @return event rate
+     */
+    public double getEventsPerSecond() {
+        return eventsPerSecond;
+    }
+
+    /**
+     * Get the policy applied to events that exceed a rate.
+     * @return excess policy
+     */
+    public ExcessPolicy getExcessPolicy() {
+        return excessPolicy;
+    }
+
+    /**
+     * Get the client that receives excess events under the FALLBACK policy.
+     * @return fallback client
+     */
+    public CaliperClient getFallback() {
+        return fallback;
+    }
+
+    /**
+     * Get the maximum time in milliseconds to wait for each permit under the DELAY policy.
+     * @return max delay
+     */
+    public int getMaxDelayMs() {
+        return maxDelayMs;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private double envelopesPerSecond = 0;
+        private Map<EventType, Double> eventTypeRates = new EnumMap<>(EventType.class);
+        private double eventsPerSecond = 0;
+        private ExcessPolicy excessPolicy;
+        private CaliperClient fallback;
+        private int maxDelayMs = 0;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param envelopesPerSecond
+         * @return builder
+         */
+        public OptionsBuilder envelopesPerSecond(final double envelopesPerSecond) {
+            this.envelopesPerSecond = envelopesPerSecond;
+            return this;
+        }
+
+        /**
+         * @param type
+         * @param eventsPerSecond
+         * @return builder
+         */
+        public OptionsBuilder eventTypeRate(final EventType type, final double eventsPerSecond) {
+            if (eventsPerSecond > 0) {
+                this.eventTypeRates.put(type, eventsPerSecond);
+            } else {
+                this.eventTypeRates.remove(type);
+            }
+            return this;
+        }
+
+        /**
+         * @param eventsPerSecond
+         * @return builder
+         */
+        public OptionsBuilder eventsPerSecond(final double eventsPerSecond) {
+            this.eventsPerSecond = eventsPerSecond;
+            return this;
+        }
+
+        /**
+         * @param excessPolicy
+         * @return builder
+         */
+        public OptionsBuilder excessPolicy(final ExcessPolicy excessPolicy) {
+            this.excessPolicy = excessPolicy;
+            return this;
+        }
+
+        /**
+         * @param fallback
+         * @return builder
+         */
+        public OptionsBuilder fallback(final CaliperClient fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * @param maxDelayMs
+         * @return builder
+         */
+        public OptionsBuilder maxDelayMs(final int maxDelayMs) {
+            this.maxDelayMs = maxDelayMs;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of Options.
+         */
+        public RateLimitedClientOptions build() {
+            return new RateLimitedClientOptions(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
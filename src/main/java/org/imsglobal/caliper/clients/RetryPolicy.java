@@ -0,0 +1,252 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.apache.http.HttpStatus;
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retry policy for envelope POSTs.  Delays grow exponentially from the initial backoff, are capped at
+ * the maximum backoff and are randomly reduced by up to the jitter fraction so that many senders do
+ * not retry in lockstep.  429 (Too Many Requests), 5xx responses and network errors can each be
+ * enabled separately; when the endpoint sends a Retry-After header its delay is used instead, unless
+ * it exceeds maxRetryAfterMs, in which case the envelope is not retried.
+ */
+public class RetryPolicy {
+    private final int maxRetries;
+    private final int initialBackoffMs;
+    private final int maxBackoffMs;
+    private final double multiplier;
+    private final double jitter;
+    private final boolean retryOnTooManyRequests;
+    private final boolean retryOnServerError;
+    private final boolean retryOnNetworkError;
+    private final int maxRetryAfterMs;
+
+    /**
+     * Default retry settings.
+     */
+    public static final int MAX_RETRIES = 3;
+    public static final int INITIAL_BACKOFF_MS = 100;
+    public static final int MAX_BACKOFF_MS = 10000;
+    public static final double MULTIPLIER = 2.0;
+    public static final double JITTER = 0.5;
+    public static final int MAX_RETRY_AFTER_MS = 30000;
+
+    /**
+     * Policy that never retries.
+     */
+    public static final RetryPolicy NONE = builder().maxRetries(0).build();
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private RetryPolicy(PolicyBuilder builder) {
+        this.maxRetries = Math.max(0, builder.maxRetries);
+        this.initialBackoffMs = SensorValidator.chkPositiveIntValue(builder.initialBackoffMs, INITIAL_BACKOFF_MS);
+        this.maxBackoffMs = Math.max(initialBackoffMs, SensorValidator.chkPositiveIntValue(builder.maxBackoffMs, MAX_BACKOFF_MS));
+        this.multiplier = (builder.multiplier >= 1.0) ? builder.multiplier : MULTIPLIER;
+        this.jitter = (builder.jitter >= 0.0 && builder.jitter <= 1.0) ? builder.jitter : JITTER;
+        this.retryOnTooManyRequests = builder.retryOnTooManyRequests;
+        this.retryOnServerError = builder.retryOnServerError;
+        this.retryOnNetworkError = builder.retryOnNetworkError;
+        this.maxRetryAfterMs = SensorValidator.chkPositiveIntValue(builder.maxRetryAfterMs, MAX_RETRY_AFTER_MS);
+    }
+
+    /**
+     * Get the maximum number of retries after the first attempt.
+     * @return max retries
+     */
+    public int getMaxRetries() {
+        return maxRetries;
+    }
+
+    /**
+     * Get the longest Retry-After delay in milliseconds that will be honored.
+     * @return max Retry-After
+     */
+    public int getMaxRetryAfterMs() {
+        return maxRetryAfterMs;
+    }
+
+    /**
+     * Should a response with this status be retried?
+     * @param statusCode
+     * @return true if retryable
+     */
+    public boolean isRetryable(int statusCode) {
+        if (statusCode == 429) {
+            return retryOnTooManyRequests;
+        }
+        return statusCode >= HttpStatus.SC_INTERNAL_SERVER_ERROR && retryOnServerError;
+    }
+
+    /**
+     * Should a network (I/O) failure be retried?
+     * @return true if retryable
+     */
+    public boolean isRetryOnNetworkError() {
+        return retryOnNetworkError;
+    }
+
+    /**
+     * Compute the jittered delay before the given retry.
+     * @param retry 1 for the first retry
+     * @return delay in milliseconds
+     */
+    public long backoff(int retry) {
+        double base = Math.min(maxBackoffMs, initialBackoffMs * Math.pow(multiplier, retry - 1));
+        return (long) (base - base * jitter * ThreadLocalRandom.current().nextDouble());
+    }
+
+    /**
+     * Compute the delay before the given retry of a failed response.
+     * @param retry 1 for the first retry
+     * @param retryAfterMs delay requested by the endpoint, or a negative value if none
+     * @return delay in milliseconds, or a negative value if the requested delay is too long to honor
+     */
+    public long backoff(int retry, long retryAfterMs) {
+        if (retryAfterMs < 0) {
+            return backoff(retry);
+        }
+        return (retryAfterMs <= maxRetryAfterMs) ? retryAfterMs : -1;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting policy properties.
+     */
+    public static class PolicyBuilder {
+        private int maxRetries = MAX_RETRIES;
+        private int initialBackoffMs = 0;
+        private int maxBackoffMs = 0;
+        private double multiplier = 0;
+        private double jitter = -1;
+        private boolean retryOnTooManyRequests = true;
+        private boolean retryOnServerError = true;
+        private boolean retryOnNetworkError = true;
+        private int maxRetryAfterMs = 0;
+
+        /**
+         * Constructor
+         */
+        public PolicyBuilder() {
+
+        }
+
+        /**
+         * @param maxRetries retries after the first attempt; 0 disables retries
+         * @return builder
+         */
+        public PolicyBuilder maxRetries(final int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        /**
+         * @param initialBackoffMs
+         * @return builder
+         */
+        public PolicyBuilder initialBackoffMs(final int initialBackoffMs) {
+            this.initialBackoffMs = initialBackoffMs;
+            return this;
+        }
+
+        /**
+         * @param maxBackoffMs
+         * @return builder
+         */
+        public PolicyBuilder maxBackoffMs(final int maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+            return this;
+        }
+
+        /**
+         * @param multiplier
+         * @return builder
+         */
+        public PolicyBuilder multiplier(final double multiplier) {
+            this.multiplier = multiplier;
+            return this;
+        }
+
+        /**
+         * @param jitter fraction of each delay, 0.0 to 1.0, that is randomized
+         * @return builder
+         */
+        public PolicyBuilder jitter(final double jitter) {
+            this.jitter = jitter;
+            return this;
+        }
+
+        /**
+         * @param retryOnTooManyRequests
+         * @return builder
+         */
+        public PolicyBuilder retryOnTooManyRequests(final boolean retryOnTooManyRequests) {
+            this.retryOnTooManyRequests = retryOnTooManyRequests;
+            return this;
+        }
+
+        /**
+         * @param retryOnServerError
+         * @return builder
+         */
+        public PolicyBuilder retryOnServerError(final boolean retryOnServerError) {
+            this.retryOnServerError = retryOnServerError;
+            return this;
+        }
+
+        /**
+         * @param retryOnNetworkError
+         * @return builder
+         */
+        public PolicyBuilder retryOnNetworkError(final boolean retryOnNetworkError) {
+            this.retryOnNetworkError = retryOnNetworkError;
+            return this;
+        }
+
+        /**
+         * @param maxRetryAfterMs
+         * @return builder
+         */
+        public PolicyBuilder maxRetryAfterMs(final int maxRetryAfterMs) {
+            this.maxRetryAfterMs = maxRetryAfterMs;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of RetryPolicy.
+         */
+        public RetryPolicy build() {
+            return new RetryPolicy(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static PolicyBuilder builder() {
+        return new PolicyBuilder();
+    }
+}
@@ -0,0 +1,84 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+/**
+ * Immutable outcome of transmitting an Envelope to a target endpoint.
+ */
+public class SendResult {
+
+    /**
+     * Status code of an outcome for which no response from the endpoint was seen.
+     */
+    public static final int UNKNOWN_STATUS = 0;
+
+    private final int statusCode;
+    private final boolean successful;
+    private final long retryAfterMs;
+
+    /**
+     * Constructor
+     * @param statusCode
+     * @param successful
+     */
+    public SendResult(int statusCode, boolean successful) {
+        this(statusCode, successful, -1);
+    }
+
+    /**
+     * Constructor
+     * @param statusCode
+     * @param successful
+     * @param retryAfterMs delay requested by the endpoint's Retry-After header, or -1 if none
+     */
+    public SendResult(int statusCode, boolean successful, long retryAfterMs) {
+        this.statusCode = statusCode;
+        this.successful = successful;
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    /**
+     * Get the HTTP status code returned by the endpoint.
+     * @return status code, or UNKNOWN_STATUS if no response was seen
+     */
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    /**
+     * Was the Envelope accepted by the endpoint?
+     * @return true if successful
+     */
+    public boolean isSuccessful() {
+        return successful;
+    }
+
+    /**
+     * Get the delay requested by the endpoint's Retry-After header.
+     * @return delay in milliseconds, or -1 if none
+     */
+    public long getRetryAfterMs() {
+        return retryAfterMs;
+    }
+
+    @Override
+    public String toString() {
+        return "SendResult{statusCode=" + statusCode + ", successful=" + successful + "}";
+    }
+}
@@ -0,0 +1,400 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.apache.http.HttpStatus;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.SendListener;
+import org.imsglobal.caliper.SerializedEnvelope;
+import org.imsglobal.caliper.config.Config;
+import org.imsglobal.caliper.config.DataFormat;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.spool.EnvelopeSpool;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.validators.SensorValidator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Decorates an HttpClient with a durable write-ahead spool.  Every Envelope is serialized and appended
+ * to an EnvelopeSpool on disk before it is transmitted; a background thread replays spooled envelopes
+ * in order, committing each one only once the endpoint has accepted it.  While the endpoint is down,
+ * envelopes accumulate on disk (bounded by the spool's size and age limits) rather than on the heap,
+ * and are delivered once it recovers, including after a process restart.
+ *
+ * Envelopes rejected with a 4xx status are logged and discarded so that a single bad payload cannot
+ * block the spool, except for the statuses in SpoolClientOptions.getRetainedStatusCodes(): by default
+ * authentication and routing errors are retried, so that a rotated API key does not empty the spool.
+ *
+ * Event counts record acceptance, not delivery: an Envelope's events count as sent once it is durably
+ * spooled.  The replayer only sees serialized payloads, so it cannot take back the events of an envelope
+ * it later discards.  A discard on a 4xx shows up in the envelope failure count, and a discard to honor
+ * the spool's limits in getDroppedBytes() and getExpiredEnvelopes().  Envelopes that cannot be spooled
+ * and are sent directly are counted by the HttpClient's outcome.
+ */
+public class SpoolClient implements CaliperClient {
+    private final String id;
+    private final HttpClient delegate;
+    private final SpoolClientOptions options;
+    private final EnvelopeSpool spool;
+    private final CaliperSerializer serializer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition appended = lock.newCondition();
+    private final Condition stopped = lock.newCondition();
+    private volatile boolean closed;
+
+    private final Thread replayer;
+
+    private static final Logger log = LoggerFactory.getLogger(SpoolClient.class);
+
+    /**
+     * Constructor.  Scope is private to force use of the static factory method for instantiating
+     * a SpoolClient.
+     * @param id
+     * @param delegate
+     * @param options
+     * @throws IOException
+     */
+    private SpoolClient(String id, HttpClient delegate, SpoolClientOptions options) throws IOException {
+        SensorValidator.chkId(id, this.getClass().getSimpleName());
+
+        this.id = id;
+        this.delegate = delegate;
+        this.options = options;
+        this.serializer = CaliperSerializer.getDefault();
+        this.spool = new EnvelopeSpool(options.getDirectory(), options.getSegmentBytes(), options.getMaxBytes(),
+            options.getMaxAgeMs(), options.isFsync());
+
+        this.replayer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runReplayer();
+            }
+        }, "caliper-spool-replayer-" + id);
+        this.replayer.setDaemon(true);
+        this.replayer.start();
+    }
+
+    /**
+     * Get identifier.
+     * @return id
+     */
+    @Nonnull
+    @Override
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Retrieve options
+     * @return options
+     */
+    @Override
+    public SpoolClientOptions getOptions() {
+        return options;
+    }
+
+    /**
+     * Get the decorated client's statistics.
+     * @return statistics
+     */
+    @Override
+    public Statistics getStatistics() {
+        return delegate.getStatistics();
+    }
+
+    /**
+     * Get the number of spooled bytes awaiting delivery.
+     * @return pending bytes
+     */
+    public long getPendingBytes() {
+        return spool.getPendingBytes();
+    }
+
+    /**
+     * Get the number of spooled bytes discarded, undelivered, to honor the spool's size limit.
+     * @return dropped bytes
+     */
+    public long getDroppedBytes() {
+        return spool.getDroppedBytes();
+    }
+
+    /**
+     * Get the number of spooled envelopes discarded, undelivered, to honor the spool's age limit.
+     * @return expired envelopes
+     */
+    public long getExpiredEnvelopes() {
+        return spool.getExpiredRecords();
+    }
+
+    /**
+     * Serialize the Envelope and append it to the spool.  If it cannot be spooled (larger than a
+     * segment, or a disk error) it is sent directly instead.
+     * @param envelope
+     */
+    @Override
+    public void send(Envelope envelope) {
+        if (!spool(envelope)) {
+            delegate.send(envelope);
+        }
+    }
+
+    /**
+     * Append an already serialized Envelope to the spool without re-serializing it.  If it cannot be
+     * spooled it is sent directly instead.
+     * @param envelope
+     */
+    @Override
+    public void send(SerializedEnvelope envelope) {
+        checkOpen();
+        boolean spooled;
+        try {
+            spooled = spool.append(envelope.getPayload());
+            if (!spooled) {
+                log.warn("Envelope exceeds spool segment size; sending directly.");
+            }
+        } catch (IOException ioe) {
+            log.error("Unable to spool envelope; sending directly.", ioe);
+            spooled = false;
+        }
+
+        if (spooled) {
+            getStatistics().recordEvents(envelope.getSource(), true);
+            signalAppended();
+        } else {
+            delegate.send(envelope);
+        }
+    }
+
+    /**
+     * Get the format of pre-serialized envelopes the decorated client transmits.
+     * @return data format
+     */
+    @Override
+    public DataFormat getDataFormat() {
+        return delegate.getDataFormat();
+    }
+
+    /**
+     * Serialize the Envelope and append it to the spool.  The returned future completes as soon as the
+     * Envelope is durably spooled, with status 202 (Accepted); delivery happens later.
+     * @param envelope
+     * @return future outcome
+     */
+    @Override
+    public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+        if (spool(envelope)) {
+            return CompletableFuture.completedFuture(new SendResult(HttpStatus.SC_ACCEPTED, true));
+        }
+        return delegate.sendAsync(envelope);
+    }
+
+    /**
+     * Register a listener with the HttpClient that replays the spool.
+     * @param listener
+     */
+    @Override
+    public void addListener(SendListener listener) {
+        delegate.addListener(listener);
+    }
+
+    @Override
+    public void removeListener(SendListener listener) {
+        delegate.removeListener(listener);
+    }
+
+    /**
+     * Stop replaying and close the spool and the decorated client.  Undelivered envelopes remain on
+     * disk and are replayed by the next SpoolClient opened on the same directory.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            appended.signalAll();
+            stopped.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        try {
+            replayer.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            spool.close();
+        } catch (IOException ioe) {
+            log.warn("Error closing spool for SpoolClient " + id, ioe);
+        }
+        delegate.close();
+    }
+
+    /**
+     * Append the serialized Envelope to the spool and wake the replayer.  Its events count as sent
+     * here, on acceptance, since the replayer cannot attribute a later discard to them.
+     * @param envelope
+     * @return true if spooled
+     */
+    private boolean spool(Envelope envelope) {
+        checkOpen();
+
+        try {
+            if (!spool.append(serializer.writeValueAsBytes(envelope))) {
+                log.warn("Envelope exceeds spool segment size; sending directly.");
+                return false;
+            }
+        } catch (IOException ioe) {
+            log.error("Unable to spool envelope; sending directly.", ioe);
+            return false;
+        }
+
+        getStatistics().recordEvents(envelope, true);
+        signalAppended();
+        return true;
+    }
+
+    /**
+     * Check the client has not been closed.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("SpoolClient " + id + " is closed.");
+        }
+    }
+
+    /**
+     * Wake the replayer after an append.
+     */
+    private void signalAppended() {
+        lock.lock();
+        try {
+            appended.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Replay loop: deliver the oldest spooled envelope, backing off exponentially while the endpoint
+     * is unavailable.
+     */
+    private void runReplayer() {
+        long backoff = options.getInitialBackoffMs();
+
+        while (!closed) {
+            try {
+                byte[] payload = spool.peek();
+                if (payload == null) {
+                    await(appended, TimeUnit.SECONDS.toMillis(1));
+                    continue;
+                }
+
+                SendResult result = delegate.post(new SerializedEnvelope(payload, Config.DATA_FORMAT,
+                    delegate.getOptions().getContentType()));
+
+                if (result.isSuccessful()) {
+                    spool.commit();
+                    backoff = options.getInitialBackoffMs();
+                } else if (isPermanentFailure(result.getStatusCode())) {
+                    log.warn("Discarding spooled envelope rejected with status code=" + result.getStatusCode());
+                    spool.commit();
+                } else {
+                    await(stopped, backoff);
+                    backoff = Math.min(backoff * 2, options.getMaxBackoffMs());
+                }
+            } catch (IOException | CircuitBreakerOpenException ex) {
+                if (closed) {
+                    return;
+                }
+                if (log.isDebugEnabled()) {
+                    log.debug("Spool replay failed; retrying in " + backoff + "ms", ex);
+                }
+                await(stopped, backoff);
+                backoff = Math.min(backoff * 2, options.getMaxBackoffMs());
+            } catch (RuntimeException re) {
+                if (closed) {
+                    return;
+                }
+                log.error("Unexpected spool replay failure", re);
+                await(stopped, backoff);
+                backoff = Math.min(backoff * 2, options.getMaxBackoffMs());
+            }
+        }
+    }
+
+    /**
+     * Wait for the condition to be signalled, close or the timeout, whichever comes first.  Backoff
+     * waits use the stopped condition so that new appends do not cut them short.
+     * @param condition
+     * @param millis
+     */
+    private void await(Condition condition, long millis) {
+        lock.lock();
+        try {
+            if (!closed) {
+                condition.await(millis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Client errors other than the retained statuses will not succeed on retry.
+     * @param statusCode
+     * @return true if the envelope should be discarded
+     */
+    private boolean isPermanentFailure(int statusCode) {
+        return statusCode >= HttpStatus.SC_BAD_REQUEST && statusCode < HttpStatus.SC_INTERNAL_SERVER_ERROR
+            && !options.getRetainedStatusCodes().contains(statusCode);
+    }
+
+    /**
+     * Factory method for instantiating a SpoolClient.
+     * @param id
+     * @param delegate
+     * @param options
+     * @return SpoolClient
+     * @throws UncheckedIOException if the spool directory cannot be opened
+     */
+    public static SpoolClient create(String id, HttpClient delegate, SpoolClientOptions options) {
+        try {
+            return new SpoolClient(id, delegate, options);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to open spool " + options.getDirectory(), ioe);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.collect.ImmutableSet;
+import org.imsglobal.caliper.validators.SensorValidator;
+
+import java.nio.file.Path;
+import java.util.Set;
+
+/**
+ * Spool client options.  Review default constants and adjust to the expected outage duration and
+ * available disk space.
+ */
+public class SpoolClientOptions implements CaliperClientOptions {
+    private final Path directory;
+    private final boolean fsync;
+    private final int initialBackoffMs;
+    private final long maxAgeMs;
+    private final int maxBackoffMs;
+    private final long maxBytes;
+    private final Set<Integer> retainedStatusCodes;
+    private final long segmentBytes;
+
+    /**
+     * Default spool limits and replay backoff.
+     */
+    public static final int INITIAL_BACKOFF_MS = 1000;
+    public static final long MAX_AGE_MS = 24L * 60 * 60 * 1000;
+    public static final int MAX_BACKOFF_MS = 60000;
+    public static final long MAX_BYTES = 512L * 1024 * 1024;
+    public static final long SEGMENT_BYTES = 16L * 1024 * 1024;
+
+    /**
+     * Default client error statuses that keep an envelope spooled for retry rather than discarding it:
+     * credential and routing errors that a configuration change can fix, plus Request Timeout and Too
+     * Many Requests.
+     */
+    public static final Set<Integer> RETAINED_STATUS_CODES = ImmutableSet.of(401, 403, 404, 408, 429);
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private SpoolClientOptions(OptionsBuilder builder) {
+        SensorValidator.chkSpoolDirectory(builder.directory);
+
+        this.directory = builder.directory;
+        this.fsync = builder.fsync;
+        this.initialBackoffMs = SensorValidator.chkPositiveIntValue(builder.initialBackoffMs, INITIAL_BACKOFF_MS);
+        this.maxAgeMs = (builder.maxAgeMs > 0) ? builder.maxAgeMs : MAX_AGE_MS;
+        this.maxBackoffMs = Math.max(initialBackoffMs, SensorValidator.chkPositiveIntValue(builder.maxBackoffMs, MAX_BACKOFF_MS));
+        this.segmentBytes = (builder.segmentBytes > 0) ? builder.segmentBytes : SEGMENT_BYTES;
+        this.maxBytes = Math.max(2 * segmentBytes, (builder.maxBytes > 0) ? builder.maxBytes : MAX_BYTES);
+        this.retainedStatusCodes = (builder.retainedStatusCodes != null)
+            ? ImmutableSet.copyOf(builder.retainedStatusCodes) : RETAINED_STATUS_CODES;
+    }
+
+    /**
+     * Get the directory holding spool segments and the read checkpoint.
+     * @return directory
+     */
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Are appends and checkpoints forced to the storage device?  When false, spooled envelopes survive
+     * a process crash but not an operating system crash or power loss.
+     * @return fsync
+     */
+    public boolean isFsync() {
+        return fsync;
+    }
+
+    /**
+     * Get the delay in milliseconds before the first replay retry after a failure.
+     * @return initial backoff
+     */
+    public int getInitialBackoffMs() {
+        return initialBackoffMs;
+    }
+
+    /**
+     * Get the age in milliseconds after which spooled envelopes are discarded unsent.
+     * @return max age
+     */
+    public long getMaxAgeMs() {
+        return maxAgeMs;
+    }
+
+    /**
+     * Get the upper bound in milliseconds on the replay retry delay.
+     * @return max backoff
+     */
+    public int getMaxBackoffMs() {
+        return maxBackoffMs;
+    }
+
+    /**
+     * Get the upper bound on spooled bytes; the oldest envelopes are discarded beyond it.
+     * @return max bytes
+     */
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * Get the 4xx statuses that leave an envelope in the spool to be retried.  Envelopes rejected with
+     * any other 4xx status are discarded.
+     * @return retained status codes
+     */
+    public Set<Integer> getRetainedStatusCodes() {
+        return retainedStatusCodes;
+    }
+
+    /**
+     * Get the size at which spool segment files are rolled.
+     * @return segment bytes
+     */
+    public long getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private Path directory;
+        private boolean fsync;
+        private int initialBackoffMs = 0;
+        private long maxAgeMs = 0;
+        private int maxBackoffMs = 0;
+        private long maxBytes = 0;
+        private Set<Integer> retainedStatusCodes;
+        private long segmentBytes = 0;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param directory
+         * @return builder
+         */
+        public OptionsBuilder directory(final Path directory) {
+            this.directory = directory;
+            return this;
+        }
+
+        /**
+         * @param fsync
+         * @return builder
+         */
+        public OptionsBuilder fsync(final boolean fsync) {
+            this.fsync = fsync;
+            return this;
+        }
+
+        /**
+         * @param initialBackoffMs
+         * @return builder
+         */
+        public OptionsBuilder initialBackoffMs(final int initialBackoffMs) {
+            this.initialBackoffMs = initialBackoffMs;
+            return this;
+        }
+
+        /**
+         * @param maxAgeMs
+         * @return builder
+         */
+        public OptionsBuilder maxAgeMs(final long maxAgeMs) {
+            this.maxAgeMs = maxAgeMs;
+            return this;
+        }
+
+        /**
+         * @param maxBackoffMs
+         * @return builder
+         */
+        public OptionsBuilder maxBackoffMs(final int maxBackoffMs) {
+            this.maxBackoffMs = maxBackoffMs;
+            return this;
+        }
+
+        /**
+         * @param maxBytes
+         * @return builder
+         */
+        public OptionsBuilder maxBytes(final long maxBytes) {
+            this.maxBytes = maxBytes;
+            return this;
+        }
+
+        /**
+         * @param retainedStatusCodes 4xx statuses to keep retrying; all others are discarded
+         * @return builder
+         */
+        public OptionsBuilder retainedStatusCodes(final Set<Integer> retainedStatusCodes) {
+            this.retainedStatusCodes = retainedStatusCodes;
+            return this;
+        }
+
+        /**
+         * @param segmentBytes
+         * @return builder
+         */
+        public OptionsBuilder segmentBytes(final long segmentBytes) {
+            this.segmentBytes = segmentBytes;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable object.
+         * @return a new instance of Options.
+         */
+        public SpoolClientOptions build() {
+            return new SpoolClientOptions(this);
+        }
+    }
+
+    /**
+     * Static Factory method.
+     * @return new builder instance
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+/**
+ * Token bucket holding up to one second's worth of permits, refilled continuously.  Unlike Guava's
+ * RateLimiter, permits can be reserved tentatively and then either committed or cancelled, so that
+ * RateLimitedClient can check every bucket an Envelope needs before taking from any of them.
+ *
+ * Not thread-safe; RateLimitedClient guards all of its buckets with one lock.
+ */
+class TokenBucket {
+    private final double permitsPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+    private int reserved;
+
+    /**
+     * Constructor.  As with RateLimiter, the first permit is available immediately.
+     * @param permitsPerSecond
+     */
+    TokenBucket(double permitsPerSecond) {
+        this.permitsPerNano = permitsPerSecond / 1e9;
+        this.capacity = Math.max(1.0, permitsPerSecond);
+        this.tokens = 1.0;
+        this.refilledAt = System.nanoTime();
+    }
+
+    /**
+     * Could the permits be reserved, on top of those already reserved?  With a maximum delay, the bucket
+     * may go into debt as long as the debt is repaid within that delay.
+     * @param now from System.nanoTime()
+     * @param permits
+     * @param maxDelayNanos 0 to grant only permits already available
+     * @return true if reserve() may be called
+     */
+    boolean canReserve(long now, int permits, long maxDelayNanos) {
+        refill(now);
+        return tokens - reserved - permits >= -maxDelayNanos * permitsPerNano;
+    }
+
+    /**
+     * Tentatively take permits.  Call canReserve() first.
+     * @param permits
+     */
+    void reserve(int permits) {
+        reserved += permits;
+    }
+
+    /**
+     * Take the reserved permits.
+     * @return nanoseconds the caller must wait for the bucket to repay any debt, or 0
+     */
+    long commit() {
+        tokens -= reserved;
+        reserved = 0;
+        return (tokens < 0) ? (long) Math.ceil(-tokens / permitsPerNano) : 0;
+    }
+
+    /**
+     * Release the reserved permits without taking them.
+     */
+    void cancel() {
+        reserved = 0;
+    }
+
+    /**
+     * Add the permits accrued since the last refill.
+     * @param now
+     */
+    private void refill(long now) {
+        if (now > refilledAt) {
+            tokens = Math.min(capacity, tokens + (now - refilledAt) * permitsPerNano);
+            refilledAt = now;
+        }
+    }
+}
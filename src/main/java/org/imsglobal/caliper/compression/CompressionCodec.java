@@ -0,0 +1,45 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Service provider interface for request body compression.  Implementations are stateless and
+ * thread-safe; each call to wrap returns a new stream.  Additional codecs may be registered with
+ * CompressionCodecs directly or via java.util.ServiceLoader.
+ */
+public interface CompressionCodec {
+
+    /**
+     * Get the HTTP Content-Encoding token identifying this codec (e.g., "gzip").
+     * @return content encoding
+     */
+    String getEncoding();
+
+    /**
+     * Wrap a stream so that bytes written to the returned stream are compressed into the target.
+     * Closing the returned stream finishes the compressed stream and closes the target.
+     * @param out
+     * @return compressing stream
+     * @throws IOException
+     */
+    OutputStream wrap(OutputStream out) throws IOException;
+}
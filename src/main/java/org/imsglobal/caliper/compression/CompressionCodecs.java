@@ -0,0 +1,67 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.compression;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry of compression codecs keyed by Content-Encoding token.  gzip and deflate are always
+ * available, zstd when zstd-jni is on the classpath; other codecs are discovered with
+ * java.util.ServiceLoader or may be registered programmatically.
+ */
+public class CompressionCodecs {
+    private static final Map<String, CompressionCodec> codecs = new ConcurrentHashMap<>();
+
+    static {
+        register(new GzipCodec());
+        register(new DeflateCodec());
+        if (ZstdCodec.isAvailable()) {
+            register(new ZstdCodec());
+        }
+        for (CompressionCodec codec: ServiceLoader.load(CompressionCodec.class)) {
+            register(codec);
+        }
+    }
+
+    /**
+     * Constructor
+     */
+    private CompressionCodecs() {
+
+    }
+
+    /**
+     * Register a codec, replacing any codec registered for the same encoding.
+     * @param codec
+     */
+    public static void register(CompressionCodec codec) {
+        codecs.put(codec.getEncoding().toLowerCase(), codec);
+    }
+
+    /**
+     * Retrieve codec by Content-Encoding token.
+     * @param encoding
+     * @return codec or null if none is registered
+     */
+    public static CompressionCodec forEncoding(String encoding) {
+        return (encoding == null) ? null : codecs.get(encoding.toLowerCase());
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.compression;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Buffers a payload and switches to compressing it once more than threshold bytes have been written,
+ * so small payloads are sent as-is while large ones are never held uncompressed in full.
+ */
+public class ThresholdCompressingOutputStream extends OutputStream {
+    private final CompressionCodec codec;
+    private final int threshold;
+    private final ByteArrayOutputStream buffer;
+    private OutputStream compressor;
+    private long uncompressedSize;
+    private boolean closed;
+
+    /**
+     * Constructor
+     * @param codec
+     * @param threshold minimum payload size in bytes that is compressed
+     */
+    public ThresholdCompressingOutputStream(CompressionCodec codec, int threshold) {
+        this.codec = codec;
+        this.threshold = threshold;
+        this.buffer = new ByteArrayOutputStream(Math.max(256, Math.min(threshold, 8192)));
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] { (byte) b }, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        uncompressedSize += len;
+        if (compressor != null) {
+            compressor.write(b, off, len);
+        } else if (uncompressedSize >= threshold) {
+            byte[] buffered = buffer.toByteArray();
+            buffer.reset();
+            compressor = codec.wrap(buffer);
+            compressor.write(buffered);
+            compressor.write(b, off, len);
+        } else {
+            buffer.write(b, off, len);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        if (compressor != null) {
+            compressor.flush();
+        }
+    }
+
+    /**
+     * Finish the compressed stream, if any.
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            if (compressor != null) {
+                compressor.close();
+            }
+        }
+    }
+
+    /**
+     * Was the threshold exceeded, i.e. is the payload compressed?
+     * @return true if compressed
+     */
+    public boolean isCompressed() {
+        return compressor != null;
+    }
+
+    /**
+     * Get the Content-Encoding of the payload.
+     * @return content encoding or null if not compressed
+     */
+    public String getEncoding() {
+        return isCompressed() ? codec.getEncoding() : null;
+    }
+
+    /**
+     * Get the number of bytes written before compression.
+     * @return uncompressed size
+     */
+    public long getUncompressedSize() {
+        return uncompressedSize;
+    }
+
+    /**
+     * Get the payload; call after close.
+     * @return payload bytes
+     */
+    public byte[] toByteArray() {
+        return buffer.toByteArray();
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.compression;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+
+/**
+ * Zstandard codec.  Requires the zstd-jni library (com.github.luben:zstd-jni) on the classpath; it is
+ * looked up reflectively so that caliper-java does not depend on native code unless zstd is used.
+ */
+public class ZstdCodec implements CompressionCodec {
+    private final int level;
+
+    public static final String ENCODING = "zstd";
+    public static final int DEFAULT_LEVEL = 3;
+
+    private static final String STREAM_CLASS = "com.github.luben.zstd.ZstdOutputStream";
+    private static final Constructor<?> STREAM_CONSTRUCTOR = findConstructor();
+
+    /**
+     * Constructor using the default compression level.
+     */
+    public ZstdCodec() {
+        this(DEFAULT_LEVEL);
+    }
+
+    /**
+     * Constructor
+     * @param level compression level 1-22
+     * @throws IllegalStateException if zstd-jni is not on the classpath
+     */
+    public ZstdCodec(int level) {
+        if (!isAvailable()) {
+            throw new IllegalStateException("zstd compression requires " + STREAM_CLASS + " on the classpath.");
+        }
+        this.level = level;
+    }
+
+    /**
+     * Is the zstd-jni library on the classpath?
+     * @return true if available
+     */
+    public static boolean isAvailable() {
+        return STREAM_CONSTRUCTOR != null;
+    }
+
+    @Override
+    public String getEncoding() {
+        return ENCODING;
+    }
+
+    @Override
+    public OutputStream wrap(OutputStream out) throws IOException {
+        try {
+            return (OutputStream) STREAM_CONSTRUCTOR.newInstance(out, level);
+        } catch (InvocationTargetException ite) {
+            if (ite.getCause() instanceof IOException) {
+                throw (IOException) ite.getCause();
+            }
+            throw new IOException("Unable to create zstd stream", ite.getCause());
+        } catch (InstantiationException | IllegalAccessException ex) {
+            throw new IOException("Unable to create zstd stream", ex);
+        }
+    }
+
+    /**
+     * Look up the zstd-jni stream constructor.
+     * @return constructor or null if not available
+     */
+    private static Constructor<?> findConstructor() {
+        try {
+            return Class.forName(STREAM_CLASS).getConstructor(OutputStream.class, int.class);
+        } catch (ClassNotFoundException | NoSuchMethodException | LinkageError ex) {
+            return null;
+        }
+    }
+}
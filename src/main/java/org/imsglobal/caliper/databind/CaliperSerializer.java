@@ -0,0 +1,189 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.databind;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
+import com.fasterxml.jackson.datatype.joda.JodaModule;
+import com.google.common.reflect.ClassPath;
+import org.imsglobal.caliper.Envelope;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe serialization engine shared by Caliper clients.  A single configured ObjectMapper is
+ * created once and the ObjectWriter for each root type is cached, so Jackson introspects each event
+ * and entity class only once per JVM rather than once per Envelope.
+ */
+public class CaliperSerializer {
+    private final ObjectMapper mapper;
+    private final ConcurrentMap<Class<?>, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    /**
+     * Packages whose classes are pre-built by warmUp().
+     */
+    public static final String[] WARM_UP_PACKAGES = {
+        "org.imsglobal.caliper.events",
+        "org.imsglobal.caliper.entities"
+    };
+
+    private static final CaliperSerializer DEFAULT = new CaliperSerializer(createObjectMapper());
+
+    private static final Logger log = LoggerFactory.getLogger(CaliperSerializer.class);
+
+    /**
+     * Constructor
+     * @param mapper configured mapper; must not be reconfigured once handed to the serializer
+     */
+    public CaliperSerializer(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Get the JVM-wide shared serializer.
+     * @return serializer
+     */
+    public static CaliperSerializer getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Create Caliper-friendly ObjectMapper.
+     * @return ObjectMapper
+     */
+    public static ObjectMapper createObjectMapper() {
+        SimpleFilterProvider provider = new SimpleFilterProvider()
+            .setFailOnUnknownId(true);
+
+        return new ObjectMapper()
+            .setDateFormat(new ISO8601DateFormat())
+            .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
+            .setFilterProvider(provider)
+            .registerModules(new JodaModule(), new JxnCoercibleSimpleModule());
+    }
+
+    /**
+     * Get the underlying mapper.  The mapper is shared; callers must not change its configuration.
+     * @return ObjectMapper
+     */
+    public ObjectMapper getObjectMapper() {
+        return mapper;
+    }
+
+    /**
+     * Get the cached ObjectWriter for a root type, creating it on first use.  Cached writers leave
+     * target streams open.
+     * @param type
+     * @return ObjectWriter
+     */
+    public ObjectWriter writerFor(Class<?> type) {
+        ObjectWriter writer = writers.get(type);
+        if (writer == null) {
+            writer = mapper.writerFor(type).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            ObjectWriter existing = writers.putIfAbsent(type, writer);
+            if (existing != null) {
+                writer = existing;
+            }
+        }
+        return writer;
+    }
+
+    /**
+     * Serialize a value to a JSON string.
+     * @param value
+     * @return JSON
+     * @throws JsonProcessingException
+     */
+    public String writeValueAsString(Object value) throws JsonProcessingException {
+        return writerFor(value.getClass()).writeValueAsString(value);
+    }
+
+    /**
+     * Serialize a value to UTF-8 encoded JSON.
+     * @param value
+     * @return JSON bytes
+     * @throws JsonProcessingException
+     */
+    public byte[] writeValueAsBytes(Object value) throws JsonProcessingException {
+        return writerFor(value.getClass()).writeValueAsBytes(value);
+    }
+
+    /**
+     * Serialize a value as UTF-8 encoded JSON to the given stream.  The stream is not closed.
+     * @param out
+     * @param value
+     * @throws IOException
+     */
+    public void writeValue(OutputStream out, Object value) throws IOException {
+        writerFor(value.getClass()).writeValue(out, value);
+    }
+
+    /**
+     * Pre-build the serializers for the Envelope and every concrete class in the Caliper events and
+     * entities packages so that the first Envelope sent does not pay for Jackson introspection.
+     * @return number of classes warmed up
+     */
+    public int warmUp() {
+        int count = 0;
+        writerFor(Envelope.class);
+
+        ClassPath classPath;
+        try {
+            classPath = ClassPath.from(CaliperSerializer.class.getClassLoader());
+        } catch (IOException ioe) {
+            log.warn("Unable to scan class path; serializers will be built on first use.", ioe);
+            return count;
+        }
+
+        for (String pkg: WARM_UP_PACKAGES) {
+            for (ClassPath.ClassInfo info: classPath.getTopLevelClassesRecursive(pkg)) {
+                Class<?> type;
+                try {
+                    type = info.load();
+                } catch (LinkageError le) {
+                    continue;
+                }
+                if (type.isInterface() || Modifier.isAbstract(type.getModifiers()) || !Modifier.isPublic(type.getModifiers())) {
+                    continue;
+                }
+                try {
+                    writerFor(type);
+                    count++;
+                } catch (RuntimeException re) {
+                    if (log.isDebugEnabled()) {
+                        log.debug("Skipping warm up of " + type.getName() + ": " + re.getMessage());
+                    }
+                }
+            }
+        }
+
+        return count;
+    }
+}
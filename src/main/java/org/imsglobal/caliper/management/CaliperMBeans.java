@@ -0,0 +1,136 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+import org.imsglobal.caliper.Sensor;
+import org.imsglobal.caliper.clients.CaliperClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Registers Sensors and clients with the platform MBeanServer under the org.imsglobal.caliper domain.
+ * A Sensor created with SensorOptions.jmx(true) does this itself as clients are registered and
+ * unregistered.  Registration failures are logged rather than thrown, so that monitoring never stops
+ * a Sensor from sending.
+ */
+public final class CaliperMBeans {
+    public static final String DOMAIN = "org.imsglobal.caliper";
+
+    private static final Logger log = LoggerFactory.getLogger(CaliperMBeans.class);
+
+    private CaliperMBeans() {
+    }
+
+    /**
+     * Register a Sensor, replacing any MBean registered under the same name.
+     * @param sensor
+     */
+    public static void registerSensor(Sensor sensor) {
+        register(sensorName(sensor.getId()), new SensorView(sensor));
+    }
+
+    /**
+     * Register a client of a Sensor, replacing any MBean registered under the same name.
+     * @param sensorId
+     * @param client
+     */
+    public static void registerClient(String sensorId, CaliperClient client) {
+        register(clientName(sensorId, client.getId()), new ClientView(client));
+    }
+
+    /**
+     * Unregister a Sensor.  Its clients are not unregistered.
+     * @param sensorId
+     */
+    public static void unregisterSensor(String sensorId) {
+        unregister(sensorName(sensorId));
+    }
+
+    /**
+     * Unregister a client of a Sensor.
+     * @param sensorId
+     * @param clientId
+     */
+    public static void unregisterClient(String sensorId, String clientId) {
+        unregister(clientName(sensorId, clientId));
+    }
+
+    /**
+     * Get the name a Sensor is registered under.
+     * @param sensorId
+     * @return object name
+     */
+    public static ObjectName sensorName(String sensorId) {
+        return name("type=Sensor,name=" + ObjectName.quote(sensorId));
+    }
+
+    /**
+     * Get the name a client of a Sensor is registered under.
+     * @param sensorId
+     * @param clientId
+     * @return object name
+     */
+    public static ObjectName clientName(String sensorId, String clientId) {
+        return name("type=Client,sensor=" + ObjectName.quote(sensorId) + ",name=" + ObjectName.quote(clientId));
+    }
+
+    static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static ObjectName name(String properties) {
+        try {
+            return new ObjectName(DOMAIN + ":" + properties);
+        } catch (JMException jme) {
+            throw new IllegalArgumentException(jme);
+        }
+    }
+
+    private static void register(ObjectName name, Object mbean) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            try {
+                server.registerMBean(mbean, name);
+            } catch (InstanceAlreadyExistsException exists) {
+                server.unregisterMBean(name);
+                server.registerMBean(mbean, name);
+            }
+        } catch (JMException jme) {
+            log.warn("Unable to register MBean " + name, jme);
+        }
+    }
+
+    private static void unregister(ObjectName name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException jme) {
+            log.warn("Unable to unregister MBean " + name, jme);
+        }
+    }
+}
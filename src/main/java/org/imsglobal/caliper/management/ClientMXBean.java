@@ -0,0 +1,102 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+/**
+ * Management interface of a CaliperClient, registered as
+ * org.imsglobal.caliper:type=Client,sensor=&lt;sensor id&gt;,name=&lt;client id&gt;.  Counters are totals since
+ * the client was created; latencies are in milliseconds and cover the whole send, retries included.
+ */
+public interface ClientMXBean {
+
+    /**
+     * @return client identifier
+     */
+    String getId();
+
+    /**
+     * @return simple class name of the client, e.g. HttpClient
+     */
+    String getType();
+
+    /**
+     * @return envelopes sent
+     */
+    long getMeasures();
+
+    /**
+     * @return envelopes sent successfully
+     */
+    long getSuccessful();
+
+    /**
+     * @return envelopes that failed
+     */
+    long getFailed();
+
+    /**
+     * @return retried attempts
+     */
+    long getRetries();
+
+    /**
+     * @return events rejected by a rate limit
+     */
+    long getThrottled();
+
+    /**
+     * @return envelopes sent per second over the last minute
+     */
+    double getThroughput();
+
+    /**
+     * @return requests in flight, or -1 if the client does not track them
+     */
+    int getInFlight();
+
+    /**
+     * @return in-flight limit, or -1 if the client does not have one
+     */
+    int getInFlightLimit();
+
+    /**
+     * @return median send latency
+     */
+    double getLatencyP50Ms();
+
+    /**
+     * @return 90th percentile send latency
+     */
+    double getLatencyP90Ms();
+
+    /**
+     * @return 99th percentile send latency
+     */
+    double getLatencyP99Ms();
+
+    /**
+     * @return 99.9th percentile send latency
+     */
+    double getLatencyP999Ms();
+
+    /**
+     * @return maximum send latency
+     */
+    double getLatencyMaxMs();
+}
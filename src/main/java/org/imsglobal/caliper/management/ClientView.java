@@ -0,0 +1,119 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+import org.imsglobal.caliper.clients.CaliperClient;
+import org.imsglobal.caliper.clients.HttpClient;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.statistics.WindowedStatistic;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ClientMXBean backed by the client's statistics.  Each attribute reads a single statistic or histogram,
+ * which aggregate as values are recorded.
+ */
+class ClientView implements ClientMXBean {
+    private final CaliperClient client;
+    private final WindowedStatistic throughput;
+
+    ClientView(CaliperClient client) {
+        this.client = client;
+        this.throughput = client.getStatistics().getWindowedMeasures();
+    }
+
+    @Override
+    public String getId() {
+        return client.getId();
+    }
+
+    @Override
+    public String getType() {
+        return client.getClass().getSimpleName();
+    }
+
+    @Override
+    public long getMeasures() {
+        return (long) statistics().getMeasures().getSum();
+    }
+
+    @Override
+    public long getSuccessful() {
+        return (long) statistics().getSuccessful().getSum();
+    }
+
+    @Override
+    public long getFailed() {
+        return (long) statistics().getFailed().getSum();
+    }
+
+    @Override
+    public long getRetries() {
+        return (long) statistics().getRetries().getSum();
+    }
+
+    @Override
+    public long getThrottled() {
+        return (long) statistics().getThrottled().getSum();
+    }
+
+    @Override
+    public double getThroughput() {
+        return throughput.getRate(1, TimeUnit.MINUTES);
+    }
+
+    @Override
+    public int getInFlight() {
+        return (client instanceof HttpClient) ? ((HttpClient) client).getInFlightRequests() : -1;
+    }
+
+    @Override
+    public int getInFlightLimit() {
+        return (client instanceof HttpClient) ? ((HttpClient) client).getInFlightLimit() : -1;
+    }
+
+    @Override
+    public double getLatencyP50Ms() {
+        return CaliperMBeans.toMillis(statistics().getTotalLatencies().getP50());
+    }
+
+    @Override
+    public double getLatencyP90Ms() {
+        return CaliperMBeans.toMillis(statistics().getTotalLatencies().getP90());
+    }
+
+    @Override
+    public double getLatencyP99Ms() {
+        return CaliperMBeans.toMillis(statistics().getTotalLatencies().getP99());
+    }
+
+    @Override
+    public double getLatencyP999Ms() {
+        return CaliperMBeans.toMillis(statistics().getTotalLatencies().getP999());
+    }
+
+    @Override
+    public double getLatencyMaxMs() {
+        return CaliperMBeans.toMillis(statistics().getTotalLatencies().getMax());
+    }
+
+    private Statistics statistics() {
+        return client.getStatistics();
+    }
+}
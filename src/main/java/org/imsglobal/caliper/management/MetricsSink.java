@@ -0,0 +1,54 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+/**
+ * Receives the metrics collected by SensorMetrics, one family at a time.  PrometheusTextFormat renders
+ * them as Prometheus text; an adapter to another metrics library implements this interface to feed its
+ * own registry.
+ */
+public interface MetricsSink {
+
+    /**
+     * Kind of a metric family.
+     */
+    enum Type {
+        COUNTER,
+        GAUGE,
+        SUMMARY
+    }
+
+    /**
+     * Start a metric family.  Every sample that follows, until the next family, belongs to it.
+     * @param name family name, e.g. caliper_client_sent_total
+     * @param type
+     * @param help one line description
+     */
+    void family(String name, Type type, String help);
+
+    /**
+     * Report a sample.  For a summary the name is the family name for quantiles, or the family name
+     * suffixed with _sum or _count.
+     * @param name
+     * @param labelNames
+     * @param labelValues values matching labelNames by position
+     * @param value
+     */
+    void sample(String name, String[] labelNames, String[] labelValues, double value);
+}
@@ -0,0 +1,166 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Embedded HTTP endpoint serving the metrics of the Sensors bound to a SensorMetrics in the Prometheus
+ * text format at /metrics.  Scrapes are handled one at a time on a single daemon thread, and the text
+ * and byte buffers are reused from one scrape to the next.
+ */
+public class PrometheusServer implements Closeable {
+    public static final String PATH = "/metrics";
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final SensorMetrics metrics;
+    private final PrometheusTextFormat format = new PrometheusTextFormat();
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+    private ByteBuffer bytes = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    private static final Logger log = LoggerFactory.getLogger(PrometheusServer.class);
+
+    /**
+     * Constructor
+     * @param metrics
+     * @param address
+     * @throws IOException
+     */
+    private PrometheusServer(SensorMetrics metrics, InetSocketAddress address) throws IOException {
+        this.metrics = metrics;
+        this.server = HttpServer.create(address, 0);
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "caliper-prometheus");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        server.setExecutor(executor);
+        server.createContext(PATH, new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                scrape(exchange);
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * Get the port the endpoint listens on, which is chosen by the system if the address had port 0.
+     * @return port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private synchronized void scrape(HttpExchange exchange) throws IOException {
+        try {
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+
+            int length;
+            try {
+                format.reset();
+                metrics.collect(format);
+                length = encode(format.getText());
+            } catch (RuntimeException ex) {
+                log.error("Unable to render metrics", ex);
+                exchange.sendResponseHeaders(500, -1);
+                return;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", PrometheusTextFormat.CONTENT_TYPE);
+            exchange.sendResponseHeaders(200, length);
+            OutputStream body = exchange.getResponseBody();
+            body.write(bytes.array(), 0, length);
+            body.flush();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Encode text as UTF-8 into the reusable byte buffer, growing it if the text does not fit.
+     * @param text
+     * @return number of bytes
+     */
+    private int encode(CharSequence text) {
+        while (true) {
+            CharBuffer chars = CharBuffer.wrap(text);
+            bytes.clear();
+            encoder.reset();
+            CoderResult result = encoder.encode(chars, bytes, true);
+            if (!result.isOverflow()) {
+                result = encoder.flush(bytes);
+            }
+            if (!result.isOverflow()) {
+                return bytes.position();
+            }
+            bytes = ByteBuffer.allocate(bytes.capacity() * 2);
+        }
+    }
+
+    /**
+     * Stop the endpoint.
+     */
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    /**
+     * Factory method for starting an endpoint.
+     * @param metrics
+     * @param address address to listen on; port 0 picks a free port
+     * @return PrometheusServer
+     */
+    public static PrometheusServer create(SensorMetrics metrics, InetSocketAddress address) {
+        try {
+            return new PrometheusServer(metrics, address);
+        } catch (IOException ioe) {
+            throw new UncheckedIOException("Unable to start metrics endpoint on " + address, ioe);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+/**
+ * Renders metrics in the Prometheus text exposition format (version 0.0.4).  The text is appended to a
+ * buffer that is kept between scrapes; call reset() before collecting again.  Not thread safe.
+ */
+public class PrometheusTextFormat implements MetricsSink {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private final StringBuilder text = new StringBuilder(INITIAL_CAPACITY);
+
+    /**
+     * Discard the rendered text, keeping the buffer.
+     */
+    public void reset() {
+        text.setLength(0);
+    }
+
+    /**
+     * Get the text rendered since the last reset().  The buffer is reused, so the text must be consumed
+     * before the next reset().
+     * @return text
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    @Override
+    public void family(String name, Type type, String help) {
+        text.append("# HELP ").append(name).append(' ');
+        escape(help, false);
+        text.append("\n# TYPE ").append(name).append(' ').append(type.name().toLowerCase()).append('\n');
+    }
+
+    @Override
+    public void sample(String name, String[] labelNames, String[] labelValues, double value) {
+        text.append(name);
+        if (labelNames.length > 0) {
+            text.append('{');
+            for (int i = 0; i < labelNames.length; i++) {
+                if (i > 0) {
+                    text.append(',');
+                }
+                text.append(labelNames[i]).append("=\"");
+                escape(labelValues[i], true);
+                text.append('"');
+            }
+            text.append('}');
+        }
+        text.append(' ');
+        appendValue(value);
+        text.append('\n');
+    }
+
+    private void appendValue(double value) {
+        if (Double.isNaN(value)) {
+            text.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            text.append(value > 0 ? "+Inf" : "-Inf");
+        } else if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            text.append((long) value);
+        } else {
+            text.append(value);
+        }
+    }
+
+    /**
+     * Append text with backslashes and line feeds escaped, and double quotes too in label values.
+     */
+    private void escape(String value, boolean quotes) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\') {
+                text.append("\\\\");
+            } else if (c == '\n') {
+                text.append("\\n");
+            } else if (c == '"' && quotes) {
+                text.append("\\\"");
+            } else {
+                text.append(c);
+            }
+        }
+    }
+}
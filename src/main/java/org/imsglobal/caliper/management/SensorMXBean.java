@@ -0,0 +1,66 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+/**
+ * Management interface of a Sensor, registered as org.imsglobal.caliper:type=Sensor,name=&lt;id&gt;.
+ * Counters are totals since the Sensor was created; latencies are in milliseconds.
+ */
+public interface SensorMXBean {
+
+    /**
+     * @return sensor identifier
+     */
+    String getId();
+
+    /**
+     * @return identifiers of the registered clients
+     */
+    String[] getClientIds();
+
+    /**
+     * @return envelopes waiting in the send queue
+     */
+    int getQueueDepth();
+
+    /**
+     * @return envelopes dropped by the overflow policy
+     */
+    long getDropped();
+
+    /**
+     * @return envelopes spilled to the disk spool
+     */
+    long getSpilled();
+
+    /**
+     * @return median time envelopes spent in the send queue
+     */
+    double getQueueLatencyP50Ms();
+
+    /**
+     * @return 99th percentile of the time envelopes spent in the send queue
+     */
+    double getQueueLatencyP99Ms();
+
+    /**
+     * @return 99th percentile of the time taken to serialize envelopes shared by several clients
+     */
+    double getSerializationLatencyP99Ms();
+}
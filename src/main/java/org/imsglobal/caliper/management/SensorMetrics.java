@@ -0,0 +1,271 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+import org.imsglobal.caliper.Sensor;
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.events.EventType;
+import org.imsglobal.caliper.statistics.EventCounts;
+import org.imsglobal.caliper.statistics.LatencySnapshot;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.statistics.StatisticsSnapshot;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Binds Sensors to a MetricsSink.  Each call to collect() copies the queue statistics and client
+ * statistics of every bound Sensor at one point in time, then reports them family by family, labeled by
+ * sensor id, client id, event type, action, latency stage and HTTP status.  A scrape holds up senders only
+ * if their updates keep racing with the copy, and then for the length of one copy.
+ */
+public class SensorMetrics {
+    private final List<Sensor> sensors = new CopyOnWriteArrayList<>();
+
+    private static final String[] SENSOR_LABELS = {"sensor"};
+    private static final String[] CLIENT_LABELS = {"sensor", "client"};
+    private static final String[] STATUS_LABELS = {"sensor", "client", "status"};
+    private static final String[] EVENT_TYPE_LABELS = {"sensor", "client", "type", "outcome"};
+    private static final String[] ACTION_LABELS = {"sensor", "client", "action", "outcome"};
+    private static final EventType[] EVENT_TYPES = EventType.values();
+    private static final Action[] ACTIONS = Action.values();
+    private static final String OTHER = "other";
+    private static final String[] SENSOR_STAGE_LABELS = {"sensor", "stage", "quantile"};
+    private static final String[] CLIENT_STAGE_LABELS = {"sensor", "client", "stage", "quantile"};
+
+    private static final String LATENCY = "caliper_latency_seconds";
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99", "0.999"};
+    private static final String[] SENSOR_STAGES = {"QueueLatency", "SerializationLatency"};
+    private static final String[] CLIENT_STAGES = {"SerializationLatency", "ExecuteLatency", "TotalLatency"};
+
+    /**
+     * Report a Sensor's metrics until it is unbound.
+     * @param sensor
+     */
+    public void bind(Sensor sensor) {
+        sensors.add(sensor);
+    }
+
+    /**
+     * Stop reporting a Sensor's metrics.
+     * @param sensor
+     */
+    public void unbind(Sensor sensor) {
+        sensors.remove(sensor);
+    }
+
+    /**
+     * Report the metrics of every bound Sensor and its clients.
+     * @param sink
+     */
+    public void collect(MetricsSink sink) {
+        List<Sensor> bound = new ArrayList<>(sensors);
+        List<List<String>> clientIds = new ArrayList<>(bound.size());
+        List<Statistics> statistics = new ArrayList<>();
+        for (Sensor sensor : bound) {
+            statistics.add(sensor.getQueueStatistics());
+            List<String> ids = new ArrayList<>();
+            for (Map.Entry<String, Statistics> client : sensor.getStatistics().entrySet()) {
+                ids.add(client.getKey());
+                statistics.add(client.getValue());
+            }
+            clientIds.add(ids);
+        }
+
+        Iterator<StatisticsSnapshot> snapshots = Statistics.snapshot(statistics).iterator();
+        List<Capture> captures = new ArrayList<>(bound.size());
+        for (int i = 0; i < bound.size(); i++) {
+            captures.add(new Capture(bound.get(i), clientIds.get(i), snapshots));
+        }
+
+        sink.family("caliper_sensor_queue_depth", MetricsSink.Type.GAUGE, "Envelopes waiting in the send queue.");
+        for (Capture capture : captures) {
+            sink.sample("caliper_sensor_queue_depth", SENSOR_LABELS, capture.labels, capture.queueDepth);
+        }
+        sensorCounter(sink, captures, "caliper_sensor_dropped_total", "Dropped",
+            "Envelopes dropped by the overflow policy.");
+        sensorCounter(sink, captures, "caliper_sensor_spilled_total", "Spilled",
+            "Envelopes spilled to the disk spool.");
+
+        clientCounter(sink, captures, "caliper_client_sent_total", "Measure", "Envelopes sent.");
+        clientCounter(sink, captures, "caliper_client_successful_total", "Successful",
+            "Envelopes sent successfully.");
+        clientCounter(sink, captures, "caliper_client_failed_total", "Failed", "Envelopes that failed.");
+        clientCounter(sink, captures, "caliper_client_retries_total", "Retries", "Retried attempts.");
+        clientCounter(sink, captures, "caliper_client_throttled_total", "Throttled",
+            "Events rejected by a rate limit.");
+        clientCounter(sink, captures, "caliper_client_serialized_bytes_total", "SerializedBytes",
+            "Bytes of serialized envelopes, before compression.");
+        clientCounter(sink, captures, "caliper_client_wire_bytes_total", "WireBytes",
+            "Bytes of request bodies sent, after compression.");
+
+        sink.family("caliper_client_responses_total", MetricsSink.Type.COUNTER,
+            "Attempts by HTTP status; status 0 counts attempts without a response.");
+        for (Capture capture : captures) {
+            for (Map.Entry<String, StatisticsSnapshot> client : capture.clients.entrySet()) {
+                for (Map.Entry<Integer, Long> status : client.getValue().getStatusCounts().entrySet()) {
+                    String[] labels = {capture.id, client.getKey(), String.valueOf(status.getKey())};
+                    sink.sample("caliper_client_responses_total", STATUS_LABELS, labels, status.getValue());
+                }
+            }
+        }
+
+        sink.family("caliper_client_events_total", MetricsSink.Type.COUNTER,
+            "Events by type; outcome is sent or failed.");
+        for (Capture capture : captures) {
+            for (Map.Entry<String, StatisticsSnapshot> client : capture.clients.entrySet()) {
+                eventTypes(sink, capture.id, client.getKey(), "sent", client.getValue().getEventsSent());
+                eventTypes(sink, capture.id, client.getKey(), "failed", client.getValue().getEventsFailed());
+            }
+        }
+
+        sink.family("caliper_client_actions_total", MetricsSink.Type.COUNTER,
+            "Events by action; outcome is sent or failed.");
+        for (Capture capture : captures) {
+            for (Map.Entry<String, StatisticsSnapshot> client : capture.clients.entrySet()) {
+                actions(sink, capture.id, client.getKey(), "sent", client.getValue().getEventsSent());
+                actions(sink, capture.id, client.getKey(), "failed", client.getValue().getEventsFailed());
+            }
+        }
+
+        sink.family(LATENCY, MetricsSink.Type.SUMMARY, "Latency of each send stage.");
+        for (Capture capture : captures) {
+            for (String stage : SENSOR_STAGES) {
+                LatencySnapshot latencies = capture.queue.getLatencies(stage);
+                if (latencies != null) {
+                    latency(sink, SENSOR_STAGE_LABELS, new String[] {capture.id, stageName(stage), null}, latencies);
+                }
+            }
+            for (Map.Entry<String, StatisticsSnapshot> client : capture.clients.entrySet()) {
+                for (String stage : CLIENT_STAGES) {
+                    LatencySnapshot latencies = client.getValue().getLatencies(stage);
+                    if (latencies != null) {
+                        latency(sink, CLIENT_STAGE_LABELS,
+                            new String[] {capture.id, client.getKey(), stageName(stage), null}, latencies);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void sensorCounter(MetricsSink sink, List<Capture> captures, String name, String key,
+                                      String help) {
+        sink.family(name, MetricsSink.Type.COUNTER, help);
+        for (Capture capture : captures) {
+            sink.sample(name, SENSOR_LABELS, capture.labels, capture.queue.get(key).getSum());
+        }
+    }
+
+    private static void clientCounter(MetricsSink sink, List<Capture> captures, String name, String key,
+                                      String help) {
+        sink.family(name, MetricsSink.Type.COUNTER, help);
+        for (Capture capture : captures) {
+            for (Map.Entry<String, StatisticsSnapshot> client : capture.clients.entrySet()) {
+                String[] labels = {capture.id, client.getKey()};
+                sink.sample(name, CLIENT_LABELS, labels, client.getValue().get(key).getSum());
+            }
+        }
+    }
+
+    private static void eventTypes(MetricsSink sink, String sensor, String client, String outcome,
+                                   EventCounts counts) {
+        for (EventType type : EVENT_TYPES) {
+            long count = counts.getCount(type);
+            if (count > 0) {
+                String[] labels = {sensor, client, type.value(), outcome};
+                sink.sample("caliper_client_events_total", EVENT_TYPE_LABELS, labels, count);
+            }
+        }
+        if (counts.getOtherEventTypes() > 0) {
+            String[] labels = {sensor, client, OTHER, outcome};
+            sink.sample("caliper_client_events_total", EVENT_TYPE_LABELS, labels, counts.getOtherEventTypes());
+        }
+    }
+
+    private static void actions(MetricsSink sink, String sensor, String client, String outcome,
+                                EventCounts counts) {
+        for (Action action : ACTIONS) {
+            long count = counts.getCount(action);
+            if (count > 0) {
+                String[] labels = {sensor, client, action.value(), outcome};
+                sink.sample("caliper_client_actions_total", ACTION_LABELS, labels, count);
+            }
+        }
+        if (counts.getOtherActions() > 0) {
+            String[] labels = {sensor, client, OTHER, outcome};
+            sink.sample("caliper_client_actions_total", ACTION_LABELS, labels, counts.getOtherActions());
+        }
+    }
+
+    /**
+     * Report a latency summary.  The last label value is the quantile, filled in here; the _sum and _count
+     * samples omit it.
+     */
+    private static void latency(MetricsSink sink, String[] labelNames, String[] labelValues,
+                                LatencySnapshot latencies) {
+        int last = labelValues.length - 1;
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            labelValues[last] = QUANTILE_LABELS[i];
+            sink.sample(LATENCY, labelNames, labelValues, seconds(latencies.getValueAtPercentile(PERCENTILES[i])));
+        }
+
+        String[] totalNames = new String[last];
+        String[] totalValues = new String[last];
+        System.arraycopy(labelNames, 0, totalNames, 0, last);
+        System.arraycopy(labelValues, 0, totalValues, 0, last);
+        sink.sample(LATENCY + "_sum", totalNames, totalValues, seconds(latencies.getSum()));
+        sink.sample(LATENCY + "_count", totalNames, totalValues, latencies.getCount());
+    }
+
+    private static String stageName(String key) {
+        return key.substring(0, key.length() - "Latency".length()).toLowerCase();
+    }
+
+    private static double seconds(long nanos) {
+        return nanos / 1e9;
+    }
+
+    /**
+     * Statistics of one Sensor, captured with every other Sensor's before anything is reported so that
+     * every family sees the same values.
+     */
+    private static class Capture {
+        private final String id;
+        private final String[] labels;
+        private final int queueDepth;
+        private final StatisticsSnapshot queue;
+        private final Map<String, StatisticsSnapshot> clients;
+
+        Capture(Sensor sensor, List<String> clientIds, Iterator<StatisticsSnapshot> snapshots) {
+            this.id = sensor.getId();
+            this.labels = new String[] {id};
+            this.queueDepth = sensor.getQueueDepth();
+            this.queue = snapshots.next();
+            this.clients = new LinkedHashMap<>();
+            for (String clientId : clientIds) {
+                clients.put(clientId, snapshots.next());
+            }
+        }
+    }
+}
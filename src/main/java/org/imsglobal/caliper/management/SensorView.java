@@ -0,0 +1,80 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+import org.imsglobal.caliper.Sensor;
+import org.imsglobal.caliper.statistics.Statistics;
+
+import java.util.Set;
+
+/**
+ * SensorMXBean backed by the Sensor's queue statistics.
+ */
+class SensorView implements SensorMXBean {
+    private final Sensor sensor;
+
+    SensorView(Sensor sensor) {
+        this.sensor = sensor;
+    }
+
+    @Override
+    public String getId() {
+        return sensor.getId();
+    }
+
+    @Override
+    public String[] getClientIds() {
+        Set<String> ids = sensor.getClients().keySet();
+        return ids.toArray(new String[0]);
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return sensor.getQueueDepth();
+    }
+
+    @Override
+    public long getDropped() {
+        return (long) statistics().getDropped().getSum();
+    }
+
+    @Override
+    public long getSpilled() {
+        return (long) statistics().getSpilled().getSum();
+    }
+
+    @Override
+    public double getQueueLatencyP50Ms() {
+        return CaliperMBeans.toMillis(statistics().getQueueLatencies().getP50());
+    }
+
+    @Override
+    public double getQueueLatencyP99Ms() {
+        return CaliperMBeans.toMillis(statistics().getQueueLatencies().getP99());
+    }
+
+    @Override
+    public double getSerializationLatencyP99Ms() {
+        return CaliperMBeans.toMillis(statistics().getSerializationLatencies().getP99());
+    }
+
+    private Statistics statistics() {
+        return sensor.getQueueStatistics();
+    }
+}
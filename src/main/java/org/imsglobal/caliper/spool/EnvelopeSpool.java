@@ -0,0 +1,529 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.spool;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+/**
+ * Durable, append-only FIFO of serialized payloads kept in a directory of segment files.
+ *
+ * Each record is framed by a 16 byte header (payload length, CRC32 of the payload and the append time)
+ * and written with a FileChannel.  Records are consumed in append order with peek()/commit(); the read
+ * position is persisted in a checkpoint file so that a restarted process resumes where it left off.
+ * Fully consumed segments are deleted.  When the spool exceeds its size limit the oldest segments are
+ * discarded, and records older than the age limit are skipped on read.  On open, a torn record at the
+ * tail of the newest segment (left by a crash mid-append) is truncated.
+ *
+ * Delivery is at-least-once: a record whose commit was not checkpointed before a crash is replayed.
+ */
+public class EnvelopeSpool implements Closeable {
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxBytes;
+    private final long maxAgeMs;
+    private final boolean fsync;
+
+    private final TreeMap<Long, Long> segments = new TreeMap<>();
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+    private final ByteBuffer checkpoint = ByteBuffer.allocate(CHECKPOINT_BYTES);
+
+    private FileChannel writer;
+    private long writerSegment;
+    private long writerSize;
+
+    private FileChannel reader;
+    private long readerSegment = -1;
+    private long readSegment;
+    private long readOffset;
+    private long peekedBytes;
+
+    private FileChannel checkpointChannel;
+    private long pendingBytes;
+    private long droppedBytes;
+    private long expiredRecords;
+    private boolean closed;
+
+    static final int HEADER_BYTES = 16;
+    static final int CHECKPOINT_BYTES = 20;
+    static final String SEGMENT_SUFFIX = ".seg";
+    static final String CHECKPOINT_FILE = "checkpoint";
+
+    private static final Logger log = LoggerFactory.getLogger(EnvelopeSpool.class);
+
+    /**
+     * Constructor.  Opens or creates the spool in the given directory, recovering any records left by
+     * a previous process.
+     * @param directory
+     * @param segmentBytes size at which the active segment is rolled
+     * @param maxBytes upper bound on unconsumed bytes retained on disk
+     * @param maxAgeMs records older than this are discarded unread; 0 disables the age limit
+     * @param fsync force each append and checkpoint to the storage device
+     * @throws IOException
+     */
+    public EnvelopeSpool(Path directory, long segmentBytes, long maxBytes, long maxAgeMs, boolean fsync)
+        throws IOException {
+        if (maxBytes < 2 * segmentBytes) {
+            throw new IllegalArgumentException("Spool maxBytes must be at least twice segmentBytes.");
+        }
+
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs;
+        this.fsync = fsync;
+
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    /**
+     * Append a payload.
+     * @param payload
+     * @return true if appended, false if the payload alone exceeds the segment size
+     * @throws IOException
+     */
+    public boolean append(byte[] payload) throws IOException {
+        return append(ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Append the remaining bytes of a buffer without copying them.  The buffer's position is not changed.
+     * @param payload
+     * @return true if appended, false if the payload alone exceeds the segment size
+     * @throws IOException
+     */
+    public synchronized boolean append(ByteBuffer payload) throws IOException {
+        checkOpen();
+
+        int length = payload.remaining();
+        long recordBytes = HEADER_BYTES + length;
+        if (recordBytes > segmentBytes) {
+            return false;
+        }
+        if (writerSize > 0 && writerSize + recordBytes > segmentBytes) {
+            roll();
+        }
+        while (pendingBytes + recordBytes > maxBytes && readSegment < writerSegment) {
+            dropReadSegment();
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+
+        header.clear();
+        header.putInt(length).putInt((int) crc.getValue()).putLong(System.currentTimeMillis());
+        header.flip();
+
+        ByteBuffer[] record = { header, payload.duplicate() };
+        long remaining = recordBytes;
+        while (remaining > 0) {
+            remaining -= writer.write(record);
+        }
+        if (fsync) {
+            writer.force(false);
+        }
+
+        writerSize += recordBytes;
+        segments.put(writerSegment, writerSize);
+        pendingBytes += recordBytes;
+        return true;
+    }
+
+    /**
+     * Read the oldest unconsumed record without consuming it.  Repeated calls return the same record
+     * until commit() is called.
+     * @return payload or null if the spool is empty
+     * @throws IOException
+     */
+    public synchronized byte[] peek() throws IOException {
+        checkOpen();
+
+        while (true) {
+            long segmentSize = segments.get(readSegment);
+            if (readOffset >= segmentSize) {
+                if (readSegment == writerSegment) {
+                    return null;
+                }
+                advanceReadSegment();
+                continue;
+            }
+
+            if (readOffset + HEADER_BYTES > segmentSize) {
+                skipCorrupt(segmentSize);
+                continue;
+            }
+
+            FileChannel channel = openReader();
+            header.clear();
+            readFully(channel, header, readOffset);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+            long timestamp = header.getLong();
+
+            long recordBytes = HEADER_BYTES + (long) length;
+            if (length < 0 || readOffset + recordBytes > segmentSize) {
+                skipCorrupt(segmentSize);
+                continue;
+            }
+
+            byte[] payload = new byte[length];
+            readFully(channel, ByteBuffer.wrap(payload), readOffset + HEADER_BYTES);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                skipCorrupt(segmentSize);
+                continue;
+            }
+
+            if (maxAgeMs > 0 && timestamp < System.currentTimeMillis() - maxAgeMs) {
+                readOffset += recordBytes;
+                pendingBytes -= recordBytes;
+                expiredRecords++;
+                writeCheckpoint();
+                continue;
+            }
+
+            peekedBytes = recordBytes;
+            return payload;
+        }
+    }
+
+    /**
+     * Consume the record last returned by peek() and persist the new read position.  Does nothing if
+     * the record has since been discarded to honor the size limit.
+     * @throws IOException
+     */
+    public synchronized void commit() throws IOException {
+        checkOpen();
+        if (peekedBytes == 0) {
+            return;
+        }
+        readOffset += peekedBytes;
+        pendingBytes -= peekedBytes;
+        peekedBytes = 0;
+        writeCheckpoint();
+    }
+
+    /**
+     * Get the number of unconsumed bytes, including record headers.
+     * @return pending bytes
+     */
+    public synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * Get the number of bytes discarded to honor the size limit since the spool was opened.
+     * @return dropped bytes
+     */
+    public synchronized long getDroppedBytes() {
+        return droppedBytes;
+    }
+
+    /**
+     * Get the number of records discarded to honor the age limit since the spool was opened.
+     * @return expired records
+     */
+    public synchronized long getExpiredRecords() {
+        return expiredRecords;
+    }
+
+    /**
+     * Flush and close the spool's files.
+     * @throws IOException
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        writer.force(false);
+        writer.close();
+        if (reader != null) {
+            reader.close();
+        }
+        checkpointChannel.force(false);
+        checkpointChannel.close();
+    }
+
+    /**
+     * Rebuild spool state from the directory contents.
+     * @throws IOException
+     */
+    private void recover() throws IOException {
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path path: stream) {
+                String name = path.getFileName().toString();
+                try {
+                    long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                    segments.put(id, Files.size(path));
+                } catch (NumberFormatException nfe) {
+                    log.warn("Ignoring unexpected file in spool directory: " + path);
+                }
+            }
+        }
+
+        checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        readCheckpoint();
+
+        // Discard segments consumed before the checkpoint
+        while (!segments.isEmpty() && segments.firstKey() < readSegment) {
+            Files.deleteIfExists(segmentPath(segments.pollFirstEntry().getKey()));
+        }
+
+        if (segments.isEmpty()) {
+            writerSegment = Math.max(readSegment, 1);
+            segments.put(writerSegment, 0L);
+            writer = FileChannel.open(segmentPath(writerSegment), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        } else {
+            writerSegment = segments.lastKey();
+            writer = FileChannel.open(segmentPath(writerSegment), StandardOpenOption.READ, StandardOpenOption.WRITE);
+            long validEnd = scanValidEnd(writer);
+            if (validEnd < writer.size()) {
+                log.warn("Truncating torn record at offset " + validEnd + " of spool segment " + writerSegment);
+                writer.truncate(validEnd);
+            }
+            segments.put(writerSegment, validEnd);
+        }
+        writerSize = segments.get(writerSegment);
+        writer.position(writerSize);
+
+        if (!segments.containsKey(readSegment)) {
+            readSegment = segments.firstKey();
+            readOffset = 0;
+        }
+        readOffset = Math.min(readOffset, segments.get(readSegment));
+
+        for (Map.Entry<Long, Long> entry: segments.entrySet()) {
+            pendingBytes += entry.getValue();
+        }
+        pendingBytes -= readOffset;
+    }
+
+    /**
+     * Find the end of the last intact record in a segment.
+     * @param channel
+     * @return offset
+     * @throws IOException
+     */
+    private long scanValidEnd(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long offset = 0;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES);
+
+        while (offset + HEADER_BYTES <= size) {
+            buffer.clear();
+            readFully(channel, buffer, offset);
+            buffer.flip();
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 0 || offset + HEADER_BYTES + length > size) {
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            readFully(channel, ByteBuffer.wrap(payload), offset + HEADER_BYTES);
+            CRC32 crc = new CRC32();
+            crc.update(payload, 0, length);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Seal the active segment and start a new one.
+     * @throws IOException
+     */
+    private void roll() throws IOException {
+        writer.force(false);
+        writer.close();
+
+        writerSegment++;
+        writerSize = 0;
+        segments.put(writerSegment, 0L);
+        writer = FileChannel.open(segmentPath(writerSegment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Discard the unconsumed remainder of the oldest segment to make room for new records.
+     * @throws IOException
+     */
+    private void dropReadSegment() throws IOException {
+        long dropped = segments.get(readSegment) - readOffset;
+        log.warn("Spool " + directory + " is full; discarding " + dropped + " bytes from segment " + readSegment);
+        droppedBytes += dropped;
+        pendingBytes -= dropped;
+        peekedBytes = 0;
+        readOffset = segments.get(readSegment);
+        advanceReadSegment();
+    }
+
+    /**
+     * Skip the rest of a segment whose next record fails validation.
+     * @param segmentSize
+     * @throws IOException
+     */
+    private void skipCorrupt(long segmentSize) throws IOException {
+        log.warn("Corrupt record at offset " + readOffset + " of spool segment " + readSegment
+            + "; skipping " + (segmentSize - readOffset) + " bytes.");
+        droppedBytes += segmentSize - readOffset;
+        pendingBytes -= segmentSize - readOffset;
+        readOffset = segmentSize;
+        writeCheckpoint();
+    }
+
+    /**
+     * Move the read position to the start of the next segment and delete the consumed one.
+     * @throws IOException
+     */
+    private void advanceReadSegment() throws IOException {
+        long consumed = readSegment;
+        readSegment = segments.higherKey(consumed);
+        readOffset = 0;
+        writeCheckpoint();
+
+        if (reader != null && readerSegment == consumed) {
+            reader.close();
+            reader = null;
+        }
+        segments.remove(consumed);
+        Files.deleteIfExists(segmentPath(consumed));
+    }
+
+    /**
+     * Get a channel for reading the current read segment.
+     * @return channel
+     * @throws IOException
+     */
+    private FileChannel openReader() throws IOException {
+        if (reader == null || readerSegment != readSegment) {
+            if (reader != null) {
+                reader.close();
+            }
+            reader = FileChannel.open(segmentPath(readSegment), StandardOpenOption.READ);
+            readerSegment = readSegment;
+        }
+        return reader;
+    }
+
+    /**
+     * Load the persisted read position, if present and intact.
+     * @throws IOException
+     */
+    private void readCheckpoint() throws IOException {
+        readSegment = segments.isEmpty() ? 1 : segments.firstKey();
+        readOffset = 0;
+
+        if (checkpointChannel.size() < CHECKPOINT_BYTES) {
+            return;
+        }
+        checkpoint.clear();
+        readFully(checkpointChannel, checkpoint, 0);
+        checkpoint.flip();
+        long segment = checkpoint.getLong();
+        long offset = checkpoint.getLong();
+        int checksum = checkpoint.getInt();
+
+        CRC32 crc = new CRC32();
+        crc.update(checkpoint.array(), 0, 16);
+        if ((int) crc.getValue() == checksum) {
+            readSegment = segment;
+            readOffset = offset;
+        } else {
+            log.warn("Ignoring corrupt spool checkpoint; replaying from the oldest segment.");
+        }
+    }
+
+    /**
+     * Persist the read position.
+     * @throws IOException
+     */
+    private void writeCheckpoint() throws IOException {
+        checkpoint.clear();
+        checkpoint.putLong(readSegment).putLong(readOffset);
+        CRC32 crc = new CRC32();
+        crc.update(checkpoint.array(), 0, 16);
+        checkpoint.putInt((int) crc.getValue());
+        checkpoint.flip();
+
+        long position = 0;
+        while (checkpoint.hasRemaining()) {
+            position += checkpointChannel.write(checkpoint, position);
+        }
+        if (fsync) {
+            checkpointChannel.force(false);
+        }
+    }
+
+    /**
+     * Read until the buffer is full.
+     * @param channel
+     * @param buffer
+     * @param position
+     * @throws IOException
+     */
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new EOFException("Unexpected end of spool segment");
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Resolve the file for a segment.
+     * @param id
+     * @return path
+     */
+    private Path segmentPath(long id) {
+        return directory.resolve(String.format("%020d%s", id, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Check the spool has not been closed.
+     */
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Spool " + directory + " is closed.");
+        }
+    }
+}
@@ -55,20 +55,26 @@ class AtomicDouble extends Number {
         return (float)get();
     }
 
-    public final double addAndGet(double newValue) {
-        return Double.longBitsToDouble(bits.addAndGet(doubleToLongBits(newValue)));
+    public final double addAndGet(double delta) {
+        while (true) {
+            long current = bits.get();
+            double next = Double.longBitsToDouble(current) + delta;
+            if (bits.compareAndSet(current, doubleToLongBits(next))) {
+                return next;
+            }
+        }
     }
 
     public final double getAndSet(double newValue) {
         return Double.longBitsToDouble(bits.getAndSet(doubleToLongBits(newValue)));
     }
 
-    public final boolean weakCompareAndSet(float expect, float update) {
+    public final boolean weakCompareAndSet(double expect, double update) {
         return bits.weakCompareAndSet(doubleToLongBits(expect), doubleToLongBits(update));
     }
 
     public double doubleValue() {
-        return (double) floatValue();
+        return get();
     }
 
     public int intValue() {
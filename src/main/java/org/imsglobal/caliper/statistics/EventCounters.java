@@ -0,0 +1,112 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.actions.CaliperAction;
+import org.imsglobal.caliper.events.CaliperEventType;
+import org.imsglobal.caliper.events.EventType;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts events by EventType and by Action.  Each counter is a LongAdder in an array indexed by enum
+ * ordinal, so a count costs one array access and a striped add, with no hashing or string work.  Types
+ * and actions that are not members of the Caliper enums share one extra slot each.
+ */
+public class EventCounters implements Serializable {
+
+    private static final long serialVersionUID = 2674381957710418343L;
+
+    private static final int OTHER_EVENT_TYPE = EventType.values().length;
+    private static final int OTHER_ACTION = Action.values().length;
+
+    private final LongAdder[] eventTypes = adders(OTHER_EVENT_TYPE + 1);
+    private final LongAdder[] actions = adders(OTHER_ACTION + 1);
+
+    /**
+     * Count one event.
+     * @param type
+     * @param action
+     */
+    public void increment(CaliperEventType type, CaliperAction action) {
+        eventTypes[(type instanceof EventType) ? ((EventType) type).ordinal() : OTHER_EVENT_TYPE].increment();
+        actions[(action instanceof Action) ? ((Action) action).ordinal() : OTHER_ACTION].increment();
+    }
+
+    /**
+     * @param type
+     * @return events of the type
+     */
+    public long getCount(EventType type) {
+        return eventTypes[type.ordinal()].sum();
+    }
+
+    /**
+     * @param action
+     * @return events with the action
+     */
+    public long getCount(Action action) {
+        return actions[action.ordinal()].sum();
+    }
+
+    /**
+     * @return events whose type is not an EventType
+     */
+    public long getOtherEventTypes() {
+        return eventTypes[OTHER_EVENT_TYPE].sum();
+    }
+
+    /**
+     * @return events whose action is not an Action, or that have no action
+     */
+    public long getOtherActions() {
+        return actions[OTHER_ACTION].sum();
+    }
+
+    /**
+     * Copy the counters without blocking writers.
+     * @return snapshot
+     */
+    public EventCounts snapshot() {
+        return new EventCounts(sums(eventTypes), sums(actions));
+    }
+
+    private static LongAdder[] adders(int length) {
+        LongAdder[] adders = new LongAdder[length];
+        for (int i = 0; i < length; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+
+    private static long[] sums(LongAdder[] adders) {
+        long[] sums = new long[adders.length];
+        for (int i = 0; i < adders.length; i++) {
+            sums[i] = adders[i].sum();
+        }
+        return sums;
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
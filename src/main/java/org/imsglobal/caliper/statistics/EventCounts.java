@@ -0,0 +1,117 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.events.EventType;
+
+/**
+ * Immutable copy of EventCounters, or the difference between two such copies.
+ */
+public final class EventCounts {
+    private static final EventType[] EVENT_TYPES = EventType.values();
+    private static final Action[] ACTIONS = Action.values();
+
+    private final long[] eventTypes;
+    private final long[] actions;
+
+    /**
+     * Constructor.  Takes ownership of the arrays, which are indexed by ordinal with the other slot last.
+     * @param eventTypes
+     * @param actions
+     */
+    EventCounts(long[] eventTypes, long[] actions) {
+        this.eventTypes = eventTypes;
+        this.actions = actions;
+    }
+
+    /**
+     * @param type
+     * @return events of the type
+     */
+    public long getCount(EventType type) {
+        return eventTypes[type.ordinal()];
+    }
+
+    /**
+     * @param action
+     * @return events with the action
+     */
+    public long getCount(Action action) {
+        return actions[action.ordinal()];
+    }
+
+    /**
+     * @return events whose type is not an EventType
+     */
+    public long getOtherEventTypes() {
+        return eventTypes[EVENT_TYPES.length];
+    }
+
+    /**
+     * @return events whose action is not an Action, or that have no action
+     */
+    public long getOtherActions() {
+        return actions[ACTIONS.length];
+    }
+
+    /**
+     * @return events of every type
+     */
+    public long getTotal() {
+        long total = 0;
+        for (long count : eventTypes) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Describe what was counted between an earlier snapshot of the same counters and this one.
+     * @param earlier
+     * @return diff
+     */
+    public EventCounts minus(EventCounts earlier) {
+        return new EventCounts(minus(eventTypes, earlier.eventTypes), minus(actions, earlier.actions));
+    }
+
+    private static long[] minus(long[] counts, long[] earlier) {
+        long[] diff = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            diff[i] = counts[i] - earlier[i];
+        }
+        return diff;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (EventType type : EVENT_TYPES) {
+            if (eventTypes[type.ordinal()] > 0) {
+                builder.append(String.format("[%s : %d], ", type.value(), eventTypes[type.ordinal()]));
+            }
+        }
+        for (Action action : ACTIONS) {
+            if (actions[action.ordinal()] > 0) {
+                builder.append(String.format("[%s : %d], ", action.value(), actions[action.ordinal()]));
+            }
+        }
+        return (builder.length() > 0) ? builder.substring(0, builder.length() - 2) : "[]";
+    }
+}
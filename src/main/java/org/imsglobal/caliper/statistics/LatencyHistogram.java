@@ -0,0 +1,233 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A high dynamic range histogram of latencies in nanoseconds.  Values below 128 are counted exactly;
+ * above that each power of two is split into 64 linear sub-buckets, so any recorded value is reported
+ * within 1/64 (about 1.6%) of its true value.  Memory is fixed at one counter per bucket regardless of
+ * the number or range of values recorded, and recording is lock free.
+ */
+public class LatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = -3190543129367710547L;
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int BUCKET_COUNT = bucketCount(SUB_BUCKET_BITS, 63);
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Record a latency.  Negative values are recorded as zero.
+     * @param nanos
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.increment();
+        sum.add(value);
+
+        long current;
+        while (value > (current = max.get())) {
+            if (max.compareAndSet(current, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Record the time elapsed since a System.nanoTime() reading.
+     * @param startNanos
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Get the number of recorded values.
+     * @return count
+     */
+    public long getCount() {
+        return count.sum();
+    }
+
+    /**
+     * Get the mean of the recorded values.
+     * @return mean in nanoseconds
+     */
+    public double getMean() {
+        long n = count.sum();
+        return (n > 0) ? (double) sum.sum() / n : 0.0;
+    }
+
+    /**
+     * Get the largest recorded value.
+     * @return max in nanoseconds
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Get the value at or below which the given percentage of recorded values fall.
+     * @param percentile between 0 and 100
+     * @return value in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        return snapshot().getValueAtPercentile(percentile);
+    }
+
+    /**
+     * Copy the histogram.  Writers are not blocked; the copy's count is the total of its buckets, so
+     * its percentiles are self-consistent.
+     * @return snapshot
+     */
+    public LatencySnapshot snapshot() {
+        long total = 0;
+        long[] copy = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new LatencySnapshot(copy, total, sum.sum(), max.get());
+    }
+
+    /**
+     * Get the median.
+     * @return p50 in nanoseconds
+     */
+    public long getP50() {
+        return getValueAtPercentile(50.0);
+    }
+
+    /**
+     * @return p90 in nanoseconds
+     */
+    public long getP90() {
+        return getValueAtPercentile(90.0);
+    }
+
+    /**
+     * @return p99 in nanoseconds
+     */
+    public long getP99() {
+        return getValueAtPercentile(99.0);
+    }
+
+    /**
+     * @return p99.9 in nanoseconds
+     */
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    /**
+     * Discard all recorded values.
+     */
+    public void clear() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /**
+     * Map a value to its bucket.
+     * @param value
+     * @return bucket index
+     */
+    static int indexOf(long value) {
+        return indexOf(value, SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Get the largest value that maps to a bucket.
+     * @param index
+     * @return value
+     */
+    static long highestValueOf(int index) {
+        return highestValueOf(index, SUB_BUCKET_BITS);
+    }
+
+    /**
+     * Number of buckets needed to hold values below 2^(maxBits + 1) with 2^subBucketBits exact buckets
+     * followed by 2^(subBucketBits - 1) sub-buckets per power of two.
+     * @param subBucketBits
+     * @param maxBits
+     * @return bucket count
+     */
+    static int bucketCount(int subBucketBits, int maxBits) {
+        return (1 << subBucketBits) + (maxBits + 1 - subBucketBits) * (1 << (subBucketBits - 1));
+    }
+
+    /**
+     * Map a value to its bucket at the given precision.
+     * @param value non-negative value
+     * @param subBucketBits
+     * @return bucket index
+     */
+    static int indexOf(long value, int subBucketBits) {
+        int subBucketCount = 1 << subBucketBits;
+        if (value < subBucketCount) {
+            return (int) value;
+        }
+        int half = subBucketCount >> 1;
+        int shift = (63 - Long.numberOfLeadingZeros(value)) - (subBucketBits - 1);
+        return subBucketCount + (shift - 1) * half + (int) ((value >>> shift) - half);
+    }
+
+    /**
+     * Get the largest value that maps to a bucket at the given precision.
+     * @param index
+     * @param subBucketBits
+     * @return value
+     */
+    static long highestValueOf(int index, int subBucketBits) {
+        int subBucketCount = 1 << subBucketBits;
+        if (index < subBucketCount) {
+            return index;
+        }
+        int half = subBucketCount >> 1;
+        int shift = (index - subBucketCount) / half + 1;
+        long subBucket = (index - subBucketCount) % half + half;
+        return (subBucket << shift) + (1L << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[Count : %d], [p50 : %.3fms], [p90 : %.3fms], [p99 : %.3fms], [p99.9 : %.3fms], "
+            + "[Max : %.3fms]", getCount(), toMillis(getP50()), toMillis(getP90()), toMillis(getP99()),
+            toMillis(getP999()), toMillis(getMax()));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+/**
+ * Immutable point-in-time copy of a LatencyHistogram.  Percentiles are computed from the copied buckets,
+ * so they agree with the count.
+ */
+public final class LatencySnapshot {
+    private final long[] counts;
+    private final long count;
+    private final long sum;
+    private final long max;
+
+    /**
+     * Constructor.  Takes ownership of the counts array.
+     * @param counts
+     * @param count
+     * @param sum
+     * @param max
+     */
+    LatencySnapshot(long[] counts, long count, long sum, long max) {
+        this.counts = counts;
+        this.count = count;
+        this.sum = sum;
+        this.max = max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * Get the total of the recorded latencies.
+     * @return sum in nanoseconds
+     */
+    public long getSum() {
+        return sum;
+    }
+
+    /**
+     * Get the mean latency.
+     * @return mean in nanoseconds
+     */
+    public double getMean() {
+        return (count > 0) ? (double) sum / count : 0.0;
+    }
+
+    /**
+     * Get the largest recorded latency.  For a diff this is the largest since startup.
+     * @return max in nanoseconds
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * Get the latency at or below which the given percentage of values fall.
+     * @param percentile between 0 and 100
+     * @return value in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * count));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Describe the latencies recorded between an earlier snapshot of the same histogram and this one,
+     * including their percentiles.  If the histogram was cleared in between, this snapshot is returned
+     * unchanged.
+     * @param earlier
+     * @return interval snapshot
+     */
+    public LatencySnapshot minus(LatencySnapshot earlier) {
+        if (earlier == null || earlier.count == 0 || earlier.count > count) {
+            return this;
+        }
+
+        long[] interval = new long[counts.length];
+        long total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            interval[i] = Math.max(0, counts[i] - earlier.counts[i]);
+            total += interval[i];
+        }
+        return new LatencySnapshot(interval, total, Math.max(0, sum - earlier.sum), max);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[Count : %d], [p50 : %.3fms], [p90 : %.3fms], [p99 : %.3fms], [p99.9 : %.3fms], "
+            + "[Max : %.3fms]", getCount(), getValueAtPercentile(50.0) / 1e6, getValueAtPercentile(90.0) / 1e6,
+            getValueAtPercentile(99.0) / 1e6, getValueAtPercentile(99.9) / 1e6, getMax() / 1e6);
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.imsglobal.caliper.statistics;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Lets snapshots copy statistics at a single point in time.  Writers bracket each update with enter()
+ * and exit(), which cost one striped add each.  A snapshot reads the exit count, copies, and keeps the
+ * copy only if no writer entered meanwhile; if writers keep racing with it, it pauses them, waits for
+ * those already inside to leave and copies once more.  Writers are therefore held up only for the length
+ * of one copy, and only while snapshots are contended.
+ *
+ * Sections must not nest: a writer that entered must exit before entering again.
+ */
+final class SnapshotGate {
+
+    /**
+     * Shared by every Statistics object, so that one snapshot can span several clients.
+     */
+    static final SnapshotGate GLOBAL = new SnapshotGate();
+
+    private static final int OPTIMISTIC_ATTEMPTS = 4;
+
+    private final LongAdder entered = new LongAdder();
+    private final LongAdder exited = new LongAdder();
+    private final ReentrantLock pauseLock = new ReentrantLock();
+    private volatile boolean paused;
+
+    private SnapshotGate() {
+
+    }
+
+    /**
+     * Start an update, waiting while a snapshot has writers paused.
+     */
+    void enter() {
+        while (true) {
+            entered.increment();
+            if (!paused) {
+                return;
+            }
+            exited.increment();
+            while (paused) {
+                Thread.yield();
+            }
+        }
+    }
+
+    /**
+     * Finish an update.
+     */
+    void exit() {
+        exited.increment();
+    }
+
+    /**
+     * Copy statistics with no update in progress.
+     * @param copy
+     * @param <T>
+     * @return copy
+     */
+    <T> T capture(Supplier<T> copy) {
+        for (int attempt = 0; attempt < OPTIMISTIC_ATTEMPTS; attempt++) {
+            // Every writer counted in entered after the copy exited before it began
+            long before = exited.sum();
+            T value = copy.get();
+            if (entered.sum() == before) {
+                return value;
+            }
+        }
+
+        pauseLock.lock();
+        try {
+            paused = true;
+            while (true) {
+                long out = exited.sum();
+                if (entered.sum() == out) {
+                    break;
+                }
+                Thread.yield();
+            }
+            return copy.get();
+        } finally {
+            paused = false;
+            pauseLock.unlock();
+        }
+    }
+}
@@ -18,38 +18,37 @@
 
 package org.imsglobal.caliper.statistics;
 
-import java.util.concurrent.atomic.AtomicBoolean;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * A statistic that captures properties {min, max, avg, sum, std.dev} of 
  * a series of numeric values.
  *
+ * Updates are spread over stripes, each holding a count, sum, min, max and Welford running moments.
+ * Every thread starts on a stripe chosen by hashing its id; as in Striped64, a thread that finds its
+ * stripe busy moves its probe to another stripe and tries there, so colliding senders spread out
+ * instead of queueing.  No sample is skipped.  Reads merge the stripes using the parallel form of
+ * Welford's algorithm, so results are exact however updates were interleaved.
  */
 public class Statistic {
 
-    private AtomicDouble sum;
-    private AtomicInteger count;
-
-    private AtomicDouble last;
-
-    // Standard deviation variables based on
-    // http://www.johndcook.com/standard_deviation.html
-    private AtomicBoolean lock;
-
-    private double oldM;
-    private double newM;
-    private double oldS;
-    private double newS;
+    private static final int STRIPES = stripes();
+    private static final int MAX_PROBES = 3;
+    private static final ThreadLocal<int[]> PROBE = new ThreadLocal<int[]>() {
+        @Override
+        protected int[] initialValue() {
+            long id = Thread.currentThread().getId();
+            int seed = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32);
+            return new int[] { seed != 0 ? seed : 1 };
+        }
+    };
 
-    private double min;
-    private double max;
+    private final AtomicReferenceArray<Cell> cells = new AtomicReferenceArray<>(STRIPES);
+    private final AtomicDouble last = new AtomicDouble(0.0);
 
     public Statistic() {
-        sum = new AtomicDouble(0.0);
-        count = new AtomicInteger(0);
-        last = new AtomicDouble(0.0);
-        lock = new AtomicBoolean(false);
+
     }
 
     /**
@@ -57,57 +56,26 @@ public class Statistic {
      * @param val
      */
     public void update(double val) {
-
-        int n = count.addAndGet(1);
-
-        if (lock.compareAndSet(false, true)) {
-            if (n == 1) {
-                // this is the first time we are executing, so clear the numbers
-
-                oldM = newM = val;
-                oldS = 0.0;
-
-                min = val;
-                max = val;
-            } else {
-                // this is not our first update
-                newM = oldM + (val - oldM) / n;
-                newS = oldS + (val - oldM) * (val * newM);
-
-                oldM = newM;
-                oldS = newS;
-            }
-
-            if (val < min) {
-                min = val;
+        int[] probe = PROBE.get();
+        for (int attempt = 0; attempt < MAX_PROBES; attempt++) {
+            if (cell(probe[0]).tryAdd(val)) {
+                last.set(val);
+                return;
             }
-
-            if (val > max) {
-                max = val;
-            }
-
-            lock.set(false);
+            probe[0] = rehash(probe[0]);
         }
-
-        sum.addAndGet(val);
-
+        cell(probe[0]).add(val);
         last.set(val);
     }
 
     public void clear() {
-        count.set(0);
-        sum.set(0.0);
-
+        for (int i = 0; i < STRIPES; i++) {
+            Cell cell = cells.get(i);
+            if (cell != null) {
+                cell.clear();
+            }
+        }
         last.set(0.0);
-
-        min = 0;
-        max = 0;
-
-        oldM = 0;
-        newM = 0;
-        oldS = 0;
-        newS = 0;
-
     }
 
     /**
@@ -115,7 +83,7 @@ public class Statistic {
      * @return
      */
     public double getSum() {
-        return sum.get();
+        return merge().sum;
     }
 
     /**
@@ -123,7 +91,7 @@ public class Statistic {
      * @return
      */
     public int getCount() {
-        return count.get();
+        return (int) merge().count;
     }
 
     /**
@@ -131,15 +99,15 @@ public class Statistic {
      * @return
      */
     public double getAverage() {
-        return count.get() > 0 ? (sum.get() / count.get()) : 0.0;
+        return merge().getAverage();
     }
 
     /**
-     * Get the variance
+     * Get the sample variance
      * @return
      */
     public double getVariance() {
-        return (count.get() > 1) ? newS / (count.get() - 1) : 1.0;
+        return merge().getVariance();
     }
 
     /**
@@ -155,7 +123,7 @@ public class Statistic {
      * @return
      */
     public double getMin() {
-        return min;
+        return merge().getMin();
     }
 
     /**
@@ -163,7 +131,7 @@ public class Statistic {
      * @return
      */
     public double getMax() {
-        return max;
+        return merge().getMax();
     }
 
     /**
@@ -174,20 +142,206 @@ public class Statistic {
         return last.get();
     }
 
+    /**
+     * Copy the statistic.  Each stripe is read atomically, so count, sum, mean and variance agree.
+     * @return snapshot
+     */
+    public StatisticSnapshot snapshot() {
+        Cell merged = merge();
+        return new StatisticSnapshot(merged.count, merged.sum, merged.mean, merged.m2, merged.getMin(),
+            merged.getMax(), last.get());
+    }
+
     @Override
     public String toString() {
+        Cell merged = merge();
 
-        if (min == 1.0 && max == 1.0) {
+        if (merged.getMin() == 1.0 && merged.getMax() == 1.0) {
 
             // this is just a count
-            return "" + getCount();
+            return "" + merged.count;
 
         } else {
 
             return String.format(
                 "[Count : %d], [Min : %s], [Max : %s], [Average : %s], [Std. Dev. : %s]",
-                getCount(), getMin(), getMax(), getAverage(), getStandardDeviation());
+                merged.count, merged.getMin(), merged.getMax(), merged.getAverage(),
+                Math.sqrt(merged.getVariance()));
+
+        }
+    }
+
+    /**
+     * Get the stripe a probe points at, creating it on first use.
+     * @param probe
+     * @return cell
+     */
+    private Cell cell(int probe) {
+        int index = probe & (STRIPES - 1);
+        Cell cell = cells.get(index);
+        if (cell == null) {
+            cells.compareAndSet(index, null, new Cell());
+            cell = cells.get(index);
+        }
+        return cell;
+    }
+
+    /**
+     * Combine every stripe into one.
+     * @return merged moments
+     */
+    private Cell merge() {
+        Cell merged = new Cell();
+        for (int i = 0; i < STRIPES; i++) {
+            Cell cell = cells.get(i);
+            if (cell != null) {
+                merged.combine(cell);
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Marsaglia xorshift step used to move a contended probe to another stripe.
+     * @param probe
+     * @return next probe
+     */
+    private static int rehash(int probe) {
+        probe ^= probe << 13;
+        probe ^= probe >>> 17;
+        probe ^= probe << 5;
+        return probe;
+    }
+
+    /**
+     * Number of stripes: the next power of two at or above twice the available processors, up to 64.
+     * @return stripes
+     */
+    private static int stripes() {
+        int target = Math.min(64, Runtime.getRuntime().availableProcessors() * 2);
+        return Integer.highestOneBit(Math.max(1, target - 1)) << 1;
+    }
+
+    /**
+     * One stripe's count, sum, extremes and running moments, guarded by its own lock.
+     */
+    private static final class Cell {
+        private final ReentrantLock lock = new ReentrantLock();
+        private long count;
+        private double sum;
+        private double mean;
+        private double m2;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+
+        /**
+         * Add a value if the stripe is free.
+         * @param val
+         * @return false if another thread holds the stripe
+         */
+        private boolean tryAdd(double val) {
+            if (!lock.tryLock()) {
+                return false;
+            }
+            try {
+                update(val);
+            } finally {
+                lock.unlock();
+            }
+            return true;
+        }
+
+        /**
+         * Add a value, waiting for the stripe if necessary.
+         * @param val
+         */
+        private void add(double val) {
+            lock.lock();
+            try {
+                update(val);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Welford's update; the caller holds the lock.
+         * @param val
+         */
+        private void update(double val) {
+            count++;
+            sum += val;
+            double delta = val - mean;
+            mean += delta / count;
+            m2 += delta * (val - mean);
+            if (val < min) {
+                min = val;
+            }
+            if (val > max) {
+                max = val;
+            }
+        }
+
+        /**
+         * Chan et al. pairwise merge of another stripe into this one.
+         * @param other
+         */
+        private void combine(Cell other) {
+            long n;
+            double otherSum, otherMean, otherM2, otherMin, otherMax;
+            other.lock.lock();
+            try {
+                n = other.count;
+                otherSum = other.sum;
+                otherMean = other.mean;
+                otherM2 = other.m2;
+                otherMin = other.min;
+                otherMax = other.max;
+            } finally {
+                other.lock.unlock();
+            }
+            if (n == 0) {
+                return;
+            }
+
+            long total = count + n;
+            double delta = otherMean - mean;
+            mean += delta * n / total;
+            m2 += otherM2 + delta * delta * ((double) count * n / total);
+            count = total;
+            sum += otherSum;
+            min = Math.min(min, otherMin);
+            max = Math.max(max, otherMax);
+        }
+
+        private void clear() {
+            lock.lock();
+            try {
+                count = 0;
+                sum = 0;
+                mean = 0;
+                m2 = 0;
+                min = Double.POSITIVE_INFINITY;
+                max = Double.NEGATIVE_INFINITY;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private double getAverage() {
+            return (count > 0) ? mean : 0.0;
+        }
+
+        private double getVariance() {
+            return (count > 1) ? m2 / (count - 1) : 0.0;
+        }
+
+        private double getMin() {
+            return (count > 0) ? min : 0.0;
+        }
 
+        private double getMax() {
+            return (count > 0) ? max : 0.0;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,120 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+/**
+ * Immutable point-in-time copy of a Statistic.  Count, sum, mean and variance are mutually consistent.
+ */
+public final class StatisticSnapshot {
+    private final long count;
+    private final double sum;
+    private final double mean;
+    private final double m2;
+    private final double min;
+    private final double max;
+    private final double last;
+
+    /**
+     * Constructor
+     * @param count
+     * @param sum
+     * @param mean
+     * @param m2 sum of squared deviations from the mean
+     * @param min
+     * @param max
+     * @param last
+     */
+    StatisticSnapshot(long count, double sum, double mean, double m2, double min, double max, double last) {
+        this.count = count;
+        this.sum = sum;
+        this.mean = mean;
+        this.m2 = m2;
+        this.min = min;
+        this.max = max;
+        this.last = last;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getAverage() {
+        return (count > 0) ? mean : 0.0;
+    }
+
+    /**
+     * Get the sample variance
+     * @return variance
+     */
+    public double getVariance() {
+        return (count > 1) ? Math.max(0.0, m2) / (count - 1) : 0.0;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return (count > 0) ? min : 0.0;
+    }
+
+    public double getMax() {
+        return (count > 0) ? max : 0.0;
+    }
+
+    public double getLast() {
+        return last;
+    }
+
+    /**
+     * Describe the values recorded between an earlier snapshot of the same Statistic and this one.  Count,
+     * sum, mean and variance cover only the interval; min, max and last cannot be separated from earlier
+     * values and are those of this snapshot.  If the Statistic was cleared in between, this snapshot is
+     * returned unchanged.
+     * @param earlier
+     * @return interval snapshot
+     */
+    public StatisticSnapshot minus(StatisticSnapshot earlier) {
+        if (earlier == null || earlier.count == 0 || earlier.count > count) {
+            return this;
+        }
+
+        long n = count - earlier.count;
+        if (n == 0) {
+            return new StatisticSnapshot(0, 0.0, 0.0, 0.0, min, max, last);
+        }
+
+        // Invert the pairwise merge: total = earlier + interval
+        double intervalSum = sum - earlier.sum;
+        double intervalMean = intervalSum / n;
+        double delta = intervalMean - earlier.mean;
+        double intervalM2 = m2 - earlier.m2 - delta * delta * ((double) earlier.count * n / count);
+        return new StatisticSnapshot(n, intervalSum, intervalMean, intervalM2, min, max, last);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[Count : %d], [Min : %s], [Max : %s], [Average : %s], [Std. Dev. : %s]",
+            getCount(), getMin(), getMax(), getAverage(), getStandardDeviation());
+    }
+}
@@ -18,7 +18,27 @@
 
 package org.imsglobal.caliper.statistics;
 
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.actions.CaliperAction;
+import org.imsglobal.caliper.events.CaliperEvent;
+import org.imsglobal.caliper.events.CaliperEventType;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/**
+ * Send path statistics of a client or a Sensor's queue.  Every update made through this class's methods
+ * is bracketed by a snapshot gate shared by all Statistics objects, so snapshot() and snapshot(List)
+ * copy statistics as of a single point in time.  Updates made directly on a Statistic returned by a
+ * getter bypass the gate.
+ */
 public class Statistics extends StatisticsMap {
 
     private static final long serialVersionUID = 5469315718941515883L;
@@ -29,6 +49,37 @@ public class Statistics extends StatisticsMap {
     private static String SUCCESSFUL_KEY = "Successful";
     private static String FAILED_KEY = "Failed";
 
+    private static String BATCH_SIZE_KEY = "BatchSize";
+    private static String COMPRESSION_RATIO_KEY = "CompressionRatio";
+    private static String RETRY_KEY = "Retries";
+
+    private static String QUEUE_DEPTH_KEY = "QueueDepth";
+    private static String DROPPED_KEY = "Dropped";
+    private static String SPILLED_KEY = "Spilled";
+    private static String THROTTLED_KEY = "Throttled";
+
+    private static String CONCURRENCY_LIMIT_KEY = "ConcurrencyLimit";
+    private static String QUEUEING_DELAY_KEY = "QueueingDelay";
+
+    private static String SERIALIZED_BYTES_KEY = "SerializedBytes";
+    private static String WIRE_BYTES_KEY = "WireBytes";
+    private static String EVENTS_PER_ENVELOPE_KEY = "EventsPerEnvelope";
+    private static String LATENCY_PER_KILOBYTE_KEY = "LatencyPerKilobyte";
+
+    private static String QUEUE_LATENCY_KEY = "QueueLatency";
+    private static String SERIALIZATION_LATENCY_KEY = "SerializationLatency";
+    private static String EXECUTE_LATENCY_KEY = "ExecuteLatency";
+    private static String TOTAL_LATENCY_KEY = "TotalLatency";
+
+    private static final int STATUS_CODES = 600;
+    private static final SnapshotGate GATE = SnapshotGate.GLOBAL;
+
+    private final AtomicLongArray statusCodes = new AtomicLongArray(STATUS_CODES);
+    private final EventCounters eventsSent = new EventCounters();
+    private final EventCounters eventsFailed = new EventCounters();
+    private final ConcurrentHashMap<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, WindowedLatencyHistogram> windowedLatencies = new ConcurrentHashMap<>();
+
     public Statistic getDescribes() {
         return ensure(DESCRIBE_KEY);
     }
@@ -45,6 +96,15 @@ public class Statistics extends StatisticsMap {
         update(MEASURE_KEY, val);
     }
 
+    /**
+     * Rolling window over the last hour of sends, from which throughput is derived.  The window is
+     * created on first request and only sees sends recorded after that.
+     * @return windowed statistic
+     */
+    public WindowedStatistic getWindowedMeasures() {
+        return getWindowed(MEASURE_KEY);
+    }
+
     public Statistic getSuccessful() {
         return ensure(SUCCESSFUL_KEY);
     }
@@ -60,4 +120,408 @@ public class Statistics extends StatisticsMap {
     public void updateFailed(double val) {
         update(FAILED_KEY, val);
     }
-}
\ No newline at end of file
+
+    public Statistic getBatchSizes() {
+        return ensure(BATCH_SIZE_KEY);
+    }
+
+    public void updateBatchSizes(double val) {
+        update(BATCH_SIZE_KEY, val);
+    }
+
+    public Statistic getCompressionRatios() {
+        return ensure(COMPRESSION_RATIO_KEY);
+    }
+
+    public void updateCompressionRatios(double val) {
+        update(COMPRESSION_RATIO_KEY, val);
+    }
+
+    public Statistic getRetries() {
+        return ensure(RETRY_KEY);
+    }
+
+    public void updateRetries(double val) {
+        update(RETRY_KEY, val);
+    }
+
+    public Statistic getQueueDepths() {
+        return ensure(QUEUE_DEPTH_KEY);
+    }
+
+    public void updateQueueDepths(double val) {
+        update(QUEUE_DEPTH_KEY, val);
+    }
+
+    public Statistic getDropped() {
+        return ensure(DROPPED_KEY);
+    }
+
+    public void updateDropped(double val) {
+        update(DROPPED_KEY, val);
+    }
+
+    public Statistic getSpilled() {
+        return ensure(SPILLED_KEY);
+    }
+
+    public void updateSpilled(double val) {
+        update(SPILLED_KEY, val);
+    }
+
+    public Statistic getThrottled() {
+        return ensure(THROTTLED_KEY);
+    }
+
+    public void updateThrottled(double val) {
+        update(THROTTLED_KEY, val);
+    }
+
+    public Statistic getConcurrencyLimits() {
+        return ensure(CONCURRENCY_LIMIT_KEY);
+    }
+
+    public void updateConcurrencyLimits(double val) {
+        update(CONCURRENCY_LIMIT_KEY, val);
+    }
+
+    public Statistic getQueueingDelays() {
+        return ensure(QUEUEING_DELAY_KEY);
+    }
+
+    public void updateQueueingDelays(double val) {
+        update(QUEUEING_DELAY_KEY, val);
+    }
+
+    /**
+     * Bytes of serialized envelope per send, before any compression.
+     */
+    public Statistic getSerializedBytes() {
+        return ensure(SERIALIZED_BYTES_KEY);
+    }
+
+    public void updateSerializedBytes(double val) {
+        update(SERIALIZED_BYTES_KEY, val);
+    }
+
+    /**
+     * Bytes of request body sent per envelope, after any compression.
+     */
+    public Statistic getWireBytes() {
+        return ensure(WIRE_BYTES_KEY);
+    }
+
+    public void updateWireBytes(double val) {
+        update(WIRE_BYTES_KEY, val);
+    }
+
+    /**
+     * Events and entities per envelope.
+     */
+    public Statistic getEventsPerEnvelope() {
+        return ensure(EVENTS_PER_ENVELOPE_KEY);
+    }
+
+    public void updateEventsPerEnvelope(double val) {
+        update(EVENTS_PER_ENVELOPE_KEY, val);
+    }
+
+    /**
+     * Total latency of successful sends in milliseconds per kilobyte sent.
+     */
+    public Statistic getLatencyPerKilobyte() {
+        return ensure(LATENCY_PER_KILOBYTE_KEY);
+    }
+
+    public void updateLatencyPerKilobyte(double val) {
+        update(LATENCY_PER_KILOBYTE_KEY, val);
+    }
+
+    /**
+     * Time envelopes spent in the Sensor's send queue.
+     * @return histogram
+     */
+    public LatencyHistogram getQueueLatencies() {
+        return ensureLatencies(QUEUE_LATENCY_KEY);
+    }
+
+    public void recordQueueLatency(long nanos) {
+        record(QUEUE_LATENCY_KEY, nanos);
+    }
+
+    /**
+     * Time spent serializing envelopes ahead of a request.
+     * @return histogram
+     */
+    public LatencyHistogram getSerializationLatencies() {
+        return ensureLatencies(SERIALIZATION_LATENCY_KEY);
+    }
+
+    public void recordSerializationLatency(long nanos) {
+        record(SERIALIZATION_LATENCY_KEY, nanos);
+    }
+
+    /**
+     * Round trip time of each request attempt.
+     * @return histogram
+     */
+    public LatencyHistogram getExecuteLatencies() {
+        return ensureLatencies(EXECUTE_LATENCY_KEY);
+    }
+
+    public void recordExecuteLatency(long nanos) {
+        record(EXECUTE_LATENCY_KEY, nanos);
+    }
+
+    /**
+     * Time from a client accepting an envelope to its final outcome, including retries.
+     * @return histogram
+     */
+    public LatencyHistogram getTotalLatencies() {
+        return ensureLatencies(TOTAL_LATENCY_KEY);
+    }
+
+    public void recordTotalLatency(long nanos) {
+        record(TOTAL_LATENCY_KEY, nanos);
+    }
+
+    /**
+     * Count a response by HTTP status code.  Codes outside 1-599, and attempts that received no
+     * response, are counted as status 0.
+     * @param statusCode
+     */
+    public void recordStatus(int statusCode) {
+        GATE.enter();
+        try {
+            statusCodes.incrementAndGet((statusCode > 0 && statusCode < STATUS_CODES) ? statusCode : 0);
+        } finally {
+            GATE.exit();
+        }
+    }
+
+    /**
+     * Get the number of responses with an HTTP status code.
+     * @param statusCode
+     * @return count
+     */
+    public long getStatusCount(int statusCode) {
+        return (statusCode >= 0 && statusCode < STATUS_CODES) ? statusCodes.get(statusCode) : 0;
+    }
+
+    /**
+     * Count an event by type and action.
+     * @param type
+     * @param action
+     * @param successful false if the client failed to send the event
+     */
+    public void recordEvent(CaliperEventType type, CaliperAction action, boolean successful) {
+        GATE.enter();
+        try {
+            (successful ? eventsSent : eventsFailed).increment(type, action);
+        } finally {
+            GATE.exit();
+        }
+    }
+
+    /**
+     * Count the events in an Envelope by type and action.  Entities are not counted.
+     * @param envelope envelope whose outcome is known, or null if only its serialized form is
+     * @param successful false if the client failed to send the envelope
+     */
+    public void recordEvents(Envelope envelope, boolean successful) {
+        GATE.enter();
+        try {
+            countEvents(envelope, successful);
+        } finally {
+            GATE.exit();
+        }
+    }
+
+    /**
+     * Record the final outcome of an envelope: one measure, counted as successful or failed, and its
+     * events by type and action.  The whole outcome is applied as one update, so no snapshot sees it in
+     * part.
+     * @param envelope envelope, or null if only its serialized form is known
+     * @param successful
+     */
+    public void recordOutcome(Envelope envelope, boolean successful) {
+        GATE.enter();
+        try {
+            super.update(MEASURE_KEY, 1);
+            super.update(successful ? SUCCESSFUL_KEY : FAILED_KEY, 1);
+            countEvents(envelope, successful);
+        } finally {
+            GATE.exit();
+        }
+    }
+
+    /**
+     * Apply an update to one statistic and its window, if any.
+     * @param operation
+     * @param val
+     */
+    @Override
+    public void update(String operation, double val) {
+        GATE.enter();
+        try {
+            super.update(operation, val);
+        } finally {
+            GATE.exit();
+        }
+    }
+
+    /**
+     * Count the events in an Envelope; the caller holds the gate.
+     * @param envelope
+     * @param successful
+     */
+    private void countEvents(Envelope envelope, boolean successful) {
+        List<CaliperSendable> data = (envelope != null) ? envelope.getData() : null;
+        if (data == null) {
+            return;
+        }
+        EventCounters counters = successful ? eventsSent : eventsFailed;
+        for (int i = 0; i < data.size(); i++) {
+            CaliperSendable item = data.get(i);
+            if (item instanceof CaliperEvent) {
+                CaliperEvent event = (CaliperEvent) item;
+                counters.increment(event.getType(), event.getAction());
+            }
+        }
+    }
+
+    /**
+     * Get the events sent successfully, by type and action.  SpoolClient counts events once they are
+     * spooled, not once they are delivered.
+     * @return counters
+     */
+    public EventCounters getEventsSent() {
+        return eventsSent;
+    }
+
+    /**
+     * Get the events the client failed to send, by type and action.
+     * @return counters
+     */
+    public EventCounters getEventsFailed() {
+        return eventsFailed;
+    }
+
+    /**
+     * Get a rolling window over the last hour of a latency stage, keyed by the name shown in toString(),
+     * e.g. "TotalLatency".  The window is created on first request and only sees latencies recorded
+     * after that.
+     * @param key
+     * @return windowed histogram
+     */
+    public WindowedLatencyHistogram getWindowedLatencies(String key) {
+        WindowedLatencyHistogram histogram = windowedLatencies.get(key);
+        if (histogram == null) {
+            WindowedLatencyHistogram created = new WindowedLatencyHistogram();
+            histogram = windowedLatencies.putIfAbsent(key, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    private void record(String key, long nanos) {
+        GATE.enter();
+        try {
+            ensureLatencies(key).record(nanos);
+
+            WindowedLatencyHistogram window = windowedLatencies.get(key);
+            if (window != null) {
+                window.record(nanos);
+            }
+        } finally {
+            GATE.exit();
+        }
+    }
+
+    private LatencyHistogram ensureLatencies(String key) {
+        LatencyHistogram histogram = latencies.get(key);
+        if (histogram == null) {
+            LatencyHistogram created = new LatencyHistogram();
+            histogram = latencies.putIfAbsent(key, created);
+            if (histogram == null) {
+                histogram = created;
+            }
+        }
+        return histogram;
+    }
+
+    /**
+     * Copy every statistic, latency histogram and counter as of a single point in time, so that, for
+     * example, Measure always equals Successful plus Failed.  Writers are held up only if updates keep
+     * racing with the copy, and then for the length of one copy.
+     * @return snapshot
+     */
+    public StatisticsSnapshot snapshot() {
+        return GATE.capture(new Supplier<StatisticsSnapshot>() {
+            @Override
+            public StatisticsSnapshot get() {
+                return copy();
+            }
+        });
+    }
+
+    /**
+     * Copy several Statistics objects, e.g. those of every client of a Sensor, as of one point in time.
+     * @param statistics
+     * @return snapshots, in the same order
+     */
+    public static List<StatisticsSnapshot> snapshot(final List<? extends Statistics> statistics) {
+        return GATE.capture(new Supplier<List<StatisticsSnapshot>>() {
+            @Override
+            public List<StatisticsSnapshot> get() {
+                List<StatisticsSnapshot> snapshots = new ArrayList<>(statistics.size());
+                for (Statistics each : statistics) {
+                    snapshots.add(each.copy());
+                }
+                return snapshots;
+            }
+        });
+    }
+
+    /**
+     * Copy every statistic; the caller holds the gate.
+     * @return snapshot
+     */
+    private StatisticsSnapshot copy() {
+        long timestamp = System.currentTimeMillis();
+        long capturedNanos = System.nanoTime();
+
+        Map<String, StatisticSnapshot> statistics = new HashMap<>();
+        for (Map.Entry<String, Statistic> entry : entrySet()) {
+            statistics.put(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        Map<String, LatencySnapshot> histograms = new HashMap<>();
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            histograms.put(entry.getKey(), entry.getValue().snapshot());
+        }
+
+        Map<Integer, Long> statuses = new TreeMap<>();
+        for (int code = 0; code < STATUS_CODES; code++) {
+            long count = statusCodes.get(code);
+            if (count > 0) {
+                statuses.put(code, count);
+            }
+        }
+
+        return new StatisticsSnapshot(timestamp, capturedNanos, 0, statistics, histograms, statuses,
+            eventsSent.snapshot(), eventsFailed.snapshot());
+    }
+
+    @Override
+    protected void appendEntries(StringBuilder builder) {
+        super.appendEntries(builder);
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            builder.append(String.format("%s : %s\n", entry.getKey(), entry.getValue().toString()));
+        }
+        builder.append(String.format("EventsSent : %s\n", eventsSent.toString()));
+        builder.append(String.format("EventsFailed : %s\n", eventsFailed.toString()));
+    }
+}
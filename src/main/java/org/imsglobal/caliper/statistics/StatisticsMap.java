@@ -24,20 +24,39 @@ public class StatisticsMap extends ConcurrentHashMap<String, Statistic> {
 
     private static final long serialVersionUID = -8837006750327885446L;
 
+    private final ConcurrentHashMap<String, WindowedStatistic> windows = new ConcurrentHashMap<>();
+
     public Statistic ensure(String key) {
-        if (this.containsKey(key)) return this.get(key);
+        Statistic statistic = this.get(key);
+        if (statistic != null) return statistic;
 
-        Statistic statistic = new Statistic();
-        this.put(key, statistic);
-        return statistic;
+        statistic = new Statistic();
+        Statistic existing = this.putIfAbsent(key, statistic);
+        return (existing != null) ? existing : statistic;
     }
 
     public void update(String operation, double val) {
-        if (!this.containsKey(operation)) {
-            this.putIfAbsent(operation, new Statistic());
+        ensure(operation).update(val);
+
+        WindowedStatistic window = windows.get(operation);
+        if (window != null) {
+            window.update(val);
         }
+    }
 
-        this.get(operation).update(val);
+    /**
+     * Get a rolling window over the last hour of a statistic, keyed by the name shown in toString().
+     * The window is created on first request and only sees values recorded after that.
+     * @param key
+     * @return windowed statistic
+     */
+    public WindowedStatistic getWindowed(String key) {
+        WindowedStatistic window = windows.get(key);
+        if (window != null) return window;
+
+        window = new WindowedStatistic();
+        WindowedStatistic existing = windows.putIfAbsent(key, window);
+        return (existing != null) ? existing : window;
     }
 
     @Override
@@ -47,6 +66,18 @@ public class StatisticsMap extends ConcurrentHashMap<String, Statistic> {
 
         builder.append("\n-------- Caliper Java Statistics --------\n");
 
+        appendEntries(builder);
+
+        builder.append("----------------------------------------\n");
+
+        return builder.toString();
+    }
+
+    /**
+     * Append one line per statistic.
+     * @param builder
+     */
+    protected void appendEntries(StringBuilder builder) {
         for (Entry<String, Statistic> entry : entrySet()) {
 
             String operation = entry.getKey();
@@ -54,9 +85,5 @@ public class StatisticsMap extends ConcurrentHashMap<String, Statistic> {
 
             builder.append(String.format("%s : %s\n", operation, statistic.toString()));
         }
-
-        builder.append("----------------------------------------\n");
-
-        return builder.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,190 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Immutable point-in-time copy of a Statistics object, or the difference between two such copies.  Every
+ * statistic, histogram and counter in a copy reflects the same set of updates; copies taken together by
+ * Statistics.snapshot(List) also agree with each other.  Exporters can keep the previous snapshot and
+ * report current.minus(previous) to obtain counts, rates and latency percentiles for the interval.
+ */
+public final class StatisticsSnapshot {
+    private final long timestamp;
+    private final long capturedNanos;
+    private final long intervalNanos;
+    private final Map<String, StatisticSnapshot> statistics;
+    private final Map<String, LatencySnapshot> latencies;
+    private final Map<Integer, Long> statuses;
+    private final EventCounts eventsSent;
+    private final EventCounts eventsFailed;
+
+    private static final StatisticSnapshot EMPTY = new StatisticSnapshot(0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+
+    /**
+     * Constructor
+     * @param timestamp wall clock time of capture, in epoch milliseconds
+     * @param capturedNanos System.nanoTime() at capture
+     * @param intervalNanos time covered by a diff, or 0 for a plain snapshot
+     * @param statistics
+     * @param latencies
+     * @param statuses response counts keyed by HTTP status code
+     * @param eventsSent
+     * @param eventsFailed
+     */
+    StatisticsSnapshot(long timestamp, long capturedNanos, long intervalNanos,
+                       Map<String, StatisticSnapshot> statistics, Map<String, LatencySnapshot> latencies,
+                       Map<Integer, Long> statuses, EventCounts eventsSent, EventCounts eventsFailed) {
+        this.timestamp = timestamp;
+        this.capturedNanos = capturedNanos;
+        this.intervalNanos = intervalNanos;
+        this.statistics = Collections.unmodifiableMap(statistics);
+        this.latencies = Collections.unmodifiableMap(latencies);
+        this.statuses = Collections.unmodifiableMap(statuses);
+        this.eventsSent = eventsSent;
+        this.eventsFailed = eventsFailed;
+    }
+
+    /**
+     * Get the wall clock time the snapshot was taken.
+     * @return epoch milliseconds
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get the time between the two snapshots a diff was computed from.
+     * @return nanoseconds, or 0 for a plain snapshot
+     */
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /**
+     * Get a statistic by the name shown in Statistics.toString(), e.g. "Successful".
+     * @param key
+     * @return snapshot, empty if the statistic has not been recorded
+     */
+    public StatisticSnapshot get(String key) {
+        StatisticSnapshot snapshot = statistics.get(key);
+        return (snapshot != null) ? snapshot : EMPTY;
+    }
+
+    /**
+     * Get a latency histogram by stage name, e.g. "TotalLatency".
+     * @param key
+     * @return snapshot, or null if the stage has not been recorded
+     */
+    public LatencySnapshot getLatencies(String key) {
+        return latencies.get(key);
+    }
+
+    /**
+     * Get every statistic.
+     * @return statistics keyed by name
+     */
+    public Map<String, StatisticSnapshot> getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get every latency histogram.
+     * @return latencies keyed by stage
+     */
+    public Map<String, LatencySnapshot> getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Get the number of responses by HTTP status code; status 0 counts attempts without a response.
+     * @return counts keyed by status code, in ascending order, omitting codes never seen
+     */
+    public Map<Integer, Long> getStatusCounts() {
+        return statuses;
+    }
+
+    /**
+     * Get the events sent successfully, by type and action.
+     * @return counts
+     */
+    public EventCounts getEventsSent() {
+        return eventsSent;
+    }
+
+    /**
+     * Get the events the client failed to send, by type and action.
+     * @return counts
+     */
+    public EventCounts getEventsFailed() {
+        return eventsFailed;
+    }
+
+    /**
+     * Get the per-second rate of a statistic over a diff's interval.
+     * @param key
+     * @return values recorded per second, or 0 for a plain snapshot
+     */
+    public double getRate(String key) {
+        return (intervalNanos > 0) ? get(key).getCount() * 1e9 / intervalNanos : 0.0;
+    }
+
+    /**
+     * Describe what was recorded between an earlier snapshot of the same Statistics and this one.
+     * @param earlier
+     * @return diff
+     */
+    public StatisticsSnapshot minus(StatisticsSnapshot earlier) {
+        Map<String, StatisticSnapshot> statisticDiffs = new HashMap<>();
+        for (Map.Entry<String, StatisticSnapshot> entry : statistics.entrySet()) {
+            statisticDiffs.put(entry.getKey(), entry.getValue().minus(earlier.statistics.get(entry.getKey())));
+        }
+
+        Map<String, LatencySnapshot> latencyDiffs = new HashMap<>();
+        for (Map.Entry<String, LatencySnapshot> entry : latencies.entrySet()) {
+            latencyDiffs.put(entry.getKey(), entry.getValue().minus(earlier.latencies.get(entry.getKey())));
+        }
+
+        Map<Integer, Long> statusDiffs = new TreeMap<>();
+        for (Map.Entry<Integer, Long> entry : statuses.entrySet()) {
+            Long before = earlier.statuses.get(entry.getKey());
+            statusDiffs.put(entry.getKey(), entry.getValue() - (before != null ? before : 0L));
+        }
+
+        return new StatisticsSnapshot(timestamp, capturedNanos, capturedNanos - earlier.capturedNanos,
+            statisticDiffs, latencyDiffs, statusDiffs, eventsSent.minus(earlier.eventsSent),
+            eventsFailed.minus(earlier.eventsFailed));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, StatisticSnapshot> entry : statistics.entrySet()) {
+            builder.append(String.format("%s : %s\n", entry.getKey(), entry.getValue().toString()));
+        }
+        for (Map.Entry<String, LatencySnapshot> entry : latencies.entrySet()) {
+            builder.append(String.format("%s : %s\n", entry.getKey(), entry.getValue().toString()));
+        }
+        return builder.toString();
+    }
+}
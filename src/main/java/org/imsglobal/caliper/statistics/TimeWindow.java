@@ -0,0 +1,143 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import com.google.common.base.Ticker;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fixed ring of per-interval buckets.  Every bucket is allocated up front; when the clock moves into an
+ * interval whose slot still holds an expired bucket, that bucket is reset in place, so a running window
+ * never allocates.
+ * @param <B> bucket type
+ */
+abstract class TimeWindow<B extends TimeWindow.Bucket> implements Serializable {
+
+    private static final long serialVersionUID = 2391860425207961358L;
+
+    private final Bucket[] buckets;
+    private final long bucketNanos;
+    private final long origin;
+    private final transient Ticker ticker;
+
+    /**
+     * Per-interval aggregate.
+     */
+    abstract static class Bucket implements Serializable {
+        private static final long serialVersionUID = -1260283958462815573L;
+
+        private volatile long epoch = -1;
+
+        /**
+         * Discard the bucket's contents before it is reused for a later interval.
+         */
+        abstract void reset();
+    }
+
+    /**
+     * Constructor
+     * @param size number of buckets
+     * @param interval bucket width
+     * @param unit
+     * @param ticker time source
+     */
+    TimeWindow(int size, long interval, TimeUnit unit, Ticker ticker) {
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            this.buckets[i] = newBucket();
+        }
+        this.bucketNanos = unit.toNanos(interval);
+        this.ticker = ticker;
+        this.origin = ticker.read();
+    }
+
+    /**
+     * Create an empty bucket.
+     * @return bucket
+     */
+    abstract B newBucket();
+
+    /**
+     * Get the bucket for the current interval, resetting it if it last held an earlier interval.
+     * @return bucket
+     */
+    @SuppressWarnings("unchecked")
+    B current() {
+        long epoch = (read() - origin) / bucketNanos;
+        Bucket bucket = buckets[(int) (epoch % buckets.length)];
+        if (bucket.epoch != epoch) {
+            synchronized (bucket) {
+                if (bucket.epoch != epoch) {
+                    bucket.reset();
+                    bucket.epoch = epoch;
+                }
+            }
+        }
+        return (B) bucket;
+    }
+
+    /**
+     * Visit the live buckets covering the given duration, ending with the current, partial interval.
+     * @param duration
+     * @param unit
+     * @param visitor
+     * @return nanoseconds actually covered, which is shorter than the duration while the window fills
+     */
+    @SuppressWarnings("unchecked")
+    long collect(long duration, TimeUnit unit, Visitor<B> visitor) {
+        long elapsed = read() - origin;
+        long now = elapsed / bucketNanos;
+        int count = (int) Math.max(1, Math.min(buckets.length,
+            (unit.toNanos(duration) + bucketNanos - 1) / bucketNanos));
+
+        for (long epoch = Math.max(0, now - count + 1); epoch <= now; epoch++) {
+            Bucket bucket = buckets[(int) (epoch % buckets.length)];
+            if (bucket.epoch == epoch) {
+                visitor.visit((B) bucket);
+            }
+        }
+        return Math.min(elapsed, (count - 1) * bucketNanos + elapsed % bucketNanos);
+    }
+
+    /**
+     * Read the time source; a deserialized window falls back to the system ticker.
+     * @return nanoseconds
+     */
+    private long read() {
+        return (ticker != null) ? ticker.read() : Ticker.systemTicker().read();
+    }
+
+    /**
+     * Get the span of the whole ring.
+     * @return nanoseconds
+     */
+    long getSpanNanos() {
+        return bucketNanos * buckets.length;
+    }
+
+    /**
+     * Receives buckets from collect().
+     * @param <B> bucket type
+     */
+    interface Visitor<B> {
+        void visit(B bucket);
+    }
+}
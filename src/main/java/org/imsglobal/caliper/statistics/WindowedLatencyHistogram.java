@@ -0,0 +1,179 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import com.google.common.base.Ticker;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency percentiles over a recent window rather than since startup.  Latencies are counted in 60
+ * one-second and 60 one-minute histogram buckets; queries of up to a minute use the former, longer ones
+ * (up to an hour) the latter.  To keep the ring to a fixed ~570 KB, each interval uses a coarser
+ * histogram than LatencyHistogram: values are reported within 1/16 of their true value, and latencies
+ * above 2^40 ns (about 18 minutes) are counted as 2^40 ns.  Buckets are reused in place, so recording
+ * never allocates.
+ */
+public class WindowedLatencyHistogram implements Serializable {
+
+    private static final long serialVersionUID = 4969733125452815498L;
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int MAX_BITS = 39;
+    private static final long MAX_VALUE = (1L << (MAX_BITS + 1)) - 1;
+    private static final int BUCKET_COUNT = LatencyHistogram.bucketCount(SUB_BUCKET_BITS, MAX_BITS);
+
+    private final Window seconds;
+    private final Window minutes;
+
+    /**
+     * Constructor
+     */
+    public WindowedLatencyHistogram() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor
+     * @param ticker time source
+     */
+    WindowedLatencyHistogram(Ticker ticker) {
+        this.seconds = new Window(TimeUnit.SECONDS, ticker);
+        this.minutes = new Window(TimeUnit.MINUTES, ticker);
+    }
+
+    /**
+     * Record a latency.  Negative values are recorded as zero.
+     * @param nanos
+     */
+    public void record(long nanos) {
+        int index = LatencyHistogram.indexOf(Math.min(Math.max(0, nanos), MAX_VALUE), SUB_BUCKET_BITS);
+        seconds.current().counts.incrementAndGet(index);
+        minutes.current().counts.incrementAndGet(index);
+    }
+
+    /**
+     * Get the number of latencies recorded over the last duration.
+     * @param duration
+     * @param unit
+     * @return count
+     */
+    public long getCount(long duration, TimeUnit unit) {
+        long count = 0;
+        for (long bucketCount : merge(duration, unit)) {
+            count += bucketCount;
+        }
+        return count;
+    }
+
+    /**
+     * Get the latency at or below which the given percentage of those recorded over the last duration
+     * fall.
+     * @param percentile between 0 and 100
+     * @param duration
+     * @param unit
+     * @return value in nanoseconds, or 0 if nothing was recorded
+     */
+    public long getValueAtPercentile(double percentile, long duration, TimeUnit unit) {
+        long[] counts = merge(duration, unit);
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(LatencyHistogram.highestValueOf(i, SUB_BUCKET_BITS), MAX_VALUE);
+            }
+        }
+        return MAX_VALUE;
+    }
+
+    /**
+     * Sum the live buckets covering the duration.
+     * @param duration
+     * @param unit
+     * @return counts per histogram bucket
+     */
+    private long[] merge(long duration, TimeUnit unit) {
+        Window window = (unit.toNanos(duration) <= seconds.getSpanNanos()) ? seconds : minutes;
+        final long[] merged = new long[BUCKET_COUNT];
+        window.collect(duration, unit, new TimeWindow.Visitor<Interval>() {
+            @Override
+            public void visit(Interval bucket) {
+                for (int i = 0; i < BUCKET_COUNT; i++) {
+                    merged[i] += bucket.counts.get(i);
+                }
+            }
+        });
+        return merged;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("[1m Count : %d], [1m p50 : %.3fms], [1m p99 : %.3fms], [1h p99 : %.3fms]",
+            getCount(1, TimeUnit.MINUTES), toMillis(getValueAtPercentile(50.0, 1, TimeUnit.MINUTES)),
+            toMillis(getValueAtPercentile(99.0, 1, TimeUnit.MINUTES)),
+            toMillis(getValueAtPercentile(99.0, 1, TimeUnit.HOURS)));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * Ring of histogram buckets.
+     */
+    private static final class Window extends TimeWindow<Interval> {
+        private static final long serialVersionUID = -2059836641950871234L;
+
+        private Window(TimeUnit unit, Ticker ticker) {
+            super(WindowedStatistic.BUCKETS, 1, unit, ticker);
+        }
+
+        @Override
+        Interval newBucket() {
+            return new Interval();
+        }
+    }
+
+    /**
+     * One interval's latency counts.
+     */
+    private static final class Interval extends TimeWindow.Bucket {
+        private static final long serialVersionUID = 7516094530815236472L;
+
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+        @Override
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts.set(i, 0);
+            }
+        }
+    }
+}
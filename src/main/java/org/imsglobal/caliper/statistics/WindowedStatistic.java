@@ -0,0 +1,211 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import com.google.common.base.Ticker;
+
+import java.io.Serializable;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Count, sum, rate and extremes of a series of values over a recent window rather than since startup.
+ * Values are aggregated into 60 one-second buckets and 60 one-minute buckets; queries of up to a
+ * minute use the former, longer ones (up to an hour) the latter.  Buckets are reused in place, so
+ * recording never allocates.
+ */
+public class WindowedStatistic implements Serializable {
+
+    private static final long serialVersionUID = -7095286307405926364L;
+
+    static final int BUCKETS = 60;
+
+    private final Window seconds;
+    private final Window minutes;
+
+    /**
+     * Constructor
+     */
+    public WindowedStatistic() {
+        this(Ticker.systemTicker());
+    }
+
+    /**
+     * Constructor
+     * @param ticker time source
+     */
+    WindowedStatistic(Ticker ticker) {
+        this.seconds = new Window(TimeUnit.SECONDS, ticker);
+        this.minutes = new Window(TimeUnit.MINUTES, ticker);
+    }
+
+    /**
+     * Add another value to this statistic
+     * @param val
+     */
+    public void update(double val) {
+        seconds.current().add(val);
+        minutes.current().add(val);
+    }
+
+    /**
+     * Summarize the values recorded over the last duration, at one-second resolution up to a minute
+     * and one-minute resolution up to an hour.
+     * @param duration
+     * @param unit
+     * @return summary
+     */
+    public Summary summarize(long duration, TimeUnit unit) {
+        Window window = (unit.toNanos(duration) <= seconds.getSpanNanos()) ? seconds : minutes;
+        final Summary summary = new Summary();
+        summary.nanos = window.collect(duration, unit, new TimeWindow.Visitor<Interval>() {
+            @Override
+            public void visit(Interval bucket) {
+                summary.merge(bucket);
+            }
+        });
+        return summary;
+    }
+
+    /**
+     * Get the number of values recorded over the last duration.
+     * @param duration
+     * @param unit
+     * @return count
+     */
+    public long getCount(long duration, TimeUnit unit) {
+        return summarize(duration, unit).getCount();
+    }
+
+    /**
+     * Get the number of values recorded per second over the last duration.
+     * @param duration
+     * @param unit
+     * @return rate
+     */
+    public double getRate(long duration, TimeUnit unit) {
+        return summarize(duration, unit).getRate();
+    }
+
+    /**
+     * Values recorded over a window.
+     */
+    public static class Summary {
+        private long count;
+        private double sum;
+        private double min = Double.POSITIVE_INFINITY;
+        private double max = Double.NEGATIVE_INFINITY;
+        private long nanos;
+
+        private void merge(Interval bucket) {
+            long n = bucket.count.sum();
+            if (n == 0) {
+                return;
+            }
+            count += n;
+            sum += bucket.sum.sum();
+            min = Math.min(min, bucket.min.get());
+            max = Math.max(max, bucket.max.get());
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getSum() {
+            return sum;
+        }
+
+        public double getAverage() {
+            return (count > 0) ? sum / count : 0.0;
+        }
+
+        public double getMin() {
+            return (count > 0) ? min : 0.0;
+        }
+
+        public double getMax() {
+            return (count > 0) ? max : 0.0;
+        }
+
+        /**
+         * Get the number of values per second of time covered.
+         * @return rate
+         */
+        public double getRate() {
+            return (nanos > 0) ? count * 1e9 / nanos : 0.0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("[Count : %d], [Rate : %.3f/s], [Min : %s], [Max : %s], [Average : %s]",
+                getCount(), getRate(), getMin(), getMax(), getAverage());
+        }
+    }
+
+    /**
+     * Ring of scalar buckets.
+     */
+    private static final class Window extends TimeWindow<Interval> {
+        private static final long serialVersionUID = 5176372915946434587L;
+
+        private Window(TimeUnit unit, Ticker ticker) {
+            super(BUCKETS, 1, unit, ticker);
+        }
+
+        @Override
+        Interval newBucket() {
+            return new Interval();
+        }
+    }
+
+    /**
+     * One interval's count, sum and extremes.
+     */
+    private static final class Interval extends TimeWindow.Bucket {
+        private static final long serialVersionUID = -4425312466393574021L;
+
+        private final LongAdder count = new LongAdder();
+        private final DoubleAdder sum = new DoubleAdder();
+        private final AtomicDouble min = new AtomicDouble(Double.POSITIVE_INFINITY);
+        private final AtomicDouble max = new AtomicDouble(Double.NEGATIVE_INFINITY);
+
+        private void add(double val) {
+            count.increment();
+            sum.add(val);
+
+            double current;
+            while (val < (current = min.get()) && !min.compareAndSet(current, val)) {
+                // retry
+            }
+            while (val > (current = max.get()) && !max.compareAndSet(current, val)) {
+                // retry
+            }
+        }
+
+        @Override
+        void reset() {
+            count.reset();
+            sum.reset();
+            min.set(Double.POSITIVE_INFINITY);
+            max.set(Double.NEGATIVE_INFINITY);
+        }
+    }
+}
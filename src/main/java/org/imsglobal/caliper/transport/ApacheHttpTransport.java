@@ -0,0 +1,276 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.transport;
+
+import org.apache.http.Header;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.config.SocketConfig;
+import org.apache.http.conn.ConnectionKeepAliveStrategy;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.protocol.HttpContext;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP/1.1 transport built on Apache HttpClient.  Blocking requests use a pooled connection manager;
+ * the non-blocking engine is started on first use so that clients which only send synchronously do not
+ * pay for the I/O reactor threads.
+ */
+public class ApacheHttpTransport implements CaliperTransport {
+    private final TransportOptions options;
+    private final RequestConfig requestConfig;
+    private final CloseableHttpClient httpClient;
+    private volatile CloseableHttpAsyncClient asyncClient;
+    private volatile boolean closed;
+
+    private static final Logger log = LoggerFactory.getLogger(ApacheHttpTransport.class);
+
+    /**
+     * Factory for this transport.
+     */
+    public static final TransportFactory FACTORY = new TransportFactory() {
+        @Override
+        public CaliperTransport create(TransportOptions options) {
+            return ApacheHttpTransport.create(options);
+        }
+    };
+
+    /**
+     * Constructor. Scope is private to force use of the static factory method.
+     * @param options
+     */
+    private ApacheHttpTransport(TransportOptions options) {
+        this.options = options;
+        this.requestConfig = RequestConfig.custom()
+            .setConnectTimeout(options.getConnectTimeout())
+            .setConnectionRequestTimeout(options.getConnectionRequestTimeout())
+            .setSocketTimeout(options.getSocketTimeout())
+            .build();
+        this.httpClient = HttpClients.custom()
+            .setConnectionManager(createConnectionManager(options))
+            .setDefaultRequestConfig(requestConfig)
+            .setKeepAliveStrategy(createKeepAliveStrategy(options.getKeepAlive()))
+            .evictExpiredConnections()
+            .evictIdleConnections(options.getIdleTimeout(), TimeUnit.MILLISECONDS)
+            .build();
+    }
+
+    /**
+     * Create the connection pool owned by this transport.
+     * @param options
+     * @return connection manager
+     */
+    private static PoolingHttpClientConnectionManager createConnectionManager(TransportOptions options) {
+        PoolingHttpClientConnectionManager manager = new PoolingHttpClientConnectionManager();
+        manager.setMaxTotal(options.getMaxConnections());
+        manager.setDefaultMaxPerRoute(options.getMaxConnectionsPerRoute());
+        manager.setDefaultSocketConfig(SocketConfig.custom()
+            .setSoTimeout(options.getSocketTimeout())
+            .setTcpNoDelay(true)
+            .build());
+        return manager;
+    }
+
+    /**
+     * Honor the server's Keep-Alive header if present, otherwise keep connections alive for the
+     * configured duration.
+     * @param keepAlive
+     * @return keep-alive strategy
+     */
+    private static ConnectionKeepAliveStrategy createKeepAliveStrategy(final long keepAlive) {
+        return new ConnectionKeepAliveStrategy() {
+            @Override
+            public long getKeepAliveDuration(HttpResponse response, HttpContext context) {
+                long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                return (duration > 0) ? duration : keepAlive;
+            }
+        };
+    }
+
+    /**
+     * Execute a request on the pooled blocking engine.  The response is fully consumed so that the
+     * connection is returned to the pool.
+     * @param request
+     * @return response
+     * @throws IOException
+     */
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        HttpPost post = createPost(request);
+        post.setEntity(new RequestBodyEntity(request.getBody()));
+
+        try (CloseableHttpResponse response = httpClient.execute(post)) {
+            if (log.isDebugEnabled()) {
+                log.debug(response.getStatusLine().toString());
+                if (response.getEntity() != null) {
+                    log.debug(EntityUtils.toString(response.getEntity()));
+                }
+            }
+            EntityUtils.consume(response.getEntity());
+            return toResponse(response);
+        }
+    }
+
+    /**
+     * Execute a request on the non-blocking engine.  The I/O reactor needs a buffered body.
+     * @param request
+     * @return future response
+     */
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        final CompletableFuture<TransportResponse> future = new CompletableFuture<>();
+
+        try {
+            RequestBody body = request.getBody();
+            ByteArrayEntity entity = new ByteArrayEntity(body.toByteArray());
+            entity.setContentType(body.getContentType());
+            entity.setContentEncoding(body.getContentEncoding());
+
+            HttpPost post = createPost(request);
+            post.setEntity(entity);
+
+            getAsyncClient().execute(post, new FutureCallback<HttpResponse>() {
+                @Override
+                public void completed(HttpResponse response) {
+                    if (log.isDebugEnabled()) {
+                        log.debug(response.getStatusLine().toString());
+                    }
+                    future.complete(toResponse(response));
+                }
+
+                @Override
+                public void failed(Exception ex) {
+                    future.completeExceptionally(ex);
+                }
+
+                @Override
+                public void cancelled() {
+                    future.completeExceptionally(new CancellationException("HTTP POST cancelled"));
+                }
+            });
+        } catch (IOException | RuntimeException ex) {
+            future.completeExceptionally(ex);
+        }
+
+        return future;
+    }
+
+    /**
+     * Prep a POST carrying the request headers.
+     * @param request
+     * @return post
+     */
+    private static HttpPost createPost(TransportRequest request) {
+        HttpPost post = new HttpPost(request.getUri());
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            post.setHeader(header.getKey(), header.getValue());
+        }
+        return post;
+    }
+
+    /**
+     * Copy the status and the first value of each header.
+     * @param response
+     * @return transport response
+     */
+    private static TransportResponse toResponse(HttpResponse response) {
+        Map<String, String> headers = new HashMap<>();
+        for (Header header : response.getAllHeaders()) {
+            if (!headers.containsKey(header.getName())) {
+                headers.put(header.getName(), header.getValue());
+            }
+        }
+        return new TransportResponse(response.getStatusLine().getStatusCode(), headers);
+    }
+
+    /**
+     * Lazily start the non-blocking HTTP engine.
+     * @return async client
+     */
+    private CloseableHttpAsyncClient getAsyncClient() {
+        CloseableHttpAsyncClient client = asyncClient;
+        if (client == null) {
+            synchronized (this) {
+                if (closed) {
+                    throw new IllegalStateException("Transport is closed.");
+                }
+                client = asyncClient;
+                if (client == null) {
+                    client = HttpAsyncClients.custom()
+                        .setMaxConnTotal(options.getMaxInFlight())
+                        .setMaxConnPerRoute(options.getMaxInFlight())
+                        .setDefaultRequestConfig(requestConfig)
+                        .setKeepAliveStrategy(createKeepAliveStrategy(options.getKeepAlive()))
+                        .build();
+                    client.start();
+                    asyncClient = client;
+                }
+            }
+        }
+        return client;
+    }
+
+    /**
+     * Shut down the connection pool and the non-blocking HTTP engine, if started.
+     */
+    @Override
+    public synchronized void close() {
+        closed = true;
+        try {
+            httpClient.close();
+        } catch (IOException ioe) {
+            log.warn("Error closing HTTP transport", ioe);
+        }
+        if (asyncClient != null) {
+            try {
+                asyncClient.close();
+            } catch (IOException ioe) {
+                log.warn("Error closing HTTP transport", ioe);
+            }
+            asyncClient = null;
+        }
+    }
+
+    /**
+     * Factory method for instantiating a transport.
+     * @param options
+     * @return transport
+     */
+    public static ApacheHttpTransport create(TransportOptions options) {
+        return new ApacheHttpTransport(options);
+    }
+}
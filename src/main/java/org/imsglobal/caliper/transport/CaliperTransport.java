@@ -0,0 +1,52 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Service provider interface for the HTTP engine used by a client.  A transport executes requests
+ * and owns the connections, threads and TLS sessions needed to do so; retries, compression and
+ * statistics remain the responsibility of the client.  Implementations must be thread-safe.
+ */
+public interface CaliperTransport extends Closeable {
+
+    /**
+     * Execute a request on the calling thread.
+     * @param request
+     * @return response
+     * @throws IOException if the request could not be executed
+     */
+    TransportResponse send(TransportRequest request) throws IOException;
+
+    /**
+     * Execute a request without blocking the calling thread.
+     * @param request
+     * @return future completed with the response, or exceptionally if the request could not be executed
+     */
+    CompletableFuture<TransportResponse> sendAsync(TransportRequest request);
+
+    /**
+     * Release the connections and threads held by the transport.
+     */
+    @Override
+    void close();
+}
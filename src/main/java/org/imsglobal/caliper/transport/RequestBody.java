@@ -0,0 +1,201 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.transport;
+
+import com.google.common.io.CountingOutputStream;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.SerializedEnvelope;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Transport-neutral request body.  Bodies are repeatable: writeTo() may be called once per attempt.
+ */
+public abstract class RequestBody {
+    private final String contentType;
+    private final String contentEncoding;
+
+    /**
+     * Constructor
+     * @param contentType
+     * @param contentEncoding
+     */
+    protected RequestBody(String contentType, String contentEncoding) {
+        this.contentType = contentType;
+        this.contentEncoding = contentEncoding;
+    }
+
+    /**
+     * Get the media type of the body.
+     * @return content type
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * Get the encoding applied to the body.
+     * @return content encoding, or null if the body is not encoded
+     */
+    public String getContentEncoding() {
+        return contentEncoding;
+    }
+
+    /**
+     * Get the length of the body.
+     * @return length in bytes, or -1 if unknown until the body is written
+     */
+    public abstract long getContentLength();
+
+    /**
+     * Get the size of the serialized payload before any content encoding.  Bodies that serialize while
+     * being written only know it once written.
+     * @return length in bytes, or -1 if unknown
+     */
+    public long getSerializedLength() {
+        return (contentEncoding == null) ? getContentLength() : -1;
+    }
+
+    /**
+     * Write the body to a stream.  The stream is flushed but not closed.
+     * @param out
+     * @throws IOException
+     */
+    public abstract void writeTo(OutputStream out) throws IOException;
+
+    /**
+     * Get the body as an array, for engines that cannot stream it.
+     * @return body
+     * @throws IOException
+     */
+    public byte[] toByteArray() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writeTo(out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Body over an array.
+     * @param payload
+     * @param contentType
+     * @param contentEncoding encoding already applied to the payload, or null
+     * @return body
+     */
+    public static RequestBody of(final byte[] payload, String contentType, String contentEncoding) {
+        return of(payload, (contentEncoding == null) ? payload.length : -1, contentType, contentEncoding);
+    }
+
+    /**
+     * Body over an array whose payload was encoded from a larger serialized form.
+     * @param payload
+     * @param serializedLength size of the payload before encoding
+     * @param contentType
+     * @param contentEncoding encoding already applied to the payload, or null
+     * @return body
+     */
+    public static RequestBody of(final byte[] payload, final long serializedLength, String contentType,
+                                 String contentEncoding) {
+        return new RequestBody(contentType, contentEncoding) {
+            @Override
+            public long getContentLength() {
+                return payload.length;
+            }
+
+            @Override
+            public long getSerializedLength() {
+                return serializedLength;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                out.write(payload);
+                out.flush();
+            }
+
+            @Override
+            public byte[] toByteArray() {
+                return payload;
+            }
+        };
+    }
+
+    /**
+     * Body over an already serialized envelope; the payload is written without copying.
+     * @param envelope
+     * @param contentType
+     * @return body
+     */
+    public static RequestBody of(final SerializedEnvelope envelope, String contentType) {
+        return new RequestBody(contentType, null) {
+            @Override
+            public long getContentLength() {
+                return envelope.size();
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                envelope.writeTo(out);
+                out.flush();
+            }
+        };
+    }
+
+    /**
+     * Body that serializes an Envelope straight to the connection's stream.  No intermediate String or
+     * byte[] copy of the payload is made, so memory use does not grow with the size of the Envelope.
+     * The Envelope is re-serialized on each write, counting the bytes written as it goes.
+     * @param envelope
+     * @param serializer
+     * @param contentType
+     * @return body
+     */
+    public static RequestBody of(final Envelope envelope, final CaliperSerializer serializer, String contentType) {
+        return new RequestBody(contentType, null) {
+            private volatile long written = -1;
+
+            @Override
+            public long getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public long getSerializedLength() {
+                return written;
+            }
+
+            @Override
+            public void writeTo(OutputStream out) throws IOException {
+                CountingOutputStream counter = new CountingOutputStream(out);
+                serializer.writeValue(counter, envelope);
+                counter.flush();
+                written = counter.getCount();
+            }
+
+            @Override
+            public byte[] toByteArray() throws IOException {
+                byte[] payload = serializer.writeValueAsBytes(envelope);
+                written = payload.length;
+                return payload;
+            }
+        };
+    }
+}
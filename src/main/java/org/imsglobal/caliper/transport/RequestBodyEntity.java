@@ -0,0 +1,80 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.transport;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Adapts a RequestBody to Apache HttpClient.  A body of unknown length is sent with chunked transfer
+ * encoding.
+ */
+class RequestBodyEntity extends AbstractHttpEntity {
+    private final RequestBody body;
+
+    /**
+     * Constructor
+     * @param body
+     */
+    RequestBodyEntity(RequestBody body) {
+        this.body = body;
+        setContentType(body.getContentType());
+        setContentEncoding(body.getContentEncoding());
+        setChunked(body.getContentLength() < 0);
+    }
+
+    @Override
+    public boolean isRepeatable() {
+        return true;
+    }
+
+    @Override
+    public long getContentLength() {
+        return body.getContentLength();
+    }
+
+    /**
+     * Fallback for consumers that pull content rather than letting the entity write itself; this
+     * buffers the full payload.
+     * @return content stream
+     * @throws IOException
+     */
+    @Override
+    public InputStream getContent() throws IOException {
+        return new ByteArrayInputStream(body.toByteArray());
+    }
+
+    @Override
+    public void writeTo(OutputStream out) throws IOException {
+        body.writeTo(out);
+    }
+
+    /**
+     * The entity does not wrap an underlying stream.
+     * @return false
+     */
+    @Override
+    public boolean isStreaming() {
+        return false;
+    }
+}
@@ -0,0 +1,239 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.transport;
+
+import org.imsglobal.caliper.config.Timeout;
+import org.imsglobal.caliper.validators.SensorValidator;
+
+/**
+ * Connection settings handed to a TransportFactory.  Transports apply the settings their engine
+ * supports; an HTTP/2 transport, for instance, multiplexes requests over one connection per host and
+ * ignores the pool limits.
+ */
+public class TransportOptions {
+    private final int connectionRequestTimeout;
+    private final int connectTimeout;
+    private final int idleTimeout;
+    private final int keepAlive;
+    private final int maxConnections;
+    private final int maxConnectionsPerRoute;
+    private final int maxInFlight;
+    private final int socketTimeout;
+
+    /**
+     * Default connection settings.
+     */
+    public static final int IDLE_TIMEOUT = 60000;
+    public static final int KEEP_ALIVE = 30000;
+    public static final int MAX_CONNECTIONS = 50;
+    public static final int MAX_CONNECTIONS_PER_ROUTE = 20;
+    public static final int MAX_IN_FLIGHT = 64;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private TransportOptions(OptionsBuilder builder) {
+        this.connectionRequestTimeout = SensorValidator.chkPositiveIntValue(builder.connectionRequestTimeout,
+            Timeout.CONNECTION_REQUESTOR_TIMEOUT.value());
+        this.connectTimeout = SensorValidator.chkPositiveIntValue(builder.connectTimeout,
+            Timeout.CONNECTION_TIMEOUT.value());
+        this.idleTimeout = SensorValidator.chkPositiveIntValue(builder.idleTimeout, IDLE_TIMEOUT);
+        this.keepAlive = SensorValidator.chkPositiveIntValue(builder.keepAlive, KEEP_ALIVE);
+        this.maxConnections = SensorValidator.chkPositiveIntValue(builder.maxConnections, MAX_CONNECTIONS);
+        this.maxConnectionsPerRoute = Math.min(maxConnections,
+            SensorValidator.chkPositiveIntValue(builder.maxConnectionsPerRoute, MAX_CONNECTIONS_PER_ROUTE));
+        this.maxInFlight = SensorValidator.chkPositiveIntValue(builder.maxInFlight, MAX_IN_FLIGHT);
+        this.socketTimeout = SensorValidator.chkPositiveIntValue(builder.socketTimeout,
+            Timeout.SOCKET_TIMEOUT.value());
+    }
+
+    /**
+     * Get the time in milliseconds to wait for a pooled connection.
+     * @return connection request timeout
+     */
+    public int getConnectionRequestTimeout() {
+        return connectionRequestTimeout;
+    }
+
+    /**
+     * Get the time in milliseconds to establish a connection.
+     * @return connect timeout
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * Get the time in milliseconds after which idle connections are closed.
+     * @return idle timeout
+     */
+    public int getIdleTimeout() {
+        return idleTimeout;
+    }
+
+    /**
+     * Get the time in milliseconds a connection is kept alive when the server does not say.
+     * @return keep alive
+     */
+    public int getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * Get the maximum number of pooled connections.
+     * @return max connections
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * Get the maximum number of pooled connections per route.
+     * @return max connections per route
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * Get the maximum number of asynchronous requests the client keeps in flight.
+     * @return max in flight
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * Get the time in milliseconds to wait for response data.
+     * @return socket timeout
+     */
+    public int getSocketTimeout() {
+        return socketTimeout;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting options properties.
+     */
+    public static class OptionsBuilder {
+        private int connectionRequestTimeout = 0;
+        private int connectTimeout = 0;
+        private int idleTimeout = 0;
+        private int keepAlive = 0;
+        private int maxConnections = 0;
+        private int maxConnectionsPerRoute = 0;
+        private int maxInFlight = 0;
+        private int socketTimeout = 0;
+
+        /**
+         * Constructor
+         */
+        public OptionsBuilder() {
+
+        }
+
+        /**
+         * @param connectionRequestTimeout
+         * @return builder
+         */
+        public OptionsBuilder connectionRequestTimeout(final int connectionRequestTimeout) {
+            this.connectionRequestTimeout = connectionRequestTimeout;
+            return this;
+        }
+
+        /**
+         * @param connectTimeout
+         * @return builder
+         */
+        public OptionsBuilder connectTimeout(final int connectTimeout) {
+            this.connectTimeout = connectTimeout;
+            return this;
+        }
+
+        /**
+         * @param idleTimeout
+         * @return builder
+         */
+        public OptionsBuilder idleTimeout(final int idleTimeout) {
+            this.idleTimeout = idleTimeout;
+            return this;
+        }
+
+        /**
+         * @param keepAlive
+         * @return builder
+         */
+        public OptionsBuilder keepAlive(final int keepAlive) {
+            this.keepAlive = keepAlive;
+            return this;
+        }
+
+        /**
+         * @param maxConnections
+         * @return builder
+         */
+        public OptionsBuilder maxConnections(final int maxConnections) {
+            this.maxConnections = maxConnections;
+            return this;
+        }
+
+        /**
+         * @param maxConnectionsPerRoute
+         * @return builder
+         */
+        public OptionsBuilder maxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+            this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+            return this;
+        }
+
+        /**
+         * @param maxInFlight
+         * @return builder
+         */
+        public OptionsBuilder maxInFlight(final int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * @param socketTimeout
+         * @return builder
+         */
+        public OptionsBuilder socketTimeout(final int socketTimeout) {
+            this.socketTimeout = socketTimeout;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable options object.
+         * @return a new instance of TransportOptions.
+         */
+        public TransportOptions build() {
+            return new TransportOptions(this);
+        }
+    }
+
+    /**
+     * Static factory method.
+     * @return a new instance of OptionsBuilder.
+     */
+    public static OptionsBuilder builder() {
+        return new OptionsBuilder();
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.transport;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Immutable POST request handed to a transport.  The same request may be executed more than once.
+ */
+public class TransportRequest {
+    private final URI uri;
+    private final Map<String, String> headers;
+    private final RequestBody body;
+
+    /**
+     * Constructor
+     * @param builder
+     */
+    private TransportRequest(RequestBuilder builder) {
+        this.uri = builder.uri;
+        this.headers = Collections.unmodifiableMap(new LinkedHashMap<>(builder.headers));
+        this.body = builder.body;
+    }
+
+    /**
+     * Get the target URI.
+     * @return uri
+     */
+    public URI getUri() {
+        return uri;
+    }
+
+    /**
+     * Get the request headers, excluding Content-Type and Content-Encoding which come from the body.
+     * @return headers
+     */
+    public Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Get the request body.
+     * @return body
+     */
+    public RequestBody getBody() {
+        return body;
+    }
+
+    /**
+     * Builder class provides a fluid interface for setting request properties.
+     */
+    public static class RequestBuilder {
+        private URI uri;
+        private Map<String, String> headers = new LinkedHashMap<>();
+        private RequestBody body;
+
+        /**
+         * Constructor
+         */
+        public RequestBuilder() {
+
+        }
+
+        /**
+         * @param uri
+         * @return builder
+         */
+        public RequestBuilder uri(final URI uri) {
+            this.uri = uri;
+            return this;
+        }
+
+        /**
+         * @param name
+         * @param value
+         * @return builder
+         */
+        public RequestBuilder header(final String name, final String value) {
+            if (value != null) {
+                this.headers.put(name, value);
+            }
+            return this;
+        }
+
+        /**
+         * @param body
+         * @return builder
+         */
+        public RequestBuilder body(final RequestBody body) {
+            this.body = body;
+            return this;
+        }
+
+        /**
+         * Client invokes build method in order to create an immutable request.
+         * @return a new instance of TransportRequest.
+         */
+        public TransportRequest build() {
+            if (uri == null || body == null) {
+                throw new IllegalArgumentException("Request URI and body must be specified.");
+            }
+            return new TransportRequest(this);
+        }
+    }
+
+    /**
+     * Static factory method.
+     * @return a new instance of RequestBuilder.
+     */
+    public static RequestBuilder builder() {
+        return new RequestBuilder();
+    }
+}
@@ -0,0 +1,94 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.transport;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * Factories for the bundled transports.
+ *
+ * The JDK transport is built on java.net.http.HttpClient, which multiplexes many in-flight requests
+ * over a single HTTP/2 connection per host.  It is compiled for Java 11 into the versioned section
+ * of the multi-release jar (META-INF/versions/11), so it is only available when the library is loaded
+ * from the jar on a Java 11 or later runtime, and is looked up reflectively.
+ */
+public final class Transports {
+    private static final String JDK_TRANSPORT = "org.imsglobal.caliper.transport.JdkHttpTransport";
+
+    /**
+     * Private constructor
+     */
+    private Transports() {
+
+    }
+
+    /**
+     * Get the Apache HttpClient (HTTP/1.1) transport factory.
+     * @return factory
+     */
+    public static TransportFactory apache() {
+        return ApacheHttpTransport.FACTORY;
+    }
+
+    /**
+     * Is the JDK HTTP/2 transport available on this runtime?
+     * @return true if it can be created
+     */
+    public static boolean isJdkAvailable() {
+        try {
+            Class.forName(JDK_TRANSPORT);
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Get the JDK java.net.http (HTTP/2) transport factory.
+     * @return factory
+     * @throws UnsupportedOperationException if the runtime is older than Java 11 or the library is not
+     * loaded from its multi-release jar
+     */
+    public static TransportFactory jdk() {
+        final Method create;
+        try {
+            create = Class.forName(JDK_TRANSPORT).getMethod("create", TransportOptions.class);
+        } catch (ClassNotFoundException | NoSuchMethodException | LinkageError e) {
+            throw new UnsupportedOperationException("The JDK HTTP/2 transport requires Java 11 or later.", e);
+        }
+
+        return new TransportFactory() {
+            @Override
+            public CaliperTransport create(TransportOptions options) {
+                try {
+                    return (CaliperTransport) create.invoke(null, options);
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                } catch (InvocationTargetException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        };
+    }
+}
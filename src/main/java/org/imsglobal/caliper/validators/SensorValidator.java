@@ -21,6 +21,8 @@ package org.imsglobal.caliper.validators;
 import com.google.common.base.Strings;
 import org.imsglobal.caliper.clients.CaliperClientOptions;
 
+import java.nio.file.Path;
+
 import static com.google.common.base.Preconditions.checkArgument;
 
 public class SensorValidator {
@@ -61,6 +63,26 @@ public class SensorValidator {
         checkArgument(options != null, "Sensor client configuration options must be specified.");
     }
 
+    /**
+     * Check spool directory
+     *
+     * @param directory
+     * @throws IllegalArgumentException
+     */
+    public static void chkSpoolDirectory(Path directory) throws IllegalArgumentException {
+        checkArgument(directory != null, "Spool directory must be specified.");
+    }
+
+    /**
+     * Check file sink directory
+     *
+     * @param directory
+     * @throws IllegalArgumentException
+     */
+    public static void chkFileDirectory(Path directory) throws IllegalArgumentException {
+        checkArgument(directory != null, "File client directory must be specified.");
+    }
+
     /**
      * Check if Sensor identifier is null or empty.
      *
@@ -82,6 +104,16 @@ public class SensorValidator {
         return (builderValue > defaultValue) ? builderValue : defaultValue;
     }
 
+    /**
+     * Check user-supplied integer value; if not a positive number return the default config value.
+     * @param builderValue
+     * @param defaultValue
+     * @return
+     */
+    public static int chkPositiveIntValue(int builderValue, int defaultValue) {
+        return (builderValue > 0) ? builderValue : defaultValue;
+    }
+
     /**
      * Check user-supplied integer value against default config value;
      * if null or empty return default config value.
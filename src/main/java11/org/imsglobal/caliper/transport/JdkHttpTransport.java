@@ -0,0 +1,164 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.transport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * HTTP/2 transport built on the JDK's java.net.http.HttpClient.  All requests to a host share one
+ * multiplexed connection (falling back to HTTP/1.1 if the server does not negotiate HTTP/2), so a high
+ * number of in-flight envelopes costs neither extra sockets nor extra TLS handshakes.  Bodies are
+ * buffered before sending.  Responses are handled on a daemon thread pool owned by the transport, which
+ * close() shuts down.
+ *
+ * Compiled for Java 11 into META-INF/versions/11; obtain it through Transports.jdk().
+ */
+public class JdkHttpTransport implements CaliperTransport {
+    private final HttpClient httpClient;
+    private final ExecutorService executor;
+    private final Duration requestTimeout;
+    private volatile boolean closed;
+
+    private static final Logger log = LoggerFactory.getLogger(JdkHttpTransport.class);
+
+    /**
+     * Constructor. Scope is private to force use of the static factory method.
+     * @param options
+     */
+    private JdkHttpTransport(TransportOptions options) {
+        final AtomicInteger count = new AtomicInteger();
+        this.executor = Executors.newCachedThreadPool(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "caliper-jdk-http-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .connectTimeout(Duration.ofMillis(options.getConnectTimeout()))
+            .executor(executor)
+            .build();
+        this.requestTimeout = Duration.ofMillis(options.getSocketTimeout());
+    }
+
+    @Override
+    public TransportResponse send(TransportRequest request) throws IOException {
+        try {
+            return toResponse(httpClient.send(createRequest(request), HttpResponse.BodyHandlers.discarding()));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while sending HTTP POST");
+        }
+    }
+
+    @Override
+    public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+        try {
+            return httpClient.sendAsync(createRequest(request), HttpResponse.BodyHandlers.discarding())
+                .thenApply(JdkHttpTransport::toResponse);
+        } catch (IOException | RuntimeException ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Build a POST carrying the request headers and buffered body.
+     * @param request
+     * @return request
+     * @throws IOException if the body cannot be produced
+     */
+    private HttpRequest createRequest(TransportRequest request) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Transport is closed.");
+        }
+        RequestBody body = request.getBody();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(request.getUri())
+            .timeout(requestTimeout)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(body.toByteArray()));
+
+        for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+            builder.setHeader(header.getKey(), header.getValue());
+        }
+        if (body.getContentType() != null) {
+            builder.setHeader("Content-Type", body.getContentType());
+        }
+        if (body.getContentEncoding() != null) {
+            builder.setHeader("Content-Encoding", body.getContentEncoding());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Copy the status and the first value of each header.
+     * @param response
+     * @return transport response
+     */
+    private static TransportResponse toResponse(HttpResponse<?> response) {
+        if (log.isDebugEnabled()) {
+            log.debug(response.version() + " " + response.statusCode());
+        }
+
+        Map<String, String> headers = new HashMap<>();
+        HttpHeaders all = response.headers();
+        for (Map.Entry<String, List<String>> header : all.map().entrySet()) {
+            if (!header.getValue().isEmpty()) {
+                headers.put(header.getKey(), header.getValue().get(0));
+            }
+        }
+        return new TransportResponse(response.statusCode(), headers);
+    }
+
+    /**
+     * Reject further requests and shut down the response thread pool.  Java 11's HttpClient has no close
+     * method of its own; its connections are released once it becomes unreachable.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        executor.shutdownNow();
+    }
+
+    /**
+     * Factory method for instantiating a transport.
+     * @param options
+     * @return transport
+     */
+    public static JdkHttpTransport create(TransportOptions options) {
+        return new JdkHttpTransport(options);
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class SendListenersTest {
+
+    @Test
+    public void ignoresDuplicatesAndIsolatesFailingListeners() {
+        SendListeners listeners = new SendListeners();
+        final AtomicInteger dropped = new AtomicInteger();
+        SendListener counting = new SendListener() {
+            @Override
+            public void onDropped(String sourceId, Envelope envelope, long droppedNanos) {
+                dropped.incrementAndGet();
+            }
+        };
+        SendListener failing = new SendListener() {
+            @Override
+            public void onDropped(String sourceId, Envelope envelope, long droppedNanos) {
+                throw new IllegalStateException("listener bug");
+            }
+        };
+
+        assertTrue(listeners.isEmpty());
+        listeners.add(failing);
+        listeners.add(counting);
+        listeners.add(counting);
+        listeners.onDropped("sensor", null, System.nanoTime());
+        assertEquals(1, dropped.get());
+
+        listeners.remove(failing);
+        listeners.remove(counting);
+        assertTrue(listeners.isEmpty());
+        listeners.onDropped("sensor", null, System.nanoTime());
+        assertEquals(1, dropped.get());
+    }
+
+    @Test
+    public void removingUnknownListenerIsIgnored() {
+        SendListeners listeners = new SendListeners();
+        listeners.add(new SendListener() { });
+        listeners.remove(new SendListener() { });
+        assertFalse(listeners.isEmpty());
+    }
+}
@@ -0,0 +1,354 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.clients.CaliperClient;
+import org.imsglobal.caliper.clients.CaliperClientOptions;
+import org.imsglobal.caliper.clients.HttpClient;
+import org.imsglobal.caliper.clients.HttpClientOptions;
+import org.imsglobal.caliper.clients.SendResult;
+import org.imsglobal.caliper.config.DataFormat;
+import org.imsglobal.caliper.events.Event;
+import org.imsglobal.caliper.events.EventType;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.transport.CaliperTransport;
+import org.imsglobal.caliper.transport.TransportFactory;
+import org.imsglobal.caliper.transport.TransportOptions;
+import org.imsglobal.caliper.transport.TransportRequest;
+import org.imsglobal.caliper.transport.TransportResponse;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class SensorFanOutTest {
+
+    @Test
+    public void awaitAllIsolatesFailingClient() {
+        StubClient fast = new StubClient("fast", false);
+        StubClient failing = new StubClient("failing", true);
+        Sensor sensor = Sensor.create("sensor", SensorOptions.builder().queued(false).build());
+        sensor.registerClient(fast);
+        sensor.registerClient(failing);
+
+        sensor.send(envelope());
+
+        assertEquals(0, fast.sent.getCount());
+        assertEquals(0, failing.sent.getCount());
+        sensor.close();
+    }
+
+    @Test
+    public void awaitAnyReturnsAfterFirstSuccess() throws InterruptedException {
+        StubClient fast = new StubClient("fast", false);
+        StubClient slow = new StubClient("slow", false);
+        slow.gate = new CountDownLatch(1);
+        Sensor sensor = Sensor.create("sensor", SensorOptions.builder()
+            .queued(false).awaitMode(SensorOptions.AwaitMode.ANY).build());
+        sensor.registerClient(fast);
+        sensor.registerClient(slow);
+
+        sensor.send(envelope());
+
+        assertEquals(0, fast.sent.getCount());
+        assertEquals(1, slow.sent.getCount());
+        slow.gate.countDown();
+        assertTrue(slow.sent.await(5, TimeUnit.SECONDS));
+        sensor.close();
+    }
+
+    @Test
+    public void awaitNoneReturnsImmediately() throws InterruptedException {
+        StubClient slow = new StubClient("slow", false);
+        slow.gate = new CountDownLatch(1);
+        Sensor sensor = Sensor.create("sensor", SensorOptions.builder()
+            .queued(false).awaitMode(SensorOptions.AwaitMode.NONE).build());
+        sensor.registerClient(slow);
+
+        sensor.send(envelope());
+
+        assertEquals(1, slow.sent.getCount());
+        slow.gate.countDown();
+        assertTrue(slow.sent.await(5, TimeUnit.SECONDS));
+        sensor.close();
+    }
+
+    @Test
+    public void serializesOnceForClientsSharingFormat() {
+        StubClient first = new StubClient("first", false);
+        StubClient second = new StubClient("second", false);
+        StubClient plain = new StubClient("plain", false);
+        first.format = DataFormat.CALIPER_JSONLD;
+        second.format = DataFormat.CALIPER_JSONLD;
+        Sensor sensor = Sensor.create("sensor");
+        sensor.registerClient(first);
+        sensor.registerClient(second);
+        sensor.registerClient(plain);
+
+        sensor.send(envelope());
+
+        assertNotNull(first.serialized);
+        assertSame(first.serialized, second.serialized);
+        assertNull(plain.serialized);
+        assertEquals(0, plain.sent.getCount());
+    }
+
+    @Test
+    public void countsEventsByTypeAndOutcomePerClient() {
+        HttpClient fast = httpClient("fast", new StatusTransport(200), HttpClientOptions.builder());
+        HttpClient rejected = httpClient("rejected", new StatusTransport(400), HttpClientOptions.builder());
+        HttpClient failing = httpClient("failing", new StatusTransport(StatusTransport.UNREACHABLE),
+            HttpClientOptions.builder());
+        Sensor sensor = Sensor.create("sensor", SensorOptions.builder().queued(false).build());
+        sensor.registerClient(fast);
+        sensor.registerClient(rejected);
+        sensor.registerClient(failing);
+
+        ArrayList<CaliperSendable> data = new ArrayList<>();
+        data.add(Event.builder().id("urn:uuid:1").type(EventType.VIEW).action(Action.VIEWED).build());
+        data.add(Event.builder().id("urn:uuid:2").type(EventType.VIEW).action(Action.VIEWED).build());
+        data.add(Event.builder().id("urn:uuid:3").type(EventType.MEDIA).action(Action.STARTED).build());
+        sensor.send(new Envelope("sensor", DateTime.now(), "1.1", data));
+
+        assertEquals(2, fast.getStatistics().getEventsSent().getCount(EventType.VIEW));
+        assertEquals(1, fast.getStatistics().getEventsSent().getCount(Action.STARTED));
+        assertEquals(0, fast.getStatistics().getEventsFailed().getCount(EventType.VIEW));
+        assertEquals(2, rejected.getStatistics().getEventsFailed().getCount(EventType.VIEW));
+        assertEquals(0, rejected.getStatistics().getEventsSent().getCount(EventType.MEDIA));
+
+        // HttpClient logs rather than throws a transport failure; its events still count as failed
+        assertEquals(1, failing.getStatistics().getEventsFailed().getCount(Action.STARTED));
+        assertEquals(0, failing.getStatistics().getEventsSent().getCount(EventType.VIEW));
+        sensor.close();
+        fast.close();
+        rejected.close();
+        failing.close();
+    }
+
+    @Test
+    public void openCircuitDivertsSharedSerializationToFallback() {
+        StubClient fallback = new StubClient("fallback", false);
+        StatusTransport down = new StatusTransport(503);
+        StatusTransport up = new StatusTransport(200);
+        HttpClient tripped = httpClient("down", down, HttpClientOptions.builder()
+            .circuitBreakerThreshold(1)
+            .circuitBreakerOpenMs(60000)
+            .fallback(fallback));
+        HttpClient healthy = httpClient("up", up, HttpClientOptions.builder());
+        try {
+            tripped.send(envelope());
+        } catch (RuntimeException expected) {
+            // 503 opens the circuit
+        }
+        Sensor sensor = Sensor.create("sensor");
+        sensor.registerClient(tripped);
+        sensor.registerClient(healthy);
+
+        Envelope envelope = envelope();
+        sensor.send(envelope);
+
+        assertSame(envelope, fallback.envelope);
+        assertEquals(1, down.requests.get());
+        assertEquals(1, up.requests.get());
+        tripped.close();
+        healthy.close();
+    }
+
+    @Test
+    public void listenersSeeSourceOfSharedSerialization() {
+        HttpClient up = httpClient("up", new StatusTransport(200), HttpClientOptions.builder());
+        HttpClient rejecting = httpClient("rejecting", new StatusTransport(400), HttpClientOptions.builder());
+        Sensor sensor = Sensor.create("sensor", SensorOptions.builder().queued(false).build());
+        sensor.registerClient(up);
+        sensor.registerClient(rejecting);
+        final List<Envelope> seen = Collections.synchronizedList(new ArrayList<Envelope>());
+        sensor.addListener(new SendListener() {
+            @Override
+            public void onSent(String clientId, Envelope envelope, long sentNanos, long bytes) {
+                seen.add(envelope);
+            }
+
+            @Override
+            public void onAcknowledged(String clientId, Envelope envelope, long sentNanos, long acknowledgedNanos,
+                                       int statusCode, long bytes) {
+                seen.add(envelope);
+            }
+
+            @Override
+            public void onFailed(String clientId, Envelope envelope, long failedNanos, int statusCode,
+                                 Throwable cause) {
+                seen.add(envelope);
+            }
+        });
+
+        Envelope envelope = envelope();
+        sensor.send(envelope);
+
+        // onSent and onAcknowledged from one client, onSent and onFailed from the other
+        assertEquals(4, seen.size());
+        for (Envelope notified : seen) {
+            assertSame(envelope, notified);
+        }
+        sensor.close();
+        up.close();
+        rejecting.close();
+    }
+
+    private static HttpClient httpClient(String id, final StatusTransport transport,
+                                         HttpClientOptions.OptionsBuilder builder) {
+        return HttpClient.create(id, builder
+            .apiKey("key")
+            .transport(new TransportFactory() {
+                @Override
+                public CaliperTransport create(TransportOptions options) {
+                    return transport;
+                }
+            })
+            .build());
+    }
+
+    private static Envelope envelope() {
+        return new Envelope("sensor", DateTime.now(), "1.1", new ArrayList<CaliperSendable>());
+    }
+
+    /**
+     * Transport that answers every request with the same status, or fails if UNREACHABLE.
+     */
+    private static class StatusTransport implements CaliperTransport {
+        static final int UNREACHABLE = -1;
+
+        private final int status;
+        private final AtomicInteger requests = new AtomicInteger();
+
+        StatusTransport(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public TransportResponse send(TransportRequest request) throws IOException {
+            requests.incrementAndGet();
+            if (status == UNREACHABLE) {
+                throw new IOException("Connection refused");
+            }
+            return new TransportResponse(status, Collections.<String, String>emptyMap());
+        }
+
+        @Override
+        public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+            CompletableFuture<TransportResponse> future = new CompletableFuture<>();
+            try {
+                future.complete(send(request));
+            } catch (IOException ioe) {
+                future.completeExceptionally(ioe);
+            }
+            return future;
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+
+    /**
+     * Client that optionally waits on a gate and optionally fails.
+     */
+    private static class StubClient implements CaliperClient {
+        private final String id;
+        private final boolean failing;
+        private final CountDownLatch sent = new CountDownLatch(1);
+        private final Statistics statistics = new Statistics();
+        private volatile CountDownLatch gate = new CountDownLatch(0);
+        private volatile DataFormat format;
+        private volatile SerializedEnvelope serialized;
+        private volatile Envelope envelope;
+
+        StubClient(String id, boolean failing) {
+            this.id = id;
+            this.failing = failing;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            try {
+                gate.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            this.envelope = envelope;
+            sent.countDown();
+            if (failing) {
+                throw new RuntimeException("endpoint unavailable");
+            }
+        }
+
+        @Override
+        public DataFormat getDataFormat() {
+            return format;
+        }
+
+        @Override
+        public void send(SerializedEnvelope envelope) {
+            serialized = envelope;
+            sent.countDown();
+        }
+
+        @Override
+        public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+            send(envelope);
+            return CompletableFuture.completedFuture(new SendResult(200, true));
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
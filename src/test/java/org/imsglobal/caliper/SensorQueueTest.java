@@ -0,0 +1,185 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper;
+
+import org.imsglobal.caliper.clients.CaliperClient;
+import org.imsglobal.caliper.clients.CaliperClientOptions;
+import org.imsglobal.caliper.clients.SendResult;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class SensorQueueTest {
+
+    @Test
+    public void sendsQueuedEnvelopesBeforeClose() {
+        GatedClient client = new GatedClient();
+        client.gate.countDown();
+        Sensor sensor = Sensor.create("sensor", SensorOptions.builder().workers(2).build());
+        sensor.registerClient(client);
+
+        for (int i = 0; i < 50; i++) {
+            sensor.send(envelope(i));
+        }
+        sensor.close();
+
+        assertEquals(50, client.envelopes.size());
+        assertEquals(0, sensor.getQueueStatistics().getDropped().getCount());
+    }
+
+    @Test
+    public void dropNewestRejectsEnvelopesThatDoNotFit() throws InterruptedException {
+        GatedClient client = new GatedClient();
+        Sensor sensor = Sensor.create("sensor", SensorOptions.builder()
+            .queueCapacity(2).overflowPolicy(SensorOptions.OverflowPolicy.DROP_NEWEST).build());
+        sensor.registerClient(client);
+
+        List<Envelope> sent = send(sensor, client, 5);
+
+        assertEquals(2, sensor.getQueueDepth());
+        assertEquals(2, sensor.getQueueStatistics().getDropped().getCount());
+        client.gate.countDown();
+        sensor.close();
+        assertEquals(sent.subList(0, 3), client.envelopes);
+    }
+
+    @Test
+    public void dropOldestEvictsQueuedEnvelopes() throws InterruptedException {
+        GatedClient client = new GatedClient();
+        Sensor sensor = Sensor.create("sensor", SensorOptions.builder()
+            .queueCapacity(2).overflowPolicy(SensorOptions.OverflowPolicy.DROP_OLDEST).build());
+        sensor.registerClient(client);
+
+        List<Envelope> sent = send(sensor, client, 5);
+
+        assertEquals(2, sensor.getQueueStatistics().getDropped().getCount());
+        client.gate.countDown();
+        sensor.close();
+        assertEquals(3, client.envelopes.size());
+        assertEquals(sent.get(0), client.envelopes.get(0));
+        assertEquals(sent.subList(3, 5), client.envelopes.subList(1, 3));
+    }
+
+    @Test
+    public void listenersSeeEnqueuedAndDroppedEnvelopes() throws InterruptedException {
+        GatedClient client = new GatedClient();
+        Sensor sensor = Sensor.create("sensor", SensorOptions.builder()
+            .queueCapacity(2).overflowPolicy(SensorOptions.OverflowPolicy.DROP_NEWEST).build());
+        sensor.registerClient(client);
+        final List<Envelope> enqueued = new CopyOnWriteArrayList<>();
+        final List<Envelope> dropped = new CopyOnWriteArrayList<>();
+        sensor.addListener(new SendListener() {
+            @Override
+            public void onEnqueued(String sensorId, Envelope envelope, long enqueuedNanos) {
+                enqueued.add(envelope);
+            }
+
+            @Override
+            public void onDropped(String sourceId, Envelope envelope, long droppedNanos) {
+                dropped.add(envelope);
+            }
+        });
+
+        List<Envelope> sent = send(sensor, client, 5);
+
+        assertEquals(sent.subList(0, 3), enqueued);
+        assertEquals(sent.subList(3, 5), dropped);
+        client.gate.countDown();
+        sensor.close();
+    }
+
+    /**
+     * Send the first envelope and wait for the worker to block on it, then send the rest.
+     */
+    private static List<Envelope> send(Sensor sensor, GatedClient client, int count) throws InterruptedException {
+        List<Envelope> sent = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            Envelope envelope = envelope(i);
+            sent.add(envelope);
+            sensor.send(envelope);
+            if (i == 0) {
+                assertTrue(client.entered.await(5, TimeUnit.SECONDS));
+            }
+        }
+        return sent;
+    }
+
+    private static Envelope envelope(int i) {
+        return new Envelope("sensor-" + i, DateTime.now(), "1.1", new ArrayList<CaliperSendable>());
+    }
+
+    /**
+     * Client that blocks until its gate is opened.
+     */
+    private static class GatedClient implements CaliperClient {
+        private final List<Envelope> envelopes = new CopyOnWriteArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private final Statistics statistics = new Statistics();
+
+        @Override
+        public String getId() {
+            return "gated";
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            entered.countDown();
+            try {
+                gate.await();
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+            }
+            envelopes.add(envelope);
+        }
+
+        @Override
+        public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+            send(envelope);
+            return CompletableFuture.completedFuture(new SendResult(200, true));
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
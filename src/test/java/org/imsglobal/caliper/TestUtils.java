@@ -18,12 +18,8 @@
 
 package org.imsglobal.caliper;
 
-import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
-import com.fasterxml.jackson.databind.util.ISO8601DateFormat;
-import com.fasterxml.jackson.datatype.joda.JodaModule;
-import org.imsglobal.caliper.databind.JxnCoercibleSimpleModule;
+import org.imsglobal.caliper.databind.CaliperSerializer;
 
 public class TestUtils {
 
@@ -32,15 +28,6 @@ public class TestUtils {
      * @return ObjectMapper
      */
     public static ObjectMapper createCaliperObjectMapper() {
-        SimpleFilterProvider provider = new SimpleFilterProvider()
-            .setFailOnUnknownId(true);
-
-        ObjectMapper mapper = new ObjectMapper()
-            .setDateFormat(new ISO8601DateFormat())
-            .setSerializationInclusion(JsonInclude.Include.NON_EMPTY)
-            .setFilterProvider(provider)
-            .registerModules(new JodaModule(), new JxnCoercibleSimpleModule());
-
-        return mapper;
+        return CaliperSerializer.getDefault().getObjectMapper();
     }
 }
\ No newline at end of file
@@ -0,0 +1,163 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.entities.agent.Person;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class BatchingClientTest {
+    private RecordingClient delegate;
+    private BatchingClient client;
+
+    private static final String BASE_IRI = "https://example.edu";
+
+    @Before
+    public void setup() {
+        delegate = new RecordingClient();
+    }
+
+    @Test
+    public void flushesWhenMaxEventsReached() throws Exception {
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .maxEvents(5)
+            .minEvents(5)
+            .lingerMs(60000)
+            .build());
+
+        CompletableFuture<SendResult> future = null;
+        for (int i = 0; i < 5; i++) {
+            future = client.add(person(i));
+        }
+
+        assertTrue(future.get(5, TimeUnit.SECONDS).isSuccessful());
+        assertEquals(1, delegate.envelopes.size());
+        assertEquals(5, delegate.envelopes.get(0).getData().size());
+    }
+
+    @Test
+    public void flushesWhenLingerExpires() throws Exception {
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .maxEvents(100)
+            .lingerMs(50)
+            .build());
+
+        CompletableFuture<SendResult> future = client.add(person(1));
+        client.add(person(2));
+
+        assertTrue(future.get(5, TimeUnit.SECONDS).isSuccessful());
+        assertEquals(1, delegate.envelopes.size());
+        assertEquals(2, delegate.envelopes.get(0).getData().size());
+        assertEquals("batching", delegate.envelopes.get(0).getSensorId());
+    }
+
+    @Test
+    public void flushesWhenMaxBytesReached() throws Exception {
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .maxEvents(100)
+            .maxBytes(100)
+            .lingerMs(60000)
+            .build());
+
+        // Each Person serializes to roughly 70 bytes, so the second cannot join the first's batch
+        CompletableFuture<SendResult> first = client.add(person(1));
+        CompletableFuture<SendResult> second = client.add(person(2));
+
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals(1, delegate.envelopes.size());
+        assertEquals(1, delegate.envelopes.get(0).getData().size());
+        assertTrue(first != second);
+    }
+
+    @Test
+    public void closeFlushesPendingEvents() {
+        client = BatchingClient.create("batching", delegate, BatchingClientOptions.builder()
+            .lingerMs(60000)
+            .build());
+
+        client.add(person(1));
+        client.close();
+
+        assertEquals(1, delegate.envelopes.size());
+        assertTrue(delegate.closed);
+    }
+
+    @After
+    public void teardown() {
+        client.close();
+    }
+
+    private static CaliperSendable person(int i) {
+        return Person.builder().id(BASE_IRI.concat("/users/" + i)).name("Learner " + i).build();
+    }
+
+    /**
+     * Client stub that records the Envelopes it is asked to send.
+     */
+    private static class RecordingClient implements CaliperClient {
+        private final List<Envelope> envelopes = new CopyOnWriteArrayList<>();
+        private final Statistics statistics = new Statistics();
+        private volatile boolean closed;
+
+        @Override
+        public String getId() {
+            return "recording";
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            envelopes.add(envelope);
+        }
+
+        @Override
+        public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+            envelopes.add(envelope);
+            return CompletableFuture.completedFuture(new SendResult(200, true));
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class CaliperClientTest {
+
+    @Test
+    public void defaultSendAsyncDelegatesToSend() throws Exception {
+        MinimalClient client = new MinimalClient(false);
+
+        SendResult result = client.sendAsync(envelope()).get(5, TimeUnit.SECONDS);
+
+        assertTrue(result.isSuccessful());
+        assertEquals(SendResult.UNKNOWN_STATUS, result.getStatusCode());
+        assertEquals(1, client.sent.get());
+        client.close();
+    }
+
+    @Test
+    public void defaultSendAsyncReportsSendFailure() throws Exception {
+        MinimalClient client = new MinimalClient(true);
+
+        try {
+            client.sendAsync(envelope()).get(5, TimeUnit.SECONDS);
+            fail("Expected the send failure");
+        } catch (ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    private static Envelope envelope() {
+        return new Envelope("sensor", DateTime.now(), "1.1", new ArrayList<CaliperSendable>());
+    }
+
+    /**
+     * Client implementing only the methods CaliperClient requires.
+     */
+    private static class MinimalClient implements CaliperClient {
+        private final AtomicInteger sent = new AtomicInteger();
+        private final boolean failing;
+
+        MinimalClient(boolean failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public String getId() {
+            return "minimal";
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return null;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            if (failing) {
+                throw new IllegalStateException("endpoint down");
+            }
+            sent.incrementAndGet();
+        }
+    }
+}
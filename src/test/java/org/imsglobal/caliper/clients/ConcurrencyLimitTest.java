@@ -0,0 +1,89 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class ConcurrencyLimitTest {
+    private static final long RTT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    public void fixedLimitIgnoresSamples() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(false, 1, 2);
+
+        assertTrue(limit.tryAcquire());
+        assertTrue(limit.tryAcquire());
+        assertFalse(limit.tryAcquire());
+
+        limit.onSample(RTT, true);
+        assertEquals(2, limit.getLimit());
+    }
+
+    @Test
+    public void growsWhileLatencyStaysFlat() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(true, 1, 20);
+        assertEquals(ConcurrencyLimit.INITIAL_LIMIT, limit.getLimit());
+
+        // Keep the limit saturated so that growth is not app-limited
+        for (int i = 0; i < 50; i++) {
+            while (limit.tryAcquire()) {
+                // fill every slot
+            }
+            limit.onSample(RTT, false);
+        }
+        assertEquals(20, limit.getLimit());
+    }
+
+    @Test
+    public void doesNotGrowWhenIdle() {
+        ConcurrencyLimit limit = new ConcurrencyLimit(true, 1, 20);
+
+        for (int i = 0; i < 50; i++) {
+            assertTrue(limit.tryAcquire());
+            limit.onSample(RTT, false);
+            limit.release();
+        }
+        assertEquals(ConcurrencyLimit.INITIAL_LIMIT, limit.getLimit());
+    }
+
+    @Test
+    public void backsOffOnFailureAndRisingLatency() throws Exception {
+        long rtt = TimeUnit.MILLISECONDS.toNanos(1);
+        ConcurrencyLimit limit = new ConcurrencyLimit(true, 2, 20);
+        limit.onSample(rtt, false);
+
+        limit.onSample(rtt, true);
+        assertEquals((int) (ConcurrencyLimit.INITIAL_LIMIT * ConcurrencyLimit.BACKOFF_RATIO), limit.getLimit());
+
+        // Latency well above the tolerance keeps cutting, at most once per smoothed round trip
+        for (int i = 0; i < 300; i++) {
+            limit.onSample(rtt * 10, false);
+            Thread.sleep(1);
+        }
+        assertEquals(2, limit.getLimit());
+    }
+}
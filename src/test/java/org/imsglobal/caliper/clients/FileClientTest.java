@@ -0,0 +1,151 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.entities.agent.Person;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class FileClientTest {
+    private FileClient client;
+
+    private static final String BASE_IRI = "https://example.edu";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void writesOneLinePerEvent() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        client = FileClient.create("file", FileClientOptions.builder().directory(directory).build());
+
+        client.send(envelope(1, 2, 3));
+        client.close();
+
+        List<Path> files = list(directory, FileClient.SUFFIX);
+        assertEquals(1, files.size());
+        List<String> lines = Files.readAllLines(files.get(0), StandardCharsets.UTF_8);
+        assertEquals(3, lines.size());
+        assertTrue(lines.get(0).startsWith("{") && lines.get(0).contains("/users/1"));
+        assertEquals(1, client.getStatistics().getSuccessful().getCount());
+    }
+
+    @Test
+    public void rotatesWhenMaxFileBytesReached() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        client = FileClient.create("file", FileClientOptions.builder()
+            .directory(directory)
+            .maxFileBytes(100)
+            .build());
+
+        // Each Person line is roughly 70 bytes, so every send after the first starts a new file
+        for (int i = 0; i < 4; i++) {
+            client.send(envelope(i));
+        }
+        client.close();
+
+        assertEquals(4, list(directory, FileClient.SUFFIX).size());
+        assertEquals(0, list(directory, FileClient.ACTIVE_SUFFIX).size());
+    }
+
+    @Test
+    public void compressesRotatedFiles() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        client = FileClient.create("file", FileClientOptions.builder()
+            .directory(directory)
+            .gzip(true)
+            .lineMode(FileClientOptions.LineMode.ENVELOPE)
+            .build());
+
+        client.send(envelope(1, 2));
+        client.send(envelope(3));
+        client.close();
+
+        List<Path> files = list(directory, FileClient.GZIP_SUFFIX);
+        assertEquals(1, files.size());
+        assertEquals(0, list(directory, FileClient.CLOSED_SUFFIX).size());
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(files.get(0))), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("\"sensor\""));
+    }
+
+    @Test
+    public void completesLeftoverActiveFiles() throws Exception {
+        Path directory = folder.getRoot().toPath();
+        Files.write(directory.resolve("caliper-1-000000" + FileClient.ACTIVE_SUFFIX),
+            "{}\n".getBytes(StandardCharsets.UTF_8));
+
+        client = FileClient.create("file", FileClientOptions.builder().directory(directory).build());
+        client.close();
+
+        assertEquals(1, list(directory, FileClient.SUFFIX).size());
+    }
+
+    @After
+    public void teardown() {
+        client.close();
+    }
+
+    private static Envelope envelope(int... ids) {
+        List<CaliperSendable> data = new ArrayList<>();
+        for (int i : ids) {
+            data.add(Person.builder().id(BASE_IRI.concat("/users/" + i)).name("Learner " + i).build());
+        }
+        return new Envelope("sensor", DateTime.now(), "1.1", data);
+    }
+
+    private static List<Path> list(Path directory, String suffix) throws IOException {
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*" + suffix)) {
+            for (Path file : stream) {
+                files.add(file);
+            }
+        }
+        return files;
+    }
+}
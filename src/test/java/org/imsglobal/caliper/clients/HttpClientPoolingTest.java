@@ -0,0 +1,112 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.transport.ApacheHttpTransport;
+import org.imsglobal.caliper.transport.CaliperTransport;
+import org.imsglobal.caliper.transport.RequestBody;
+import org.imsglobal.caliper.transport.TransportFactory;
+import org.imsglobal.caliper.transport.TransportOptions;
+import org.imsglobal.caliper.transport.TransportRequest;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class HttpClientPoolingTest {
+    private HttpServer server;
+    private final List<Integer> remotePorts = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setup() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                remotePorts.add(exchange.getRemoteAddress().getPort());
+                ByteStreams.exhaust(exchange.getRequestBody());
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void teardown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void reusesPooledConnectionAndClosesTransport() throws Exception {
+        final List<CaliperTransport> transports = new ArrayList<>();
+        HttpClient client = HttpClient.create("pooled", HttpClientOptions.builder()
+            .host("http://127.0.0.1:" + server.getAddress().getPort() + "/")
+            .apiKey("key")
+            .transport(new TransportFactory() {
+                @Override
+                public CaliperTransport create(TransportOptions options) {
+                    CaliperTransport transport = ApacheHttpTransport.FACTORY.create(options);
+                    transports.add(transport);
+                    return transport;
+                }
+            })
+            .build());
+
+        for (int i = 0; i < 3; i++) {
+            client.send(new Envelope("sensor", DateTime.now(), "1.1", new ArrayList<CaliperSendable>()));
+        }
+
+        assertEquals(3, client.getStatistics().getSuccessful().getCount());
+        assertEquals(1, transports.size());
+        Set<Integer> connections = new HashSet<>(remotePorts);
+        assertEquals(1, connections.size());
+
+        client.close();
+        try {
+            transports.get(0).send(TransportRequest.builder()
+                .uri(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/"))
+                .body(RequestBody.of(new byte[0], "application/json", null))
+                .build());
+            fail("Expected the transport to be closed with the client");
+        } catch (IllegalStateException expected) {
+            // connection pool shut down
+        }
+    }
+}
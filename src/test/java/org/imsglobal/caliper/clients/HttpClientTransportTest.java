@@ -0,0 +1,391 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.SendListener;
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.events.Event;
+import org.imsglobal.caliper.events.EventType;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.imsglobal.caliper.transport.CaliperTransport;
+import org.imsglobal.caliper.transport.TransportFactory;
+import org.imsglobal.caliper.transport.TransportOptions;
+import org.imsglobal.caliper.transport.TransportRequest;
+import org.imsglobal.caliper.transport.TransportResponse;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class HttpClientTransportTest {
+
+    @Test
+    public void retriesServerErrorThroughTransport() {
+        StubTransport transport = new StubTransport(503, 200);
+        HttpClient client = create(transport, RetryPolicy.builder().initialBackoffMs(1).build());
+
+        client.send(envelope());
+
+        assertEquals(2, transport.bodies.size());
+        assertEquals(transport.bodies.get(0), transport.bodies.get(1));
+        assertEquals("key", transport.requests.get(0).getHeaders().get("Authorization"));
+        assertEquals(1, client.getStatistics().getSuccessful().getCount());
+        assertEquals(1, client.getStatistics().getRetries().getCount());
+        client.close();
+        assertTrue(transport.closed);
+    }
+
+    @Test
+    public void asyncRetryHonorsRetryAfter() throws Exception {
+        StubTransport transport = new StubTransport(429, 202);
+        transport.retryAfter = "0";
+        HttpClient client = create(transport, RetryPolicy.builder().build());
+
+        SendResult result = client.sendAsync(envelope()).get(5, TimeUnit.SECONDS);
+
+        assertEquals(202, result.getStatusCode());
+        assertEquals(2, transport.requests.size());
+        client.close();
+    }
+
+    @Test
+    public void recordsPayloadSizesFromStreamedBody() {
+        StubTransport transport = new StubTransport(503, 200);
+        HttpClient client = create(transport, RetryPolicy.builder().initialBackoffMs(1).build());
+        List<CaliperSendable> data = new ArrayList<>();
+        data.add(Event.builder().id("urn:uuid:1").type(EventType.VIEW).action(Action.VIEWED).build());
+        data.add(Event.builder().id("urn:uuid:2").type(EventType.VIEW).action(Action.VIEWED).build());
+
+        client.send(new Envelope("sensor", DateTime.now(), "1.1", data));
+
+        int size = transport.bodies.get(0).getBytes(StandardCharsets.UTF_8).length;
+        assertEquals(1, client.getStatistics().getSerializedBytes().getCount());
+        assertEquals(size, client.getStatistics().getSerializedBytes().getLast(), 0.0);
+        assertEquals(size, client.getStatistics().getWireBytes().getLast(), 0.0);
+        assertEquals(2, client.getStatistics().getEventsPerEnvelope().getLast(), 0.0);
+        assertEquals(1, client.getStatistics().getLatencyPerKilobyte().getCount());
+        client.close();
+    }
+
+    @Test
+    public void listenerSeesEachStageInOrder() {
+        StubTransport transport = new StubTransport(503, 200);
+        HttpClient client = create(transport, RetryPolicy.builder().initialBackoffMs(1).build());
+        final List<String> stages = new CopyOnWriteArrayList<>();
+        final Envelope envelope = envelope();
+        client.addListener(new SendListener() {
+            @Override
+            public void onSent(String clientId, Envelope sent, long sentNanos, long bytes) {
+                stages.add("sent");
+                assertTrue(sent == envelope);
+            }
+
+            @Override
+            public void onRetried(String clientId, Envelope retried, long retriedNanos, int statusCode, int retry) {
+                stages.add("retried " + statusCode + " " + retry);
+            }
+
+            @Override
+            public void onAcknowledged(String clientId, Envelope acknowledged, long sentNanos, long acknowledgedNanos,
+                                       int statusCode, long bytes) {
+                stages.add("acknowledged " + statusCode + " " + (bytes > 0) + " " + (acknowledgedNanos >= sentNanos));
+            }
+        });
+
+        client.send(envelope);
+
+        assertEquals(Arrays.asList("sent", "retried 503 1", "sent", "acknowledged 200 true true"), stages);
+        client.close();
+    }
+
+    @Test
+    public void asyncSendBeyondInFlightWindowIsRejected() throws Exception {
+        StubTransport transport = new StubTransport(202);
+        transport.held = new CompletableFuture<>();
+        HttpClient client = create(transport, HttpClientOptions.builder().maxInFlight(1),
+            RetryPolicy.builder().build());
+
+        CompletableFuture<SendResult> first = client.sendAsync(envelope());
+        CompletableFuture<SendResult> second = client.sendAsync(envelope());
+
+        assertTrue(second.isCompletedExceptionally());
+        try {
+            second.get();
+            fail("Expected the second send to be rejected");
+        } catch (ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof RejectedExecutionException);
+        }
+        assertEquals(1, client.getInFlightRequests());
+
+        transport.held.complete(new TransportResponse(202, Collections.<String, String>emptyMap()));
+        assertEquals(202, first.get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(0, client.getInFlightRequests());
+        assertEquals(1, client.getStatistics().getSuccessful().getCount());
+        assertEquals(1, client.getStatistics().getFailed().getCount());
+        client.close();
+    }
+
+    @Test
+    public void unserializableEnvelopeIsNotRetried() {
+        StubTransport transport = new StubTransport(202);
+        HttpClient client = create(transport, HttpClientOptions.builder().circuitBreakerThreshold(1),
+            RetryPolicy.builder().initialBackoffMs(1).build());
+        List<CaliperSendable> data = new ArrayList<>();
+        data.add(new Unserializable());
+
+        try {
+            client.send(new Envelope("sensor", DateTime.now(), "1.1", data));
+            fail("Expected the serialization failure to propagate");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getCause() instanceof JsonProcessingException);
+        }
+        assertEquals(1, transport.requests.size());
+        assertEquals(0, client.getStatistics().getRetries().getCount());
+        assertEquals(1, client.getStatistics().getFailed().getCount());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreakerState());
+        client.close();
+    }
+
+    @Test
+    public void closeFailsPendingAsyncRetry() throws Exception {
+        StubTransport transport = new StubTransport(503, 202);
+        HttpClient client = create(transport, RetryPolicy.builder().initialBackoffMs(60000).build());
+
+        CompletableFuture<SendResult> future = client.sendAsync(envelope());
+        assertEquals(1, client.getStatistics().getRetries().getCount());
+        assertEquals(1, client.getInFlightRequests());
+        client.close();
+
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail("Expected the pending retry to fail");
+        } catch (ExecutionException ee) {
+            assertTrue(ee.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(0, client.getInFlightRequests());
+        assertEquals(1, transport.requests.size());
+        assertEquals(1, client.getStatistics().getFailed().getCount());
+    }
+
+    @Test
+    public void circuitBreakerTripsAfterConsecutiveServerErrors() {
+        StubTransport transport = new StubTransport(503, 503);
+        HttpClient client = create(transport, HttpClientOptions.builder()
+            .circuitBreakerThreshold(2)
+            .circuitBreakerOpenMs(60000), RetryPolicy.NONE);
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreakerState());
+            sendIgnoringFailure(client, envelope());
+        }
+        assertEquals(CircuitBreaker.State.OPEN, client.getCircuitBreakerState());
+
+        try {
+            client.send(envelope());
+            fail("Expected the open circuit to fail fast");
+        } catch (CircuitBreakerOpenException expected) {
+            // no fallback configured
+        }
+        assertEquals(2, transport.requests.size());
+        assertEquals(3, client.getStatistics().getFailed().getCount());
+        client.close();
+    }
+
+    @Test
+    public void openCircuitBreakerDivertsToFallback() {
+        StubTransport transport = new StubTransport(503);
+        RecordingClient fallback = new RecordingClient();
+        HttpClient client = create(transport, HttpClientOptions.builder()
+            .circuitBreakerThreshold(1)
+            .circuitBreakerOpenMs(60000)
+            .fallback(fallback), RetryPolicy.NONE);
+
+        sendIgnoringFailure(client, envelope());
+        Envelope diverted = envelope();
+        client.send(diverted);
+
+        assertEquals(1, transport.requests.size());
+        assertEquals(Collections.singletonList(diverted), fallback.envelopes);
+        client.close();
+    }
+
+    @Test
+    public void locallyRejectedTrialLeavesCircuitHalfOpen() throws Exception {
+        StubTransport transport = new StubTransport(503, 202);
+        transport.held = new CompletableFuture<>();
+        HttpClient client = create(transport, HttpClientOptions.builder()
+            .maxInFlight(1)
+            .circuitBreakerThreshold(1)
+            .circuitBreakerOpenMs(1), RetryPolicy.NONE);
+
+        // Occupy the only in-flight slot, then trip the circuit with a blocking send
+        CompletableFuture<SendResult> pending = client.sendAsync(envelope());
+        sendIgnoringFailure(client, envelope());
+        Thread.sleep(20);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, client.getCircuitBreakerState());
+
+        // The trial never reaches the endpoint, so it neither closes nor re-opens the circuit
+        assertTrue(client.sendAsync(envelope()).isCompletedExceptionally());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, client.getCircuitBreakerState());
+
+        // The next request is let through as the trial
+        client.send(envelope());
+        assertEquals(CircuitBreaker.State.CLOSED, client.getCircuitBreakerState());
+        assertEquals(3, transport.requests.size());
+
+        transport.held.complete(new TransportResponse(202, Collections.<String, String>emptyMap()));
+        pending.get(5, TimeUnit.SECONDS);
+        client.close();
+    }
+
+    private static void sendIgnoringFailure(HttpClient client, Envelope envelope) {
+        try {
+            client.send(envelope);
+        } catch (RuntimeException expected) {
+            // unsuccessful status
+        }
+    }
+
+    private static HttpClient create(StubTransport transport, RetryPolicy policy) {
+        return create(transport, HttpClientOptions.builder(), policy);
+    }
+
+    private static HttpClient create(final StubTransport transport, HttpClientOptions.OptionsBuilder builder,
+                                     RetryPolicy policy) {
+        return HttpClient.create("stub", builder
+            .apiKey("key")
+            .retryPolicy(policy)
+            .transport(new TransportFactory() {
+                @Override
+                public CaliperTransport create(TransportOptions options) {
+                    return transport;
+                }
+            })
+            .build());
+    }
+
+    private static Envelope envelope() {
+        return new Envelope("sensor", DateTime.now(), "1.1", new ArrayList<CaliperSendable>());
+    }
+
+    /**
+     * Sendable whose serialization always fails.
+     */
+    private static class Unserializable implements CaliperSendable {
+        public String getId() {
+            throw new IllegalStateException("Not serializable");
+        }
+    }
+
+    /**
+     * Client stub that records the Envelopes it is asked to send.
+     */
+    private static class RecordingClient implements CaliperClient {
+        private final List<Envelope> envelopes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String getId() {
+            return "recording";
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return null;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            envelopes.add(envelope);
+        }
+    }
+
+    /**
+     * Transport that answers with a scripted sequence of status codes.
+     */
+    private static class StubTransport implements CaliperTransport {
+        private final ConcurrentLinkedQueue<Integer> statuses = new ConcurrentLinkedQueue<>();
+        private final List<TransportRequest> requests = new CopyOnWriteArrayList<>();
+        private final List<String> bodies = new CopyOnWriteArrayList<>();
+        private volatile String retryAfter;
+        private volatile CompletableFuture<TransportResponse> held;
+        private volatile boolean closed;
+
+        StubTransport(Integer... statuses) {
+            Collections.addAll(this.statuses, statuses);
+        }
+
+        @Override
+        public TransportResponse send(TransportRequest request) throws IOException {
+            requests.add(request);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            request.getBody().writeTo(out);
+            bodies.add(out.toString("UTF-8"));
+
+            int status = statuses.poll();
+            return new TransportResponse(status, (retryAfter != null)
+                ? Collections.singletonMap("retry-after", retryAfter) : Collections.<String, String>emptyMap());
+        }
+
+        @Override
+        public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+            if (held != null) {
+                requests.add(request);
+                return held;
+            }
+            try {
+                return CompletableFuture.completedFuture(send(request));
+            } catch (IOException ioe) {
+                CompletableFuture<TransportResponse> future = new CompletableFuture<>();
+                future.completeExceptionally(ioe);
+                return future;
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.joda.time.DateTime;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class LoadBalancingClientTest {
+    private LoadBalancingClient client;
+
+    @Test
+    public void roundRobinSpreadsEvenly() {
+        StubClient a = new StubClient("a");
+        StubClient b = new StubClient("b");
+        StubClient c = new StubClient("c");
+        client = LoadBalancingClient.create("lb", Arrays.asList(a, b, c),
+            LoadBalancingClientOptions.builder().build());
+
+        for (int i = 0; i < 9; i++) {
+            client.send(envelope());
+        }
+
+        assertEquals(3, a.sends.get());
+        assertEquals(3, b.sends.get());
+        assertEquals(3, c.sends.get());
+        assertEquals(9, client.getStatistics().getSuccessful().getCount());
+    }
+
+    @Test
+    public void leastOutstandingAvoidsBusyMember() {
+        StubClient busy = new StubClient("busy");
+        busy.hold = true;
+        StubClient idle = new StubClient("idle");
+        client = LoadBalancingClient.create("lb", Arrays.asList(busy, idle), LoadBalancingClientOptions.builder()
+            .strategy(LoadBalancingClientOptions.Strategy.LEAST_OUTSTANDING)
+            .build());
+
+        for (int i = 0; i < 6; i++) {
+            client.sendAsync(envelope());
+        }
+
+        // Once busy holds a send, every later send goes to idle
+        assertEquals(1, busy.sends.get());
+        assertEquals(5, idle.sends.get());
+    }
+
+    @Test
+    public void failingMemberIsEjected() {
+        StubClient bad = new StubClient("bad");
+        bad.successful = false;
+        StubClient good = new StubClient("good");
+        client = LoadBalancingClient.create("lb", Arrays.asList(bad, good), LoadBalancingClientOptions.builder()
+            .failureThreshold(2)
+            .ejectionMs(60000)
+            .build());
+
+        for (int i = 0; i < 10; i++) {
+            client.send(envelope());
+        }
+
+        assertEquals(2, bad.sends.get());
+        assertEquals(8, good.sends.get());
+        assertEquals(Collections.singletonList("good"), client.getAvailableMembers());
+    }
+
+    @Test
+    public void healthCheckEjectsAndReadmits() throws Exception {
+        final StubClient flaky = new StubClient("flaky");
+        StubClient steady = new StubClient("steady");
+        client = LoadBalancingClient.create("lb", Arrays.asList(flaky, steady), LoadBalancingClientOptions.builder()
+            .healthCheck(new HealthCheck() {
+                @Override
+                public boolean isHealthy(CaliperClient member) {
+                    return member != flaky || flaky.successful;
+                }
+            })
+            .healthCheckIntervalMs(10)
+            .unhealthyThreshold(1)
+            .healthyThreshold(1)
+            .build());
+
+        flaky.successful = false;
+        assertTrue(await(1, client));
+        assertEquals(Collections.singletonList("steady"), client.getAvailableMembers());
+
+        flaky.successful = true;
+        assertTrue(await(2, client));
+    }
+
+    @Test
+    public void passingHealthCheckDoesNotEndPassiveEjection() throws Exception {
+        StubClient bad = new StubClient("bad");
+        StubClient good = new StubClient("good");
+        client = LoadBalancingClient.create("lb", Arrays.asList(bad, good), LoadBalancingClientOptions.builder()
+            .failureThreshold(2)
+            .ejectionMs(60000)
+            .healthCheck(new HealthCheck() {
+                @Override
+                public boolean isHealthy(CaliperClient member) {
+                    // e.g. a TCP probe, which passes even while the collector answers 5xx
+                    return true;
+                }
+            })
+            .healthCheckIntervalMs(10)
+            .healthyThreshold(1)
+            .build());
+
+        bad.successful = false;
+        for (int i = 0; i < 4; i++) {
+            client.send(envelope());
+        }
+        assertEquals(Collections.singletonList("good"), client.getAvailableMembers());
+
+        Thread.sleep(100);
+        assertEquals(Collections.singletonList("good"), client.getAvailableMembers());
+    }
+
+    @Test
+    public void hostTemplateIsLeftUnchanged() {
+        HttpClientOptions.OptionsBuilder template = HttpClientOptions.builder()
+            .apiKey("key")
+            .host("https://template.example.org");
+        client = LoadBalancingClient.create("lb",
+            Arrays.asList("https://a.example.org", "https://b.example.org"), template,
+            LoadBalancingClientOptions.builder().build());
+
+        assertEquals(Arrays.asList("lb-0", "lb-1"), client.getAvailableMembers());
+        assertEquals("https://template.example.org", template.build().getHost());
+    }
+
+    @After
+    public void teardown() {
+        client.close();
+    }
+
+    private static boolean await(int available, LoadBalancingClient client) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            if (client.getAvailableMembers().size() == available) {
+                return true;
+            }
+            Thread.sleep(5);
+        }
+        return false;
+    }
+
+    private static Envelope envelope() {
+        return new Envelope("sensor", DateTime.now(), "1.1", new ArrayList<CaliperSendable>());
+    }
+
+    /**
+     * Client stub that counts sends and completes them immediately unless told to hold them.
+     */
+    private static class StubClient implements CaliperClient {
+        private final String id;
+        private final AtomicInteger sends = new AtomicInteger();
+        private final Statistics statistics = new Statistics();
+        private volatile boolean successful = true;
+        private volatile boolean hold;
+
+        private StubClient(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            sendAsync(envelope);
+        }
+
+        @Override
+        public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+            sends.incrementAndGet();
+            if (hold) {
+                return new CompletableFuture<>();
+            }
+            return CompletableFuture.completedFuture(new SendResult(successful ? 200 : 503, successful));
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.events.Event;
+import org.imsglobal.caliper.events.EventType;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.joda.time.DateTime;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class RateLimitedClientTest {
+    private RecordingClient delegate;
+    private RecordingClient fallback;
+
+    @Before
+    public void setup() {
+        delegate = new RecordingClient();
+        fallback = new RecordingClient();
+    }
+
+    @Test
+    public void limitsOnlyConfiguredEventTypes() {
+        RateLimitedClient client = RateLimitedClient.create("limited", delegate, RateLimitedClientOptions.builder()
+            .eventTypeRate(EventType.MEDIA, 1)
+            .build());
+
+        // The first MEDIA event takes the bucket's only permit; GRADE events are never limited
+        client.send(envelope(EventType.MEDIA, EventType.MEDIA, EventType.GRADE, EventType.MEDIA, EventType.GRADE));
+
+        assertEquals(1, delegate.envelopes.size());
+        assertEquals(3, delegate.envelopes.get(0).getData().size());
+        assertEquals(2, count(delegate.envelopes.get(0), EventType.GRADE));
+        assertEquals(2, delegate.getStatistics().getDropped().getSum(), 0);
+    }
+
+    @Test
+    public void sendsExcessToFallback() {
+        RateLimitedClient client = RateLimitedClient.create("limited", delegate, RateLimitedClientOptions.builder()
+            .eventsPerSecond(1)
+            .excessPolicy(RateLimitedClientOptions.ExcessPolicy.FALLBACK)
+            .fallback(fallback)
+            .build());
+
+        client.send(envelope(EventType.NAVIGATION, EventType.NAVIGATION, EventType.NAVIGATION));
+
+        assertEquals(1, delegate.envelopes.get(0).getData().size());
+        assertEquals(2, fallback.envelopes.get(0).getData().size());
+        assertEquals(0, delegate.getStatistics().getDropped().getCount());
+    }
+
+    @Test
+    public void reportsThrottledWhenEverythingIsDropped() throws Exception {
+        RateLimitedClient client = RateLimitedClient.create("limited", delegate, RateLimitedClientOptions.builder()
+            .envelopesPerSecond(1)
+            .build());
+
+        assertEquals(200, client.sendAsync(envelope(EventType.VIEW)).get().getStatusCode());
+        SendResult result = client.sendAsync(envelope(EventType.VIEW)).get();
+
+        assertFalse(result.isSuccessful());
+        assertEquals(RateLimitedClient.STATUS_THROTTLED, result.getStatusCode());
+        assertEquals(1, delegate.envelopes.size());
+    }
+
+    @Test
+    public void refusedEnvelopeDoesNotSpendEventTypePermits() throws Exception {
+        RateLimitedClient client = RateLimitedClient.create("limited", delegate, RateLimitedClientOptions.builder()
+            .envelopesPerSecond(10)
+            .eventTypeRate(EventType.MEDIA, 0.5)
+            .build());
+
+        client.send(envelope(EventType.GRADE));
+        // No envelope permit is left, so the MEDIA event is refused and must keep its type's only permit
+        client.send(envelope(EventType.MEDIA));
+        Thread.sleep(150);
+        client.send(envelope(EventType.MEDIA));
+
+        assertEquals(2, delegate.envelopes.size());
+        assertEquals(1, count(delegate.envelopes.get(1), EventType.MEDIA));
+        assertEquals(1, delegate.getStatistics().getDropped().getSum(), 0);
+    }
+
+    @Test
+    public void delayPolicyWaitsForPermit() {
+        RateLimitedClient client = RateLimitedClient.create("limited", delegate, RateLimitedClientOptions.builder()
+            .envelopesPerSecond(20)
+            .excessPolicy(RateLimitedClientOptions.ExcessPolicy.DELAY)
+            .maxDelayMs(1000)
+            .build());
+
+        client.send(envelope(EventType.VIEW));
+        long start = System.nanoTime();
+        client.send(envelope(EventType.VIEW));
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 40);
+        assertEquals(2, delegate.envelopes.size());
+        assertEquals(0, delegate.getStatistics().getThrottled().getCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fallbackPolicyRequiresFallbackClient() {
+        RateLimitedClientOptions.builder().excessPolicy(RateLimitedClientOptions.ExcessPolicy.FALLBACK).build();
+    }
+
+    private static Envelope envelope(EventType... types) {
+        List<CaliperSendable> data = new ArrayList<>();
+        for (int i = 0; i < types.length; i++) {
+            data.add(Event.builder().id("urn:uuid:" + i).type(types[i]).action(Action.VIEWED).build());
+        }
+        return new Envelope("sensor", DateTime.now(), "1.1", data);
+    }
+
+    private static int count(Envelope envelope, EventType type) {
+        int count = 0;
+        for (CaliperSendable item : envelope.getData()) {
+            if (((Event) item).getType() == type) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Client stub that records the Envelopes it is asked to send.
+     */
+    private static class RecordingClient implements CaliperClient {
+        private final List<Envelope> envelopes = new CopyOnWriteArrayList<>();
+        private final Statistics statistics = new Statistics();
+
+        @Override
+        public String getId() {
+            return "recording";
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            envelopes.add(envelope);
+        }
+
+        @Override
+        public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+            envelopes.add(envelope);
+            return CompletableFuture.completedFuture(new SendResult(200, true));
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.apache.http.client.utils.DateUtils;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class RetryPolicyTest {
+
+    @Test
+    public void retriesThrottlingAndServerErrorsOnly() {
+        RetryPolicy policy = RetryPolicy.builder().build();
+
+        assertTrue(policy.isRetryable(429));
+        assertTrue(policy.isRetryable(503));
+        assertFalse(policy.isRetryable(400));
+        assertFalse(policy.isRetryable(404));
+        assertFalse(RetryPolicy.NONE.getMaxRetries() > 0);
+    }
+
+    @Test
+    public void zeroMaxRetriesDisablesRetries() {
+        assertEquals(RetryPolicy.MAX_RETRIES, RetryPolicy.builder().build().getMaxRetries());
+        assertEquals(0, RetryPolicy.builder().maxRetries(0).build().getMaxRetries());
+        assertEquals(0, RetryPolicy.NONE.getMaxRetries());
+    }
+
+    @Test
+    public void backoffIsJitteredAndCapped() {
+        RetryPolicy policy = RetryPolicy.builder().initialBackoffMs(100).maxBackoffMs(400).jitter(0.5).build();
+
+        for (int retry = 1; retry <= 5; retry++) {
+            long base = Math.min(400, 100L << (retry - 1));
+            long delay = policy.backoff(retry);
+            assertTrue(delay <= base && delay >= base / 2);
+        }
+    }
+
+    @Test
+    public void honorsRetryAfterUpToCap() {
+        RetryPolicy policy = RetryPolicy.builder().maxRetryAfterMs(5000).build();
+
+        assertEquals(2000, policy.backoff(1, 2000));
+        assertEquals(-1, policy.backoff(1, 60000));
+    }
+
+    @Test
+    public void parsesRetryAfterHeader() {
+        assertEquals(-1, HttpClient.parseRetryAfter(null));
+        assertEquals(-1, HttpClient.parseRetryAfter("soon"));
+        assertEquals(3000, HttpClient.parseRetryAfter("3"));
+
+        long delay = HttpClient.parseRetryAfter(DateUtils.formatDate(new Date(System.currentTimeMillis() + 10000)));
+        assertTrue(delay > 8000 && delay <= 10000);
+    }
+
+    @Test
+    public void circuitOpensAfterThresholdAndAdmitsOneTrial() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(2, 50);
+
+        breaker.recordFailure();
+        assertTrue(breaker.allowRequest());
+        breaker.recordFailure();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.allowRequest());
+
+        Thread.sleep(60);
+        assertTrue(breaker.allowRequest());
+        assertFalse(breaker.allowRequest());
+        breaker.recordSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+}
@@ -0,0 +1,120 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.clients;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.transport.CaliperTransport;
+import org.imsglobal.caliper.transport.TransportFactory;
+import org.imsglobal.caliper.transport.TransportOptions;
+import org.imsglobal.caliper.transport.TransportRequest;
+import org.imsglobal.caliper.transport.TransportResponse;
+import org.joda.time.DateTime;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class SpoolClientTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void discardsBadRequestButRetainsUnauthorized() throws Exception {
+        final ScriptedTransport transport = new ScriptedTransport(400, 401, 202);
+        HttpClient http = HttpClient.create("http", HttpClientOptions.builder()
+            .apiKey("key")
+            .retryPolicy(RetryPolicy.NONE)
+            .transport(new TransportFactory() {
+                @Override
+                public CaliperTransport create(TransportOptions options) {
+                    return transport;
+                }
+            })
+            .build());
+        SpoolClient client = SpoolClient.create("spool", http, SpoolClientOptions.builder()
+            .directory(folder.getRoot().toPath())
+            .initialBackoffMs(1)
+            .maxBackoffMs(10)
+            .build());
+
+        client.send(envelope("first"));
+        client.send(envelope("second"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((transport.bodies.size() < 3 || client.getPendingBytes() > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        client.close();
+
+        assertEquals(3, transport.bodies.size());
+        assertTrue(transport.bodies.get(0).contains("first"));
+        assertTrue(transport.bodies.get(1).contains("second"));
+        assertEquals(transport.bodies.get(1), transport.bodies.get(2));
+        assertEquals(0, client.getPendingBytes());
+    }
+
+    private static Envelope envelope(String sensor) {
+        return new Envelope(sensor, DateTime.now(), "1.1", new ArrayList<CaliperSendable>());
+    }
+
+    /**
+     * Transport that answers with a scripted sequence of status codes, then 202.
+     */
+    private static class ScriptedTransport implements CaliperTransport {
+        private final ConcurrentLinkedQueue<Integer> statuses = new ConcurrentLinkedQueue<>();
+        private final List<String> bodies = new CopyOnWriteArrayList<>();
+
+        ScriptedTransport(Integer... statuses) {
+            Collections.addAll(this.statuses, statuses);
+        }
+
+        @Override
+        public TransportResponse send(TransportRequest request) throws IOException {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            request.getBody().writeTo(out);
+            bodies.add(out.toString("UTF-8"));
+            Integer status = statuses.poll();
+            return new TransportResponse((status != null) ? status : 202, Collections.<String, String>emptyMap());
+        }
+
+        @Override
+        public CompletableFuture<TransportResponse> sendAsync(TransportRequest request) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.compression;
+
+import com.google.common.io.ByteStreams;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class ThresholdCompressingOutputStreamTest {
+
+    @Test
+    public void payloadBelowThresholdIsNotCompressed() throws Exception {
+        byte[] payload = "{\"type\":\"Person\"}".getBytes(StandardCharsets.UTF_8);
+
+        ThresholdCompressingOutputStream out = new ThresholdCompressingOutputStream(new GzipCodec(), 1024);
+        out.write(payload);
+        out.close();
+
+        assertFalse(out.isCompressed());
+        assertNull(out.getEncoding());
+        assertArrayEquals(payload, out.toByteArray());
+    }
+
+    @Test
+    public void payloadAboveThresholdRoundTripsThroughGzip() throws Exception {
+        byte[] payload = repetitivePayload();
+
+        ThresholdCompressingOutputStream out = new ThresholdCompressingOutputStream(
+            CompressionCodecs.forEncoding("gzip"), 1024);
+        out.write(payload, 0, 100);
+        out.write(payload, 100, payload.length - 100);
+        out.close();
+
+        assertTrue(out.isCompressed());
+        assertEquals("gzip", out.getEncoding());
+        assertEquals(payload.length, out.getUncompressedSize());
+        assertTrue(out.toByteArray().length < payload.length / 4);
+        assertArrayEquals(payload, ByteStreams.toByteArray(
+            new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    @Test
+    public void payloadAboveThresholdRoundTripsThroughDeflate() throws Exception {
+        byte[] payload = repetitivePayload();
+
+        ThresholdCompressingOutputStream out = new ThresholdCompressingOutputStream(new DeflateCodec(), 1024);
+        out.write(payload);
+        out.close();
+
+        assertEquals("deflate", out.getEncoding());
+        assertArrayEquals(payload, ByteStreams.toByteArray(
+            new InflaterInputStream(new ByteArrayInputStream(out.toByteArray()))));
+    }
+
+    private static byte[] repetitivePayload() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            builder.append("{\"type\":\"NavigationEvent\",\"actor\":\"https://example.edu/users/").append(i).append("\"},");
+        }
+        return builder.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
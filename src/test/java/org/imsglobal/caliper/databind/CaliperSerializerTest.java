@@ -0,0 +1,59 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.databind;
+
+import org.imsglobal.caliper.entities.agent.Person;
+import org.imsglobal.caliper.events.NavigationEvent;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.skyscreamer.jsonassert.JSONAssert;
+import org.skyscreamer.jsonassert.JSONCompareMode;
+
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class CaliperSerializerTest {
+    private static final String BASE_IRI = "https://example.edu";
+
+    @Test
+    public void warmUpBuildsEventAndEntityWriters() {
+        CaliperSerializer serializer = new CaliperSerializer(CaliperSerializer.createObjectMapper());
+        int count = serializer.warmUp();
+
+        assertTrue("Expect event and entity classes to be warmed up", count > 50);
+        assertSame(serializer.writerFor(NavigationEvent.class), serializer.writerFor(NavigationEvent.class));
+    }
+
+    @Test
+    public void serializesLikeAFreshMapper() throws Exception {
+        Person person = Person.builder().id(BASE_IRI.concat("/users/554433")).name("Learner").build();
+
+        String expected = CaliperSerializer.createObjectMapper().writeValueAsString(person);
+        String json = CaliperSerializer.getDefault().writeValueAsString(person);
+        JSONAssert.assertEquals(expected, json, JSONCompareMode.NON_EXTENSIBLE);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        CaliperSerializer.getDefault().writeValue(out, person);
+        assertEquals(json, out.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.Sensor;
+import org.imsglobal.caliper.SensorOptions;
+import org.imsglobal.caliper.clients.CaliperClient;
+import org.imsglobal.caliper.clients.CaliperClientOptions;
+import org.imsglobal.caliper.clients.SendResult;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class CaliperMBeansTest {
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    @Test
+    public void sensorRegistersItselfAndItsClients() throws Exception {
+        Sensor sensor = Sensor.create("jmx-sensor", SensorOptions.builder().queued(false).jmx(true).build());
+        sensor.registerClient(new CountingClient("jmx-client"));
+        ObjectName sensorName = CaliperMBeans.sensorName("jmx-sensor");
+        ObjectName clientName = CaliperMBeans.clientName("jmx-sensor", "jmx-client");
+
+        for (int i = 0; i < 3; i++) {
+            sensor.send(new Envelope("sensor", DateTime.now(), "1.1", new ArrayList<CaliperSendable>()));
+        }
+
+        assertArrayEquals(new String[] {"jmx-client"}, (String[]) server.getAttribute(sensorName, "ClientIds"));
+        assertEquals(3L, server.getAttribute(clientName, "Measures"));
+        assertEquals(3L, server.getAttribute(clientName, "Successful"));
+        assertEquals(0L, server.getAttribute(clientName, "Failed"));
+        assertEquals(-1, server.getAttribute(clientName, "InFlight"));
+        assertEquals("CountingClient", server.getAttribute(clientName, "Type"));
+        assertTrue((Double) server.getAttribute(clientName, "Throughput") > 0);
+
+        sensor.unregisterClient("jmx-client");
+        assertFalse(server.isRegistered(clientName));
+        sensor.close();
+        assertFalse(server.isRegistered(sensorName));
+    }
+
+    @Test
+    public void sensorWithoutJmxRegistersNothing() {
+        Sensor sensor = Sensor.create("plain-sensor", SensorOptions.builder().queued(false).build());
+        sensor.registerClient(new CountingClient("plain-client"));
+
+        assertFalse(server.isRegistered(CaliperMBeans.sensorName("plain-sensor")));
+        assertFalse(server.isRegistered(CaliperMBeans.clientName("plain-sensor", "plain-client")));
+        sensor.close();
+    }
+
+    /**
+     * Client that records each send as successful.
+     */
+    private static class CountingClient implements CaliperClient {
+        private final String id;
+        private final Statistics statistics = new Statistics();
+
+        CountingClient(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            statistics.updateMeasures(1);
+            statistics.updateSuccessful(1);
+            statistics.recordTotalLatency(1000000L);
+        }
+
+        @Override
+        public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+            send(envelope);
+            return CompletableFuture.completedFuture(new SendResult(200, true));
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.management;
+
+import com.google.common.io.CharStreams;
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.Sensor;
+import org.imsglobal.caliper.SensorOptions;
+import org.imsglobal.caliper.clients.CaliperClient;
+import org.imsglobal.caliper.clients.CaliperClientOptions;
+import org.imsglobal.caliper.clients.SendResult;
+import org.imsglobal.caliper.statistics.Statistics;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class PrometheusServerTest {
+
+    @Test
+    public void servesSensorAndClientMetrics() throws Exception {
+        Sensor sensor = Sensor.create("sensor-1", SensorOptions.builder().queued(false).build());
+        sensor.registerClient(new StatusClient("client-1"));
+        for (int i = 0; i < 3; i++) {
+            sensor.send(new Envelope("sensor", DateTime.now(), "1.1", new ArrayList<CaliperSendable>()));
+        }
+
+        SensorMetrics metrics = new SensorMetrics();
+        metrics.bind(sensor);
+        PrometheusServer server = PrometheusServer.create(metrics, new InetSocketAddress("127.0.0.1", 0));
+        try {
+            HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + server.getPort()
+                + PrometheusServer.PATH).openConnection();
+            assertEquals(200, connection.getResponseCode());
+            assertEquals(PrometheusTextFormat.CONTENT_TYPE, connection.getContentType());
+            String text = CharStreams.toString(new InputStreamReader(connection.getInputStream(),
+                StandardCharsets.UTF_8));
+
+            assertTrue(text.contains("# TYPE caliper_client_sent_total counter\n"));
+            assertTrue(text.contains("caliper_client_sent_total{sensor=\"sensor-1\",client=\"client-1\"} 3\n"));
+            assertTrue(text.contains(
+                "caliper_client_responses_total{sensor=\"sensor-1\",client=\"client-1\",status=\"200\"} 3\n"));
+            assertTrue(text.contains("caliper_sensor_queue_depth{sensor=\"sensor-1\"} 0\n"));
+            assertTrue(text.contains(
+                "caliper_latency_seconds_count{sensor=\"sensor-1\",client=\"client-1\",stage=\"total\"} 3\n"));
+        } finally {
+            server.close();
+            sensor.close();
+        }
+    }
+
+    @Test
+    public void escapesLabelValuesAndReusesBuffer() {
+        PrometheusTextFormat format = new PrometheusTextFormat();
+        format.family("m", MetricsSink.Type.GAUGE, "a\\b");
+        format.sample("m", new String[] {"l"}, new String[] {"x\"y\nz"}, 0.25);
+        assertEquals("# HELP m a\\\\b\n# TYPE m gauge\nm{l=\"x\\\"y\\nz\"} 0.25\n", format.getText().toString());
+
+        format.reset();
+        format.sample("m", new String[0], new String[0], Double.NaN);
+        assertEquals("m NaN\n", format.getText().toString());
+    }
+
+    /**
+     * Client that records each send as a successful 200 response.
+     */
+    private static class StatusClient implements CaliperClient {
+        private final String id;
+        private final Statistics statistics = new Statistics();
+
+        StatusClient(String id) {
+            this.id = id;
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public CaliperClientOptions getOptions() {
+            return null;
+        }
+
+        @Override
+        public Statistics getStatistics() {
+            return statistics;
+        }
+
+        @Override
+        public void send(Envelope envelope) {
+            statistics.updateMeasures(1);
+            statistics.updateSuccessful(1);
+            statistics.recordStatus(200);
+            statistics.recordTotalLatency(2000000L);
+        }
+
+        @Override
+        public CompletableFuture<SendResult> sendAsync(Envelope envelope) {
+            send(envelope);
+            return CompletableFuture.completedFuture(new SendResult(200, true));
+        }
+
+        @Override
+        public void close() {
+
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.spool;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class EnvelopeSpoolTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replaysRecordsInOrderAcrossSegments() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        EnvelopeSpool spool = new EnvelopeSpool(dir, 64, 1024, 0, false);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(spool.append(bytes("envelope-" + i)));
+        }
+
+        for (int i = 0; i < 10; i++) {
+            assertEquals("envelope-" + i, string(spool.peek()));
+            assertEquals("envelope-" + i, string(spool.peek()));
+            spool.commit();
+        }
+        assertNull(spool.peek());
+        assertEquals(0, spool.getPendingBytes());
+        spool.close();
+    }
+
+    @Test
+    public void resumesFromCheckpointAfterReopen() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        EnvelopeSpool spool = new EnvelopeSpool(dir, 64, 1024, 0, true);
+        for (int i = 0; i < 5; i++) {
+            spool.append(bytes("envelope-" + i));
+        }
+        spool.peek();
+        spool.commit();
+        spool.peek();
+        spool.commit();
+        spool.close();
+
+        spool = new EnvelopeSpool(dir, 64, 1024, 0, true);
+        assertEquals("envelope-2", string(spool.peek()));
+        spool.commit();
+        spool.append(bytes("envelope-5"));
+        assertEquals("envelope-3", string(spool.peek()));
+        spool.commit();
+        assertEquals("envelope-4", string(spool.peek()));
+        spool.commit();
+        assertEquals("envelope-5", string(spool.peek()));
+        spool.close();
+    }
+
+    @Test
+    public void truncatesTornTailOnReopen() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        EnvelopeSpool spool = new EnvelopeSpool(dir, 1024, 4096, 0, false);
+        spool.append(bytes("envelope-0"));
+        spool.append(bytes("envelope-1"));
+        spool.close();
+
+        // Simulate a crash part way through writing the second record
+        File segment = dir.resolve(String.format("%020d%s", 1, EnvelopeSpool.SEGMENT_SUFFIX)).toFile();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        spool = new EnvelopeSpool(dir, 1024, 4096, 0, false);
+        assertEquals("envelope-0", string(spool.peek()));
+        spool.commit();
+        assertNull(spool.peek());
+
+        spool.append(bytes("envelope-2"));
+        assertEquals("envelope-2", string(spool.peek()));
+        spool.close();
+    }
+
+    @Test
+    public void discardsOldestSegmentsWhenFull() throws Exception {
+        Path dir = folder.getRoot().toPath();
+        EnvelopeSpool spool = new EnvelopeSpool(dir, 64, 128, 0, false);
+
+        for (int i = 0; i < 20; i++) {
+            spool.append(bytes("envelope-" + i));
+        }
+
+        assertTrue(spool.getPendingBytes() <= 128);
+        assertTrue(spool.getDroppedBytes() > 0);
+        assertNotEquals("envelope-0", string(spool.peek()));
+        spool.close();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String string(byte[] value) {
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
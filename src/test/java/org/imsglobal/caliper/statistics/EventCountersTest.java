@@ -0,0 +1,71 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.events.CaliperEventType;
+import org.imsglobal.caliper.events.EventType;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.junit.Assert.assertEquals;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class EventCountersTest {
+
+    @Test
+    public void countsByOrdinalWithSharedSlotForOtherTypes() {
+        EventCounters counters = new EventCounters();
+        CaliperEventType custom = new CaliperEventType() {
+            @Override
+            public String value() {
+                return "CustomEvent";
+            }
+        };
+
+        counters.increment(EventType.VIEW, Action.VIEWED);
+        counters.increment(EventType.VIEW, Action.VIEWED);
+        counters.increment(EventType.GRADE, Action.GRADED);
+        counters.increment(custom, null);
+
+        assertEquals(2, counters.getCount(EventType.VIEW));
+        assertEquals(1, counters.getCount(EventType.GRADE));
+        assertEquals(0, counters.getCount(EventType.MEDIA));
+        assertEquals(2, counters.getCount(Action.VIEWED));
+        assertEquals(1, counters.getOtherEventTypes());
+        assertEquals(1, counters.getOtherActions());
+    }
+
+    @Test
+    public void snapshotDiffCountsInterval() {
+        EventCounters counters = new EventCounters();
+        counters.increment(EventType.MEDIA, Action.STARTED);
+        EventCounts before = counters.snapshot();
+
+        counters.increment(EventType.MEDIA, Action.PAUSED);
+        counters.increment(EventType.VIEW, Action.VIEWED);
+        EventCounts diff = counters.snapshot().minus(before);
+
+        assertEquals(1, diff.getCount(EventType.MEDIA));
+        assertEquals(0, diff.getCount(Action.STARTED));
+        assertEquals(1, diff.getCount(Action.PAUSED));
+        assertEquals(2, diff.getTotal());
+        assertEquals(3, counters.snapshot().getTotal());
+    }
+}
@@ -0,0 +1,102 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class StatisticTest {
+
+    @Test
+    public void computesSampleMoments() {
+        Statistic statistic = new Statistic();
+        for (double val : new double[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+            statistic.update(val);
+        }
+
+        assertEquals(8, statistic.getCount());
+        assertEquals(40.0, statistic.getSum(), 0.0);
+        assertEquals(5.0, statistic.getAverage(), 1e-12);
+        assertEquals(32.0 / 7, statistic.getVariance(), 1e-12);
+        assertEquals(2.0, statistic.getMin(), 0.0);
+        assertEquals(9.0, statistic.getMax(), 0.0);
+        assertEquals(9.0, statistic.getLast(), 0.0);
+    }
+
+    @Test
+    public void keepsEverySampleUnderContention() throws Exception {
+        final Statistic statistic = new Statistic();
+        final int threads = 8;
+        final int updates = 20000;
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] workers = new Thread[threads];
+
+        for (int t = 0; t < threads; t++) {
+            final int offset = t;
+            workers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException ie) {
+                        return;
+                    }
+                    for (int i = 0; i < updates; i++) {
+                        statistic.update(offset + (i % 2));
+                    }
+                }
+            });
+            workers[t].start();
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        // Thread t contributes equal numbers of t and t + 1
+        int n = threads * updates;
+        double mean = threads / 2.0;
+        assertEquals(n, statistic.getCount());
+        assertEquals(mean * n, statistic.getSum(), 1e-6);
+        assertEquals(mean, statistic.getAverage(), 1e-9);
+        assertEquals(0.0, statistic.getMin(), 0.0);
+        assertEquals(threads, statistic.getMax(), 0.0);
+
+        double sumSquares = 0;
+        for (int t = 0; t < threads; t++) {
+            sumSquares += (updates / 2.0) * (Math.pow(t - mean, 2) + Math.pow(t + 1 - mean, 2));
+        }
+        assertEquals(sumSquares / (n - 1), statistic.getVariance(), 1e-6);
+    }
+
+    @Test
+    public void clearResets() {
+        Statistic statistic = new Statistic();
+        statistic.update(3);
+        statistic.clear();
+
+        assertEquals(0, statistic.getCount());
+        assertEquals(0.0, statistic.getMax(), 0.0);
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.events.Event;
+import org.imsglobal.caliper.events.EventType;
+import org.joda.time.DateTime;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class StatisticsSnapshotTest {
+
+    @Test
+    public void snapshotDoesNotChange() {
+        Statistics statistics = new Statistics();
+        statistics.updateSuccessful(1);
+        StatisticsSnapshot snapshot = statistics.snapshot();
+
+        statistics.updateSuccessful(1);
+
+        assertEquals(1, snapshot.get("Successful").getCount());
+        assertEquals(2, statistics.snapshot().get("Successful").getCount());
+        assertEquals(0, snapshot.get("Failed").getCount());
+    }
+
+    @Test
+    public void diffCoversOnlyTheInterval() throws Exception {
+        Statistics statistics = new Statistics();
+        for (double val : new double[] { 100, 200, 300 }) {
+            statistics.updateBatchSizes(val);
+        }
+        StatisticsSnapshot earlier = statistics.snapshot();
+
+        for (double val : new double[] { 2, 4, 4, 4, 5, 5, 7, 9 }) {
+            statistics.updateBatchSizes(val);
+        }
+        Thread.sleep(5);
+        StatisticsSnapshot diff = statistics.snapshot().minus(earlier);
+
+        StatisticSnapshot batches = diff.get("BatchSize");
+        assertEquals(8, batches.getCount());
+        assertEquals(40.0, batches.getSum(), 1e-9);
+        assertEquals(5.0, batches.getAverage(), 1e-9);
+        assertEquals(32.0 / 7, batches.getVariance(), 1e-6);
+        assertTrue(diff.getIntervalNanos() >= TimeUnit.MILLISECONDS.toNanos(5));
+        assertTrue(diff.getRate("BatchSize") > 0);
+    }
+
+    @Test
+    public void latencyDiffReportsIntervalPercentiles() {
+        Statistics statistics = new Statistics();
+        for (int i = 0; i < 100; i++) {
+            statistics.recordTotalLatency(TimeUnit.SECONDS.toNanos(1));
+        }
+        StatisticsSnapshot earlier = statistics.snapshot();
+
+        for (int i = 0; i < 100; i++) {
+            statistics.recordTotalLatency(TimeUnit.MILLISECONDS.toNanos(10));
+        }
+        LatencySnapshot interval = statistics.snapshot().minus(earlier).getLatencies("TotalLatency");
+
+        assertEquals(100, interval.getCount());
+        long p99 = interval.getValueAtPercentile(99.0);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10), p99, TimeUnit.MILLISECONDS.toNanos(10) / 64.0);
+    }
+
+    @Test
+    public void snapshotNeverSeesPartOfAnOutcome() throws Exception {
+        final Statistics statistics = new Statistics();
+        List<CaliperSendable> data = new ArrayList<>();
+        data.add(Event.builder().id("urn:uuid:1").type(EventType.VIEW).action(Action.VIEWED).build());
+        final Envelope envelope = new Envelope("sensor", DateTime.now(), "1.1", data);
+        final AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            writers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    boolean successful = false;
+                    while (running.get()) {
+                        successful = !successful;
+                        statistics.recordOutcome(envelope, successful);
+                    }
+                }
+            });
+            writers[t].start();
+        }
+
+        try {
+            for (int i = 0; i < 2000; i++) {
+                StatisticsSnapshot snapshot = statistics.snapshot();
+                long successful = snapshot.get("Successful").getCount();
+                long failed = snapshot.get("Failed").getCount();
+                assertEquals(successful + failed, snapshot.get("Measure").getCount());
+                assertEquals(successful, snapshot.getEventsSent().getTotal());
+                assertEquals(failed, snapshot.getEventsFailed().getTotal());
+            }
+        } finally {
+            running.set(false);
+            for (Thread writer : writers) {
+                writer.join();
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.statistics;
+
+import com.google.common.base.Ticker;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class WindowedStatisticTest {
+
+    @Test
+    public void reportsOnlyRecentValues() {
+        FakeTicker ticker = new FakeTicker();
+        WindowedStatistic statistic = new WindowedStatistic(ticker);
+
+        for (int i = 0; i < 10; i++) {
+            statistic.update(i);
+            ticker.advance(1, TimeUnit.SECONDS);
+        }
+
+        WindowedStatistic.Summary last5s = statistic.summarize(5, TimeUnit.SECONDS);
+        assertEquals(4, last5s.getCount());
+        assertEquals(6.0, last5s.getMin(), 0.0);
+        assertEquals(9.0, last5s.getMax(), 0.0);
+        assertEquals(10, statistic.getCount(1, TimeUnit.MINUTES));
+
+        // Once a minute has passed the one-second buckets are stale but the one-minute buckets are not
+        ticker.advance(2, TimeUnit.MINUTES);
+        assertEquals(0, statistic.getCount(30, TimeUnit.SECONDS));
+        assertEquals(10, statistic.getCount(5, TimeUnit.MINUTES));
+
+        ticker.advance(2, TimeUnit.HOURS);
+        assertEquals(0, statistic.getCount(1, TimeUnit.HOURS));
+    }
+
+    @Test
+    public void computesRateOverCoveredTime() {
+        FakeTicker ticker = new FakeTicker();
+        WindowedStatistic statistic = new WindowedStatistic(ticker);
+
+        ticker.advance(30, TimeUnit.SECONDS);
+        for (int s = 0; s < 20; s++) {
+            for (int i = 0; i < 5; i++) {
+                statistic.update(1);
+            }
+            ticker.advance(1, TimeUnit.SECONDS);
+        }
+
+        assertEquals(5.0, statistic.getRate(10, TimeUnit.SECONDS), 0.6);
+    }
+
+    @Test
+    public void windowedPercentiles() {
+        FakeTicker ticker = new FakeTicker();
+        WindowedLatencyHistogram histogram = new WindowedLatencyHistogram(ticker);
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+        ticker.advance(90, TimeUnit.SECONDS);
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        long p99 = histogram.getValueAtPercentile(99.0, 30, TimeUnit.SECONDS);
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(99), p99, TimeUnit.MILLISECONDS.toNanos(99) / 16.0);
+        assertEquals(100, histogram.getCount(30, TimeUnit.SECONDS));
+        assertEquals(200, histogram.getCount(1, TimeUnit.HOURS));
+    }
+
+    /**
+     * Manually advanced time source.
+     */
+    private static class FakeTicker extends Ticker {
+        private long nanos = 1000;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        private void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.transport;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Runs only on Java 11 or later, where the java11-transport profile puts the versioned classes on the
+ * test classpath.
+ */
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class JdkHttpTransportTest {
+    private HttpServer server;
+    private final List<String> bodies = new CopyOnWriteArrayList<>();
+
+    @Before
+    public void setup() throws IOException {
+        assumeTrue(Transports.isJdkAvailable());
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                bodies.add(exchange.getRequestHeaders().getFirst("Authorization") + " "
+                    + new String(ByteStreams.toByteArray(exchange.getRequestBody()), StandardCharsets.UTF_8));
+                exchange.getResponseHeaders().add("Retry-After", "1");
+                exchange.sendResponseHeaders(202, -1);
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void teardown() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    public void postsBlockingAndAsyncRequestsUntilClosed() throws Exception {
+        CaliperTransport transport = Transports.jdk().create(TransportOptions.builder().build());
+        TransportRequest request = TransportRequest.builder()
+            .uri(URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/"))
+            .header("Authorization", "key")
+            .body(RequestBody.of("{}".getBytes(StandardCharsets.UTF_8), "application/json", null))
+            .build();
+
+        TransportResponse response = transport.send(request);
+        assertEquals(202, response.getStatusCode());
+        assertEquals("1", response.getHeader("Retry-After"));
+        assertEquals(202, transport.sendAsync(request).get(5, TimeUnit.SECONDS).getStatusCode());
+        assertEquals(2, bodies.size());
+        assertEquals("key {}", bodies.get(0));
+
+        transport.close();
+        try {
+            transport.send(request);
+            fail("Expected the transport to be closed");
+        } catch (IllegalStateException expected) {
+            // closed
+        }
+    }
+}
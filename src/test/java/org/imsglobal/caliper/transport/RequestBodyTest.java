@@ -0,0 +1,65 @@
+/**
+ * This file is part of IMS Caliper Analytics™ and is licensed to
+ * IMS Global Learning Consortium, Inc. (http://www.imsglobal.org)
+ * under one or more contributor license agreements.  See the NOTICE
+ * file distributed with this work for additional information.
+ *
+ * IMS Caliper is free software: you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation, version 3 of the License.
+ *
+ * IMS Caliper is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS FOR
+ * A PARTICULAR PURPOSE.  See the GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package org.imsglobal.caliper.transport;
+
+import org.imsglobal.caliper.CaliperSendable;
+import org.imsglobal.caliper.Envelope;
+import org.imsglobal.caliper.actions.Action;
+import org.imsglobal.caliper.databind.CaliperSerializer;
+import org.imsglobal.caliper.events.Event;
+import org.imsglobal.caliper.events.EventType;
+import org.joda.time.DateTime;
+import org.joda.time.DateTimeZone;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@Category(org.imsglobal.caliper.UnitTest.class)
+public class RequestBodyTest {
+
+    @Test
+    public void streamedEnvelopeMatchesBufferedSerializationOnEveryWrite() throws Exception {
+        List<CaliperSendable> data = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            data.add(Event.builder().id("urn:uuid:" + i).type(EventType.VIEW).action(Action.VIEWED).build());
+        }
+        Envelope envelope = new Envelope("sensor", new DateTime(2026, 10, 18, 12, 0, DateTimeZone.UTC), "1.1", data);
+        CaliperSerializer serializer = CaliperSerializer.getDefault();
+        byte[] buffered = serializer.writeValueAsBytes(envelope);
+
+        RequestBody body = RequestBody.of(envelope, serializer, "application/json");
+        assertEquals(-1, body.getContentLength());
+        assertEquals(-1, body.getSerializedLength());
+
+        // Retries write the same body again
+        for (int attempt = 0; attempt < 2; attempt++) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            body.writeTo(out);
+            assertArrayEquals(buffered, out.toByteArray());
+            assertEquals(buffered.length, body.getSerializedLength());
+        }
+        assertArrayEquals(buffered, body.toByteArray());
+    }
+}